@@ -0,0 +1,33 @@
+package com.yoloo.backend.algorithm;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedditRankAlgorithmBenchmark {
+
+  private final Date createdAt = new Date(1496275200000L);
+
+  private long ups = 1200L;
+
+  private long downs = 37L;
+
+  @Benchmark
+  public double getHotRank() {
+    return RedditRankAlgorithm.getHotRank(ups, downs, createdAt);
+  }
+}
@@ -0,0 +1,89 @@
+package com.yoloo.backend.feed;
+
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.LocalServiceState;
+import ix.Ix;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * The newest page of a feed. Legacy feed ids carry no time, so {@code legacyKeys} loads the whole
+ * feed and sorts it in memory; {@code timeOrderedKeys} reads one page of keys in id order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedPageBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"2000"})
+  private int feedSize;
+
+  private final Key<Account> legacyOwnerKey = Key.create(Account.class, 1L);
+  private final Key<Account> ownerKey = Key.create(Account.class, 2L);
+
+  @Setup
+  public void setUp(LocalServiceState local) {
+    List<PostEntity> posts = local.savePosts(feedSize);
+
+    List<Feed> feeds = Lists.newArrayListWithCapacity(posts.size() * 2);
+    for (PostEntity post : posts) {
+      feeds.add(Feed.builder()
+          .id(Feed.LEGACY_ID_PREFIX + post.getWebsafeId())
+          .parent(legacyOwnerKey)
+          .post(Ref.create(post.getKey()))
+          .build());
+      feeds.add(Feed.builder()
+          .id(Feed.createId(post.getKey(), post.getCreated()))
+          .parent(ownerKey)
+          .post(Ref.create(post.getKey()))
+          .build());
+    }
+
+    ofy().save().entities(feeds).now();
+  }
+
+  @Benchmark
+  public List<PostEntity> legacyKeys() {
+    ofy().clear();
+
+    List<Key<Feed>> keys = ofy().load().type(Feed.class).ancestor(legacyOwnerKey).keys().list();
+
+    return Ix.from(ofy().load().keys(Ix.from(keys).map(Feed::getPostKey).toList()).values())
+        .orderBy((p1, p2) -> p2.getCreated().compareTo(p1.getCreated()))
+        .take(PAGE_SIZE)
+        .toList();
+  }
+
+  @Benchmark
+  public List<PostEntity> timeOrderedKeys() {
+    ofy().clear();
+
+    List<Key<Feed>> keys =
+        ofy().load().type(Feed.class).ancestor(ownerKey).limit(PAGE_SIZE).keys().list();
+
+    return Lists.newArrayList(
+        ofy().load().keys(Ix.from(keys).map(Feed::getPostKey).toList()).values());
+  }
+}
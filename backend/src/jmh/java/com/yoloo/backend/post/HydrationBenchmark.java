@@ -0,0 +1,126 @@
+package com.yoloo.backend.post;
+
+import com.google.api.server.spi.response.CollectionResponse;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.util.CollectionTransformer;
+import com.yoloo.backend.util.LocalServiceState;
+import com.yoloo.backend.vote.Votable;
+import com.yoloo.backend.vote.Vote;
+import io.reactivex.Observable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Rx chain the list endpoints used to hydrate a page with {@link PostHydrator}.
+ * Counters and vote directions are resolved up front, so only the in-memory part is measured.
+ * Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HydrationBenchmark {
+
+  private static final String CURSOR = "cursor";
+
+  @Param({"20", "100"})
+  private int pageSize;
+
+  private List<PostEntity> posts;
+
+  private Map<Key<PostEntity>, PostCounter> counters;
+
+  private Map<Key<Votable>, Vote.Direction> directions;
+
+  @Setup
+  public void setUp(LocalServiceState local) {
+
+    posts = new ArrayList<>(pageSize);
+    counters = Maps.newHashMapWithExpectedSize(pageSize);
+    directions = Maps.newHashMap();
+
+    final Key<Account> authorKey = Key.create(Account.class, 1L);
+
+    for (int i = 1; i <= pageSize; i++) {
+      PostEntity post = PostEntity.builder()
+          .id(i)
+          .parent(authorKey)
+          .content("Post " + i)
+          .tags(ImmutableSet.of("travel"))
+          .postType(PostEntity.Type.TEXT_POST.getType())
+          .created(new DateTime(i * 1000L))
+          .build();
+
+      posts.add(post);
+      counters.put(post.getKey(), PostCounter.of(i, i / 2, 0, 0L));
+
+      // The viewer voted on every third post.
+      if (i % 3 == 0) {
+        directions.put(post.getVotableKey(), Vote.Direction.UP);
+      }
+    }
+  }
+
+  @Benchmark
+  public CollectionResponse<PostEntity> rxChain() {
+    return Observable
+        .just(posts)
+        .flatMap(this::mergeCountersRx)
+        .flatMap(this::mergeDirectionsRx)
+        .compose(CollectionTransformer.create(CURSOR))
+        .blockingSingle();
+  }
+
+  @Benchmark
+  public CollectionResponse<PostEntity> hydrator() {
+    return CollectionResponse.<PostEntity>builder()
+        .setItems(PostHydrator.assemble(posts, counters, directions))
+        .setNextPageToken(CURSOR)
+        .build();
+  }
+
+  /**
+   * Shape of the former {@code PostShardService.mergeShards}, one observable per post.
+   */
+  private Observable<List<PostEntity>> mergeCountersRx(List<PostEntity> entities) {
+    return Observable.fromIterable(entities)
+        .flatMap(entity -> Observable.just(counters.get(entity.getKey()))
+            .map(counter -> entity.withVoteCount(counter.getVotes())
+                .withCommentCount(counter.getComments())
+                .withReportCount(counter.getReports())))
+        .toList(entities.size())
+        .toObservable();
+  }
+
+  /**
+   * Shape of {@code VoteService.checkPostVote}.
+   */
+  private Observable<List<PostEntity>> mergeDirectionsRx(List<PostEntity> entities) {
+    return Observable.fromCallable(() -> directions)
+        .flatMap(dirs -> Observable.fromIterable(entities)
+            .map(votable -> votable.setVoteDir(
+                dirs.getOrDefault(votable.<Votable>getVotableKey(), Vote.Direction.DEFAULT))))
+        .cast(PostEntity.class)
+        .toList()
+        .toObservable();
+  }
+}
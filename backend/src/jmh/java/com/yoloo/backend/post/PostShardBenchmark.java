@@ -0,0 +1,61 @@
+package com.yoloo.backend.post;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.util.LocalServiceState;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Count merging of a page of posts. {@code mergeShards} is served from the folded counters in
+ * memcache, {@code loadShards} is the Datastore path taken when they are missing or stale.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostShardBenchmark {
+
+  @Param({"20"})
+  private int pageSize;
+
+  private PostShardService postShardService;
+
+  private List<PostEntity> posts;
+
+  @Setup
+  public void setUp(LocalServiceState local) {
+    postShardService = PostShardService.create();
+    posts = local.savePosts(pageSize);
+
+    // Folds and caches the counters.
+    postShardService.mergeShards(posts).blockingSingle();
+  }
+
+  @Benchmark
+  public List<PostEntity> mergeShards() {
+    ofy().clear();
+    return postShardService.mergeShards(posts).blockingSingle();
+  }
+
+  @Benchmark
+  public Map<Key<PostEntity>, List<PostShard>> loadShards() {
+    ofy().clear();
+    return postShardService.loadShards(posts);
+  }
+}
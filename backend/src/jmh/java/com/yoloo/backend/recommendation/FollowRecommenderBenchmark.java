@@ -0,0 +1,80 @@
+package com.yoloo.backend.recommendation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full recommendation pass over a synthetic graph, {@code follows} per account on average with
+ * a few very popular accounts, and every account in one to three of 500 groups. Building and
+ * recommending should both grow linearly with the accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FollowRecommenderBenchmark {
+
+  private static final int GROUPS = 500;
+
+  @Param({"10000", "100000"})
+  private int accounts;
+
+  @Param({"20"})
+  private int follows;
+
+  private FollowGraph graph;
+
+  @Setup
+  public void setUp() {
+    graph = build();
+  }
+
+  @Benchmark
+  public FollowGraph buildGraph() {
+    return build();
+  }
+
+  @Benchmark
+  public long recommendAll() {
+    FollowRecommender recommender = new FollowRecommender(graph);
+    long checksum = 0L;
+    for (int account = 0; account < graph.accountCount(); account++) {
+      long[] ids = recommender.recommend(account);
+      checksum += ids.length == 0 ? 0L : ids[0];
+    }
+    return checksum;
+  }
+
+  private FollowGraph build() {
+    Random random = new Random(42L);
+    FollowGraph.Builder builder = FollowGraph.builder();
+
+    for (long id = 1; id <= accounts; id++) {
+      builder.addAccount(id);
+      for (int g = 1 + random.nextInt(3); g > 0; g--) {
+        builder.addMembership(id, "group:" + random.nextInt(GROUPS));
+      }
+
+      // Cubing skews the follows towards the low ids, the popular accounts.
+      for (int f = random.nextInt(2 * follows + 1); f > 0; f--) {
+        final double r = random.nextDouble();
+        builder.addFollow(id, 1L + (long) (r * r * r * accounts));
+      }
+    }
+
+    return builder.build();
+  }
+}
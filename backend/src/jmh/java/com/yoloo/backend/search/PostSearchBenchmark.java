@@ -0,0 +1,123 @@
+package com.yoloo.backend.search;
+
+import com.google.common.collect.Lists;
+import com.yoloo.backend.config.SearchConfig;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ranked queries against the posting shards of a synthetic corpus of 1M posts.
+ *
+ * <p>Posts draw {@value #TERMS_PER_POST} terms from a Zipf distributed vocabulary, so term 0 is
+ * in most posts and term 20000 in a few dozen. Shards are kept encoded as they are stored, every
+ * query decodes the shards of its terms and ranks them, which is the whole work of a search
+ * besides loading the shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PostSearchBenchmark {
+
+  private static final int POSTS = 1000000;
+  private static final int VOCABULARY = 50000;
+  private static final int TERMS_PER_POST = 12;
+
+  @Param({"0", "0 500", "5 50 500", "20000"})
+  private String query;
+
+  private byte[][][] shards;
+  private int[] docFreqs;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42L);
+
+    double[] cdf = new double[VOCABULARY];
+    double sum = 0.0D;
+    for (int term = 0; term < VOCABULARY; term++) {
+      sum += 1.0D / (term + 1);
+      cdf[term] = sum;
+    }
+
+    int[][] postTerms = new int[POSTS][];
+    docFreqs = new int[VOCABULARY];
+    for (int post = 0; post < POSTS; post++) {
+      postTerms[post] = Arrays.stream(new int[TERMS_PER_POST])
+          .map(i -> {
+            int term = Arrays.binarySearch(cdf, random.nextDouble() * cdf[VOCABULARY - 1]);
+            return term < 0 ? -term - 1 : term;
+          })
+          .distinct()
+          .toArray();
+      for (int term : postTerms[post]) {
+        docFreqs[term]++;
+      }
+    }
+
+    int[] shardCounts = new int[VOCABULARY];
+    ByteBuffer[][] buffers = new ByteBuffer[VOCABULARY][];
+    for (int term = 0; term < VOCABULARY; term++) {
+      int shardCount = 1;
+      while (docFreqs[term] > shardCount * SearchConfig.POSTING_SHARD_CAPACITY / 2) {
+        shardCount *= 2;
+      }
+      shardCounts[term] = shardCount;
+      buffers[term] = new ByteBuffer[shardCount];
+      for (int shardNum = 0; shardNum < shardCount; shardNum++) {
+        buffers[term][shardNum] = ByteBuffer.allocate(
+            (docFreqs[term] / shardCount * 2 + 16) * PostingList.POSTING_BYTES);
+      }
+    }
+
+    for (int post = 0; post < POSTS; post++) {
+      final long accountId = 1L + post % 50000;
+      final long postId = 1000000L + post;
+      for (int term : postTerms[post]) {
+        float weight = SearchScorer.weight(1.0D + random.nextInt(3), 40 + random.nextInt(60));
+        buffers[term][PostingShard.shardOf(accountId, postId, shardCounts[term])]
+            .putLong(accountId).putLong(postId).putFloat(weight);
+      }
+    }
+
+    shards = new byte[VOCABULARY][][];
+    for (int term = 0; term < VOCABULARY; term++) {
+      shards[term] = new byte[buffers[term].length][];
+      for (int shardNum = 0; shardNum < buffers[term].length; shardNum++) {
+        ByteBuffer buffer = buffers[term][shardNum];
+        shards[term][shardNum] = Arrays.copyOf(buffer.array(), buffer.position());
+      }
+    }
+  }
+
+  @Benchmark
+  public List<SearchScorer.Hit> search() {
+    List<SearchScorer.QueryTerm> terms = Lists.newArrayList();
+    for (String token : query.split(" ")) {
+      final int term = Integer.parseInt(token);
+
+      List<PostingList> postings = Lists.newArrayListWithCapacity(shards[term].length);
+      for (byte[] shard : shards[term]) {
+        postings.add(PostingList.decode(shard));
+      }
+      terms.add(new SearchScorer.QueryTerm(SearchScorer.idf(docFreqs[term], POSTS), postings));
+    }
+    return SearchScorer.topHits(terms, null, 20);
+  }
+}
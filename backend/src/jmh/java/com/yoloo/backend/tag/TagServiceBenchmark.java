@@ -0,0 +1,50 @@
+package com.yoloo.backend.tag;
+
+import com.google.common.collect.ImmutableList;
+import com.yoloo.backend.util.LocalServiceState;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Tag counting for a new post with a mix of existing and new tags.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagServiceBenchmark {
+
+  private static final List<String> TAG_NAMES =
+      ImmutableList.of("travel", "istanbul", "backpacking", "food", "hostel", "visa");
+
+  private TagService tagService;
+
+  @Setup
+  public void setUp(LocalServiceState local) {
+    tagService = new TagService();
+
+    // Every other tag already exists.
+    ofy().save().entities(tagService.updateTags(
+        ImmutableList.of("travel", "backpacking", "hostel"))).now();
+  }
+
+  @Benchmark
+  public List<Tag> updateTags() {
+    ofy().clear();
+    return tagService.updateTags(TAG_NAMES);
+  }
+}
@@ -0,0 +1,71 @@
+package com.yoloo.backend.util;
+
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.appengine.tools.development.testing.LocalTaskQueueTestConfig;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.util.Closeable;
+import com.yoloo.backend.OfyService;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import java.util.List;
+import java.util.TimeZone;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static com.yoloo.backend.OfyService.factory;
+
+/**
+ * Local App Engine services for benchmarks, configured like {@code GAETestBase}. The helper binds
+ * the API environment to the calling thread, so the state is per benchmark thread. Benchmarks
+ * that read through Objectify should clear the session cache on every invocation.
+ */
+@State(Scope.Thread)
+public class LocalServiceState {
+
+  private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+      new LocalDatastoreServiceTestConfig().setApplyAllHighRepJobPolicy(),
+      new LocalTaskQueueTestConfig().setQueueXmlPath("src/main/webapp/WEB-INF/queue.xml"),
+      new LocalMemcacheServiceTestConfig())
+      .setTimeZone(TimeZone.getDefault());
+
+  private Closeable ofyContext;
+
+  @Setup
+  public void setUp() {
+    helper.setUp();
+    ofyContext = ObjectifyService.begin();
+    // Registers the entity kinds.
+    OfyService.factory();
+  }
+
+  @TearDown
+  public void tearDown() {
+    ofyContext.close();
+    helper.tearDown();
+  }
+
+  /**
+   * Saves posts of one author with their initial shards.
+   *
+   * @param count the number of posts
+   * @return the saved posts
+   */
+  public List<PostEntity> savePosts(int count) {
+    final Key<Account> authorKey = factory().allocateId(Account.class);
+    final DateTime now = DateTime.now();
+
+    List<PostEntity> posts = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      posts.add(TestBase.createPost(authorKey, now.minusMinutes(i), i, "travel"));
+    }
+
+    return posts;
+  }
+}
@@ -0,0 +1,58 @@
+package com.yoloo.backend.util;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Autocomplete lookups of short and long prefixes against a tag or username sized index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixIndexBenchmark {
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  @Param({"a", "ista"})
+  private String prefix;
+
+  private PrefixIndex index;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42L);
+    PrefixIndex.Builder builder = PrefixIndex.builder();
+
+    char[] chars = new char[8];
+    for (int i = 0; i < size; i++) {
+      for (int c = 0; c < chars.length; c++) {
+        chars[c] = (char) ('a' + random.nextInt(26));
+      }
+      builder.add(i % 100 == 0 ? "ista" + new String(chars) : new String(chars), "id" + i,
+          random.nextInt(10000));
+    }
+
+    index = builder.build();
+  }
+
+  @Benchmark
+  public List<PrefixIndex.Entry> search() {
+    return index.search(prefix, 10);
+  }
+}
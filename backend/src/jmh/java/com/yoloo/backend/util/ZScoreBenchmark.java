@@ -0,0 +1,41 @@
+package com.yoloo.backend.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Z-score of a tag over a day of hourly usage counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZScoreBenchmark {
+
+  private final int[] history = new int[24];
+
+  private int observation = 42;
+
+  @Setup
+  public void setUp() {
+    for (int hour = 0; hour < history.length; hour++) {
+      history[hour] = (hour * 7) % 19;
+    }
+  }
+
+  @Benchmark
+  public double score() {
+    return new ZScore(0.8D, history).getScore(observation);
+  }
+}
@@ -0,0 +1,67 @@
+package com.yoloo.backend.vote;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.LocalServiceState;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Vote direction lookup for a page of posts, a third of which the viewer voted on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoteServiceBenchmark {
+
+  @Param({"20"})
+  private int pageSize;
+
+  private VoteService voteService;
+
+  private List<PostEntity> posts;
+
+  private Key<Account> viewerKey;
+
+  @Setup
+  public void setUp(LocalServiceState local) {
+    voteService = VoteService.create();
+    posts = local.savePosts(pageSize);
+    viewerKey = factory().allocateId(Account.class);
+
+    for (int i = 0; i < posts.size(); i += 3) {
+      final Key<PostEntity> postKey = posts.get(i).getKey();
+
+      ofy().save().entity(Vote.builder()
+          .id(postKey.toWebSafeString())
+          .parent(viewerKey)
+          .votableKey(Key.create(postKey.getRaw()))
+          .dir(Vote.Direction.UP.getValue())
+          .build()).now();
+    }
+  }
+
+  @Benchmark
+  public List<PostEntity> checkPostVote() {
+    ofy().clear();
+    return voteService.checkPostVote(posts, viewerKey).blockingSingle();
+  }
+}
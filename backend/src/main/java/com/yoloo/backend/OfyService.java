@@ -12,17 +12,33 @@ import com.yoloo.backend.comment.Comment;
 import com.yoloo.backend.comment.CommentShard;
 import com.yoloo.backend.device.DeviceRecord;
 import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.feed.PullAuthor;
 import com.yoloo.backend.media.MediaEntity;
 import com.yoloo.backend.travelertype.TravelerTypeEntity;
+import com.yoloo.backend.recommendation.FollowGraphPage;
+import com.yoloo.backend.recommendation.FollowRecommendation;
 import com.yoloo.backend.relationship.Relationship;
+import com.yoloo.backend.search.AutocompleteChunk;
+import com.yoloo.backend.search.AutocompleteSnapshot;
+import com.yoloo.backend.search.PostingShard;
+import com.yoloo.backend.search.SearchDocument;
+import com.yoloo.backend.search.SearchIndex;
+import com.yoloo.backend.search.SearchTerm;
 import com.yoloo.backend.game.Tracker;
+import com.yoloo.backend.game.leaderboard.LeaderboardShard;
 import com.yoloo.backend.notification.Notification;
 import com.yoloo.backend.post.PostEntity;
 import com.yoloo.backend.post.PostShard;
+import com.yoloo.backend.shard.ShardCount;
 import com.yoloo.backend.tag.Tag;
+import com.yoloo.backend.tag.TagPostingChunk;
 import com.yoloo.backend.tag.TagShard;
+import com.yoloo.backend.tag.TagTimeline;
+import com.yoloo.backend.tag.TagTrend;
+import com.yoloo.backend.tag.TrendingTags;
 import com.yoloo.backend.group.TravelerGroupShard;
 import com.yoloo.backend.vote.Vote;
+import com.yoloo.backend.vote.VoteFlushLog;
 
 /**
  * Objectify service wrapper so we can statically register our persistence classes
@@ -37,11 +53,24 @@ public final class OfyService {
     factory().register(AccountShard.class);
 
     factory().register(Feed.class);
+    factory().register(PullAuthor.class);
     factory().register(PostEntity.class);
     factory().register(PostShard.class);
+    factory().register(ShardCount.class);
 
     factory().register(Tag.class);
     factory().register(TagShard.class);
+    factory().register(TagTrend.class);
+    factory().register(TrendingTags.class);
+
+    factory().register(SearchIndex.class);
+    factory().register(SearchTerm.class);
+    factory().register(PostingShard.class);
+    factory().register(SearchDocument.class);
+    factory().register(AutocompleteSnapshot.class);
+    factory().register(AutocompleteChunk.class);
+    factory().register(TagTimeline.class);
+    factory().register(TagPostingChunk.class);
 
     factory().register(TravelerTypeEntity.class);
     factory().register(TravelerGroupEntity.class);
@@ -51,9 +80,13 @@ public final class OfyService {
     factory().register(CommentShard.class);
 
     factory().register(Vote.class);
+    factory().register(VoteFlushLog.class);
 
     factory().register(Tracker.class);
+    factory().register(LeaderboardShard.class);
     factory().register(Relationship.class);
+    factory().register(FollowRecommendation.class);
+    factory().register(FollowGraphPage.class);
 
     factory().register(Bookmark.class);
 
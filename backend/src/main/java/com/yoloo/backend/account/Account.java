@@ -46,6 +46,7 @@ public class Account {
 
   public static final String FIELD_EMAIL = "email";
   public static final String FIELD_USERNAME = "username";
+  public static final String FIELD_CREATED = "created";
   public static final String FIELD_SUBSCRIBED_GROUP_KEYS = "subscribedGroupKeys";
 
   @Id private long id;
@@ -0,0 +1,57 @@
+package com.yoloo.backend.account;
+
+import com.google.common.collect.Maps;
+import com.yoloo.backend.Constants;
+import com.yoloo.backend.util.AutocompleteIndex;
+import com.yoloo.backend.util.PrefixIndex;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Usernames of this instance, weighted by follower count. Admins have no indexed username and are
+ * left out.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class AccountAutocompleteIndex extends AutocompleteIndex {
+
+  private static final AccountAutocompleteIndex INSTANCE = new AccountAutocompleteIndex();
+
+  public static AccountAutocompleteIndex instance() {
+    return INSTANCE;
+  }
+
+  @Override protected void loadAll(PrefixIndex.Builder builder) {
+    Map<String, Long> followers = Maps.newHashMap();
+    for (AccountShard shard : ofy()
+        .load()
+        .type(AccountShard.class)
+        .filter(AccountShard.FIELD_FOLLOWER_COUNT + " >", 0L)
+        .project(AccountShard.FIELD_FOLLOWER_COUNT)) {
+      followers.merge(shard.getWebsafeAccountId(), shard.getFollowerCount(), Long::sum);
+    }
+
+    for (Account account : ofy()
+        .load()
+        .type(Account.class)
+        .project(Account.FIELD_USERNAME)) {
+      final String id = account.getWebsafeId();
+      builder.add(account.getUsername(), id, followers.getOrDefault(id, 0L));
+    }
+  }
+
+  @Override protected void loadSince(DateTime since, PrefixIndex.Builder builder) {
+    for (Account account : ofy()
+        .load()
+        .type(Account.class)
+        .filter(Account.FIELD_CREATED + " >=", since)) {
+      if (!Constants.ADMIN_USERNAME.equals(account.getUsername())) {
+        // New accounts have no followers worth ranking yet.
+        builder.add(account.getUsername(), account.getWebsafeId(), 0L);
+      }
+    }
+  }
+}
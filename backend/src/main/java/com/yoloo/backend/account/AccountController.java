@@ -35,7 +35,7 @@ import com.yoloo.backend.media.MediaEntity;
 import com.yoloo.backend.media.MediaService;
 import com.yoloo.backend.media.Size;
 import com.yoloo.backend.media.size.ThumbSize;
-import com.yoloo.backend.relationship.Relationship;
+import com.yoloo.backend.relationship.FollowGraphService;
 import com.yoloo.backend.util.ServerConfig;
 import com.yoloo.backend.util.StringUtil;
 import ix.Ix;
@@ -70,6 +70,10 @@ public final class AccountController extends Controller {
 
   private TravelerGroupService travelerGroupService;
 
+  private final AccountAutocompleteIndex accountIndex = AccountAutocompleteIndex.instance();
+
+  private final FollowGraphService followGraphService = FollowGraphService.create();
+
   /**
    * Get account.
    *
@@ -138,7 +142,7 @@ public final class AccountController extends Controller {
           .add(tracker)
           .build();
 
-      return ofy().transact(() -> {
+      Account saved = ofy().transact(() -> {
         ofy().save().entities(saveList).now();
 
         final String stringifiedSubscribedIds = Stream
@@ -152,6 +156,10 @@ public final class AccountController extends Controller {
             .withCounts(Account.Counts.builder().build())
             .withDetail(Account.Detail.builder().build());
       });
+
+      accountIndex.add(saved.getUsername(), saved.getWebsafeId(), 0L);
+
+      return saved;
     }
   }
 
@@ -327,7 +335,9 @@ public final class AccountController extends Controller {
   }
 
   /**
-   * Search accounts collection response.
+   * Search accounts by username prefix, most followed first. The first page is served from the
+   * instance's {@link AccountAutocompleteIndex} and carries no cursor, cursors of earlier responses
+   * still page through the datastore by username.
    *
    * @param q the value
    * @param cursor the cursor
@@ -339,15 +349,26 @@ public final class AccountController extends Controller {
 
     q = q.toLowerCase().trim();
 
+    if (!cursor.isPresent()) {
+      List<Key<Account>> keys = Ix
+          .from(accountIndex.search(q, limit.or(DEFAULT_LIST_LIMIT)))
+          .map(entry -> Key.<Account>create(entry.getId()))
+          .toList();
+
+      Map<Key<Account>, Account> fetched = ofy().load().keys(keys);
+
+      List<Account> accounts = Ix.from(keys).map(fetched::get).filter(a -> a != null).toList();
+
+      return CollectionResponse.<Account>builder().setItems(accounts).build();
+    }
+
     Query<Account> query = ofy()
         .load()
         .type(Account.class)
         .filter(Account.FIELD_USERNAME + " >=", q)
-        .filter(Account.FIELD_USERNAME + " <", q + "\ufffd");
-
-    query = cursor.isPresent() ? query.startAt(Cursor.fromWebSafeString(cursor.get())) : query;
-
-    query = query.limit(limit.or(DEFAULT_LIST_LIMIT));
+        .filter(Account.FIELD_USERNAME + " <", q + "\ufffd")
+        .startAt(Cursor.fromWebSafeString(cursor.get()))
+        .limit(limit.or(DEFAULT_LIST_LIMIT));
 
     final QueryResultIterator<Account> qi = query.iterator();
 
@@ -391,14 +412,7 @@ public final class AccountController extends Controller {
   }
 
   private boolean isFollowing(Key<Account> targetAccountKey, Key<Account> currentAccountKey) {
-    return ofy()
-        .load()
-        .type(Relationship.class)
-        .ancestor(currentAccountKey)
-        .filter(Relationship.FIELD_FOLLOWING_KEY + " =", targetAccountKey)
-        .keys()
-        .first()
-        .now() != null;
+    return followGraphService.isFollowing(currentAccountKey, targetAccountKey);
   }
 
   private AccountBundle createAdminAccountEntity() {
@@ -24,6 +24,8 @@ public final class AccountShard implements Shardable.Shard {
 
   public static final int SHARD_COUNT = ShardConfig.ACCOUNT_SHARD_COUNTER;
 
+  public static final String FIELD_FOLLOWER_COUNT = "followerCount";
+
   /**
    * Websafe accountId:shard_num
    */
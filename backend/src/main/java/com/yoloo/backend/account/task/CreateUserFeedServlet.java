@@ -4,8 +4,11 @@ import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.api.taskqueue.QueueFactory;
 import com.google.appengine.api.taskqueue.TaskOptions;
 import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
 import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.account.Account;
 import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.feed.FeedCache;
 import com.yoloo.backend.group.TravelerGroupEntity;
 import com.yoloo.backend.post.PostEntity;
 import com.yoloo.backend.util.KeyUtil;
@@ -57,18 +60,23 @@ public class CreateUserFeedServlet extends HttpServlet {
       query = query.filter(PostEntity.FIELD_GROUP_KEY + " =", key);
     }
 
-    List<Key<PostEntity>> postKeys =
-        query.order("-" + PostEntity.FIELD_CREATED).limit(getRequiredEntitySize(groupKeys)).keys().list();
+    List<PostEntity> posts =
+        query.order("-" + PostEntity.FIELD_CREATED).limit(getRequiredEntitySize(groupKeys)).list();
 
-    List<Feed> feeds = Ix.from(postKeys).map(postKey -> getFeed(userId, postKey)).toList();
+    List<Feed> feeds = Ix.from(posts).map(post -> getFeed(userId, post)).toList();
 
     log.info("Feeds: " + feeds);
 
-    ofy().save().entities(feeds);
+    ofy().save().entities(feeds).now();
+    FeedCache.create().invalidate(Key.<Account>create(userId));
   }
 
-  private Feed getFeed(String userId, Key<PostEntity> postKey) {
-    return Feed.builder().id(Feed.createId(postKey)).parent(Key.create(userId)).build();
+  private Feed getFeed(String userId, PostEntity post) {
+    return Feed.builder()
+        .id(Feed.createId(post.getKey(), post.getCreated()))
+        .parent(Key.create(userId))
+        .post(Ref.create(post.getKey()))
+        .build();
   }
 
   private int getRequiredEntitySize(List<Key<TravelerGroupEntity>> keys) {
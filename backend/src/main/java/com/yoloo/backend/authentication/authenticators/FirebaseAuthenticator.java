@@ -4,6 +4,11 @@ import com.google.api.client.util.Strings;
 import com.google.api.server.spi.auth.common.User;
 import com.google.api.server.spi.config.Authenticator;
 import com.google.api.server.spi.config.Singleton;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.tasks.Task;
@@ -11,17 +16,56 @@ import com.google.firebase.tasks.Tasks;
 import com.googlecode.objectify.Key;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.authentication.oauth2.OAuth2;
+import com.yoloo.backend.config.AuthConfig;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
+import lombok.Value;
 
 import static com.yoloo.backend.OfyService.ofy;
 
+/**
+ * Authenticates requests by their Firebase id token.
+ *
+ * <p>Verified tokens are cached by their hash until shortly before they expire, and account keys
+ * by email for {@link AuthConfig#ACCOUNT_KEY_CACHE_MINUTES}, so a client repeating its token
+ * costs two map lookups instead of a verification and a query. Hit rates and verification
+ * latency are logged every {@link AuthConfig#AUTH_STATS_LOG_SECONDS}.
+ */
 @Singleton
 public class FirebaseAuthenticator implements Authenticator {
 
   private static final Logger LOG = Logger.getLogger(FirebaseAuthenticator.class.getName());
 
+  private static final String CLAIM_EMAIL = "email";
+  private static final String CLAIM_EXPIRATION = "exp";
+
+  private final Cache<String, VerifiedToken> tokens = CacheBuilder.newBuilder()
+      .maximumSize(AuthConfig.TOKEN_CACHE_SIZE)
+      .expireAfterWrite(AuthConfig.TOKEN_MAX_CACHE_SECONDS, TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+
+  private final Cache<String, Key<Account>> accountKeys = CacheBuilder.newBuilder()
+      .maximumSize(AuthConfig.ACCOUNT_KEY_CACHE_SIZE)
+      .expireAfterWrite(AuthConfig.ACCOUNT_KEY_CACHE_MINUTES, TimeUnit.MINUTES)
+      .recordStats()
+      .build();
+
+  private final LongAdder verifications = new LongAdder();
+  private final LongAdder verificationNanos = new LongAdder();
+  private final LongAccumulator maxVerificationNanos = new LongAccumulator(Math::max, 0L);
+
+  private final AtomicLong nextStatsLog = new AtomicLong();
+  private volatile CacheStats loggedTokenStats = new CacheStats(0, 0, 0, 0, 0, 0);
+  private volatile CacheStats loggedAccountKeyStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
   @Override
   public User authenticate(final HttpServletRequest request) {
     String authHeader = request.getHeader(OAuth2.HeaderType.AUTHORIZATION);
@@ -34,28 +78,101 @@ public class FirebaseAuthenticator implements Authenticator {
     // [1] - Token
     final String idToken = authHeader.split(" ")[1];
 
-    Task<FirebaseToken> authTask =
-        FirebaseAuth.getInstance().verifyIdToken(idToken).addOnSuccessListener(decodedToken -> {
-        });
+    logStats();
+
+    VerifiedToken token = getVerifiedToken(idToken);
+
+    if (token == null || token.getEmail() == null) {
+      return null;
+    }
+
+    Key<Account> accountKey = getAccountKey(token.getEmail());
+
+    if (accountKey != null) {
+      return new User(accountKey.toWebSafeString(), token.getEmail());
+    }
+
+    return null;
+  }
+
+  private VerifiedToken getVerifiedToken(String idToken) {
+    final String tokenHash = Hashing.sha256().hashString(idToken, Charsets.UTF_8).toString();
+    final long now = currentTimeMillis();
+
+    VerifiedToken token = tokens.getIfPresent(tokenHash);
+
+    if (token != null && token.getCacheUntil() > now) {
+      return token;
+    }
+
+    final long start = System.nanoTime();
+
+    final Map<String, Object> claims = verifyIdToken(idToken);
+
+    final long elapsed = System.nanoTime() - start;
+    verifications.increment();
+    verificationNanos.add(elapsed);
+    maxVerificationNanos.accumulate(elapsed);
+
+    if (claims == null) {
+      tokens.invalidate(tokenHash);
+      return null;
+    }
+
+    token = new VerifiedToken((String) claims.get(CLAIM_EMAIL), cacheUntil(claims, now));
+    tokens.put(tokenHash, token);
+
+    return token;
+  }
+
+  /**
+   * Verifies the token with Firebase.
+   *
+   * @return the claims of the token, null if it is invalid
+   */
+  @Nullable Map<String, Object> verifyIdToken(String idToken) {
+    Task<FirebaseToken> authTask = FirebaseAuth.getInstance().verifyIdToken(idToken);
 
-    if (isTaskCompleted(authTask) && authTask.isSuccessful()) {
-      FirebaseToken token = authTask.getResult();
+    return isTaskCompleted(authTask) && authTask.isSuccessful()
+        ? authTask.getResult().getClaims()
+        : null;
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
 
-      final Key<Account> accountKey = ofy().load()
+  private Key<Account> getAccountKey(String email) {
+    Key<Account> accountKey = accountKeys.getIfPresent(email);
+
+    if (accountKey == null) {
+      accountKey = ofy().load()
           .type(Account.class)
-          .filter(Account.FIELD_EMAIL + " =", token.getEmail())
+          .filter(Account.FIELD_EMAIL + " =", email)
           .keys()
           .first()
           .now();
 
+      // Accounts created after a miss must be found, only hits are kept.
       if (accountKey != null) {
-        return new User(accountKey.toWebSafeString(), token.getEmail());
+        accountKeys.put(email, accountKey);
       }
+    }
 
-      return null;
+    return accountKey;
+  }
+
+  private static long cacheUntil(Map<String, Object> claims, long now) {
+    final long maxCacheUntil = now + TimeUnit.SECONDS.toMillis(AuthConfig.TOKEN_MAX_CACHE_SECONDS);
+    final Object expiration = claims.get(CLAIM_EXPIRATION);
+
+    if (!(expiration instanceof Number)) {
+      return maxCacheUntil;
     }
 
-    return null;
+    final long expiresAt = TimeUnit.SECONDS.toMillis(
+        ((Number) expiration).longValue() - AuthConfig.TOKEN_EXPIRY_SKEW_SECONDS);
+    return Math.min(expiresAt, maxCacheUntil);
   }
 
   private boolean isTaskCompleted(Task<FirebaseToken> authTask) {
@@ -66,4 +183,42 @@ public class FirebaseAuthenticator implements Authenticator {
     }
     return true;
   }
-}
\ No newline at end of file
+
+  private void logStats() {
+    final long now = currentTimeMillis();
+    final long next = nextStatsLog.get();
+
+    if (now < next || !nextStatsLog.compareAndSet(next,
+        now + TimeUnit.SECONDS.toMillis(AuthConfig.AUTH_STATS_LOG_SECONDS))) {
+      return;
+    }
+
+    CacheStats tokenStats = tokens.stats();
+    CacheStats accountKeyStats = accountKeys.stats();
+    CacheStats tokenDelta = tokenStats.minus(loggedTokenStats);
+    CacheStats accountKeyDelta = accountKeyStats.minus(loggedAccountKeyStats);
+    loggedTokenStats = tokenStats;
+    loggedAccountKeyStats = accountKeyStats;
+
+    final long count = verifications.sumThenReset();
+    final long nanos = verificationNanos.sumThenReset();
+    final long maxNanos = maxVerificationNanos.getThenReset();
+
+    if (tokenDelta.requestCount() == 0L) {
+      return;
+    }
+
+    LOG.info(String.format("Token cache hit rate %.3f of %d, "
+            + "account key cache hit rate %.3f of %d, "
+            + "%d verifications avg %.1f ms max %.1f ms",
+        tokenDelta.hitRate(), tokenDelta.requestCount(),
+        accountKeyDelta.hitRate(), accountKeyDelta.requestCount(),
+        count, count == 0L ? 0.0D : nanos / 1e6D / count, maxNanos / 1e6D));
+  }
+
+  @Value
+  private static class VerifiedToken {
+    private String email;
+    private long cacheUntil;
+  }
+}
@@ -11,10 +11,9 @@ import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.base.Controller;
 import com.yoloo.backend.post.PostEntity;
-import com.yoloo.backend.post.PostShardService;
+import com.yoloo.backend.post.PostHydrator;
 import com.yoloo.backend.post.dto.Post;
 import com.yoloo.backend.post.transformer.PostTransformer;
-import com.yoloo.backend.vote.VoteService;
 import ix.Ix;
 import java.util.Collection;
 import java.util.List;
@@ -36,9 +35,7 @@ public class BookmarkController extends Controller {
 
   private PostTransformer postTransformer;
 
-  private PostShardService postShardService;
-
-  private VoteService voteService;
+  private PostHydrator postHydrator;
 
   /**
    * Save question.
@@ -112,10 +109,9 @@ public class BookmarkController extends Controller {
 
     Collection<PostEntity> postEntities = ofy().load().keys(postKeys).values();
 
-    List<Post> posts = postShardService.mergeShards(postEntities)
-        .flatMap(__ -> voteService.checkPostVote(__, authKey))
-        .map(__ -> Ix.from(__).map(post -> postTransformer.transformTo(post)).toList())
-        .blockingSingle();
+    List<Post> posts = Ix.from(postHydrator.hydrate(postEntities, authKey))
+        .map(post -> postTransformer.transformTo(post))
+        .toList();
 
     return CollectionResponse.<Post>builder()
         .setItems(posts)
@@ -1,6 +1,7 @@
 package com.yoloo.backend.bookmark;
 
 import com.yoloo.backend.base.ControllerFactory;
+import com.yoloo.backend.post.PostHydrator;
 import com.yoloo.backend.post.PostShardService;
 import com.yoloo.backend.post.transformer.PostTransformer;
 import com.yoloo.backend.vote.VoteService;
@@ -13,7 +14,6 @@ public class BookmarkControllerFactory implements ControllerFactory<BookmarkCont
   public BookmarkController create() {
     return BookmarkController.create(
         new PostTransformer(),
-        PostShardService.create(),
-        VoteService.create());
+        PostHydrator.create(PostShardService.create(), VoteService.create()));
   }
 }
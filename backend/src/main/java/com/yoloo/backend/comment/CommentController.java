@@ -17,8 +17,9 @@ import com.yoloo.backend.base.Controller;
 import com.yoloo.backend.device.DeviceRecord;
 import com.yoloo.backend.device.DeviceUtil;
 import com.yoloo.backend.endpointsvalidator.Guard;
+import com.yoloo.backend.game.GameEvent;
+import com.yoloo.backend.game.GameEventCode;
 import com.yoloo.backend.game.GameService;
-import com.yoloo.backend.game.Tracker;
 import com.yoloo.backend.notification.NotificationService;
 import com.yoloo.backend.notification.type.AcceptNotifiable;
 import com.yoloo.backend.notification.type.CommentNotifiable;
@@ -26,10 +27,11 @@ import com.yoloo.backend.notification.type.MentionNotification;
 import com.yoloo.backend.notification.type.Notifiable;
 import com.yoloo.backend.post.PostEntity;
 import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.post.PostCounterService;
+import com.yoloo.backend.post.PostRankService;
 import com.yoloo.backend.post.PostShard;
 import com.yoloo.backend.post.PostShardService;
 import com.yoloo.backend.vote.Vote;
-import com.yoloo.backend.vote.VoteService;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -57,11 +59,15 @@ public class CommentController extends Controller {
 
   private PostShardService postShardService;
 
+  private PostCounterService postCounterService;
+
+  private PostRankService postRankService;
+
   private GameService gameService;
 
   private NotificationService notificationService;
 
-  private VoteService voteService;
+  private CommentHydrator commentHydrator;
 
   /**
    * Get comment.
@@ -83,10 +89,7 @@ public class CommentController extends Controller {
 
     Guard.checkNotFound(comment, "Comment does not exists!");
 
-    return commentShardService
-        .mergeShards(comment)
-        .flatMap(comment1 -> voteService.checkCommentVote(comment1, accountKey))
-        .blockingSingle();
+    return commentHydrator.hydrate(comment, accountKey);
   }
 
   /**
@@ -112,10 +115,6 @@ public class CommentController extends Controller {
     final Key<PostShard> questionShardKey = postShardService.getRandomShardKey(questionKey);
     keyBuilder.add(questionShardKey);
 
-    // Create tracker key.
-    final Key<Tracker> trackerKey = Tracker.createKey(accountKey);
-    keyBuilder.add(trackerKey);
-
     // Create record key.
     final Key<DeviceRecord> recordKey = DeviceRecord.createKey(questionKey.getParent());
     keyBuilder.add(recordKey);
@@ -132,8 +131,6 @@ public class CommentController extends Controller {
     //noinspection SuspiciousMethodCalls
     PostShard qqs = (PostShard) fetched.get(questionShardKey);
     //noinspection SuspiciousMethodCalls
-    Tracker tracker = (Tracker) fetched.get(trackerKey);
-    //noinspection SuspiciousMethodCalls
     DeviceRecord record = (DeviceRecord) fetched.get(recordKey);
 
     // Create a new comment from given inputs.
@@ -142,28 +139,27 @@ public class CommentController extends Controller {
     Comment comment = entity.getComment();
     Collection<CommentShard> shards = entity.getShards().values();
 
+    // Bonuses depending on the post are decided here, the tracker is written later.
+    List<GameEvent> gameEvents = Lists.newArrayListWithCapacity(3);
+    gameEvents.add(GameEvent.of(GameEventCode.Point.FIRST_ANSWER, comment.getKey()));
+    if (!postEntity.isCommented()) {
+      gameEvents.add(GameEvent.of(GameEventCode.Point.DAILY_FIRST_ANSWERER, comment.getKey()));
+
+      if (postEntity.getCreated().plusHours(1).isBeforeNow()) {
+        gameEvents.add(GameEvent.of(GameEventCode.Point.ANSWER_TO_UNANSWERED, comment.getKey()));
+      }
+    }
+
     postEntity = postEntity.withCommented(!postEntity.isCommented());
 
     // Increase total comment count.
     qqs.increaseComments();
 
-    // Start gamification check.
-    List<Notifiable> notifiables = Lists.newArrayList();
-    gameService.addAnswerFirstQuestionBonus(record, tracker, notifiables::addAll);
-    gameService.addFirstCommenterBonus(record, tracker, postEntity, notifiables::addAll);
-    gameService.addAnswerToUnansweredQuestionBonus(record, tracker, postEntity,
-        notifiables::addAll);
-
     ImmutableSet.Builder<Object> saveBuilder = ImmutableSet.builder()
         .add(comment)
         .addAll(shards)
         .add(qqs)
-        .add(postEntity)
-        .add(tracker);
-
-    for (Notifiable bundle : notifiables) {
-      saveBuilder.addAll(bundle.getNotifications());
-    }
+        .add(postEntity);
 
     // Do not send notification to self.
     if (!questionKey.<Account>getParent().equivalent(accountKey)) {
@@ -201,16 +197,21 @@ public class CommentController extends Controller {
       saveBuilder.addAll(commentNotifiable.getNotifications());
     }
 
-    return ofy().transact(() -> {
-      Map<Key<Object>, Object> saved = ofy().save().entities(saveBuilder.build()).now();
+    Comment saved = ofy().transact(() -> {
+      Map<Key<Object>, Object> savedMap = ofy().save().entities(saveBuilder.build()).now();
 
-      for (Notifiable bundle : notifiables) {
-        notificationService.send(bundle);
-      }
+      postRankService.markDirty(questionKey);
+      gameService.publish(accountKey, gameEvents.toArray(new GameEvent[gameEvents.size()]));
 
       //noinspection SuspiciousMethodCalls
-      return (Comment) saved.get(comment.getKey());
+      return (Comment) savedMap.get(comment.getKey());
     });
+
+    gameService.scheduleApply(accountKey);
+    postCounterService.scheduleAggregation(questionKey);
+    postRankService.scheduleUpdate();
+
+    return saved;
   }
 
   /**
@@ -247,17 +248,10 @@ public class CommentController extends Controller {
     // Create device key from comment owner.
     final Key<DeviceRecord> answererRecordKey = DeviceRecord.createKey(commentKey.getParent());
 
-    // Create tracker key from post owner.
-    final Key<Tracker> askerTrackerKey = Tracker.createKey(postKey.getParent());
-
-    // Create tracker key from comment owner.
-    final Key<Tracker> answererTrackerKey = Tracker.createKey(commentKey.getParent());
-
     // Make a batch load.
     //noinspection unchecked
     Map<Key<Object>, Object> fetched =
-        ofy().load().keys(accountKey, postKey, commentKey, askerRecordKey, answererRecordKey,
-            askerTrackerKey, answererTrackerKey);
+        ofy().load().keys(accountKey, postKey, commentKey, askerRecordKey, answererRecordKey);
 
     //noinspection SuspiciousMethodCalls
     Account account = (Account) fetched.get(accountKey);
@@ -269,21 +263,25 @@ public class CommentController extends Controller {
     DeviceRecord askerRecord = (DeviceRecord) fetched.get(askerRecordKey);
     //noinspection SuspiciousMethodCalls
     DeviceRecord answererRecord = (DeviceRecord) fetched.get(answererRecordKey);
-    //noinspection SuspiciousMethodCalls
-    Tracker askerTracker = (Tracker) fetched.get(askerTrackerKey);
-    //noinspection SuspiciousMethodCalls
-    Tracker answererTracker = (Tracker) fetched.get(answererTrackerKey);
 
     comment = commentService.update(comment, content);
 
     // Start gamification check.
     List<Notifiable> notifiables = Lists.newArrayList();
+    final boolean firstAccept = accepted.isPresent()
+        && postEntity.getParent().equivalent(accountKey)
+        && postEntity.getAcceptedCommentId() == null;
+    final int postBounty = postEntity.getBounty();
+
     if (accepted.isPresent() && postEntity.getParent().equivalent(accountKey)) {
 
       postEntity = postEntity.withAcceptedCommentKey(comment.getKey());
       comment = comment.withAccepted(true);
-      postEntity = gameService.addAcceptCommentBonus(askerTracker, answererTracker, askerRecord,
-          answererRecord, postEntity, notifiables::addAll, notifiables::addAll);
+
+      // The bounty is handed to the answerer with the accepted comment bonus.
+      if (firstAccept) {
+        postEntity = postEntity.withBounty(0);
+      }
 
       notifiables.add(AcceptNotifiable.create(account, answererRecord, postEntity));
 
@@ -296,16 +294,30 @@ public class CommentController extends Controller {
 
     saveBuilder.add(postEntity).add(comment);
 
-    return ofy().transact(() -> {
-      Map<Key<Object>, Object> saved = ofy().save().entities(saveBuilder.build()).now();
+    final Comment saved = ofy().transact(() -> {
+      Map<Key<Object>, Object> savedMap = ofy().save().entities(saveBuilder.build()).now();
+
+      if (firstAccept) {
+        gameService.publish(postKey.getParent(),
+            GameEvent.of(GameEventCode.Point.ACCEPT_COMMENT, commentKey));
+        gameService.publish(commentKey.getParent(),
+            GameEvent.of(GameEventCode.Bounty.ACCEPTED_COMMENT, commentKey, postBounty));
+      }
 
       for (Notifiable bundle : notifiables) {
         notificationService.send(bundle);
       }
 
       //noinspection SuspiciousMethodCalls
-      return (Comment) saved.get(commentKey);
+      return (Comment) savedMap.get(commentKey);
     });
+
+    if (firstAccept) {
+      gameService.scheduleApply(postKey.getParent());
+      gameService.scheduleApply(commentKey.getParent());
+    }
+
+    return saved;
   }
 
   /**
@@ -340,6 +352,8 @@ public class CommentController extends Controller {
       ofy().delete().keys(deleteList).now();
       ofy().save().entity(shard).now();
     });
+
+    postCounterService.scheduleAggregation(postKey);
   }
 
   /**
@@ -383,9 +397,7 @@ public class CommentController extends Controller {
     }
 
     if (!comments.isEmpty()) {
-      comments = commentShardService.mergeShards(comments)
-          .flatMap(comments1 -> voteService.checkCommentVote(comments1, authKey))
-          .blockingFirst();
+      comments = commentHydrator.hydrate(comments, authKey);
     }
 
     return CollectionResponse.<Comment>builder()
@@ -1,9 +1,10 @@
 package com.yoloo.backend.comment;
 
-import com.google.appengine.api.urlfetch.URLFetchServiceFactory;
 import com.yoloo.backend.base.ControllerFactory;
 import com.yoloo.backend.game.GameService;
 import com.yoloo.backend.notification.NotificationService;
+import com.yoloo.backend.post.PostCounterService;
+import com.yoloo.backend.post.PostRankService;
 import com.yoloo.backend.post.PostShardService;
 import com.yoloo.backend.vote.VoteService;
 import lombok.NoArgsConstructor;
@@ -19,8 +20,10 @@ public class CommentControllerFactory implements ControllerFactory<CommentContro
         CommentService.create(shardService),
         shardService,
         PostShardService.create(),
+        PostCounterService.create(),
+        PostRankService.create(),
         GameService.create(),
-        NotificationService.create(URLFetchServiceFactory.getURLFetchService()),
-        VoteService.create());
+        NotificationService.create(),
+        CommentHydrator.create(shardService, VoteService.create()));
   }
 }
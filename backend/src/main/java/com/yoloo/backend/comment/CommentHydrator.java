@@ -0,0 +1,65 @@
+package com.yoloo.backend.comment;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.vote.Votable;
+import com.yoloo.backend.vote.Vote;
+import com.yoloo.backend.vote.VoteService;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+
+/**
+ * Prepares comments for responses. Vote counts are summed from the loaded shards and the vote
+ * direction of the viewer is set in a single pass, on the request thread.
+ */
+@AllArgsConstructor(staticName = "create")
+public class CommentHydrator {
+
+  private CommentShardService commentShardService;
+
+  private VoteService voteService;
+
+  /**
+   * Hydrates the given comments.
+   *
+   * @param comments the comments, loaded with {@link Comment.ShardGroup}
+   * @param accountKey the key of the viewer
+   * @return the hydrated comments, in the given order
+   */
+  public List<Comment> hydrate(Collection<Comment> comments, Key<Account> accountKey) {
+    if (comments.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final Map<Key<Votable>, Vote.Direction> directions =
+        voteService.getDirections(comments, accountKey);
+
+    final Comment[] hydrated = new Comment[comments.size()];
+
+    int i = 0;
+    for (Comment comment : comments) {
+      final Vote.Direction dir = directions.get(comment.<Votable>getVotableKey());
+
+      hydrated[i++] = comment
+          .withVoteCount(commentShardService.countVotes(comment))
+          .withDir(dir == null ? Vote.Direction.DEFAULT : dir);
+    }
+
+    return Arrays.asList(hydrated);
+  }
+
+  /**
+   * Hydrates the given comment.
+   *
+   * @param comment the comment, loaded with {@link Comment.ShardGroup}
+   * @param accountKey the key of the viewer
+   * @return the hydrated comment
+   */
+  public Comment hydrate(Comment comment, Key<Account> accountKey) {
+    return hydrate(Collections.singletonList(comment), accountKey).get(0);
+  }
+}
@@ -64,6 +64,22 @@ public class CommentShardService implements Shardable<CommentShard, Comment> {
         .toObservable();
   }
 
+  /**
+   * Sums the votes of the loaded shards of the given comment.
+   *
+   * @param comment the comment, loaded with {@link Comment.ShardGroup}
+   * @return the vote count
+   */
+  public long countVotes(Comment comment) {
+    long votes = 0L;
+    for (CommentShard shard : comment.getShards()) {
+      if (shard != null) {
+        votes += shard.getVotes();
+      }
+    }
+    return votes;
+  }
+
   private Observable<CommentShard> createShardsFromPostKey(Key<Comment> postKey) {
     return Observable
         .range(1, ShardConfig.COMMENT_SHARD_COUNTER)
@@ -0,0 +1,34 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class AuthConfig {
+
+  /**
+   * Maximum number of verified id tokens kept per instance.
+   */
+  public static final int TOKEN_CACHE_SIZE = 20000;
+
+  /**
+   * Tokens are dropped from the cache this long before they expire.
+   */
+  public static final int TOKEN_EXPIRY_SKEW_SECONDS = 30;
+
+  /**
+   * Lifetime of a cached token whose expiry can not be read, and the longest lifetime of any.
+   */
+  public static final int TOKEN_MAX_CACHE_SECONDS = 60 * 60;
+
+  /**
+   * Maximum number of account keys by email kept per instance.
+   */
+  public static final int ACCOUNT_KEY_CACHE_SIZE = 20000;
+
+  public static final int ACCOUNT_KEY_CACHE_MINUTES = 10;
+
+  /**
+   * Cache hit rates and verification latency are logged at most this often.
+   */
+  public static final int AUTH_STATS_LOG_SECONDS = 5 * 60;
+}
@@ -0,0 +1,41 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class FeedConfig {
+
+  /**
+   * Maximum number of followers a single fan-out task pages through.
+   */
+  public static final int FAN_OUT_CHUNK_SIZE = 1000;
+
+  /**
+   * Maximum number of feed entities written in one datastore batch put.
+   */
+  public static final int FAN_OUT_SAVE_BATCH_SIZE = 500;
+
+  /**
+   * Authors with at least this many followers are not fanned out, their posts are pulled into
+   * follower feeds at read time. Overridden by the "feed.pull.follower.threshold" property.
+   */
+  public static final int PULL_FOLLOWER_THRESHOLD =
+      Integer.getInteger("feed.pull.follower.threshold", 10000);
+
+  /**
+   * Maximum number of values in a single datastore "IN" filter.
+   */
+  public static final int MAX_IN_FILTER_SIZE = 30;
+
+  /**
+   * Lifetime of a cached feed page. Pages are invalidated on fan-out and on votes, the short
+   * lifetime bounds staleness of everything else, e.g. posts of pull authors or vote counts.
+   */
+  public static final int PAGE_CACHE_EXPIRATION_SECONDS = 60;
+
+  /**
+   * Lifetime of the cached pull author ids. New pull authors are written through, the lifetime
+   * bounds staleness when a write through is lost.
+   */
+  public static final int PULL_AUTHOR_IDS_EXPIRATION_SECONDS = 600;
+}
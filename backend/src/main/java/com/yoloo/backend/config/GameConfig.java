@@ -0,0 +1,65 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class GameConfig {
+
+  /**
+   * Game events of an account are applied to its tracker once per window.
+   */
+  public static final int GAME_EVENT_WINDOW_SECONDS = 5;
+
+  /**
+   * Maximum number of game events leased by a single pass.
+   */
+  public static final int GAME_EVENT_BATCH_SIZE = 100;
+
+  public static final int GAME_EVENT_LEASE_SECONDS = 60;
+
+  /**
+   * Ids of the most recently applied events kept on a tracker to skip redelivered events. Larger
+   * than a batch, so an event applied by a pass whose lease was lost is still remembered.
+   */
+  public static final int APPLIED_GAME_EVENT_HISTORY = 200;
+
+  /**
+   * Leaderboards are split into shards by account, each merged by its own pass, so score changes
+   * of different accounts never contend on one entity.
+   */
+  public static final int LEADERBOARD_SHARD_COUNT = 4;
+
+  /**
+   * Leaders kept per leaderboard shard, also the longest leaderboard served.
+   */
+  public static final int LEADERBOARD_SIZE = 100;
+
+  /**
+   * Width in points of a rank histogram bucket. Ranks outside the leaders are exact to a bucket.
+   */
+  public static final int LEADERBOARD_BUCKET_POINTS = 10;
+
+  /**
+   * Buckets of a rank histogram, the last one holds every higher score.
+   */
+  public static final int LEADERBOARD_BUCKET_COUNT = 1024;
+
+  /**
+   * Score changes of a leaderboard shard are merged by a single pass at the end of each window.
+   */
+  public static final int LEADERBOARD_MERGE_WINDOW_SECONDS = 30;
+
+  /**
+   * Maximum number of score changes leased by a single merge pass.
+   */
+  public static final int LEADERBOARD_MERGE_BATCH_SIZE = 500;
+
+  public static final int LEADERBOARD_MERGE_LEASE_SECONDS = 120;
+
+  /**
+   * Trackers read per batch while rebuilding the leaderboards.
+   */
+  public static final int LEADERBOARD_REBUILD_BATCH_SIZE = 1000;
+
+  public static final int DEFAULT_LEADERBOARD_LIST_LIMIT = 20;
+}
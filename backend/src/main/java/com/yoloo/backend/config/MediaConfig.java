@@ -26,4 +26,37 @@ public final class MediaConfig {
   public static final int LOW_SIZE = 340;
   public static final int MEDIUM_SIZE = 600;
   public static final int LARGE_SIZE = 800;
+
+  /**
+   * Files of one upload request stored at the same time.
+   */
+  public static final int UPLOAD_CONCURRENCY = 4;
+
+  /**
+   * Time an upload request waits for its files, within the 60 second request deadline.
+   */
+  public static final int UPLOAD_TIMEOUT_SECONDS = 50;
+
+  public static final int MEDIA_SWEEP_WINDOW_SECONDS = 10;
+
+  public static final int MEDIA_SWEEP_BATCH_SIZE = 500;
+
+  public static final int MEDIA_SWEEP_LEASE_SECONDS = 300;
+
+  /**
+   * Blob deletes sent in one storage batch request, at most 100.
+   */
+  public static final int BLOB_DELETE_BATCH_SIZE = 100;
+
+  /**
+   * Leases of a tombstone before its remaining blobs are given up.
+   */
+  public static final int MEDIA_SWEEP_MAX_ATTEMPTS = 5;
+
+  /**
+   * Age after which an unreferenced media is an orphan, uploads come before their post.
+   */
+  public static final int ORPHAN_MEDIA_AGE_HOURS = 24;
+
+  public static final int ORPHAN_SCAN_BATCH_SIZE = 200;
 }
\ No newline at end of file
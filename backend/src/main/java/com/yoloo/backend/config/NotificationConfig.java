@@ -0,0 +1,38 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class NotificationConfig {
+
+  /**
+   * Pushes queued within a window of this length are dispatched together.
+   */
+  public static final int PUSH_DISPATCH_WINDOW_SECONDS = 1;
+
+  /**
+   * Maximum number of queued pushes leased at once by a dispatch pass.
+   */
+  public static final int PUSH_LEASE_BATCH_SIZE = 1000;
+
+  public static final int PUSH_LEASE_SECONDS = 60;
+
+  /**
+   * FCM accepts at most this many registration ids in one multicast message.
+   */
+  public static final int MULTICAST_BATCH_SIZE = 1000;
+
+  public static final int FCM_DEADLINE_SECONDS = 10;
+
+  /**
+   * Pushes failing for a transient reason are retried until they have been tried this often.
+   */
+  public static final int PUSH_MAX_ATTEMPTS = 5;
+
+  /**
+   * Delay before the first retry, doubled for every further attempt.
+   */
+  public static final long PUSH_RETRY_BASE_MILLIS = 2000L;
+
+  public static final long PUSH_RETRY_MAX_MILLIS = 5L * 60L * 1000L;
+}
@@ -0,0 +1,33 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class RankConfig {
+
+  /**
+   * Posts marked dirty within one window are re-ranked by a single pass at its end.
+   */
+  public static final int RANK_UPDATE_WINDOW_SECONDS = 30;
+
+  /**
+   * Maximum number of dirty marks leased by a single pass.
+   */
+  public static final int RANK_UPDATE_BATCH_SIZE = 500;
+
+  public static final int RANK_UPDATE_LEASE_SECONDS = 120;
+
+  /**
+   * Posts saved per transaction, bounded by the entity groups a cross-group transaction may touch.
+   */
+  public static final int RANK_SAVE_BATCH_SIZE = 25;
+
+  /**
+   * Mean lifetime of a group activity in the trending rank; its weight decays by e each lifetime.
+   */
+  public static final long GROUP_RANK_LIFETIME_MILLIS = 24L * 60 * 60 * 1000;
+
+  public static final double GROUP_RANK_POST_WEIGHT = 1.0D;
+
+  public static final double GROUP_RANK_SUBSCRIPTION_WEIGHT = 0.5D;
+}
@@ -0,0 +1,54 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class RecommendationConfig {
+
+  /**
+   * Accounts stored per recommendation list.
+   */
+  public static final int FOLLOW_RECOMMENDATION_SIZE = 50;
+
+  /**
+   * Followees of an account whose own followees are scored. Together with
+   * {@link #MAX_SECOND_DEGREE_SCANNED} this bounds the work per edge.
+   */
+  public static final int MAX_FOLLOWEES_EXPANDED = 100;
+
+  /**
+   * Followees of a followee scored for an account.
+   */
+  public static final int MAX_SECOND_DEGREE_SCANNED = 100;
+
+  /**
+   * Members of a shared group scored for an account.
+   */
+  public static final int MAX_GROUP_MEMBERS_SCANNED = 100;
+
+  public static final int FRIEND_OF_FRIEND_WEIGHT = 3;
+
+  public static final int SHARED_GROUP_WEIGHT = 1;
+
+  /**
+   * Query batch size while reading the graph.
+   */
+  public static final int GRAPH_SCAN_BATCH_SIZE = 1000;
+
+  /**
+   * Accounts or follows read and saved as one graph page per task.
+   */
+  public static final int GRAPH_PAGE_SIZE = 10000;
+
+  /**
+   * Accounts recommended per task.
+   */
+  public static final int RECOMMENDATION_TASK_SIZE = 20000;
+
+  /**
+   * Accounts recommended and saved per chunk.
+   */
+  public static final int RECOMMENDATION_CHUNK_SIZE = 500;
+
+  public static final int DEFAULT_RECOMMENDATION_LIST_LIMIT = 20;
+}
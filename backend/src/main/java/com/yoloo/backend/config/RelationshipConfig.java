@@ -0,0 +1,23 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class RelationshipConfig {
+
+  /**
+   * Lifetime of a cached follow list. Follows and unfollows are written through, the lifetime
+   * bounds what a lost update or a stale follower query can leave behind.
+   */
+  public static final int FOLLOW_GRAPH_EXPIRATION_SECONDS = 3600;
+
+  /**
+   * Longest follow list cached, 8 bytes per account keeps it below the 1 MB memcache value limit.
+   */
+  public static final int FOLLOW_GRAPH_MAX_CACHED_IDS = 100000;
+
+  /**
+   * Compare and set rounds of a write through before the list is dropped instead.
+   */
+  public static final int FOLLOW_GRAPH_CAS_ATTEMPTS = 5;
+}
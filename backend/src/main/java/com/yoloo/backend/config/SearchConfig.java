@@ -0,0 +1,56 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class SearchConfig {
+
+  /**
+   * Autocomplete snapshots are built from the datastore by cron and loaded by instances after this
+   * long. Keep in step with the schedule in cron.xml.
+   */
+  public static final int AUTOCOMPLETE_REBUILD_SECONDS = 15 * 60;
+
+  /**
+   * Entities created since the last rebuild are picked up after this long.
+   */
+  public static final int AUTOCOMPLETE_REFRESH_SECONDS = 30;
+
+  /**
+   * Entities committed this long before a refresh may still be missing from its query.
+   */
+  public static final int AUTOCOMPLETE_REFRESH_OVERLAP_SECONDS = 10;
+
+  /**
+   * Encoded entries per stored autocomplete chunk, below the entity size limit.
+   */
+  public static final int AUTOCOMPLETE_CHUNK_BYTES = 900 * 1024;
+
+  /**
+   * Posts changed inside one window are indexed by a single background pass.
+   */
+  public static final int POST_INDEX_WINDOW_SECONDS = 10;
+
+  /**
+   * Maximum number of changed posts leased by a single index pass.
+   */
+  public static final int POST_INDEX_BATCH_SIZE = 500;
+
+  public static final int POST_INDEX_LEASE_SECONDS = 300;
+
+  /**
+   * Postings a shard holds before the term is spread over twice as many shards, about 600KB.
+   */
+  public static final int POSTING_SHARD_CAPACITY = 30000;
+
+  /**
+   * Query terms beyond this many are ignored.
+   */
+  public static final int MAX_QUERY_TERMS = 8;
+
+  public static final double TITLE_WEIGHT = 3.0D;
+
+  public static final double TAG_WEIGHT = 2.0D;
+
+  public static final double CONTENT_WEIGHT = 1.0D;
+}
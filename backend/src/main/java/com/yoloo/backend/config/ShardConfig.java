@@ -5,7 +5,12 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public final class ShardConfig {
 
-  public static final int POST_SHARD_COUNTER = 3;
+  /**
+   * Shards a post is created with. Contended posts grow up to {@link #MAX_POST_SHARD_COUNTER}.
+   */
+  public static final int POST_SHARD_COUNTER = 1;
+
+  public static final int MAX_POST_SHARD_COUNTER = 16;
 
   public static final int BLOG_SHARD_COUNTER = 2;
 
@@ -16,4 +21,39 @@ public final class ShardConfig {
   public static final int COMMENT_SHARD_COUNTER = 2;
 
   public static final int GROUP_SHARD_COUNTER = 3;
+
+  /**
+   * Shard writes inside one window are folded into the aggregate by a single background task.
+   */
+  public static final int COUNTER_AGGREGATION_WINDOW_SECONDS = 5;
+
+  /**
+   * Aggregates older than this are ignored and rebuilt from the shards on read.
+   */
+  public static final int COUNTER_AGGREGATE_MAX_AGE_SECONDS = 600;
+
+  /**
+   * Contended shard transactions an entity may see within one window before its shards grow.
+   */
+  public static final int SHARD_GROWTH_CONTENTION_THRESHOLD = 3;
+
+  public static final int SHARD_CONTENTION_WINDOW_SECONDS = 60;
+
+  /**
+   * Buffered vote deltas of an entity are applied to its shards once per window.
+   */
+  public static final int VOTE_FLUSH_WINDOW_SECONDS = 5;
+
+  /**
+   * Maximum number of buffered vote deltas leased by a single flush.
+   */
+  public static final int VOTE_FLUSH_BATCH_SIZE = 1000;
+
+  public static final int VOTE_FLUSH_LEASE_SECONDS = 60;
+
+  /**
+   * Names of applied vote deltas remembered per entity, enough for a dead flush and the full
+   * flush chained after it.
+   */
+  public static final int APPLIED_VOTE_DELTA_HISTORY = 2 * VOTE_FLUSH_BATCH_SIZE;
 }
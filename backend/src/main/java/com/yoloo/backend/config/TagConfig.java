@@ -0,0 +1,56 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class TagConfig {
+
+  /**
+   * Tag usage is counted per bucket of this length, each bucket is one observation of the trend.
+   */
+  public static final int TREND_BUCKET_MINUTES = 60;
+
+  /**
+   * The rate at which the effect of past buckets on a tag's trend diminishes.
+   */
+  public static final double TREND_DECAY = 0.8D;
+
+  /**
+   * Number of tags kept in the trending snapshot.
+   */
+  public static final int TRENDING_TAG_LIMIT = 20;
+
+  /**
+   * Maximum number of usage records leased at once by a trend pass.
+   */
+  public static final int TREND_LEASE_BATCH_SIZE = 1000;
+
+  public static final int TREND_LEASE_SECONDS = 300;
+
+  /**
+   * Tag timeline updates are batched per window of this length.
+   */
+  public static final int TAG_POSTING_WINDOW_SECONDS = 10;
+
+  /**
+   * Maximum number of changed posts leased at once by a timeline update pass.
+   */
+  public static final int TAG_POSTING_BATCH_SIZE = 500;
+
+  public static final int TAG_POSTING_LEASE_SECONDS = 300;
+
+  /**
+   * Posts per timeline chunk before it is split, about 480KB encoded.
+   */
+  public static final int TAG_POSTING_CHUNK_CAPACITY = 20000;
+
+  /**
+   * Maximum number of tags of a multi tag query.
+   */
+  public static final int MAX_QUERY_TAGS = 8;
+
+  /**
+   * Maximum number of tagged posts read to fill a page when other filters skip some of them.
+   */
+  public static final int MAX_TAGGED_POSTS_SCANNED = 500;
+}
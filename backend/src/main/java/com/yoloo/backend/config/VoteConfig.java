@@ -0,0 +1,26 @@
+package com.yoloo.backend.config;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class VoteConfig {
+
+  /**
+   * Number of recent votes whose direction a voted set keeps.
+   */
+  public static final int VOTED_SET_RECENT_SIZE = 200;
+
+  /**
+   * Smallest number of votes a voted set bloom filter is sized for.
+   */
+  public static final int VOTED_SET_MIN_CAPACITY = 1000;
+
+  /**
+   * Accounts with more votes than this get no voted set, their lookups always go to the datastore.
+   */
+  public static final int VOTED_SET_MAX_VOTES = 10000;
+
+  public static final double VOTED_SET_FALSE_POSITIVE_RATE = 0.01D;
+
+  public static final int VOTED_SET_EXPIRATION_SECONDS = 6 * 60 * 60;
+}
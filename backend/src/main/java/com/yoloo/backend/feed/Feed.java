@@ -16,6 +16,7 @@ import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.Value;
 import lombok.experimental.NonFinal;
+import org.joda.time.DateTime;
 
 @Entity
 @Cache
@@ -27,22 +28,40 @@ public class Feed {
 
   public static final String FIELD_POST = "post";
 
-  // feed:postWebsafeId
+  /**
+   * Prefix of the legacy, unordered id scheme.
+   */
+  public static final String LEGACY_ID_PREFIX = "feed:";
+
+  /**
+   * reverseCreatedMillis:postWebsafeId
+   *
+   * <p>The zero padded reverse timestamp makes an ancestor key scan return the newest post first,
+   * without a sort order or a composite index.
+   */
   @Id private String id;
 
   @Parent @NonFinal private Key<Account> parent;
 
   @NonFinal @Load @Index private Ref<PostEntity> post;
 
-  public static String createId(Key<PostEntity> postKey) {
-    return "feed:" + postKey.toWebSafeString();
+  public static String createId(Key<PostEntity> postKey, DateTime created) {
+    return String.format("%019d", Long.MAX_VALUE - created.getMillis())
+        + ":"
+        + postKey.toWebSafeString();
   }
 
-  public static Key<Feed> createKey(Key<PostEntity> postKey, Key<Account> parentKey) {
-    return Key.create(parentKey, Feed.class, "feed:" + postKey.toWebSafeString());
+  public static Key<Feed> createKey(Key<PostEntity> postKey, DateTime created,
+      Key<Account> parentKey) {
+    return Key.create(parentKey, Feed.class, createId(postKey, created));
   }
 
   public static Key<PostEntity> getPostKey(Key<Feed> feedKey) {
-    return Key.create(feedKey.getName().split(":")[1]);
+    final String name = feedKey.getName();
+    return Key.create(name.substring(name.lastIndexOf(':') + 1));
+  }
+
+  public static boolean isLegacyKey(Key<Feed> feedKey) {
+    return feedKey.getName().startsWith(LEGACY_ID_PREFIX);
   }
 }
@@ -0,0 +1,188 @@
+package com.yoloo.backend.feed;
+
+import com.google.api.server.spi.response.CollectionResponse;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.FeedConfig;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.vote.Vote;
+import ix.Ix;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Read-through cache of hydrated feed pages, keyed by account, page size and cursor.
+ *
+ * <p>Every account has a generation counter. A cached page is only served while its generation
+ * matches the counter, so invalidating all pages of an account is a single increment. The counter
+ * and the page are read with one batch get.
+ */
+@NoArgsConstructor(staticName = "create")
+public class FeedCache {
+
+  private static final String NAMESPACE = "FeedPage";
+
+  private static final String FIRST_PAGE = "first";
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Looks up a cached page.
+   *
+   * @param accountKey the feed owner
+   * @param limit the page size
+   * @param cursor the page token, null for the first page
+   * @return the lookup, holding the page on a hit
+   */
+  public Lookup get(Key<Account> accountKey, int limit, @Nullable String cursor) {
+    final String generationKey = createGenerationKey(accountKey);
+    final String pageKey = createPageKey(accountKey, limit, cursor);
+
+    Map<String, Object> values = memcache.getAll(ImmutableList.of(generationKey, pageKey));
+
+    final long generation = toGeneration(values.get(generationKey));
+    final CachedPage page = (CachedPage) values.get(pageKey);
+
+    return page == null || page.generation != generation
+        ? Lookup.of(generation, null)
+        : Lookup.of(generation, page.toResponse());
+  }
+
+  /**
+   * Caches a hydrated page. The generation must be the one read before the page was built, so a
+   * page built while it was being invalidated is never served.
+   *
+   * @param accountKey the feed owner
+   * @param limit the page size
+   * @param cursor the page token, null for the first page
+   * @param generation the generation of the lookup that missed
+   * @param response the hydrated page
+   */
+  public void put(Key<Account> accountKey, int limit, @Nullable String cursor, long generation,
+      CollectionResponse<PostEntity> response) {
+    memcache.put(createPageKey(accountKey, limit, cursor),
+        CachedPage.of(generation, response),
+        Expiration.byDeltaSeconds(FeedConfig.PAGE_CACHE_EXPIRATION_SECONDS));
+  }
+
+  /**
+   * Drops every cached page of the given accounts.
+   *
+   * @param accountKeys the feed owners
+   */
+  public void invalidate(Collection<Key<Account>> accountKeys) {
+    if (accountKeys.isEmpty()) {
+      return;
+    }
+
+    memcache.incrementAll(
+        Ix.from(accountKeys).map(FeedCache::createGenerationKey).toList(), 1L, 0L);
+  }
+
+  public void invalidate(Key<Account> accountKey) {
+    invalidate(ImmutableList.of(accountKey));
+  }
+
+  private static String createGenerationKey(Key<Account> accountKey) {
+    return "gen:" + accountKey.toWebSafeString();
+  }
+
+  private static String createPageKey(Key<Account> accountKey, int limit,
+      @Nullable String cursor) {
+    return "page:" + accountKey.toWebSafeString() + ":" + limit + ":"
+        + (cursor == null ? FIRST_PAGE : cursor);
+  }
+
+  private static long toGeneration(@Nullable Object value) {
+    return value == null ? 0L : ((Number) value).longValue();
+  }
+
+  @Value
+  @AllArgsConstructor(staticName = "of")
+  public static class Lookup {
+
+    private long generation;
+
+    @Nullable private CollectionResponse<PostEntity> page;
+
+    public boolean isHit() {
+      return page != null;
+    }
+  }
+
+  /**
+   * Serializable form of a hydrated page. Posts are kept as datastore entities, the fields that
+   * are not persisted are kept alongside them.
+   */
+  private static class CachedPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long generation;
+    private String nextPageToken;
+    private List<Entity> entities;
+    private long[] voteCounts;
+    private long[] commentCounts;
+    private int[] reportCounts;
+    private int[] dirs;
+
+    static CachedPage of(long generation, CollectionResponse<PostEntity> response) {
+      List<PostEntity> posts = Lists.newArrayList(response.getItems());
+      final int size = posts.size();
+
+      CachedPage page = new CachedPage();
+      page.generation = generation;
+      page.nextPageToken = response.getNextPageToken();
+      page.entities = Lists.newArrayListWithCapacity(size);
+      page.voteCounts = new long[size];
+      page.commentCounts = new long[size];
+      page.reportCounts = new int[size];
+      page.dirs = new int[size];
+
+      for (int i = 0; i < size; i++) {
+        PostEntity post = posts.get(i);
+
+        page.entities.add(ofy().save().toEntity(post));
+        page.voteCounts[i] = post.getVoteCount();
+        page.commentCounts[i] = post.getCommentCount();
+        page.reportCounts[i] = post.getReportCount();
+        page.dirs[i] = post.getDir().getValue();
+      }
+
+      return page;
+    }
+
+    CollectionResponse<PostEntity> toResponse() {
+      List<PostEntity> posts = Lists.newArrayListWithCapacity(entities.size());
+
+      for (int i = 0; i < entities.size(); i++) {
+        PostEntity post = ofy().load().fromEntity(entities.get(i));
+
+        posts.add(post
+            .withVoteCount(voteCounts[i])
+            .withCommentCount(commentCounts[i])
+            .withReportCount(reportCounts[i])
+            .withDir(Vote.parse(dirs[i])));
+      }
+
+      return CollectionResponse.<PostEntity>builder()
+          .setItems(posts)
+          .setNextPageToken(nextPageToken)
+          .build();
+    }
+  }
+}
@@ -11,12 +11,12 @@ import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.base.Controller;
 import com.yoloo.backend.post.PostEntity;
-import com.yoloo.backend.post.PostShardService;
-import com.yoloo.backend.util.CollectionTransformer;
-import com.yoloo.backend.vote.VoteService;
-import io.reactivex.Observable;
+import com.yoloo.backend.post.PostHydrator;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
 
 import static com.yoloo.backend.OfyService.ofy;
@@ -31,12 +31,15 @@ public class FeedController extends Controller {
    */
   private static final int DEFAULT_LIST_LIMIT = 20;
 
-  private PostShardService postShardService;
+  private PostHydrator postHydrator;
 
-  private VoteService voteService;
+  private FeedService feedService;
+
+  private FeedCache feedCache;
 
   /**
-   * List feed collection response.
+   * List feed collection response. Pushed feed rows are merged with the recent posts of followed
+   * pull authors, newest first. Hydrated pages are served from {@link FeedCache} when present.
    *
    * @param limit the limit
    * @param cursor the cursor
@@ -49,38 +52,115 @@ public class FeedController extends Controller {
     // Create account key from websafe id.
     final Key<Account> accountKey = Key.create(user.getUserId());
 
-    Query<Feed> query = getFeedQuery(limit, cursor, accountKey);
+    final int pageSize = limit.or(DEFAULT_LIST_LIMIT);
+
+    final FeedCache.Lookup lookup = feedCache.get(accountKey, pageSize, cursor.orNull());
+
+    if (lookup.isHit()) {
+      return lookup.getPage();
+    }
+
+    CollectionResponse<PostEntity> response = loadFeed(pageSize, cursor, accountKey);
+
+    feedCache.put(accountKey, pageSize, cursor.orNull(), lookup.getGeneration(), response);
+
+    return response;
+  }
+
+  private CollectionResponse<PostEntity> loadFeed(int pageSize, Optional<String> cursor,
+      Key<Account> accountKey) {
+    final FeedCursor feedCursor = FeedCursor.parse(cursor.orNull());
+
+    final List<PullAuthor> pullAuthors = feedService.findFollowedPullAuthors(accountKey);
+    final boolean merging = !pullAuthors.isEmpty();
+
+    Query<Feed> query = getFeedQuery(pageSize, feedCursor.getPushCursor(), accountKey);
 
     final QueryResultIterator<Key<Feed>> qi = query.keys().iterator();
 
-    List<Key<PostEntity>> postKeys = Lists.newArrayListWithCapacity(DEFAULT_LIST_LIMIT);
+    List<Key<PostEntity>> postKeys = Lists.newArrayListWithCapacity(pageSize);
+    // Cursor after each pushed row, only needed when the page may stop in the middle.
+    List<Cursor> pushCursors = merging
+        ? Lists.newArrayListWithCapacity(pageSize)
+        : Collections.emptyList();
 
     while (qi.hasNext()) {
       final Key<Feed> feedKey = qi.next();
       final Key<PostEntity> postKey = Feed.getPostKey(feedKey);
       postKeys.add(postKey);
+
+      if (merging) {
+        pushCursors.add(qi.getCursor());
+      }
     }
 
-    return Observable
-        .just(postKeys)
-        .filter(keys -> !keys.isEmpty())
-        .flatMap(keys -> Observable.fromCallable(
-            () -> ofy().load().group(PostEntity.ShardGroup.class).keys(postKeys).values()))
-        .flatMap(posts -> postShardService.mergeShards(posts))
-        .flatMap(posts -> voteService.checkPostVote(posts, accountKey))
-        .compose(CollectionTransformer.create(qi.getCursor().toWebSafeString()))
-        .blockingSingle();
+    Map<Key<PostEntity>, PostEntity> pushed =
+        ofy().load().keys(postKeys);
+
+    List<PostEntity> page;
+    FeedCursor nextCursor;
+
+    if (merging) {
+      List<PostEntity> pulled =
+          feedService.listPulledPosts(pullAuthors, feedCursor.getPullBefore(), pageSize);
+
+      page = Lists.newArrayListWithCapacity(pageSize);
+
+      int pushIndex = 0;
+      int pullIndex = 0;
+
+      while (page.size() < pageSize
+          && (pushIndex < postKeys.size() || pullIndex < pulled.size())) {
+        PostEntity push = pushIndex < postKeys.size() ? pushed.get(postKeys.get(pushIndex)) : null;
+
+        // Feed row of a deleted post.
+        if (pushIndex < postKeys.size() && push == null) {
+          pushIndex++;
+          continue;
+        }
+
+        PostEntity pull = pullIndex < pulled.size() ? pulled.get(pullIndex) : null;
+
+        if (pull == null || (push != null && !push.getCreated().isBefore(pull.getCreated()))) {
+          page.add(push);
+          pushIndex++;
+        } else {
+          page.add(pull);
+          pullIndex++;
+        }
+      }
+
+      nextCursor = FeedCursor.of(
+          pushIndex == 0 ? feedCursor.getPushCursor() : pushCursors.get(pushIndex - 1),
+          pullIndex == 0
+              ? feedCursor.getPullBefore()
+              : Long.valueOf(pulled.get(pullIndex - 1).getCreated().getMillis()));
+    } else {
+      page = Lists.newArrayList(pushed.values());
+      nextCursor = FeedCursor.of(qi.getCursor(), feedCursor.getPullBefore());
+    }
+
+    if (page.isEmpty()) {
+      return CollectionResponse.<PostEntity>builder()
+          .setItems(Collections.emptyList())
+          .setNextPageToken(nextCursor.toWebSafeString())
+          .build();
+    }
+
+    return CollectionResponse.<PostEntity>builder()
+        .setItems(postHydrator.hydrate(page, accountKey))
+        .setNextPageToken(nextCursor.toWebSafeString())
+        .build();
   }
 
-  private Query<Feed> getFeedQuery(Optional<Integer> limit, Optional<String> cursor,
-      Key<Account> accountKey) {
+  private Query<Feed> getFeedQuery(int limit, @Nullable Cursor cursor, Key<Account> accountKey) {
 
     Query<Feed> query = ofy().load().type(Feed.class).ancestor(accountKey);
 
     // Fetch items from beginning from cursor.
-    query = cursor.isPresent() ? query.startAt(Cursor.fromWebSafeString(cursor.get())) : query;
+    query = cursor != null ? query.startAt(cursor) : query;
 
-    query = query.limit(limit.or(DEFAULT_LIST_LIMIT));
+    query = query.limit(limit);
 
     return query;
   }
@@ -1,6 +1,8 @@
 package com.yoloo.backend.feed;
 
+import com.yoloo.backend.account.AccountShardService;
 import com.yoloo.backend.base.ControllerFactory;
+import com.yoloo.backend.post.PostHydrator;
 import com.yoloo.backend.post.PostShardService;
 import com.yoloo.backend.vote.VoteService;
 import lombok.NoArgsConstructor;
@@ -10,6 +12,8 @@ public class FeedControllerFactory implements ControllerFactory<FeedController>
 
   @Override
   public FeedController create() {
-    return FeedController.create(PostShardService.create(), VoteService.create());
+    return FeedController.create(
+        PostHydrator.create(PostShardService.create(), VoteService.create()),
+        FeedService.create(AccountShardService.create()), FeedCache.create());
   }
 }
@@ -0,0 +1,57 @@
+package com.yoloo.backend.feed;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.common.base.Strings;
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static com.yoloo.backend.util.StringUtil.split;
+
+/**
+ * Page token of a merged feed. It keeps the position in the pushed {@link Feed} rows and the
+ * creation time of the last pulled post, so both sources resume exactly where the page ended.
+ */
+@Value
+@AllArgsConstructor(staticName = "of")
+public class FeedCursor {
+
+  private static final String SEPARATOR = "~";
+
+  /**
+   * Position in the pushed feed rows, null to start from the beginning.
+   */
+  @Nullable private Cursor pushCursor;
+
+  /**
+   * Pulled posts must be created before this instant, null for no bound.
+   */
+  @Nullable private Long pullBefore;
+
+  public static FeedCursor parse(@Nullable String webSafeString) {
+    if (Strings.isNullOrEmpty(webSafeString)) {
+      return of(null, null);
+    }
+
+    // Page tokens issued before merging was introduced only carry the push cursor.
+    if (!webSafeString.contains(SEPARATOR)) {
+      return of(Cursor.fromWebSafeString(webSafeString), null);
+    }
+
+    List<String> parts = split(webSafeString, SEPARATOR);
+    final boolean hasPushCursor = !webSafeString.startsWith(SEPARATOR);
+    final boolean hasPullBefore = !webSafeString.endsWith(SEPARATOR);
+
+    Cursor pushCursor = hasPushCursor ? Cursor.fromWebSafeString(parts.get(0)) : null;
+    Long pullBefore = hasPullBefore ? Long.parseLong(parts.get(parts.size() - 1)) : null;
+
+    return of(pushCursor, pullBefore);
+  }
+
+  public String toWebSafeString() {
+    return (pushCursor == null ? "" : pushCursor.toWebSafeString())
+        + SEPARATOR
+        + (pullBefore == null ? "" : String.valueOf(pullBefore));
+  }
+}
@@ -0,0 +1,202 @@
+package com.yoloo.backend.feed;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.account.AccountShard;
+import com.yoloo.backend.account.AccountShardService;
+import com.yoloo.backend.config.FeedConfig;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.relationship.FollowGraphService;
+import com.yoloo.backend.relationship.Relationship;
+import ix.Ix;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+@AllArgsConstructor(staticName = "create")
+public class FeedService {
+
+  private static final String NAMESPACE = "PullAuthor";
+
+  private static final String PULL_AUTHOR_IDS = "ids";
+
+  private AccountShardService accountShardService;
+
+  private final FollowGraphService followGraphService = FollowGraphService.create();
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Decides whether posts of the given author are pulled at read time. An author is switched to
+   * pull mode the first time its follower count reaches {@link FeedConfig#PULL_FOLLOWER_THRESHOLD}.
+   *
+   * @param accountKey the author key
+   * @return true if the author's posts must not be pushed
+   */
+  public boolean isPullAuthor(Key<Account> accountKey) {
+    if (ofy().load().key(PullAuthor.createKey(accountKey)).now() != null) {
+      return true;
+    }
+
+    if (countFollowers(accountKey) < FeedConfig.PULL_FOLLOWER_THRESHOLD) {
+      return false;
+    }
+
+    PullAuthor author = PullAuthor.builder()
+        .id(accountKey.toWebSafeString())
+        .since(DateTime.now())
+        .build();
+
+    ofy().save().entity(author).now();
+
+    addPullAuthorId(accountKey.getId());
+
+    return true;
+  }
+
+  /**
+   * Finds the pull authors followed by the given account.
+   *
+   * @param followerKey the follower key
+   * @return the pull authors
+   */
+  public List<PullAuthor> findFollowedPullAuthors(Key<Account> followerKey) {
+    final long[] authorIds = getPullAuthorIds();
+
+    if (authorIds.length == 0) {
+      return Collections.emptyList();
+    }
+
+    final long[] followingIds = followGraphService.getFollowingIds(followerKey);
+
+    List<Key<Account>> followedKeys = Lists.newArrayList();
+
+    if (followingIds != null) {
+      for (long authorId : authorIds) {
+        if (Arrays.binarySearch(followingIds, authorId) >= 0) {
+          followedKeys.add(Key.create(Account.class, authorId));
+        }
+      }
+    } else {
+      List<Key<Account>> accountKeys =
+          Ix.from(Longs.asList(authorIds)).map(id -> Key.create(Account.class, id)).toList();
+
+      for (List<Key<Account>> batch
+          : Lists.partition(accountKeys, FeedConfig.MAX_IN_FILTER_SIZE)) {
+        Ix.from(ofy().load().type(Relationship.class)
+            .ancestor(followerKey)
+            .filter(Relationship.FIELD_FOLLOWING_KEY + " in", batch)
+            .list())
+            .map(Relationship::getFollowingKey)
+            .foreach(followedKeys::add);
+      }
+    }
+
+    if (followedKeys.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return Lists.newArrayList(ofy().load()
+        .keys(Ix.from(followedKeys).map(PullAuthor::createKey).toList())
+        .values());
+  }
+
+  /**
+   * Lists the most recent posts of the given pull authors, newest first.
+   *
+   * @param authors the pull authors
+   * @param before only posts created before this instant, null for no bound
+   * @param limit the maximum number of posts
+   * @return the posts
+   */
+  public List<PostEntity> listPulledPosts(Collection<PullAuthor> authors, @Nullable Long before,
+      int limit) {
+    // Queries are issued asynchronously and only block when their results are read.
+    List<List<PostEntity>> pending = Lists.newArrayListWithCapacity(authors.size());
+
+    for (PullAuthor author : authors) {
+      Query<PostEntity> query = ofy().load()
+          .type(PostEntity.class)
+          .ancestor(author.getAccountKey())
+          .filter(PostEntity.FIELD_CREATED + " >=", author.getSince());
+
+      if (before != null) {
+        query = query.filter(PostEntity.FIELD_CREATED + " <", new DateTime(before));
+      }
+
+      pending.add(query.order("-" + PostEntity.FIELD_CREATED).limit(limit).list());
+    }
+
+    return Ix.from(pending)
+        .flatMap(Ix::from)
+        .orderBy((p1, p2) -> p2.getCreated().compareTo(p1.getCreated()))
+        .take(limit)
+        .toList();
+  }
+
+  /**
+   * The account ids of every pull author, cached for {@link
+   * FeedConfig#PULL_AUTHOR_IDS_EXPIRATION_SECONDS} so feed reads do not query them.
+   *
+   * @return the ids
+   */
+  private long[] getPullAuthorIds() {
+    final Object cached = memcache.get(PULL_AUTHOR_IDS);
+
+    if (cached instanceof long[]) {
+      return (long[]) cached;
+    }
+
+    final long[] ids = Longs.toArray(Ix.from(ofy().load().type(PullAuthor.class).keys())
+        .map(key -> Key.<Account>create(key.getName()).getId())
+        .toList());
+
+    memcache.put(PULL_AUTHOR_IDS, ids,
+        Expiration.byDeltaSeconds(FeedConfig.PULL_AUTHOR_IDS_EXPIRATION_SECONDS));
+
+    return ids;
+  }
+
+  /**
+   * Writes a new pull author through to the cached ids, the query that loads them may not see it
+   * yet.
+   */
+  private void addPullAuthorId(long accountId) {
+    MemcacheService.IdentifiableValue identifiable = memcache.getIdentifiable(PULL_AUTHOR_IDS);
+
+    // Nothing cached, the next read loads the ids.
+    if (identifiable == null || !(identifiable.getValue() instanceof long[])) {
+      return;
+    }
+
+    final long[] ids = Longs.concat((long[]) identifiable.getValue(), new long[] {accountId});
+
+    if (!memcache.putIfUntouched(PULL_AUTHOR_IDS, identifiable, ids,
+        Expiration.byDeltaSeconds(FeedConfig.PULL_AUTHOR_IDS_EXPIRATION_SECONDS))) {
+      memcache.delete(PULL_AUTHOR_IDS);
+    }
+  }
+
+  private long countFollowers(Key<Account> accountKey) {
+    Collection<AccountShard> shards =
+        ofy().load().keys(accountShardService.createShardMapWithKey(accountKey).keySet()).values();
+
+    long followers = 0L;
+    for (AccountShard shard : shards) {
+      followers += shard.getFollowerCount();
+    }
+    return followers;
+  }
+}
@@ -0,0 +1,49 @@
+package com.yoloo.backend.feed;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.yoloo.backend.account.Account;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+import org.joda.time.DateTime;
+
+/**
+ * Marks an account whose posts are pulled into follower feeds at read time instead of being
+ * pushed by {@link com.yoloo.backend.post.UpdateFeedServlet}.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class PullAuthor {
+
+  /**
+   * Websafe account id.
+   */
+  @Id private String id;
+
+  /**
+   * Posts created from this moment on are no longer pushed.
+   */
+  @NonFinal private DateTime since;
+
+  public static Key<PullAuthor> createKey(Key<Account> accountKey) {
+    return Key.create(PullAuthor.class, accountKey.toWebSafeString());
+  }
+
+  public Key<PullAuthor> getKey() {
+    return Key.create(PullAuthor.class, id);
+  }
+
+  public Key<Account> getAccountKey() {
+    return Key.create(id);
+  }
+}
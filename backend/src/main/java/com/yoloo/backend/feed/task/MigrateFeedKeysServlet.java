@@ -0,0 +1,133 @@
+package com.yoloo.backend.feed.task;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Rewrites {@link Feed} rows stored under the legacy "feed:postWebsafeId" id to the time ordered
+ * id. The whole kind is scanned keys-only in pages, each task handles one page and enqueues the
+ * next one. Rows already on the new scheme are left alone, so the migration can be re-run.
+ *
+ * <p>Started by an admin with a GET request, e.g. "/tasks/migrate/feed".
+ */
+@Log
+public class MigrateFeedKeysServlet extends HttpServlet {
+
+  private static final String MIGRATE_FEED_QUEUE = "migrate-feed-queue";
+  private static final String URL = "/tasks/migrate/feed";
+
+  private static final String CURSOR = "cursor";
+
+  private static final int PAGE_SIZE = 500;
+
+  public static void addToQueue(@Nullable String cursor) {
+    Queue queue = QueueFactory.getQueue(MIGRATE_FEED_QUEUE);
+
+    TaskOptions options = TaskOptions.Builder.withUrl(URL);
+
+    if (cursor != null) {
+      options = options.param(CURSOR, cursor);
+    }
+
+    queue.add(options);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    addToQueue(null);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    migrate(req.getParameter(CURSOR));
+  }
+
+  private void migrate(@Nullable String cursor) {
+    Query<Feed> query = ofy().load().type(Feed.class);
+
+    query = Strings.isNullOrEmpty(cursor)
+        ? query
+        : query.startAt(Cursor.fromWebSafeString(cursor));
+
+    final QueryResultIterator<Key<Feed>> qi = query.limit(PAGE_SIZE).keys().iterator();
+
+    List<Key<Feed>> legacyKeys = Lists.newArrayList();
+    int scanned = 0;
+
+    while (qi.hasNext()) {
+      Key<Feed> feedKey = qi.next();
+      scanned++;
+
+      if (Feed.isLegacyKey(feedKey)) {
+        legacyKeys.add(feedKey);
+      }
+    }
+
+    if (!legacyKeys.isEmpty()) {
+      rewrite(legacyKeys);
+    }
+
+    if (scanned == PAGE_SIZE) {
+      addToQueue(qi.getCursor().toWebSafeString());
+    } else {
+      log.info("Feed key migration finished.");
+    }
+
+    log.info("Feed key migration: " + scanned + " rows scanned, " + legacyKeys.size()
+        + " rewritten.");
+  }
+
+  private void rewrite(List<Key<Feed>> legacyKeys) {
+    List<Key<PostEntity>> postKeys =
+        Ix.from(legacyKeys).map(Feed::getPostKey).distinct().toList();
+
+    Map<Key<PostEntity>, PostEntity> posts = ofy().load().keys(postKeys);
+
+    List<Feed> feeds = Lists.newArrayListWithCapacity(legacyKeys.size());
+
+    for (Key<Feed> feedKey : legacyKeys) {
+      Key<PostEntity> postKey = Feed.getPostKey(feedKey);
+      PostEntity post = posts.get(postKey);
+
+      // Rows of deleted posts are only dropped.
+      if (post != null) {
+        Key<Account> parentKey = feedKey.getParent();
+
+        feeds.add(Feed.builder()
+            .id(Feed.createId(postKey, post.getCreated()))
+            .parent(parentKey)
+            .post(Ref.create(postKey))
+            .build());
+      }
+    }
+
+    // Write the new rows before deleting the old ones, a failed task never loses a feed entry.
+    ofy().save().entities(feeds).now();
+    ofy().delete().keys(legacyKeys).now();
+  }
+}
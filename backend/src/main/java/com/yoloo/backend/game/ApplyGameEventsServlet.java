@@ -0,0 +1,174 @@
+package com.yoloo.backend.game;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.GameConfig;
+import com.yoloo.backend.device.DeviceRecord;
+import com.yoloo.backend.game.leaderboard.LeaderboardService;
+import com.yoloo.backend.notification.NotificationService;
+import com.yoloo.backend.notification.type.Notifiable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nonnull;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Applies the game events published by {@link GameService} for one account.
+ *
+ * <p>Tasks are named after the account and the window, so all events of a window share one pass
+ * and a single tracker write. Events are leased, applied in the order they occurred and only
+ * deleted once the tracker is saved. The tracker remembers the ids of the events it applied, so
+ * events leased again after a pass died before the delete are skipped. Notifications are saved
+ * with the tracker and pushed after it commits, point changes are recorded for the leaderboards.
+ */
+@Log
+public class ApplyGameEventsServlet extends HttpServlet {
+
+  private static final String APPLY_GAME_EVENTS_QUEUE = "apply-game-events-queue";
+  private static final String URL = "/tasks/game/events";
+
+  private static final String ACCOUNT_ID = "accountId";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  private final GameService gameService = GameService.create();
+
+  private final NotificationService notificationService = NotificationService.create();
+
+  private final LeaderboardService leaderboardService = LeaderboardService.create();
+
+  public static void addToQueue(@Nonnull String accountId) {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(GameConfig.GAME_EVENT_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(APPLY_GAME_EVENTS_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("game-" + accountId.replaceAll("[^a-zA-Z0-9_-]", "") + "-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS)
+          .param(ACCOUNT_ID, accountId));
+    } catch (TaskAlreadyExistsException e) {
+      // Another event in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    apply(req.getParameter(ACCOUNT_ID));
+  }
+
+  private void apply(String accountId) {
+    final Key<Account> accountKey = Key.create(accountId);
+
+    Queue queue = QueueFactory.getQueue(GameService.GAME_EVENT_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasksByTag(GameConfig.GAME_EVENT_LEASE_SECONDS,
+        TimeUnit.SECONDS, GameConfig.GAME_EVENT_BATCH_SIZE, accountId);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    List<GameEvent> events = Lists.newArrayList();
+    for (TaskHandle task : tasks) {
+      events.addAll(GameEvent.decode(task.getPayload()));
+    }
+    events.sort(Comparator.comparing(GameEvent::getOccurred));
+
+    final int applied = apply(accountKey, events);
+
+    queue.deleteTask(tasks);
+
+    // More events are waiting than a single lease returns.
+    if (tasks.size() == GameConfig.GAME_EVENT_BATCH_SIZE) {
+      QueueFactory.getQueue(APPLY_GAME_EVENTS_QUEUE)
+          .add(TaskOptions.Builder.withUrl(URL).param(ACCOUNT_ID, accountId));
+    }
+
+    log.info("Applied " + applied + " of " + events.size() + " game events of " + accountId);
+  }
+
+  private int apply(Key<Account> accountKey, List<GameEvent> events) {
+    final Key<Tracker> trackerKey = Tracker.createKey(accountKey);
+
+    // Not part of the tracker transaction, the record only addresses the notifications.
+    final DeviceRecord record = ofy().load().key(DeviceRecord.createKey(accountKey)).now();
+
+    final List<Notifiable> notifiables = Lists.newArrayList();
+    final AtomicBoolean scored = new AtomicBoolean();
+
+    final int applied = ofy().transact(() -> {
+      notifiables.clear();
+      scored.set(false);
+
+      Tracker tracker = ofy().load().key(trackerKey).now();
+
+      // Account deleted since the events were published.
+      if (tracker == null) {
+        return 0;
+      }
+
+      final int points = tracker.getPoints();
+
+      int count = 0;
+      for (GameEvent event : events) {
+        if (!tracker.isApplied(event)) {
+          gameService.apply(record, tracker, event, notifiables::addAll);
+          tracker.markApplied(event);
+          count++;
+        }
+      }
+
+      List<Object> saveList = Lists.newArrayList((Object) tracker);
+      if (record != null) {
+        for (Notifiable notifiable : notifiables) {
+          saveList.addAll(notifiable.getNotifications());
+        }
+      }
+
+      ofy().save().entities(saveList).now();
+
+      if (tracker.getPoints() != points) {
+        // Loaded in the transaction, the boards are those of the groups joined before the change.
+        Account account = ofy().load().key(accountKey).now();
+        if (account != null) {
+          leaderboardService.recordScore(account, points, tracker.getPoints());
+          scored.set(true);
+        }
+      }
+
+      return count;
+    });
+
+    if (scored.get()) {
+      leaderboardService.scheduleMerge(accountKey);
+    }
+
+    if (record != null) {
+      for (Notifiable notifiable : notifiables) {
+        notificationService.send(notifiable);
+      }
+    }
+
+    return applied;
+  }
+}
@@ -5,11 +5,21 @@ import com.google.api.server.spi.config.Api;
 import com.google.api.server.spi.config.ApiClass;
 import com.google.api.server.spi.config.ApiMethod;
 import com.google.api.server.spi.config.ApiNamespace;
+import com.google.api.server.spi.response.CollectionResponse;
 import com.google.appengine.api.users.User;
+import com.google.common.base.Optional;
+import com.googlecode.objectify.Key;
 import com.yoloo.backend.Constants;
 import com.yoloo.backend.authentication.authenticators.FirebaseAuthenticator;
+import com.yoloo.backend.config.GameConfig;
 import com.yoloo.backend.endpointsvalidator.EndpointsValidator;
 import com.yoloo.backend.endpointsvalidator.validator.AuthValidator;
+import com.yoloo.backend.game.leaderboard.LeaderboardEntry;
+import com.yoloo.backend.game.leaderboard.LeaderboardRank;
+import com.yoloo.backend.game.leaderboard.LeaderboardService;
+import com.yoloo.backend.group.TravelerGroupEntity;
+import javax.annotation.Nullable;
+import javax.inject.Named;
 
 @Api(name = "yolooApi",
      version = "v1",
@@ -36,6 +46,60 @@ public class GameEndpoint {
     return getGameService().getGameInfo(user);
   }
 
+  /**
+   * Lists the best scored accounts, globally or within a group.
+   *
+   * @param groupId the websafe group id, null for the global leaderboard
+   * @param limit the limit
+   * @param user the user
+   * @return the leaders, best first
+   * @throws ServiceException the service exception
+   */
+  @ApiMethod(name = "leaderboards.list",
+             path = "leaderboards",
+             httpMethod = ApiMethod.HttpMethod.GET)
+  public CollectionResponse<LeaderboardEntry> listLeaders(
+      @Nullable @Named("groupId") String groupId,
+      @Nullable @Named("limit") Integer limit,
+      User user) throws ServiceException {
+
+    EndpointsValidator.create().on(AuthValidator.create(user));
+
+    return CollectionResponse.<LeaderboardEntry>builder()
+        .setItems(getLeaderboardService().listLeaders(getBoardId(groupId),
+            Optional.fromNullable(limit).or(GameConfig.DEFAULT_LEADERBOARD_LIST_LIMIT)))
+        .build();
+  }
+
+  /**
+   * Gets the rank of the user, globally or within a group.
+   *
+   * @param groupId the websafe group id, null for the global leaderboard
+   * @param user the user
+   * @return the rank
+   * @throws ServiceException the service exception
+   */
+  @ApiMethod(name = "users.me.getRank",
+             path = "users/me/rank",
+             httpMethod = ApiMethod.HttpMethod.GET)
+  public LeaderboardRank getRank(@Nullable @Named("groupId") String groupId, User user)
+      throws ServiceException {
+
+    EndpointsValidator.create().on(AuthValidator.create(user));
+
+    return getLeaderboardService().getRank(getBoardId(groupId), Key.create(user.getUserId()));
+  }
+
+  private static String getBoardId(@Nullable String groupId) {
+    return groupId == null
+        ? LeaderboardService.GLOBAL_BOARD
+        : LeaderboardService.createBoardId(Key.<TravelerGroupEntity>create(groupId));
+  }
+
+  private LeaderboardService getLeaderboardService() {
+    return LeaderboardService.create();
+  }
+
   private GameService getGameService() {
     return GameService.create();
   }
@@ -0,0 +1,81 @@
+package com.yoloo.backend.game;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.googlecode.objectify.Key;
+import ix.Ix;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.joda.time.DateTime;
+
+/**
+ * Something an account did that may earn it points or bounties.
+ *
+ * <p>Events are identified by their code and the entity that caused them, so publishing an event
+ * twice or delivering it twice applies it once.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class GameEvent {
+
+  private static final char SEPARATOR = ' ';
+
+  /**
+   * One of {@link GameEventCode}.
+   */
+  private int code;
+
+  /**
+   * Websafe key of the entity the event is about.
+   */
+  private String sourceId;
+
+  /**
+   * Bounty the event carries, e.g. the bounty of a post whose comment got accepted.
+   */
+  private int bounty;
+
+  private DateTime occurred;
+
+  public static GameEvent of(int code, Key<?> sourceKey) {
+    return of(code, sourceKey, 0);
+  }
+
+  public static GameEvent of(int code, Key<?> sourceKey, int bounty) {
+    return new GameEvent(code, sourceKey.toWebSafeString(), bounty, DateTime.now());
+  }
+
+  /**
+   * Encodes events into a task payload, one event per line.
+   */
+  public static byte[] encode(List<GameEvent> events) {
+    return Joiner.on('\n')
+        .join(Ix.from(events).map(GameEvent::encode))
+        .getBytes(Charsets.UTF_8);
+  }
+
+  public static List<GameEvent> decode(byte[] payload) {
+    return Ix.from(Splitter.on('\n').split(new String(payload, Charsets.UTF_8)))
+        .map(GameEvent::decode)
+        .toList();
+  }
+
+  private static GameEvent decode(String line) {
+    List<String> parts = Splitter.on(SEPARATOR).splitToList(line);
+
+    return new GameEvent(Integer.parseInt(parts.get(0)), parts.get(3),
+        Integer.parseInt(parts.get(1)), new DateTime(Long.parseLong(parts.get(2))));
+  }
+
+  private String encode() {
+    return String.valueOf(code) + SEPARATOR + bounty + SEPARATOR + occurred.getMillis()
+        + SEPARATOR + sourceId;
+  }
+
+  public String getId() {
+    return code + ":" + sourceId;
+  }
+}
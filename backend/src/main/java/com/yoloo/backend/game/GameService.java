@@ -1,5 +1,8 @@
 package com.yoloo.backend.game;
 
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.appengine.api.users.User;
 import com.googlecode.objectify.Key;
 import com.yoloo.backend.account.Account;
@@ -12,20 +15,21 @@ import com.yoloo.backend.notification.Notification;
 import com.yoloo.backend.notification.type.GameBonusNotifiable;
 import com.yoloo.backend.notification.type.LevelUpNotifiable;
 import com.yoloo.backend.notification.type.Notifiable;
-import com.yoloo.backend.post.PostEntity;
 import ix.Ix;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
-import org.joda.time.Hours;
 
 import static com.yoloo.backend.OfyService.ofy;
 
 public class GameService {
 
+  static final String GAME_EVENT_QUEUE = "game-event-queue";
+
   private GameService() {
   }
 
@@ -84,6 +88,79 @@ public class GameService {
         .build();
   }
 
+  /**
+   * Publishes game events of the given account. Must be called inside the transaction that saves
+   * the entity the events are about, so an event is never lost and never precedes its cause. The
+   * events share a single task, transactions hold only a few.
+   *
+   * @param accountKey the account the events are credited to
+   * @param events the events
+   */
+  public void publish(Key<Account> accountKey, GameEvent... events) {
+    Queue queue = QueueFactory.getQueue(GAME_EVENT_QUEUE);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .tag(accountKey.toWebSafeString())
+        .payload(GameEvent.encode(Arrays.asList(events))));
+  }
+
+  /**
+   * Schedules the published events of the given account to be applied at the end of the current
+   * window.
+   *
+   * @param accountKey the account key
+   */
+  public void scheduleApply(Key<Account> accountKey) {
+    ApplyGameEventsServlet.addToQueue(accountKey.toWebSafeString());
+  }
+
+  /**
+   * Applies a game event to the tracker of its account.
+   *
+   * @param record the record
+   * @param tracker the tracker
+   * @param event the event
+   * @param listener the listener
+   */
+  public void apply(DeviceRecord record, Tracker tracker, GameEvent event,
+      NewNotificationListener listener) {
+    switch (event.getCode()) {
+      case GameEventCode.Point.FIRST_QUESTION:
+        addShareFirstPostBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.DAILY_ASK_QUESTION:
+        addSharePostPerDayBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.FIRST_ANSWER:
+        addAnswerFirstQuestionBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.DAILY_FIRST_ANSWERER:
+        addFirstCommenterBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.ANSWER_TO_UNANSWERED:
+        addAnswerToUnansweredQuestionBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.ACCEPT_COMMENT:
+        addAcceptCommentBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Bounty.ACCEPTED_COMMENT:
+        addAcceptedCommentBonus(record, tracker, event.getBounty(), listener);
+        break;
+      case GameEventCode.Point.SHARE_POST:
+        addSharePostBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.INVITE_FRIENS:
+        addInviteFriendsBonus(record, tracker, listener);
+        break;
+      case GameEventCode.Point.RATE_APP:
+        addRateAppBonus(record, tracker, listener);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown game event: " + event.getCode());
+    }
+  }
+
   /**
    * Add first question bonus.
    *
@@ -190,16 +267,15 @@ public class GameService {
   }
 
   /**
-   * Add first answerer per day bonus.
+   * Add first answerer per day bonus. Published only for the first comment of a post.
    *
    * @param record the record
    * @param tracker the tracker
-   * @param postEntity the post
    * @param listener the listener
    */
-  public void addFirstCommenterBonus(DeviceRecord record, Tracker tracker, PostEntity postEntity,
+  public void addFirstCommenterBonus(DeviceRecord record, Tracker tracker,
       NewNotificationListener listener) {
-    if (!tracker.isCap() && !postEntity.isCommented()) {
+    if (!tracker.isCap()) {
       List<Notifiable> bundles = new ArrayList<>(2);
 
       tracker.addPoints(10);
@@ -214,19 +290,16 @@ public class GameService {
   }
 
   /**
-   * Add answer to unanswered question bonus.
+   * Add answer to unanswered question bonus. Published only for comments on a post left
+   * unanswered for an hour.
    *
    * @param record the record
    * @param tracker the tracker
-   * @param postEntity the post
    * @param listener the listener
    */
-  public void addAnswerToUnansweredQuestionBonus(DeviceRecord record, Tracker tracker, PostEntity postEntity,
+  public void addAnswerToUnansweredQuestionBonus(DeviceRecord record, Tracker tracker,
       NewNotificationListener listener) {
-    final boolean isOneHourPassed =
-        Hours.hoursBetween(DateTime.now(), postEntity.getCreated()).getHours() == 1;
-
-    if (!tracker.isCap() && isOneHourPassed) {
+    if (!tracker.isCap()) {
       List<Notifiable> bundles = new ArrayList<>(2);
 
       tracker.addPoints(20);
@@ -241,61 +314,64 @@ public class GameService {
   }
 
   /**
-   * Add accept comment bonus post.
+   * Add accept comment bonus to the asker. Published only for the first accepted comment of a
+   * post.
    *
-   * @param askerTracker the asker tracker
-   * @param answererTracker the answerer tracker
-   * @param askerRecord the asker record
-   * @param answererRecord the answerer record
-   * @param postEntity the post
-   * @param askerListener the asker listener
-   * @param answererListener the answerer listener
-   * @return the post
+   * @param record the asker record
+   * @param tracker the asker tracker
+   * @param listener the listener
    */
-  public PostEntity addAcceptCommentBonus(Tracker askerTracker, Tracker answererTracker,
-      DeviceRecord askerRecord, DeviceRecord answererRecord, PostEntity postEntity,
-      NewNotificationListener askerListener, NewNotificationListener answererListener) {
-    if (postEntity.getAcceptedCommentId() == null) {
-      List<Notifiable> askerBundle = new ArrayList<>(2);
-      List<Notifiable> answererBundle = new ArrayList<>(2);
-
-      final int bonusBounty =
-          answererTracker.getLevel() == 0 ? 1 : answererTracker.getLevel() + postEntity.getBounty();
-      answererTracker.addBounties(bonusBounty);
-
-      boolean updatedAskerLevel = false;
-      int askerPoints = 0;
-      if (!askerTracker.isCap()) {
-        askerTracker.addPoints(20);
-        askerPoints = 20;
-        updatedAskerLevel = updateLevel(askerTracker);
-      }
+  public void addAcceptCommentBonus(DeviceRecord record, Tracker tracker,
+      NewNotificationListener listener) {
+    List<Notifiable> bundles = new ArrayList<>(2);
 
-      boolean updateAnswererLevel = false;
-      int answererPoints = 0;
-      if (!answererTracker.isCap()) {
-        answererTracker.addPoints(50);
-        answererPoints = 50;
-        updateAnswererLevel = updateLevel(answererTracker);
-      }
+    boolean levelUpdated = false;
+    int points = 0;
+
+    if (!tracker.isCap()) {
+      points = 20;
+      tracker.addPoints(points);
+      levelUpdated = updateLevel(tracker);
+    }
 
-      askerBundle.add(GameBonusNotifiable.create(askerRecord, askerPoints, 0));
-      answererBundle.add(GameBonusNotifiable.create(answererRecord, answererPoints, bonusBounty));
+    bundles.add(GameBonusNotifiable.create(record, points, 0));
+    if (levelUpdated) {
+      bundles.add(LevelUpNotifiable.create(record, tracker));
+    }
 
-      if (updatedAskerLevel) {
-        askerBundle.add(LevelUpNotifiable.create(askerRecord, askerTracker));
-      }
-      if (updateAnswererLevel) {
-        answererBundle.add(LevelUpNotifiable.create(answererRecord, answererTracker));
-      }
+    listener.newNotifications(bundles);
+  }
 
-      askerListener.newNotifications(askerBundle);
-      answererListener.newNotifications(answererBundle);
+  /**
+   * Add accepted comment bonus to the answerer.
+   *
+   * @param record the answerer record
+   * @param tracker the answerer tracker
+   * @param postBounty the bounty of the post
+   * @param listener the listener
+   */
+  public void addAcceptedCommentBonus(DeviceRecord record, Tracker tracker, int postBounty,
+      NewNotificationListener listener) {
+    List<Notifiable> bundles = new ArrayList<>(2);
+
+    final int bonusBounty = tracker.getLevel() == 0 ? 1 : tracker.getLevel() + postBounty;
+    tracker.addBounties(bonusBounty);
+
+    boolean levelUpdated = false;
+    int points = 0;
 
-      return postEntity.withBounty(0);
+    if (!tracker.isCap()) {
+      points = 50;
+      tracker.addPoints(points);
+      levelUpdated = updateLevel(tracker);
     }
 
-    return postEntity;
+    bundles.add(GameBonusNotifiable.create(record, points, bonusBounty));
+    if (levelUpdated) {
+      bundles.add(LevelUpNotifiable.create(record, tracker));
+    }
+
+    listener.newNotifications(bundles);
   }
 
   /**
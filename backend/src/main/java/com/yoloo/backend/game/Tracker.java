@@ -7,7 +7,10 @@ import com.googlecode.objectify.annotation.Id;
 import com.googlecode.objectify.annotation.Index;
 import com.googlecode.objectify.condition.IfNotZero;
 import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.GameConfig;
 import com.yoloo.backend.game.badge.Badge;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -48,6 +51,11 @@ public class Tracker {
 
   @Singular private Set<Badge> badges;
 
+  /**
+   * Ids of the most recently applied {@link GameEvent}s, oldest first.
+   */
+  private List<String> appliedEventIds;
+
   public static Key<Tracker> createKey(Key<Account> accountKey) {
     return Key.create(Tracker.class, accountKey.toWebSafeString() + ":tracker");
   }
@@ -56,6 +64,10 @@ public class Tracker {
     return Key.create(Tracker.class, id);
   }
 
+  public Key<Account> getAccountKey() {
+    return Key.create(id.substring(0, id.lastIndexOf(':')));
+  }
+
   public boolean hasBadge(Badge badge) {
     return badges.contains(badge);
   }
@@ -87,4 +99,21 @@ public class Tracker {
   public boolean hasEnoughBounty(int toConsume) {
     return bounties >= toConsume;
   }
+
+  public boolean isApplied(GameEvent event) {
+    return appliedEventIds != null && appliedEventIds.contains(event.getId());
+  }
+
+  public void markApplied(GameEvent event) {
+    if (appliedEventIds == null) {
+      appliedEventIds = new ArrayList<>();
+    }
+
+    appliedEventIds.add(event.getId());
+
+    final int overflow = appliedEventIds.size() - GameConfig.APPLIED_GAME_EVENT_HISTORY;
+    if (overflow > 0) {
+      appliedEventIds.subList(0, overflow).clear();
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.yoloo.backend.game.leaderboard;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class LeaderboardEntry {
+  private String accountId;
+  private String username;
+  private String avatarUrl;
+  private int points;
+  private int rank;
+}
@@ -0,0 +1,25 @@
+package com.yoloo.backend.game.leaderboard;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class LeaderboardRank {
+  private int points;
+
+  /**
+   * Rank of the account, 0 while it has no points.
+   */
+  private int rank;
+
+  /**
+   * False if the account is outside the leaders, its rank is then the best rank of its bucket.
+   */
+  private boolean exact;
+
+  /**
+   * Ranked accounts of the leaderboard.
+   */
+  private int total;
+}
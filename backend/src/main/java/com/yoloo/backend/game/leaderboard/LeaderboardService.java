@@ -0,0 +1,236 @@
+package com.yoloo.backend.game.leaderboard;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.GameConfig;
+import com.yoloo.backend.game.Tracker;
+import com.yoloo.backend.group.TravelerGroupEntity;
+import ix.Ix;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Ranks accounts by their points, globally and within each group.
+ *
+ * <p>Tracker point changes are recorded on a pull queue, tagged with the shard of the account, in
+ * the transaction that saves the tracker, with the boards they apply to: the global board and the
+ * boards of the account's groups. Joining or leaving a group records a change on its board alone.
+ * {@link MergeLeaderboardServlet} folds the changes into the {@link LeaderboardShard}s of their
+ * boards once per window, and {@link RebuildLeaderboardsServlet} recomputes every board daily from
+ * the trackers. Reads merge the shards of a board: the leaders by their points, the rank by
+ * summing their histograms.
+ */
+@NoArgsConstructor(staticName = "create")
+public class LeaderboardService {
+
+  public static final String GLOBAL_BOARD = "global";
+
+  static final String SCORE_CHANGE_QUEUE = "leaderboard-score-queue";
+
+  public static String createBoardId(Key<TravelerGroupEntity> groupKey) {
+    return groupKey.toWebSafeString();
+  }
+
+  static int shardOf(long accountId) {
+    return (int) Math.floorMod(accountId, (long) GameConfig.LEADERBOARD_SHARD_COUNT);
+  }
+
+  static List<String> boardIdsOf(Account account) {
+    List<String> boardIds = Lists.newArrayList(GLOBAL_BOARD);
+    if (account.getSubscribedGroupKeys() != null) {
+      for (Key<TravelerGroupEntity> groupKey : account.getSubscribedGroupKeys()) {
+        boardIds.add(createBoardId(groupKey));
+      }
+    }
+    return boardIds;
+  }
+
+  /**
+   * Records a point change of an account on the global board and the boards of its groups. Must be
+   * called inside the transaction that saves its tracker, with the account loaded in it, so a
+   * concurrent subscription sees either the change or the points after it.
+   *
+   * @param account the account
+   * @param oldPoints the points before the change
+   * @param newPoints the points after the change
+   */
+  public void recordScore(Account account, int oldPoints, int newPoints) {
+    recordScore(account.getKey(), boardIdsOf(account), oldPoints, newPoints);
+  }
+
+  /**
+   * Records a point change of an account on the given boards. Joining a group seeds its board with
+   * a change from zero, leaving it removes the account with a change to zero.
+   *
+   * @param accountKey the account key
+   * @param boardIds the boards the change applies to
+   * @param oldPoints the points before the change
+   * @param newPoints the points after the change
+   */
+  public void recordScore(Key<Account> accountKey, List<String> boardIds, int oldPoints,
+      int newPoints) {
+    Queue queue = QueueFactory.getQueue(SCORE_CHANGE_QUEUE);
+
+    // A single task, a transaction can only enqueue a few.
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .tag(String.valueOf(shardOf(accountKey.getId())))
+        .payload(ScoreChange.of(accountKey.getId(), oldPoints, newPoints, boardIds).encode()));
+  }
+
+  /**
+   * Schedules the recorded changes of the given account's shard to be merged at the end of the
+   * current window.
+   *
+   * @param accountKey the account key
+   */
+  public void scheduleMerge(Key<Account> accountKey) {
+    MergeLeaderboardServlet.addToQueue(shardOf(accountKey.getId()));
+  }
+
+  /**
+   * Lists the best scored accounts of a board.
+   *
+   * @param boardId the board id
+   * @param limit the maximum number of accounts, at most {@link GameConfig#LEADERBOARD_SIZE}
+   * @return the leaders, best first
+   */
+  public List<LeaderboardEntry> listLeaders(String boardId, int limit) {
+    List<Leader> leaders = mergeLeaders(loadShards(boardId).values(),
+        Math.min(limit, GameConfig.LEADERBOARD_SIZE));
+
+    Map<Key<Account>, Account> accounts = ofy().load()
+        .keys(Ix.from(leaders).map(leader -> Key.create(Account.class, leader.getAccountId())));
+
+    List<LeaderboardEntry> entries = Lists.newArrayListWithCapacity(leaders.size());
+    for (Leader leader : leaders) {
+      Account account = accounts.get(Key.create(Account.class, leader.getAccountId()));
+
+      // Accounts deleted since the last merge keep their rank until the next rebuild.
+      entries.add(LeaderboardEntry.builder()
+          .accountId(account == null ? null : account.getWebsafeId())
+          .username(account == null ? null : account.getUsername())
+          .avatarUrl(account == null || account.getAvatarUrl() == null
+              ? null
+              : account.getAvatarUrl().getValue())
+          .points(leader.getPoints())
+          .rank(entries.size() + 1)
+          .build());
+    }
+
+    return entries;
+  }
+
+  /**
+   * Ranks an account on a board by its current points.
+   *
+   * @param boardId the board id
+   * @param accountKey the account key
+   * @return the rank
+   */
+  public LeaderboardRank getRank(String boardId, Key<Account> accountKey) {
+    Tracker tracker = ofy().load().key(Tracker.createKey(accountKey)).now();
+    final int points = tracker == null ? 0 : tracker.getPoints();
+
+    Collection<LeaderboardShard> shards = loadShards(boardId).values();
+
+    int total = 0;
+    int above = 0;
+    for (LeaderboardShard shard : shards) {
+      total += shard.getTotal();
+      above += shard.countAbove(points);
+    }
+
+    if (points == 0) {
+      return LeaderboardRank.builder().points(0).rank(0).exact(true).total(total).build();
+    }
+
+    List<Leader> leaders = mergeLeaders(shards, GameConfig.LEADERBOARD_SIZE);
+    for (int i = 0; i < leaders.size(); i++) {
+      if (leaders.get(i).getAccountId() == accountKey.getId()) {
+        return LeaderboardRank.builder()
+            .points(points)
+            .rank(i + 1)
+            .exact(true)
+            .total(total)
+            .build();
+      }
+    }
+
+    return LeaderboardRank.builder()
+        .points(points)
+        .rank(above + 1)
+        .exact(false)
+        .total(total)
+        .build();
+  }
+
+  private static Map<Key<LeaderboardShard>, LeaderboardShard> loadShards(String boardId) {
+    List<Key<LeaderboardShard>> keys =
+        Lists.newArrayListWithCapacity(GameConfig.LEADERBOARD_SHARD_COUNT);
+    for (int shard = 0; shard < GameConfig.LEADERBOARD_SHARD_COUNT; shard++) {
+      keys.add(LeaderboardShard.createKey(boardId, shard));
+    }
+
+    return ofy().load().keys(keys);
+  }
+
+  /**
+   * Merges the leaders of the shards, each already sorted.
+   */
+  private static List<Leader> mergeLeaders(Collection<LeaderboardShard> shards, int limit) {
+    List<Leader> leaders = Lists.newArrayList();
+    for (LeaderboardShard shard : shards) {
+      for (int i = 0; i < shard.getAccountIds().size(); i++) {
+        leaders.add(new Leader(shard.getAccountIds().get(i), shard.getPoints().get(i)));
+      }
+    }
+
+    leaders.sort(Comparator.comparingInt(Leader::getPoints).reversed()
+        .thenComparingLong(Leader::getAccountId));
+
+    return leaders.size() > limit ? leaders.subList(0, limit) : leaders;
+  }
+
+  @Value
+  private static class Leader {
+    private long accountId;
+    private int points;
+  }
+
+  @Value(staticConstructor = "of")
+  static class ScoreChange {
+    private long accountId;
+    private int oldPoints;
+    private int newPoints;
+    private List<String> boardIds;
+
+    static ScoreChange decode(byte[] payload) {
+      String[] parts = new String(payload, Charsets.UTF_8).split(" ");
+      // Changes recorded before boards were part of the payload only ranked globally.
+      List<String> boardIds = parts.length > 3
+          ? Arrays.asList(parts[3].split(","))
+          : Collections.singletonList(GLOBAL_BOARD);
+      return of(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+          boardIds);
+    }
+
+    byte[] encode() {
+      return (accountId + " " + oldPoints + " " + newPoints + " " + String.join(",", boardIds))
+          .getBytes(Charsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.yoloo.backend.game.leaderboard;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.OnLoad;
+import com.yoloo.backend.config.GameConfig;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One shard of a leaderboard, covering the accounts hashed to it.
+ *
+ * <p>Keeps the {@link GameConfig#LEADERBOARD_SIZE} best scored accounts of the shard and a
+ * histogram of all its scores in {@link GameConfig#LEADERBOARD_BUCKET_POINTS} point buckets. The
+ * histogram is a Fenwick tree, so updating a score and counting the accounts above a score both
+ * take a logarithmic number of steps in the buckets. Scores only grow, an account pushed out of
+ * the leaders never needs to come back without a score change of its own.
+ */
+@Entity
+@Cache(expirationSeconds = 60)
+@Data
+@Builder
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LeaderboardShard {
+
+  /**
+   * BoardId:shard
+   */
+  @Id private String id;
+
+  /**
+   * Ids of the leaders, best first.
+   */
+  private List<Long> accountIds;
+
+  /**
+   * Points of the leaders, parallel to {@link #accountIds}.
+   */
+  private List<Integer> points;
+
+  /**
+   * Fenwick tree of the scored accounts per bucket, indexed from 1.
+   */
+  private List<Integer> histogram;
+
+  /**
+   * Accounts with a score in this shard.
+   */
+  private int total;
+
+  public static Key<LeaderboardShard> createKey(String boardId, int shard) {
+    return Key.create(LeaderboardShard.class, boardId + ":" + shard);
+  }
+
+  public static LeaderboardShard create(String boardId, int shard) {
+    return LeaderboardShard.builder()
+        .id(boardId + ":" + shard)
+        .accountIds(new ArrayList<>())
+        .points(new ArrayList<>())
+        .histogram(new ArrayList<>(
+            Collections.nCopies(GameConfig.LEADERBOARD_BUCKET_COUNT + 1, 0)))
+        .total(0)
+        .build();
+  }
+
+  @OnLoad
+  void onLoad() {
+    // Empty lists are not stored, a shard whose leaders all left loads without them.
+    if (accountIds == null) {
+      accountIds = new ArrayList<>();
+      points = new ArrayList<>();
+    }
+  }
+
+  static int bucketOf(int points) {
+    return Math.min(points / GameConfig.LEADERBOARD_BUCKET_POINTS,
+        GameConfig.LEADERBOARD_BUCKET_COUNT - 1);
+  }
+
+  /**
+   * Moves an account from its old to its new score. Accounts without points are not ranked. A
+   * change older than the listed score of a leader only moves its histogram bucket.
+   *
+   * @param accountId the account id
+   * @param oldPoints the points before the change
+   * @param newPoints the points after the change
+   */
+  public void update(long accountId, int oldPoints, int newPoints) {
+    if (oldPoints > 0) {
+      addToBucket(bucketOf(oldPoints), -1);
+      total--;
+    }
+    if (newPoints > 0) {
+      addToBucket(bucketOf(newPoints), 1);
+      total++;
+    }
+
+    final int current = accountIds.indexOf(accountId);
+
+    // Scores only grow, the listed score came from a later change merged first. A change to no
+    // points leaves the board.
+    if (current >= 0 && newPoints > 0 && points.get(current) > newPoints) {
+      return;
+    }
+
+    if (current >= 0) {
+      accountIds.remove(current);
+      points.remove(current);
+    }
+
+    if (newPoints > 0) {
+      int at = 0;
+      while (at < accountIds.size() && isAhead(points.get(at), accountIds.get(at), newPoints,
+          accountId)) {
+        at++;
+      }
+
+      if (at < GameConfig.LEADERBOARD_SIZE) {
+        accountIds.add(at, accountId);
+        points.add(at, newPoints);
+
+        if (accountIds.size() > GameConfig.LEADERBOARD_SIZE) {
+          accountIds.remove(GameConfig.LEADERBOARD_SIZE);
+          points.remove(GameConfig.LEADERBOARD_SIZE);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the accounts of this shard scored in a higher bucket than the given points.
+   *
+   * @param points the points
+   * @return the number of accounts
+   */
+  public int countAbove(int points) {
+    int atOrBelow = 0;
+    for (int i = bucketOf(points) + 1; i > 0; i -= i & -i) {
+      atOrBelow += histogram.get(i);
+    }
+    return total - atOrBelow;
+  }
+
+  static boolean isAhead(int points, long accountId, int otherPoints, long otherAccountId) {
+    return points != otherPoints ? points > otherPoints : accountId < otherAccountId;
+  }
+
+  private void addToBucket(int bucket, int delta) {
+    for (int i = bucket + 1; i < histogram.size(); i += i & -i) {
+      histogram.set(i, histogram.get(i) + delta);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.yoloo.backend.game.leaderboard;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.GameConfig;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Merges the score changes recorded by {@link LeaderboardService} into one shard of every board.
+ *
+ * <p>Tasks are named after the shard and the window, and the queue runs one pass at a time, so a
+ * leaderboard shard has a single writer. Changes are leased, applied to the boards they were
+ * recorded for, and only deleted once the boards are saved; a pass that dies in between leaves
+ * them to be leased again once the lease expires, and the daily rebuild corrects the counts they
+ * were applied to twice.
+ *
+ * <p>Leases do not return changes in the order they were recorded. The histogram counts add up in
+ * any order, and a leader keeps the highest score listed for it, see
+ * {@link LeaderboardShard#update}.
+ */
+@Log
+public class MergeLeaderboardServlet extends HttpServlet {
+
+  private static final String MERGE_LEADERBOARD_QUEUE = "merge-leaderboard-queue";
+  private static final String URL = "/tasks/game/leaderboard/merge";
+
+  private static final String SHARD = "shard";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  public static void addToQueue(int shard) {
+    final long windowMillis =
+        TimeUnit.SECONDS.toMillis(GameConfig.LEADERBOARD_MERGE_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(MERGE_LEADERBOARD_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("leaderboard-" + shard + "-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS)
+          .param(SHARD, String.valueOf(shard)));
+    } catch (TaskAlreadyExistsException e) {
+      // Another change in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    merge(Integer.parseInt(req.getParameter(SHARD)));
+  }
+
+  private void merge(int shard) {
+    Queue queue = QueueFactory.getQueue(LeaderboardService.SCORE_CHANGE_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasksByTag(GameConfig.LEADERBOARD_MERGE_LEASE_SECONDS,
+        TimeUnit.SECONDS, GameConfig.LEADERBOARD_MERGE_BATCH_SIZE, String.valueOf(shard));
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    List<LeaderboardService.ScoreChange> changes = Lists.newArrayListWithCapacity(tasks.size());
+    for (TaskHandle task : tasks) {
+      changes.add(LeaderboardService.ScoreChange.decode(task.getPayload()));
+    }
+
+    Map<Key<LeaderboardShard>, LeaderboardShard> boards = loadBoards(shard, changes);
+
+    for (LeaderboardService.ScoreChange change : changes) {
+      for (String boardId : change.getBoardIds()) {
+        boards.get(LeaderboardShard.createKey(boardId, shard))
+            .update(change.getAccountId(), change.getOldPoints(), change.getNewPoints());
+      }
+    }
+
+    ofy().save().entities(boards.values()).now();
+
+    queue.deleteTask(tasks);
+
+    // More changes are waiting than a single lease returns.
+    if (tasks.size() == GameConfig.LEADERBOARD_MERGE_BATCH_SIZE) {
+      QueueFactory.getQueue(MERGE_LEADERBOARD_QUEUE)
+          .add(TaskOptions.Builder.withUrl(URL).param(SHARD, String.valueOf(shard)));
+    }
+
+    log.info("Merged " + tasks.size() + " score changes into " + boards.size()
+        + " leaderboards of shard " + shard);
+  }
+
+  private static Map<Key<LeaderboardShard>, LeaderboardShard> loadBoards(int shard,
+      List<LeaderboardService.ScoreChange> changes) {
+    Set<Key<LeaderboardShard>> keys = Sets.newHashSet();
+    for (LeaderboardService.ScoreChange change : changes) {
+      for (String boardId : change.getBoardIds()) {
+        keys.add(LeaderboardShard.createKey(boardId, shard));
+      }
+    }
+
+    Map<Key<LeaderboardShard>, LeaderboardShard> boards = Maps.newHashMap(ofy().load().keys(keys));
+    for (Key<LeaderboardShard> key : keys) {
+      if (!boards.containsKey(key)) {
+        final String id = key.getName();
+        boards.put(key, LeaderboardShard.create(id.substring(0, id.lastIndexOf(':')), shard));
+      }
+    }
+    return boards;
+  }
+}
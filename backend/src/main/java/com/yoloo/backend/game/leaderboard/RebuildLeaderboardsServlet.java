@@ -0,0 +1,108 @@
+package com.yoloo.backend.game.leaderboard;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.GameConfig;
+import com.yoloo.backend.game.Tracker;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Recomputes every leaderboard from the trackers.
+ *
+ * <p>Runs daily from cron. It seeds the boards, moves accounts to the boards of the groups they
+ * joined or left and corrects changes merged twice. Trackers with points are read
+ * {@link GameConfig#LEADERBOARD_REBUILD_BATCH_SIZE} at a time with their accounts, the boards are
+ * built in memory and replace the stored ones. Changes merged while it runs may be overwritten,
+ * the next rebuild restores them.
+ */
+@Log
+public class RebuildLeaderboardsServlet extends HttpServlet {
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    doPost(req, resp);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    final long start = System.currentTimeMillis();
+
+    Map<Key<LeaderboardShard>, LeaderboardShard> boards = Maps.newHashMap();
+    List<Tracker> batch =
+        Lists.newArrayListWithCapacity(GameConfig.LEADERBOARD_REBUILD_BATCH_SIZE);
+
+    int ranked = 0;
+    for (Tracker tracker : ofy()
+        .load()
+        .type(Tracker.class)
+        .filter("points >", 0)
+        .chunk(GameConfig.LEADERBOARD_REBUILD_BATCH_SIZE)) {
+      batch.add(tracker);
+
+      if (batch.size() == GameConfig.LEADERBOARD_REBUILD_BATCH_SIZE) {
+        ranked += rank(batch, boards);
+      }
+    }
+    ranked += rank(batch, boards);
+
+    // Boards nobody is ranked on anymore.
+    List<Key<LeaderboardShard>> stale = Lists.newArrayList();
+    for (Key<LeaderboardShard> key : ofy().load().type(LeaderboardShard.class).keys()) {
+      if (!boards.containsKey(key)) {
+        stale.add(key);
+      }
+    }
+
+    ofy().save().entities(boards.values()).now();
+    ofy().delete().keys(stale).now();
+    ofy().clear();
+
+    log.info(String.format("Rebuilt %d leaderboard shards of %d accounts in %d ms, %d removed",
+        boards.size(), ranked, System.currentTimeMillis() - start, stale.size()));
+  }
+
+  private static int rank(List<Tracker> trackers,
+      Map<Key<LeaderboardShard>, LeaderboardShard> boards) {
+    List<Key<Account>> accountKeys = Lists.newArrayListWithCapacity(trackers.size());
+    for (Tracker tracker : trackers) {
+      accountKeys.add(tracker.getAccountKey());
+    }
+
+    Map<Key<Account>, Account> accounts = ofy().load().keys(accountKeys);
+
+    int ranked = 0;
+    for (Tracker tracker : trackers) {
+      Account account = accounts.get(tracker.getAccountKey());
+      if (account == null) {
+        continue;
+      }
+
+      final int shard = LeaderboardService.shardOf(account.getId());
+      for (String boardId : LeaderboardService.boardIdsOf(account)) {
+        boards.computeIfAbsent(LeaderboardShard.createKey(boardId, shard),
+            key -> LeaderboardShard.create(boardId, shard))
+            .update(account.getId(), 0, tracker.getPoints());
+      }
+      ranked++;
+    }
+
+    trackers.clear();
+    // Keeps the session from holding every tracker and account.
+    ofy().clear();
+
+    return ranked;
+  }
+}
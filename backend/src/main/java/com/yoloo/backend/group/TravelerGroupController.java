@@ -16,6 +16,10 @@ import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.base.Controller;
 import com.yoloo.backend.config.MediaConfig;
+import com.yoloo.backend.config.RankConfig;
+import com.yoloo.backend.game.Tracker;
+import com.yoloo.backend.game.leaderboard.LeaderboardService;
+import com.yoloo.backend.group.rank.CategoryRankAlgorithm;
 import com.yoloo.backend.group.sorter.GroupSorter;
 import com.yoloo.backend.travelertype.TravelerTypeController;
 import com.yoloo.backend.travelertype.TravelerTypeControllerFactory;
@@ -23,11 +27,13 @@ import io.reactivex.Single;
 import ix.Ix;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import lombok.AllArgsConstructor;
 import lombok.extern.java.Log;
+import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 
@@ -41,6 +47,8 @@ public class TravelerGroupController extends Controller {
 
   private ImagesService imagesService;
 
+  private final LeaderboardService leaderboardService = LeaderboardService.create();
+
   /**
    * Gets group.
    *
@@ -201,33 +209,66 @@ public class TravelerGroupController extends Controller {
     final Key<Account> accountKey = Key.create(user.getUserId());
     final Key<TravelerGroupEntity> groupKey = Key.create(groupId);
 
-    Map<Key<Object>, Object> fetched = ofy().load().keys(accountKey, groupKey);
+    final Key<Tracker> trackerKey = Tracker.createKey(accountKey);
 
-    //noinspection SuspiciousMethodCalls
-    Account account = (Account) fetched.get(accountKey);
-    //noinspection SuspiciousMethodCalls
-    TravelerGroupEntity group = (TravelerGroupEntity) fetched.get(groupKey);
+    final long now = DateTime.now().getMillis();
+
+    final boolean seeded = ofy().transact(() -> {
+      // Loaded in the transaction, concurrent subscriptions would otherwise lose counts.
+      Map<Key<Object>, Object> fetched = ofy().load().keys(accountKey, groupKey, trackerKey);
+
+      //noinspection SuspiciousMethodCalls
+      Account account = (Account) fetched.get(accountKey);
+      //noinspection SuspiciousMethodCalls
+      TravelerGroupEntity group = (TravelerGroupEntity) fetched.get(groupKey);
+      //noinspection SuspiciousMethodCalls
+      Tracker tracker = (Tracker) fetched.get(trackerKey);
+
+      final boolean joined = !isSubscribed(account, groupKey);
 
-    ofy().transact(() -> {
       Account updatedAccount = account.toBuilder().subscribedGroupKey(groupKey).build();
-      TravelerGroupEntity updatedGroup = group.withSubscriberCount(group.getSubscriberCount() + 1);
+      TravelerGroupEntity updatedGroup = group
+          .withSubscriberCount(group.getSubscriberCount() + 1)
+          .withRank(CategoryRankAlgorithm
+              .from(group.getRank(), RankConfig.GROUP_RANK_SUBSCRIPTION_WEIGHT, now)
+              .getRank());
 
       ofy().save().entities(updatedAccount, updatedGroup).now();
+
+      // The group board never counted the account, it starts from the points it has.
+      if (joined && tracker != null && tracker.getPoints() > 0) {
+        leaderboardService.recordScore(accountKey,
+            Collections.singletonList(LeaderboardService.createBoardId(groupKey)), 0,
+            tracker.getPoints());
+        return true;
+      }
+      return false;
     });
+
+    if (seeded) {
+      leaderboardService.scheduleMerge(accountKey);
+    }
   }
 
   public void unsubscribe(@Nonnull String groupId, @Nonnull User user) {
     final Key<Account> accountKey = Key.create(user.getUserId());
     final Key<TravelerGroupEntity> groupKey = Key.create(groupId);
 
-    Map<Key<Object>, Object> fetched = ofy().load().keys(accountKey, groupKey);
+    final Key<Tracker> trackerKey = Tracker.createKey(accountKey);
 
-    //noinspection SuspiciousMethodCalls
-    Account account = (Account) fetched.get(accountKey);
-    //noinspection SuspiciousMethodCalls
-    TravelerGroupEntity group = (TravelerGroupEntity) fetched.get(groupKey);
+    final boolean removed = ofy().transact(() -> {
+      // Loaded in the transaction, concurrent unsubscriptions would otherwise lose counts.
+      Map<Key<Object>, Object> fetched = ofy().load().keys(accountKey, groupKey, trackerKey);
+
+      //noinspection SuspiciousMethodCalls
+      Account account = (Account) fetched.get(accountKey);
+      //noinspection SuspiciousMethodCalls
+      TravelerGroupEntity group = (TravelerGroupEntity) fetched.get(groupKey);
+      //noinspection SuspiciousMethodCalls
+      Tracker tracker = (Tracker) fetched.get(trackerKey);
+
+      final boolean left = isSubscribed(account, groupKey);
 
-    ofy().transact(() -> {
       List<Key<TravelerGroupEntity>> updatedKeys = Ix
           .from(account.getSubscribedGroupKeys())
           .remove(key -> key.equivalent(groupKey))
@@ -237,7 +278,31 @@ public class TravelerGroupController extends Controller {
       TravelerGroupEntity updatedGroup = group.withSubscriberCount(group.getSubscriberCount() - 1);
 
       ofy().save().entities(updatedAccount, updatedGroup).now();
+
+      // Takes the points the group board counted back out.
+      if (left && tracker != null && tracker.getPoints() > 0) {
+        leaderboardService.recordScore(accountKey,
+            Collections.singletonList(LeaderboardService.createBoardId(groupKey)),
+            tracker.getPoints(), 0);
+        return true;
+      }
+      return false;
     });
+
+    if (removed) {
+      leaderboardService.scheduleMerge(accountKey);
+    }
+  }
+
+  private static boolean isSubscribed(Account account, Key<TravelerGroupEntity> groupKey) {
+    if (account.getSubscribedGroupKeys() != null) {
+      for (Key<TravelerGroupEntity> key : account.getSubscribedGroupKeys()) {
+        if (key.equivalent(groupKey)) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   /**
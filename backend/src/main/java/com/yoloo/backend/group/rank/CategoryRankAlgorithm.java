@@ -1,38 +1,56 @@
 package com.yoloo.backend.group.rank;
 
 import com.yoloo.backend.algorithm.RankAlgorithm;
-
-import java.util.Date;
-
+import com.yoloo.backend.config.RankConfig;
 import lombok.AllArgsConstructor;
 
 /**
+ * Adds an activity to the trending rank of a group.
+ *
+ * <p>The rank is the log of the activity weights grown by {@code e^(t / lifetime)} from the
+ * epoch. Ranks compare the same as the decayed sums would at any moment, so stored ranks never
+ * need to be decayed and adding an activity is a single log-sum-exp.
+ *
  * See http://julesjacobs.github.io/2015/05/06/exponentially-decaying-likes.html
  */
 @AllArgsConstructor(staticName = "from")
 public class CategoryRankAlgorithm implements RankAlgorithm {
 
-    private long questionCount;
-
-    /**
-     * Number of milliseconds in one hour.
-     */
-    private static final double RATE = 1/3.6e6;
-
-    /**
-     *
-     * @param z previous question count of the category.
-     * @param time
-     * @return rank.
-     */
-    private static double updateRank(long z, long time) {
-        double u = Math.max(z, RATE * time);
-        double v = Math.min(z, RATE * time);
-        return u + Math.log1p(Math.exp(v - u));
-    }
-
-    @Override
-    public double getRank() {
-        return updateRank(questionCount, new Date().getTime());
-    }
-}
\ No newline at end of file
+  /**
+   * Current rank of the group.
+   */
+  private double rank;
+
+  /**
+   * Weight of the activity.
+   */
+  private double weight;
+
+  /**
+   * Time of the activity in milliseconds.
+   */
+  private long time;
+
+  /**
+   * Rank growth per millisecond.
+   */
+  private static final double RATE = 1.0D / RankConfig.GROUP_RANK_LIFETIME_MILLIS;
+
+  /**
+   * Computes log(e^z + e^w) without overflowing.
+   *
+   * @param z previous rank of the group.
+   * @param w logged weight of the activity at its time.
+   * @return rank.
+   */
+  private static double updateRank(double z, double w) {
+    double u = Math.max(z, w);
+    double v = Math.min(z, w);
+    return u + Math.log1p(Math.exp(v - u));
+  }
+
+  @Override
+  public double getRank() {
+    return updateRank(rank, Math.log(weight) + RATE * time);
+  }
+}
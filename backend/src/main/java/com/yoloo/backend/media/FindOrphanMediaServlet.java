@@ -0,0 +1,136 @@
+package com.yoloo.backend.media;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.MediaConfig;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Deletes medias no post or avatar refers to.
+ *
+ * <p>Runs daily from cron over the medias older than {@link MediaConfig#ORPHAN_MEDIA_AGE_HOURS},
+ * {@link MediaConfig#ORPHAN_SCAN_BATCH_SIZE} per task, continuing from a query cursor. A post
+ * media is an orphan when no post of its owner lists it, a profile media when it is not the
+ * current avatar of its owner. Orphans are handed to {@link MediaService} like any deleted media.
+ */
+@Log
+public class FindOrphanMediaServlet extends HttpServlet {
+
+  private static final String URL = "/tasks/media/orphans";
+
+  private static final String CURSOR = "cursor";
+
+  private final MediaService mediaService = MediaService.create();
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    doPost(req, resp);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    final long start = System.currentTimeMillis();
+    final String cursor = req.getParameter(CURSOR);
+
+    Query<MediaEntity> query = ofy().load()
+        .type(MediaEntity.class)
+        .filter(MediaEntity.FIELD_CREATED + " <",
+            DateTime.now().minusHours(MediaConfig.ORPHAN_MEDIA_AGE_HOURS))
+        .order(MediaEntity.FIELD_CREATED)
+        .limit(MediaConfig.ORPHAN_SCAN_BATCH_SIZE);
+
+    if (!Strings.isNullOrEmpty(cursor)) {
+      query = query.startAt(Cursor.fromWebSafeString(cursor));
+    }
+
+    final QueryResultIterator<MediaEntity> qi = query.iterator();
+
+    List<MediaEntity> medias = Lists.newArrayList();
+    while (qi.hasNext()) {
+      medias.add(qi.next());
+    }
+
+    List<Key<MediaEntity>> orphanKeys = findOrphans(medias);
+
+    if (!orphanKeys.isEmpty()) {
+      // Tombstones first, a failed pass is repeated and finds the medias again.
+      mediaService.deleteMedias(orphanKeys);
+      ofy().delete().keys(orphanKeys).now();
+    }
+
+    if (medias.size() == MediaConfig.ORPHAN_SCAN_BATCH_SIZE) {
+      QueueFactory.getQueue(SweepMediaServlet.MEDIA_SWEEP_QUEUE).add(TaskOptions.Builder
+          .withUrl(URL)
+          .param(CURSOR, qi.getCursor().toWebSafeString()));
+    }
+
+    log.info(String.format("Scanned %d medias in %d ms, %d orphans", medias.size(),
+        System.currentTimeMillis() - start, orphanKeys.size()));
+  }
+
+  private List<Key<MediaEntity>> findOrphans(List<MediaEntity> medias) {
+    Set<Key<Account>> ownerKeys = Sets.newLinkedHashSet();
+    Set<Key<Account>> postOwnerKeys = Sets.newHashSet();
+    for (MediaEntity media : medias) {
+      ownerKeys.add(media.getParent());
+      if (media.getMediaOrigin() == MediaEntity.MediaOrigin.POST) {
+        postOwnerKeys.add(media.getParent());
+      }
+    }
+
+    Map<Key<Account>, Account> owners = ofy().load().keys(ownerKeys);
+
+    Set<String> referencedIds = Sets.newHashSet();
+    for (Key<Account> ownerKey : postOwnerKeys) {
+      for (PostEntity post : ofy().load().type(PostEntity.class).ancestor(ownerKey)) {
+        if (post.getMedias() != null) {
+          Ix.from(post.getMedias()).map(MediaEntity::getId).foreach(referencedIds::add);
+        }
+      }
+    }
+
+    Map<Key<MediaEntity>, MediaEntity> orphans = Maps.newLinkedHashMap();
+    for (MediaEntity media : medias) {
+      final Account owner = owners.get(media.getParent());
+
+      if (owner == null || !isReferenced(media, owner, referencedIds)) {
+        orphans.put(media.getKey(), media);
+      }
+    }
+    return Lists.newArrayList(orphans.keySet());
+  }
+
+  private static boolean isReferenced(MediaEntity media, Account owner, Set<String> referencedIds) {
+    if (media.getMediaOrigin() == MediaEntity.MediaOrigin.POST) {
+      return referencedIds.contains(media.getId());
+    }
+
+    // Avatars are sized serving urls of the media.
+    return owner.getAvatarUrl() != null
+        && owner.getAvatarUrl().getValue().startsWith(Strings.nullToEmpty(media.getUrl()));
+  }
+}
@@ -1,28 +1,136 @@
 package com.yoloo.backend.media;
 
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageBatch;
+import com.google.cloud.storage.StorageBatchResult;
+import com.google.cloud.storage.StorageException;
 import com.google.cloud.storage.StorageOptions;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 import com.googlecode.objectify.Key;
-import com.yoloo.backend.util.StringUtil;
+import com.yoloo.backend.config.MediaConfig;
 import ix.Ix;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.java.Log;
 
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Deletes the stored files of medias in the background.
+ *
+ * <p>Deleting a media only records a tombstone, a pull task listing its blobs, in the current
+ * transaction. {@link SweepMediaServlet} leases the tombstones and deletes their blobs in storage
+ * batches, so request transactions never wait on storage and a rolled back transaction deletes
+ * nothing.
+ */
+@Log
 @NoArgsConstructor(staticName = "create")
 public class MediaService {
 
-  private static final Storage STORAGE = StorageOptions.getDefaultInstance().getService();
+  static final String MEDIA_TOMBSTONE_QUEUE = "media-tombstone-queue";
 
   public void deleteMedia(Key<MediaEntity> mediaKey) {
     deleteMedias(Collections.singleton(mediaKey));
   }
 
+  /**
+   * Records the files of the given medias for deletion. Joins the current transaction, if any.
+   *
+   * @param mediaKeys the media keys
+   */
   public void deleteMedias(Collection<Key<MediaEntity>> mediaKeys) {
-    Ix.from(mediaKeys)
-        .map(mediaKey -> StringUtil.split(mediaKey.getName(), "/"))
-        .map(s -> BlobId.of(s.get(0), s.get(1)))
-        .foreach(blobId -> STORAGE.batch().delete(blobId));
+    if (mediaKeys.isEmpty()) {
+      return;
+    }
+
+    Queue queue = QueueFactory.getQueue(MEDIA_TOMBSTONE_QUEUE);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .payload(Joiner.on('\n')
+            .join(Ix.from(mediaKeys).map(Key::getName))
+            .getBytes(Charsets.UTF_8)));
+
+    SweepMediaServlet.addToQueue();
+  }
+
+  static List<BlobId> decodeTombstone(byte[] payload) {
+    return Ix.from(Splitter.on('\n').omitEmptyStrings()
+        .split(new String(payload, Charsets.UTF_8)))
+        .map(MediaService::toBlobId)
+        .toList();
+  }
+
+  /**
+   * Media ids are the bucket and the blob name, which has slashes of its own.
+   */
+  static BlobId toBlobId(String mediaId) {
+    final int slash = mediaId.indexOf('/');
+    return BlobId.of(mediaId.substring(0, slash), mediaId.substring(slash + 1));
+  }
+
+  /**
+   * Deletes the given blobs, {@link MediaConfig#BLOB_DELETE_BATCH_SIZE} per storage batch.
+   *
+   * @param blobIds the blobs
+   * @return what was deleted, missing already or failed
+   */
+  DeleteResult deleteBlobs(List<BlobId> blobIds) {
+    int deleted = 0;
+    int missing = 0;
+    List<BlobId> failed = Lists.newArrayList();
+
+    for (List<BlobId> part : Lists.partition(blobIds, MediaConfig.BLOB_DELETE_BATCH_SIZE)) {
+      StorageBatch batch = StorageHolder.STORAGE.batch();
+      List<StorageBatchResult<Boolean>> results =
+          Ix.from(part).map(blobId -> batch.delete(blobId)).toList();
+
+      try {
+        batch.submit();
+      } catch (StorageException e) {
+        log.warning("Blob batch delete failed: " + e.getMessage());
+        failed.addAll(part);
+        continue;
+      }
+
+      for (int i = 0; i < part.size(); i++) {
+        try {
+          if (results.get(i).get()) {
+            deleted++;
+          } else {
+            // Gone since its tombstone was recorded.
+            missing++;
+          }
+        } catch (StorageException e) {
+          failed.add(part.get(i));
+        }
+      }
+    }
+
+    return new DeleteResult(deleted, missing, failed);
+  }
+
+  /**
+   * Builds the client on the first sweep, recording tombstones needs none.
+   */
+  private static final class StorageHolder {
+    private static final Storage STORAGE = StorageOptions.getDefaultInstance().getService();
+  }
+
+  @Value
+  static class DeleteResult {
+    private int deleted;
+    private int missing;
+    private List<BlobId> failed;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package com.yoloo.backend.media;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.cloud.storage.BlobId;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.yoloo.backend.config.MediaConfig;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+/**
+ * Deletes the blobs of the tombstones recorded by {@link MediaService}.
+ *
+ * <p>A tombstone is deleted once all of its blobs are gone. One with failed blobs is left to its
+ * lease, so it is retried by a later pass after {@link MediaConfig#MEDIA_SWEEP_LEASE_SECONDS},
+ * and given up after {@link MediaConfig#MEDIA_SWEEP_MAX_ATTEMPTS} leases. Deleting a blob twice
+ * is harmless.
+ */
+@Log
+public class SweepMediaServlet extends HttpServlet {
+
+  static final String MEDIA_SWEEP_QUEUE = "media-sweep-queue";
+  private static final String URL = "/tasks/media/sweep";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  public static void addToQueue() {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(MediaConfig.MEDIA_SWEEP_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(MEDIA_SWEEP_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("sweep-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS));
+    } catch (TaskAlreadyExistsException e) {
+      // Another deletion in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    Queue queue = QueueFactory.getQueue(MediaService.MEDIA_TOMBSTONE_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasks(MediaConfig.MEDIA_SWEEP_LEASE_SECONDS,
+        TimeUnit.SECONDS, MediaConfig.MEDIA_SWEEP_BATCH_SIZE);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    final long start = System.currentTimeMillis();
+
+    List<BlobId> blobIds = Lists.newArrayList();
+    List<List<BlobId>> tombstones = Lists.newArrayListWithCapacity(tasks.size());
+    for (TaskHandle task : tasks) {
+      List<BlobId> tombstone = MediaService.decodeTombstone(task.getPayload());
+      tombstones.add(tombstone);
+      blobIds.addAll(tombstone);
+    }
+
+    MediaService.DeleteResult result = MediaService.create().deleteBlobs(blobIds);
+    Set<BlobId> failed = Sets.newHashSet(result.getFailed());
+
+    List<TaskHandle> done = Lists.newArrayListWithCapacity(tasks.size());
+    int retried = 0;
+    for (int i = 0; i < tasks.size(); i++) {
+      final TaskHandle task = tasks.get(i);
+      final List<BlobId> tombstone = tombstones.get(i);
+
+      if (tombstone.stream().noneMatch(failed::contains)) {
+        done.add(task);
+      } else if (task.getRetryCount() >= MediaConfig.MEDIA_SWEEP_MAX_ATTEMPTS) {
+        log.severe("Giving up on blobs of tombstone " + task.getName() + ": " + tombstone);
+        done.add(task);
+      } else {
+        retried++;
+      }
+    }
+
+    queue.deleteTask(done);
+
+    if (retried > 0) {
+      // Comes after the leases of the failed tombstones expire.
+      QueueFactory.getQueue(MEDIA_SWEEP_QUEUE).add(TaskOptions.Builder
+          .withUrl(URL)
+          .countdownMillis(TimeUnit.SECONDS.toMillis(MediaConfig.MEDIA_SWEEP_LEASE_SECONDS)
+              + GRACE_MILLIS));
+    }
+
+    // More tombstones are waiting than a single lease returns.
+    if (tasks.size() == MediaConfig.MEDIA_SWEEP_BATCH_SIZE) {
+      QueueFactory.getQueue(MEDIA_SWEEP_QUEUE).add(TaskOptions.Builder.withUrl(URL));
+    }
+
+    final long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+    log.info(String.format("Swept %d tombstones, %d blobs in %d ms (%.1f blobs/s): "
+            + "%d deleted, %d missing, %d failed, %d tombstones to retry",
+        tasks.size(), blobIds.size(), elapsed, blobIds.size() * 1000.0D / elapsed,
+        result.getDeleted(), result.getMissing(), failed.size(), retried));
+  }
+}
@@ -3,6 +3,7 @@ package com.yoloo.backend.media;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.api.server.spi.response.CollectionResponse;
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.api.images.ImagesService;
 import com.google.appengine.api.images.ImagesServiceFactory;
 import com.google.appengine.api.images.ServingUrlOptions;
@@ -13,6 +14,8 @@ import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import com.googlecode.objectify.Key;
 import com.yoloo.backend.Constants;
 import com.yoloo.backend.account.Account;
@@ -20,12 +23,20 @@ import com.yoloo.backend.config.MediaConfig;
 import com.yoloo.backend.media.dto.Media;
 import com.yoloo.backend.media.transformer.MediaTransformer;
 import com.yoloo.backend.util.ServerConfig;
-import io.reactivex.Observable;
 import ix.Ix;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -37,6 +48,13 @@ import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 
+/**
+ * Stores the photos of a multipart request and saves them as medias of the user.
+ *
+ * <p>Each part is read off the request and handed to a pool of
+ * {@link MediaConfig#UPLOAD_CONCURRENCY} request threads, which store it and fetch its serving
+ * url while the next parts are read, so a request takes about as long as its largest file.
+ */
 @Log
 public class UploadServlet extends HttpServlet {
 
@@ -49,6 +67,24 @@ public class UploadServlet extends HttpServlet {
 
   private final ImagesService imagesService = ImagesServiceFactory.getImagesService();
 
+  /**
+   * Shared by all requests, clients are thread safe and expensive to build.
+   */
+  private Storage storage;
+
+  @Override
+  public void init() throws ServletException {
+    try (InputStream is =
+        getServletContext().getResourceAsStream(Constants.FIREBASE_SECRET_JSON_PATH)) {
+      storage = StorageOptions.newBuilder()
+          .setCredentials(ServiceAccountCredentials.fromStream(is))
+          .build()
+          .getService();
+    } catch (IOException e) {
+      throw new ServletException("Storage credentials can not be read.", e);
+    }
+  }
+
   @Override
   public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     setResponse(resp);
@@ -97,57 +133,128 @@ public class UploadServlet extends HttpServlet {
       return;
     }
 
-    final ServletFileUpload upload = new ServletFileUpload();
-
-    Observable
-        .fromCallable(() -> upload.getItemIterator(req))
-        .filter(FileItemIterator::hasNext)
-        .map(FileItemIterator::next)
-        .filter(this::isValidFile)
-        .flatMap(file -> {
-          final String mime = file.getContentType();
-
-          final ServiceAccountCredentials credentials = ServiceAccountCredentials.fromStream(
-              getServletContext().getResourceAsStream(Constants.FIREBASE_SECRET_JSON_PATH));
-
-          final Storage storage =
-              StorageOptions.newBuilder().setCredentials(credentials).build().getService();
-
-          final String extension = MediaUtil.extractExtension(mime);
-
-          final String filePath =
-              MediaConfig.USER_MEDIA_BUCKET + "/" + accountKey.toWebSafeString() + "/" + UUID
-                  .randomUUID()
-                  .toString() + "." + extension;
-
-          BlobId blobId = BlobId.of(MediaConfig.BASE_URL, filePath);
-          BlobInfo blobInfo = BlobInfo.newBuilder(blobId).setContentType(mime).build();
-
-          Blob blob = storage.create(blobInfo, file.openStream());
-
-          final String path = MediaConfig.STORAGE_PREFIX + blob.getBucket() + "/" + blob.getName();
-
-          ServingUrlOptions options =
-              ServingUrlOptions.Builder.withGoogleStorageFileName(path).secureUrl(true);
-
-          MediaEntity mediaEntity = MediaEntity
-              .builder()
-              .id(blob.getBucket() + "/" + blob.getName())
-              .parent(accountKey)
-              .mime(mime)
-              .url(ServerConfig.isDev() ? "" : imagesService.getServingUrl(options))
-              .originalPath(blob.getName())
-              .mediaOrigin(MediaEntity.parse(mediaOrigin))
-              .created(DateTime.now())
-              .build();
-
-          return Observable.just(mediaEntity);
-        })
-        .toList()
-        .doOnSuccess(medias -> ofy().transact(() -> ofy().save().entities(medias).now()))
-        .map(medias -> Ix.from(medias).map(TRANSFORMER::transformTo).toList())
-        .subscribe(mediaDTOS -> printSuccessResponse(mediaDTOS, out),
-            throwable -> printErrorResponse(throwable.getMessage(), out));
+    final long start = System.currentTimeMillis();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(MediaConfig.UPLOAD_CONCURRENCY,
+        ThreadManager.currentRequestThreadFactory());
+
+    // Bounds the files held in memory to the ones being stored.
+    final Semaphore permits = new Semaphore(MediaConfig.UPLOAD_CONCURRENCY);
+
+    final List<Future<MediaEntity>> uploads = Lists.newArrayList();
+
+    try {
+      final FileItemIterator iterator = new ServletFileUpload().getItemIterator(req);
+
+      while (iterator.hasNext()) {
+        final FileItemStream file = iterator.next();
+
+        if (!isValidFile(file)) {
+          continue;
+        }
+
+        permits.acquire();
+
+        final byte[] content;
+        try (InputStream is = file.openStream()) {
+          content = ByteStreams.toByteArray(is);
+        } catch (IOException e) {
+          permits.release();
+          throw e;
+        }
+
+        final String mime = file.getContentType();
+        uploads.add(executor.submit(() -> {
+          try {
+            return upload(accountKey, mediaOrigin, mime, content);
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+
+      final long deadline =
+          start + TimeUnit.SECONDS.toMillis(MediaConfig.UPLOAD_TIMEOUT_SECONDS);
+
+      final List<MediaEntity> medias = Lists.newArrayListWithCapacity(uploads.size());
+      for (Future<MediaEntity> upload : uploads) {
+        medias.add(upload.get(Math.max(0L, deadline - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS));
+      }
+
+      ofy().transact(() -> ofy().save().entities(medias).now());
+
+      log.info(String.format("Uploaded %d files in %d ms", medias.size(),
+          System.currentTimeMillis() - start));
+
+      printSuccessResponse(Ix.from(medias).map(TRANSFORMER::transformTo).toList(), out);
+    } catch (Exception e) {
+      log.warning("Upload failed: " + e);
+      deleteUploaded(uploads);
+      printErrorResponse(e instanceof ExecutionException ? e.getCause().getMessage()
+          : e.getMessage(), out);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private MediaEntity upload(Key<Account> accountKey, String mediaOrigin, String mime,
+      byte[] content) {
+    final long start = System.currentTimeMillis();
+
+    final String extension = MediaUtil.extractExtension(mime);
+
+    final String filePath =
+        MediaConfig.USER_MEDIA_BUCKET + "/" + accountKey.toWebSafeString() + "/" + UUID
+            .randomUUID()
+            .toString() + "." + extension;
+
+    BlobId blobId = BlobId.of(MediaConfig.BASE_URL, filePath);
+    BlobInfo blobInfo = BlobInfo.newBuilder(blobId).setContentType(mime).build();
+
+    Blob blob = storage.create(blobInfo, content);
+
+    final long stored = System.currentTimeMillis();
+
+    final String path = MediaConfig.STORAGE_PREFIX + blob.getBucket() + "/" + blob.getName();
+
+    ServingUrlOptions options =
+        ServingUrlOptions.Builder.withGoogleStorageFileName(path).secureUrl(true);
+
+    MediaEntity mediaEntity = MediaEntity
+        .builder()
+        .id(blob.getBucket() + "/" + blob.getName())
+        .parent(accountKey)
+        .mime(mime)
+        .url(ServerConfig.isDev() ? "" : imagesService.getServingUrl(options))
+        .originalPath(blob.getName())
+        .mediaOrigin(MediaEntity.parse(mediaOrigin))
+        .created(DateTime.now())
+        .build();
+
+    log.info(String.format("Stored %s (%d bytes) in %d ms, serving url in %d ms",
+        blob.getName(), content.length, stored - start, System.currentTimeMillis() - stored));
+
+    return mediaEntity;
+  }
+
+  /**
+   * Removes the files of a failed request that made it to storage.
+   */
+  private void deleteUploaded(List<Future<MediaEntity>> uploads) {
+    List<BlobId> blobIds = Lists.newArrayList();
+    for (Future<MediaEntity> upload : uploads) {
+      try {
+        MediaEntity media = upload.get(0L, TimeUnit.MILLISECONDS);
+        blobIds.add(BlobId.of(MediaConfig.BASE_URL, media.getOriginalPath()));
+      } catch (Exception ignored) {
+        upload.cancel(true);
+      }
+    }
+
+    if (!blobIds.isEmpty()) {
+      storage.delete(blobIds);
+    }
   }
 
   private boolean isValidFile(FileItemStream file) {
@@ -0,0 +1,122 @@
+package com.yoloo.backend.notification;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.urlfetch.URLFetchServiceFactory;
+import com.google.common.collect.Lists;
+import com.yoloo.backend.config.NotificationConfig;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+/**
+ * Dispatches the pushes queued by {@link NotificationService} through a {@link PushDispatcher}.
+ *
+ * <p>A pass is scheduled per dispatch window, so pushes queued close together share multicast
+ * requests. Retries are queued again with a backoff delay, which keeps them out of leases until
+ * they are due, and a pass is scheduled for the window the longest delay ends in.
+ */
+@Log
+public class DispatchPushServlet extends HttpServlet {
+
+  private static final String PUSH_DISPATCH_QUEUE = "push-dispatch-queue";
+  private static final String URL = "/tasks/notification/push";
+
+  private static final String FCM_ENDPOINT = "https://fcm.googleapis.com/fcm/send";
+
+  public static void addToQueue() {
+    addToQueue(0L);
+  }
+
+  /**
+   * Schedules a pass at the end of the window current after the given delay.
+   *
+   * @param delayMillis the delay
+   */
+  private static void addToQueue(long delayMillis) {
+    final long windowMillis =
+        TimeUnit.SECONDS.toMillis(NotificationConfig.PUSH_DISPATCH_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = (now + delayMillis) / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(PUSH_DISPATCH_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("push-" + window)
+          .countdownMillis((window + 1) * windowMillis - now));
+    } catch (TaskAlreadyExistsException e) {
+      // Another push or retry in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    Queue queue = QueueFactory.getQueue(NotificationService.PUSH_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasks(NotificationConfig.PUSH_LEASE_SECONDS,
+        TimeUnit.SECONDS, NotificationConfig.PUSH_LEASE_BATCH_SIZE);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    List<PushDispatcher.Push> pushes = Lists.newArrayListWithCapacity(tasks.size());
+    for (TaskHandle task : tasks) {
+      try {
+        pushes.add(PushDispatcher.Push.decode(task.getPayload()));
+      } catch (IOException e) {
+        log.warning("Dropped unreadable push: " + e.getMessage());
+      }
+    }
+
+    final long start = System.currentTimeMillis();
+
+    PushDispatcher dispatcher = PushDispatcher.create(URLFetchServiceFactory.getURLFetchService(),
+        new URL(System.getProperty("fcm.endpoint", FCM_ENDPOINT)),
+        System.getProperty("fcm.api.key"));
+    PushDispatcher.Report report = dispatcher.dispatch(pushes);
+
+    final long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+
+    long retryDelayMillis = -1L;
+    for (PushDispatcher.Push retry : report.getRetries()) {
+      final long delayMillis = PushDispatcher.retryDelayMillis(retry.getAttempt());
+      retryDelayMillis = Math.max(retryDelayMillis, delayMillis);
+
+      queue.add(TaskOptions.Builder
+          .withMethod(TaskOptions.Method.PULL)
+          .payload(retry.encode())
+          .countdownMillis(delayMillis));
+    }
+
+    // Retries would otherwise wait for the next push to schedule a pass.
+    if (retryDelayMillis >= 0L) {
+      addToQueue(retryDelayMillis);
+    }
+
+    queue.deleteTask(tasks);
+
+    // More pushes are waiting than a single lease returns.
+    if (tasks.size() == NotificationConfig.PUSH_LEASE_BATCH_SIZE) {
+      QueueFactory.getQueue(PUSH_DISPATCH_QUEUE).add(TaskOptions.Builder.withUrl(URL));
+    }
+
+    log.info("Dispatched " + pushes.size() + " pushes to " + report.getRecipients()
+        + " recipients in " + report.getRequests() + " requests, " + elapsed + " ms ("
+        + report.getDelivered() * 1000L / elapsed + " deliveries/s), "
+        + report.getDelivered() + " delivered, " + report.getRetried() + " retried, "
+        + report.getFailed() + " failed");
+  }
+}
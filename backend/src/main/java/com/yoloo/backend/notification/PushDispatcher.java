@@ -0,0 +1,295 @@
+package com.yoloo.backend.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.appengine.api.urlfetch.FetchOptions;
+import com.google.appengine.api.urlfetch.HTTPHeader;
+import com.google.appengine.api.urlfetch.HTTPMethod;
+import com.google.appengine.api.urlfetch.HTTPRequest;
+import com.google.appengine.api.urlfetch.HTTPResponse;
+import com.google.appengine.api.urlfetch.URLFetchService;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.yoloo.backend.authentication.oauth2.OAuth2;
+import com.yoloo.backend.config.NotificationConfig;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.java.Log;
+
+/**
+ * Sends queued pushes to FCM.
+ *
+ * <p>Pushes whose messages only differ in their recipient are coalesced into multicast messages
+ * of up to {@link NotificationConfig#MULTICAST_BATCH_SIZE} registration ids, and all multicasts
+ * of a dispatch are fetched in parallel. Recipients that fail for a transient reason, or whose
+ * whole request failed, come back as pushes to retry; other failures are counted and dropped.
+ */
+@Log
+@AllArgsConstructor(staticName = "create")
+public class PushDispatcher {
+
+  static final String FIELD_TO = "to";
+  static final String FIELD_REGISTRATION_IDS = "registration_ids";
+
+  private static final String TOPIC_PREFIX = "/topics/";
+
+  /**
+   * FCM errors worth retrying, everything else is permanent.
+   */
+  private static final Set<String> TRANSIENT_ERRORS =
+      ImmutableSet.of("Unavailable", "InternalServerError", "DeviceMessageRateExceeded");
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final URLFetchService fetchService;
+
+  private final URL endpoint;
+
+  private final String apiKey;
+
+  /**
+   * Delay before the given attempt, doubled per attempt with jitter.
+   *
+   * @param attempt the number of attempts already made, at least 1
+   * @return the delay in millis
+   */
+  public static long retryDelayMillis(int attempt) {
+    final long delay = Math.min(NotificationConfig.PUSH_RETRY_MAX_MILLIS,
+        NotificationConfig.PUSH_RETRY_BASE_MILLIS << Math.min(attempt - 1, 20));
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  /**
+   * Sends the given pushes.
+   *
+   * @param pushes the pushes
+   * @return what was delivered, what failed and what to retry
+   */
+  public Report dispatch(List<Push> pushes) {
+    Report report = new Report();
+    List<Batch> batches = coalesce(pushes);
+
+    List<Future<HTTPResponse>> responses = Lists.newArrayListWithCapacity(batches.size());
+    for (Batch batch : batches) {
+      responses.add(fetchService.fetchAsync(buildRequest(batch.getMessage())));
+    }
+
+    for (int i = 0; i < batches.size(); i++) {
+      Batch batch = batches.get(i);
+      report.requests++;
+      report.recipients += Math.max(1, batch.getRecipients().size());
+
+      HTTPResponse response;
+      try {
+        response = responses.get(i).get();
+      } catch (InterruptedException | ExecutionException e) {
+        log.warning("Push request failed: " + e.getMessage());
+        retry(batch, batch.getRecipients(), report);
+        continue;
+      }
+
+      if (response.getResponseCode() >= 500) {
+        retry(batch, batch.getRecipients(), report);
+      } else if (response.getResponseCode() != 200) {
+        log.severe("Push rejected with " + response.getResponseCode() + ": "
+            + new String(response.getContent(), Charsets.UTF_8));
+        report.failed += Math.max(1, batch.getRecipients().size());
+      } else {
+        readResults(batch, response, report);
+      }
+    }
+
+    return report;
+  }
+
+  private List<Batch> coalesce(List<Push> pushes) {
+    Map<String, Batch> groups = Maps.newLinkedHashMap();
+    List<Batch> batches = Lists.newArrayList();
+
+    for (Push push : pushes) {
+      ObjectNode message = push.getMessage().deepCopy();
+      JsonNode to = message.remove(FIELD_TO);
+      JsonNode registrationIds = message.remove(FIELD_REGISTRATION_IDS);
+
+      // Topic and condition messages have no registration ids to merge.
+      if ((to != null && to.asText().startsWith(TOPIC_PREFIX)) || message.has("condition")) {
+        batches.add(new Batch(push.getAttempt(), push.getMessage(), Collections.emptyList()));
+        continue;
+      }
+
+      final String key;
+      try {
+        key = push.getAttempt() + ":" + MAPPER.writeValueAsString(message);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+
+      Batch group = groups.computeIfAbsent(key,
+          k -> new Batch(push.getAttempt(), message, Lists.newArrayList()));
+      if (to != null) {
+        group.getRecipients().add(to.asText());
+      }
+      if (registrationIds != null) {
+        for (JsonNode registrationId : registrationIds) {
+          group.getRecipients().add(registrationId.asText());
+        }
+      }
+    }
+
+    for (Batch group : groups.values()) {
+      List<String> recipients = Lists.newArrayList(Sets.newLinkedHashSet(group.getRecipients()));
+      for (List<String> part
+          : Lists.partition(recipients, NotificationConfig.MULTICAST_BATCH_SIZE)) {
+        batches.add(new Batch(group.getAttempt(), address(group.getMessage(), part), part));
+      }
+    }
+
+    return batches;
+  }
+
+  private void readResults(Batch batch, HTTPResponse response, Report report) {
+    JsonNode body;
+    try {
+      body = MAPPER.readTree(response.getContent());
+    } catch (IOException e) {
+      log.warning("Unreadable push response: " + e.getMessage());
+      report.delivered += Math.max(1, batch.getRecipients().size());
+      return;
+    }
+
+    if (batch.getRecipients().isEmpty()) {
+      String error = body.path("error").asText(null);
+      if (error == null) {
+        report.delivered++;
+      } else if (TRANSIENT_ERRORS.contains(error)) {
+        retry(batch, Collections.emptyList(), report);
+      } else {
+        report.failed++;
+      }
+      return;
+    }
+
+    List<String> retried = Lists.newArrayList();
+    JsonNode results = body.path("results");
+    for (int i = 0; i < batch.getRecipients().size(); i++) {
+      String error = results.path(i).path("error").asText(null);
+      if (error == null) {
+        report.delivered++;
+      } else if (TRANSIENT_ERRORS.contains(error)) {
+        retried.add(batch.getRecipients().get(i));
+      } else {
+        report.failed++;
+      }
+    }
+
+    if (!retried.isEmpty()) {
+      retry(batch, retried, report);
+    }
+  }
+
+  private void retry(Batch batch, List<String> recipients, Report report) {
+    final int attempt = batch.getAttempt() + 1;
+    final int count = Math.max(1, recipients.size());
+
+    if (attempt >= NotificationConfig.PUSH_MAX_ATTEMPTS) {
+      report.failed += count;
+      return;
+    }
+
+    ObjectNode message = recipients.isEmpty()
+        ? batch.getMessage()
+        : address(batch.getMessage(), recipients);
+    report.retries.add(new Push(attempt, message));
+    report.retried += count;
+  }
+
+  private static ObjectNode address(ObjectNode template, List<String> recipients) {
+    ObjectNode message = template.deepCopy();
+    message.remove(FIELD_TO);
+    message.remove(FIELD_REGISTRATION_IDS);
+
+    if (recipients.size() == 1) {
+      message.put(FIELD_TO, recipients.get(0));
+    } else {
+      ArrayNode registrationIds = message.putArray(FIELD_REGISTRATION_IDS);
+      recipients.forEach(registrationIds::add);
+    }
+    return message;
+  }
+
+  private HTTPRequest buildRequest(ObjectNode message) {
+    HTTPRequest request = new HTTPRequest(endpoint, HTTPMethod.POST,
+        FetchOptions.Builder.withDeadline(NotificationConfig.FCM_DEADLINE_SECONDS));
+
+    request.addHeader(new HTTPHeader(OAuth2.HeaderType.AUTHORIZATION, "key=" + apiKey));
+    request.addHeader(new HTTPHeader(OAuth2.HeaderType.CONTENT_TYPE, OAuth2.ContentType.JSON));
+    try {
+      request.setPayload(MAPPER.writeValueAsBytes(message));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return request;
+  }
+
+  /**
+   * A message waiting to be sent, with the number of attempts already made.
+   */
+  @Value
+  public static class Push {
+    private int attempt;
+    private ObjectNode message;
+
+    public static Push of(PushMessage message) throws IOException {
+      return new Push(0, (ObjectNode) MAPPER.readTree(message.getJsonAsBytes()));
+    }
+
+    public static Push decode(byte[] bytes) throws IOException {
+      JsonNode node = MAPPER.readTree(bytes);
+      return new Push(node.path("attempt").asInt(), (ObjectNode) node.get("message"));
+    }
+
+    public byte[] encode() throws IOException {
+      ObjectNode node = MAPPER.createObjectNode();
+      node.put("attempt", attempt);
+      node.set("message", message);
+      return MAPPER.writeValueAsBytes(node);
+    }
+  }
+
+  @Getter
+  public static class Report {
+    private int requests;
+    private int recipients;
+    private int delivered;
+    private int failed;
+    private int retried;
+    private final List<Push> retries = Lists.newArrayList();
+  }
+
+  @Value
+  private static class Batch {
+    private int attempt;
+    private ObjectNode message;
+
+    /**
+     * Empty for topic and condition messages.
+     */
+    private List<String> recipients;
+  }
+}
@@ -0,0 +1,82 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.collect.ImmutableMap;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.ShardConfig;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Folds the shards of a post into its {@link PostCounter}.
+ *
+ * <p>Tasks are named after the post and the aggregation window they were scheduled in and run once
+ * the window is over, so a burst of writes to one post costs a single fold.
+ */
+@Log
+public class AggregatePostCounterServlet extends HttpServlet {
+
+  private static final String AGGREGATE_COUNTER_QUEUE = "aggregate-counter-queue";
+  private static final String URL = "/tasks/aggregate/post/counter";
+
+  private static final String POST_ID = "postId";
+
+  /**
+   * Extra delay after the window, so writes committed at its very end are included.
+   */
+  private static final long GRACE_MILLIS = 1000L;
+
+  private final PostCounterService postCounterService = PostCounterService.create();
+
+  private final PostShardService postShardService = PostShardService.create();
+
+  public static void addToQueue(@Nonnull String postId) {
+    final long windowMillis =
+        TimeUnit.SECONDS.toMillis(ShardConfig.COUNTER_AGGREGATION_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(AGGREGATE_COUNTER_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("counter-" + postId.replaceAll("[^a-zA-Z0-9_-]", "") + "-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS)
+          .param(POST_ID, postId));
+    } catch (TaskAlreadyExistsException e) {
+      // Another write in this window already scheduled the fold.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    final Key<PostEntity> postKey = Key.create(req.getParameter(POST_ID));
+
+    PostEntity post = ofy().load().key(postKey).now();
+
+    if (post == null) {
+      return;
+    }
+
+    List<PostShard> shards =
+        postShardService.loadShards(Collections.singletonList(post)).get(postKey);
+
+    postCounterService.putCounters(
+        ImmutableMap.of(postKey, PostCounter.fold(shards, System.currentTimeMillis())));
+  }
+}
@@ -16,6 +16,7 @@ import com.yoloo.backend.endpointsvalidator.validator.BadRequestValidator;
 import com.yoloo.backend.endpointsvalidator.validator.ForbiddenValidator;
 import com.yoloo.backend.endpointsvalidator.validator.NotFoundValidator;
 import com.yoloo.backend.post.sort_strategy.PostSorter;
+import com.yoloo.backend.tag.TagMatch;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import javax.inject.Named;
@@ -139,6 +140,7 @@ public class BlogEndpoint {
    * @param sorter the sorter
    * @param groupId the group id
    * @param tags the tags
+   * @param tagMatch whether posts need all or any of the tags
    * @param cursor the cursor
    * @param limit the limit
    * @param user the user
@@ -148,13 +150,15 @@ public class BlogEndpoint {
   @ApiMethod(name = "blogs.list", path = "blogs", httpMethod = ApiMethod.HttpMethod.GET)
   public CollectionResponse<PostEntity> list(@Nullable @Named("userId") String userId,
       @Nullable @Named("sort") PostSorter sorter, @Nullable @Named("groupId") String groupId,
-      @Nullable @Named("tags") String tags, @Nullable @Named("cursor") String cursor,
+      @Nullable @Named("tags") String tags, @Nullable @Named("tagMatch") TagMatch tagMatch,
+      @Nullable @Named("cursor") String cursor,
       @Nullable @Named("limit") Integer limit, User user) throws ServiceException {
 
     EndpointsValidator.create().on(AuthValidator.create(user));
 
     return postController.listPosts(Optional.fromNullable(userId), Optional.fromNullable(sorter),
-        Optional.fromNullable(groupId), Optional.fromNullable(tags), Optional.fromNullable(limit),
+        Optional.fromNullable(groupId), Optional.fromNullable(tags),
+        Optional.fromNullable(tagMatch), Optional.fromNullable(limit),
         Optional.fromNullable(cursor), Optional.of(PostEntity.Type.BLOG), user);
   }
 }
\ No newline at end of file
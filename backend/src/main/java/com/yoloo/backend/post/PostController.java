@@ -8,6 +8,8 @@ import com.google.appengine.api.users.User;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
@@ -17,32 +19,40 @@ import com.yoloo.backend.base.Controller;
 import com.yoloo.backend.comment.Comment;
 import com.yoloo.backend.comment.CommentService;
 import com.yoloo.backend.comment.CommentShardService;
-import com.yoloo.backend.device.DeviceRecord;
+import com.yoloo.backend.config.RankConfig;
+import com.yoloo.backend.config.TagConfig;
 import com.yoloo.backend.endpointsvalidator.Guard;
 import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.game.GameEvent;
+import com.yoloo.backend.game.GameEventCode;
 import com.yoloo.backend.game.GameService;
 import com.yoloo.backend.game.Tracker;
 import com.yoloo.backend.group.TravelerGroupEntity;
+import com.yoloo.backend.group.rank.CategoryRankAlgorithm;
 import com.yoloo.backend.media.MediaEntity;
 import com.yoloo.backend.media.MediaService;
 import com.yoloo.backend.notification.NotificationService;
-import com.yoloo.backend.notification.type.Notifiable;
 import com.yoloo.backend.post.sort_strategy.PostSorter;
+import com.yoloo.backend.search.PostSearchService;
+import com.yoloo.backend.search.SearchScorer;
+import com.yoloo.backend.shard.ShardCount;
 import com.yoloo.backend.tag.Tag;
+import com.yoloo.backend.tag.TagMatch;
+import com.yoloo.backend.tag.TagPosting;
+import com.yoloo.backend.tag.TagPostingService;
 import com.yoloo.backend.tag.TagService;
-import com.yoloo.backend.util.CollectionTransformer;
 import com.yoloo.backend.util.ServerConfig;
 import com.yoloo.backend.util.StringUtil;
-import com.yoloo.backend.vote.VoteService;
-import io.reactivex.Observable;
 import io.reactivex.Single;
 import ix.Ix;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.extern.java.Log;
+import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 import static com.yoloo.backend.util.StringUtil.split;
@@ -73,10 +83,14 @@ public final class PostController extends Controller {
 
   private NotificationService notificationService;
 
-  private VoteService voteService;
+  private PostHydrator postHydrator;
 
   private TagService tagService;
 
+  private PostSearchService postSearchService;
+
+  private TagPostingService tagPostingService;
+
   /**
    * Get question.
    *
@@ -86,15 +100,11 @@ public final class PostController extends Controller {
    * @throws NotFoundException the not found exception
    */
   public PostEntity getPost(String postId, User user) throws NotFoundException {
-    PostEntity postEntity =
-        ofy().load().group(PostEntity.ShardGroup.class).key(Key.<PostEntity>create(postId)).now();
+    PostEntity postEntity = ofy().load().key(Key.<PostEntity>create(postId)).now();
 
     Guard.checkNotFound(postEntity, "Could not find post with ID: " + postId);
 
-    return postShardService
-        .mergeShards(postEntity)
-        .flatMap(__ -> voteService.checkPostVote(__, Key.create(user.getUserId())))
-        .blockingSingle();
+    return postHydrator.hydrate(postEntity, Key.create(user.getUserId()));
   }
 
   /**
@@ -170,9 +180,6 @@ public final class PostController extends Controller {
     final Key<Tracker> trackerKey = Tracker.createKey(accountKey);
     keyBuilder.add(trackerKey);
 
-    final Key<DeviceRecord> recordKey = DeviceRecord.createKey(accountKey);
-    keyBuilder.add(recordKey);
-
     final Key<TravelerGroupEntity> groupKey = Key.create(groupId);
     keyBuilder.add(groupKey);
 
@@ -195,8 +202,6 @@ public final class PostController extends Controller {
     //noinspection SuspiciousMethodCalls
     Tracker tracker = (Tracker) fetched.get(trackerKey);
     //noinspection SuspiciousMethodCalls
-    DeviceRecord record = (DeviceRecord) fetched.get(recordKey);
-    //noinspection SuspiciousMethodCalls
     TravelerGroupEntity group = (TravelerGroupEntity) fetched.get(groupKey);
 
     List<MediaEntity> mediaEntities = Collections.emptyList();
@@ -220,37 +225,51 @@ public final class PostController extends Controller {
 
     List<Tag> tagList = tagService.updateTags(postEntity.getTags());
 
-    // Increase post count.
-    group = group.withPostCount(group.getPostCount() + 1);
-
-    // Start gamification check.
-    List<Notifiable> notifiables = new ArrayList<>(5);
-    gameService.addShareFirstPostBonus(record, tracker, notifiables::addAll);
-    gameService.addSharePostPerDayBonus(record, tracker, notifiables::addAll);
-
     ImmutableSet.Builder<Object> saveBuilder = ImmutableSet
         .builder()
         .add(postEntity)
         .addAll(postEntity.getShardMap().values())
-        .addAll(tagList)
-        .add(group)
-        .add(accountShard)
-        .add(tracker);
+        .add(accountShard);
 
-    for (Notifiable bundle : notifiables) {
-      saveBuilder.addAll(bundle.getNotifications());
-    }
+    final long now = DateTime.now().getMillis();
 
     ofy().transact(() -> {
-      ofy().save().entities(saveBuilder.build()).now();
+      // Loaded in the transaction, concurrent posts to the group would otherwise lose counts.
+      TravelerGroupEntity current = ofy().load().key(groupKey).now();
 
-      for (Notifiable bundle : notifiables) {
-        notificationService.send(bundle);
-      }
+      // Increase post count and trending rank.
+      TravelerGroupEntity updatedGroup = current
+          .withPostCount(current.getPostCount() + 1)
+          .withRank(CategoryRankAlgorithm
+              .from(current.getRank(), RankConfig.GROUP_RANK_POST_WEIGHT, now)
+              .getRank());
+
+      ofy().save().entities(saveBuilder.build()).now();
+      ofy().save().entity(updatedGroup).now();
+      ofy().save().entities(tagService.updateCounters(postEntity.getTags())).now();
+      postSearchService.markDirty(postEntity.getKey());
+      tagPostingService.markDirty(postEntity, Collections.emptySet());
+
+      // Bonuses are applied to the tracker later, the post never writes it.
+      gameService.publish(accountKey,
+          GameEvent.of(GameEventCode.Point.FIRST_QUESTION, postEntity.getKey()),
+          GameEvent.of(GameEventCode.Point.DAILY_ASK_QUESTION, postEntity.getKey()));
     });
 
+    // New tags are root entities, saved outside the transaction to keep it within the entity group
+    // limit. Their post counts come from the shards, so a lost save only delays the tag row.
+    ofy().save().entities(tagList).now();
+
+    gameService.scheduleApply(accountKey);
+
+    tagService.scheduleAggregation(postEntity.getTags());
+    tagService.recordUsage(postEntity.getTags());
+    postSearchService.scheduleIndexing();
+    tagPostingService.scheduleUpdate();
+
     if (!ServerConfig.isTest()) {
-      UpdateFeedServlet.addToQueue(user.getUserId(), postEntity.getWebsafeId());
+      UpdateFeedServlet.addToQueue(user.getUserId(), postEntity.getWebsafeId(),
+          postEntity.getCreated());
     }
 
     return postEntity;
@@ -292,13 +311,8 @@ public final class PostController extends Controller {
     //noinspection SuspiciousMethodCalls
     PostEntity original = (PostEntity) fetched.get(postKey);
 
-    List<MediaEntity> mediaEntities = Collections.emptyList();
+    List<MediaEntity> mediaEntities = Lists.newArrayList();
     if (mediaIds.isPresent()) {
-      List<Key<MediaEntity>> originalMediaKeys =
-          Ix.from(original.getMedias()).map(MediaEntity::getKey).toList();
-      mediaService.deleteMedias(originalMediaKeys);
-      ofy().delete().keys(originalMediaKeys);
-
       //noinspection SuspiciousMethodCalls
       Ix
           .from(StringUtil.splitToIterable(mediaIds.get(), ","))
@@ -308,16 +322,39 @@ public final class PostController extends Controller {
           .foreach(mediaEntities::add);
     }
 
-    return Single
+    // Medias kept by the update stay.
+    final Set<Key<MediaEntity>> keptMediaKeys =
+        Sets.newHashSet(Ix.from(mediaEntities).map(MediaEntity::getKey));
+    final List<Key<MediaEntity>> removedMediaKeys =
+        !mediaIds.isPresent() || original.getMedias() == null
+            ? Collections.emptyList()
+            : Ix.from(original.getMedias())
+                .map(MediaEntity::getKey)
+                .filter(mediaKey -> !keptMediaKeys.contains(mediaKey))
+                .toList();
+
+    PostEntity updated = Single
         .just(original)
         .map(post -> title.isPresent() ? post.withTitle(title.get()) : post)
         .map(post -> bounty.isPresent() ? post.withBounty(bounty.get()) : post)
         .map(post -> content.isPresent() ? post.withContent(content.get()) : post)
         .map(post -> tags.isPresent() ? post.withTags(
             ImmutableSet.copyOf(splitToIterable(tags.get(), ","))) : post)
-        .map(post -> post.withMedias(mediaEntities))
-        .doOnSuccess(post -> ofy().transact(() -> ofy().save().entity(post).now()))
+        .map(post -> mediaIds.isPresent() ? post.withMedias(mediaEntities) : post)
+        .doOnSuccess(post -> ofy().transact(() -> {
+          ofy().save().entity(post).now();
+          ofy().delete().keys(removedMediaKeys);
+          mediaService.deleteMedias(removedMediaKeys);
+          postSearchService.markDirty(post.getKey());
+          tagPostingService.markDirty(post,
+              Sets.difference(original.getTags(), post.getTags()).immutableCopy());
+        }))
         .blockingGet();
+
+    postSearchService.scheduleIndexing();
+    tagPostingService.scheduleUpdate();
+
+    return updated;
   }
 
   /**
@@ -332,23 +369,23 @@ public final class PostController extends Controller {
     final Key<PostEntity> postKey = Key.create(postId);
     final Key<AccountShard> accountShardKey =
         accountShardService.getRandomShardKey(postKey.getParent());
+    final Key<ShardCount> shardCountKey = ShardCount.createKey(postKey);
 
-    Map<Key<Object>, Object> map = ofy().load().keys(postKey, accountShardKey);
+    Map<Key<Object>, Object> map = ofy().load().keys(postKey, accountShardKey, shardCountKey);
     @SuppressWarnings("SuspiciousMethodCalls") AccountShard shard =
         (AccountShard) map.get(accountShardKey);
     shard.decreasePostCount();
 
     @SuppressWarnings("SuspiciousMethodCalls") PostEntity postEntity =
         (PostEntity) map.get(postKey);
+    @SuppressWarnings("SuspiciousMethodCalls") ShardCount shardCount =
+        (ShardCount) map.get(shardCountKey);
     List<MediaEntity> mediaEntities = postEntity.getMedias();
 
-    List<Key<MediaEntity>> mediaKeys = Collections.emptyList();
-    if (mediaEntities != null) {
-      Ix.from(mediaEntities).map(Key::<MediaEntity>create).foreach(mediaKey -> {
-        mediaKeys.add(mediaKey);
-        deleteList.add(mediaKey);
-      });
-    }
+    List<Key<MediaEntity>> mediaKeys = mediaEntities == null
+        ? Collections.emptyList()
+        : Ix.from(mediaEntities).map(MediaEntity::getKey).toList();
+    deleteList.addAll(mediaKeys);
 
     List<Key<Comment>> commentKeys = postService.getCommentKeys(postKey);
 
@@ -360,18 +397,22 @@ public final class PostController extends Controller {
         .addAll(commentService.getVoteKeys(commentKeys))
         .addAll(commentKeys)
         .addAll(postService.getVoteKeys(postKey))
-        .addAll(postShardService.createShardMapWithKey(postKey).keySet())
+        .addAll(postShardService.getShardKeys(postKey,
+            postShardService.getShardCount(postEntity, shardCount)))
+        .add(shardCountKey)
         .add(postKey)
         .addAll(feedKeys);
 
     ofy().transact(() -> {
       ofy().defer().save().entity(shard);
       ofy().defer().delete().keys(deleteList.build());
-
-      if (mediaEntities != null) {
-        mediaService.deleteMedias(mediaKeys);
-      }
+      postSearchService.markDirty(postKey);
+      tagPostingService.markDirty(postEntity, postEntity.getTags());
+      mediaService.deleteMedias(mediaKeys);
     });
+
+    postSearchService.scheduleIndexing();
+    tagPostingService.scheduleUpdate();
   }
 
   /**
@@ -381,6 +422,8 @@ public final class PostController extends Controller {
    * @param sorter the sorter
    * @param groupId the group id
    * @param tags the tags
+   * @param tagMatch whether posts need all or any of the tags, only newest first lists can match
+   * any
    * @param limit the limit
    * @param cursor the cursor
    * @param postType the post type
@@ -389,11 +432,16 @@ public final class PostController extends Controller {
    */
   public CollectionResponse<PostEntity> listPosts(Optional<String> userId,
       Optional<PostSorter> sorter, Optional<String> groupId, Optional<String> tags,
-      Optional<Integer> limit, Optional<String> cursor, Optional<PostEntity.Type> postType,
-      User user) {
+      Optional<TagMatch> tagMatch, Optional<Integer> limit, Optional<String> cursor,
+      Optional<PostEntity.Type> postType, User user) {
 
-    Query<PostEntity> query =
-        ofy().load().group(PostEntity.ShardGroup.class).type(PostEntity.class);
+    // Tag timelines answer multi tag lists without a composite index per tag count.
+    if (tags.isPresent() && sorter.or(PostSorter.NEWEST) == PostSorter.NEWEST) {
+      return listTaggedPosts(userId, groupId, split(tags.get(), ","),
+          tagMatch.or(TagMatch.ALL), limit, cursor, postType, user);
+    }
+
+    Query<PostEntity> query = ofy().load().type(PostEntity.class);
 
     if (postType.isPresent()) {
       query = query.filter(PostEntity.FIELD_POST_TYPE + " =", postType.get());
@@ -426,12 +474,94 @@ public final class PostController extends Controller {
       postEntities.add(qi.next());
     }
 
-    return Observable
-        .just(postEntities)
-        .flatMap(postShardService::mergeShards)
-        .flatMap(__ -> voteService.checkPostVote(__, Key.create(user.getUserId())))
-        .compose(CollectionTransformer.create(qi.getCursor().toWebSafeString()))
-        .blockingSingle();
+    return CollectionResponse.<PostEntity>builder()
+        .setItems(postHydrator.hydrate(postEntities, Key.create(user.getUserId())))
+        .setNextPageToken(qi.getCursor().toWebSafeString())
+        .build();
+  }
+
+  private CollectionResponse<PostEntity> listTaggedPosts(Optional<String> userId,
+      Optional<String> groupId, List<String> tags, TagMatch tagMatch, Optional<Integer> limit,
+      Optional<String> cursor, Optional<PostEntity.Type> postType, User user) {
+    final int pageSize = limit.or(DEFAULT_LIST_LIMIT);
+
+    final Key<Account> accountKey = userId.isPresent() ? Key.create(userId.get()) : null;
+    final Key<TravelerGroupEntity> groupKey =
+        groupId.isPresent() ? Key.create(groupId.get()) : null;
+
+    List<PostEntity> postEntities = new ArrayList<>(pageSize);
+    TagPosting after = TagPosting.fromCursor(cursor.orNull());
+    boolean exhausted = false;
+    int scanned = 0;
+
+    while (postEntities.size() < pageSize && scanned < TagConfig.MAX_TAGGED_POSTS_SCANNED) {
+      final int requested = pageSize - postEntities.size();
+      List<TagPosting> postings = tagPostingService.list(tags, tagMatch, after, requested);
+
+      if (!postings.isEmpty()) {
+        after = postings.get(postings.size() - 1);
+        scanned += postings.size();
+      }
+
+      // Posts deleted since the last timeline update are missing.
+      Map<Key<PostEntity>, PostEntity> fetched =
+          ofy().load().keys(Ix.from(postings).map(TagPosting::getPostKey).toList());
+
+      for (TagPosting posting : postings) {
+        PostEntity post = fetched.get(posting.getPostKey());
+
+        if (post == null
+            || (accountKey != null && !accountKey.equivalent(post.getParent()))
+            || (groupKey != null && !groupKey.equivalent(post.getTravelerGroup()))
+            || (postType.isPresent() && postType.get().getType() != post.getPostType())) {
+          continue;
+        }
+        postEntities.add(post);
+      }
+
+      if (postings.size() < requested) {
+        exhausted = true;
+        break;
+      }
+    }
+
+    return CollectionResponse.<PostEntity>builder()
+        .setItems(postHydrator.hydrate(postEntities, Key.create(user.getUserId())))
+        .setNextPageToken(exhausted || after == null ? null : after.toCursor())
+        .build();
+  }
+
+  /**
+   * Search posts by the terms of their title, content and tags, best matches first.
+   *
+   * @param q the query
+   * @param cursor the cursor
+   * @param limit the limit
+   * @param user the user
+   * @return the collection response
+   */
+  public CollectionResponse<PostEntity> searchPosts(String q, Optional<String> cursor,
+      Optional<Integer> limit, User user) {
+    final int pageSize = limit.or(DEFAULT_LIST_LIMIT);
+
+    List<SearchScorer.Hit> hits =
+        postSearchService.search(q, SearchScorer.Hit.fromCursor(cursor.orNull()), pageSize);
+
+    List<Key<PostEntity>> postKeys = Ix
+        .from(hits)
+        .map(hit -> Key.create(Key.create(Account.class, hit.getAccountId()), PostEntity.class,
+            hit.getPostId()))
+        .toList();
+
+    // Posts deleted since the last index pass are missing.
+    Map<Key<PostEntity>, PostEntity> fetched = ofy().load().keys(postKeys);
+    List<PostEntity> postEntities =
+        Ix.from(postKeys).map(fetched::get).filter(post -> post != null).toList();
+
+    return CollectionResponse.<PostEntity>builder()
+        .setItems(postHydrator.hydrate(postEntities, Key.create(user.getUserId())))
+        .setNextPageToken(hits.size() == pageSize ? hits.get(hits.size() - 1).toCursor() : null)
+        .build();
   }
 
   /**
@@ -1,6 +1,5 @@
 package com.yoloo.backend.post;
 
-import com.google.appengine.api.urlfetch.URLFetchServiceFactory;
 import com.yoloo.backend.account.AccountShardService;
 import com.yoloo.backend.base.ControllerFactory;
 import com.yoloo.backend.comment.CommentService;
@@ -8,6 +7,8 @@ import com.yoloo.backend.comment.CommentShardService;
 import com.yoloo.backend.game.GameService;
 import com.yoloo.backend.media.MediaService;
 import com.yoloo.backend.notification.NotificationService;
+import com.yoloo.backend.search.PostSearchService;
+import com.yoloo.backend.tag.TagPostingService;
 import com.yoloo.backend.tag.TagService;
 import com.yoloo.backend.vote.VoteService;
 import lombok.NoArgsConstructor;
@@ -27,8 +28,10 @@ public class PostControllerFactory implements ControllerFactory<PostController>
         AccountShardService.create(),
         GameService.create(),
         MediaService.create(),
-        NotificationService.create(URLFetchServiceFactory.getURLFetchService()),
-        VoteService.create(),
-        new TagService());
+        NotificationService.create(),
+        PostHydrator.create(postShardService, VoteService.create()),
+        new TagService(),
+        PostSearchService.create(),
+        TagPostingService.create());
   }
 }
@@ -0,0 +1,44 @@
+package com.yoloo.backend.post;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Pre-merged totals of the {@link PostShard}s of a post, kept in memcache.
+ */
+@Value
+@AllArgsConstructor(staticName = "of")
+public class PostCounter implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private long votes;
+
+  private long comments;
+
+  private int reports;
+
+  /**
+   * When the shards were folded, in epoch millis.
+   */
+  private long aggregatedAt;
+
+  public static PostCounter fold(Iterable<PostShard> shards, long aggregatedAt) {
+    long votes = 0L;
+    long comments = 0L;
+    int reports = 0;
+
+    for (PostShard shard : shards) {
+      votes += shard.getVotes();
+      comments += shard.getComments();
+      reports += shard.getReports();
+    }
+
+    return of(votes, comments, reports, aggregatedAt);
+  }
+
+  public boolean isFresh(long now, long maxAgeMillis) {
+    return now - aggregatedAt < maxAgeMillis;
+  }
+}
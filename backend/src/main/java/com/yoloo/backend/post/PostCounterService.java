@@ -0,0 +1,97 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.common.collect.Maps;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.ShardConfig;
+import ix.Ix;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.NoArgsConstructor;
+
+/**
+ * Keeps the {@link PostCounter} aggregates of posts in memcache.
+ *
+ * <p>Shard writers call {@link #scheduleAggregation(Key)}, which folds the shards in the background
+ * once the current aggregation window is over. Readers use the aggregate while it is fresh and only
+ * load shards for posts that have none.
+ */
+@NoArgsConstructor(staticName = "create")
+public class PostCounterService {
+
+  private static final String NAMESPACE = "PostCounter";
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Gets the fresh aggregates of the given posts. Posts without a fresh aggregate are absent.
+   *
+   * @param postKeys the post keys
+   * @return the aggregates by post key
+   */
+  public Map<Key<PostEntity>, PostCounter> getCounters(Collection<Key<PostEntity>> postKeys) {
+    Map<String, Object> values =
+        memcache.getAll(Ix.from(postKeys).map(Key::toWebSafeString).toList());
+
+    final long now = System.currentTimeMillis();
+    final long maxAge = TimeUnit.SECONDS.toMillis(ShardConfig.COUNTER_AGGREGATE_MAX_AGE_SECONDS);
+
+    Map<Key<PostEntity>, PostCounter> counters = Maps.newHashMapWithExpectedSize(values.size());
+
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      PostCounter counter = (PostCounter) entry.getValue();
+
+      if (counter.isFresh(now, maxAge)) {
+        counters.put(Key.create(entry.getKey()), counter);
+      }
+    }
+
+    return counters;
+  }
+
+  /**
+   * Caches aggregates folded by {@link AggregatePostCounterServlet}, replacing the older ones.
+   *
+   * @param counters the aggregates by post key
+   */
+  public void putCounters(Map<Key<PostEntity>, PostCounter> counters) {
+    put(counters, MemcacheService.SetPolicy.SET_ALWAYS);
+  }
+
+  /**
+   * Caches aggregates folded on a read. Posts that already have one keep it, the aggregation task
+   * may have folded it after the shards of the read were loaded.
+   *
+   * @param counters the aggregates by post key
+   */
+  public void addCounters(Map<Key<PostEntity>, PostCounter> counters) {
+    put(counters, MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+  }
+
+  private void put(Map<Key<PostEntity>, PostCounter> counters, MemcacheService.SetPolicy policy) {
+    if (counters.isEmpty()) {
+      return;
+    }
+
+    Map<String, PostCounter> values = Maps.newHashMapWithExpectedSize(counters.size());
+    for (Map.Entry<Key<PostEntity>, PostCounter> entry : counters.entrySet()) {
+      values.put(entry.getKey().toWebSafeString(), entry.getValue());
+    }
+
+    memcache.putAll(values,
+        Expiration.byDeltaSeconds(ShardConfig.COUNTER_AGGREGATE_MAX_AGE_SECONDS), policy);
+  }
+
+  /**
+   * Schedules a fold of the shards of the given post at the end of the current aggregation window.
+   * Writes inside the same window share a single task.
+   *
+   * @param postKey the post key
+   */
+  public void scheduleAggregation(Key<PostEntity> postKey) {
+    AggregatePostCounterServlet.addToQueue(postKey.toWebSafeString());
+  }
+}
@@ -16,6 +16,7 @@ import com.yoloo.backend.endpointsvalidator.validator.BadRequestValidator;
 import com.yoloo.backend.endpointsvalidator.validator.ForbiddenValidator;
 import com.yoloo.backend.endpointsvalidator.validator.NotFoundValidator;
 import com.yoloo.backend.post.sort_strategy.PostSorter;
+import com.yoloo.backend.tag.TagMatch;
 import javax.annotation.Nullable;
 import javax.inject.Named;
 
@@ -77,6 +78,7 @@ public class PostEndpoint {
    * @param sorter the sorter
    * @param groupId the group id
    * @param tags the tags
+   * @param tagMatch whether posts need all or any of the tags
    * @param cursor the cursor
    * @param limit the limit
    * @param user the user
@@ -86,16 +88,42 @@ public class PostEndpoint {
   @ApiMethod(name = "posts.list", path = "posts", httpMethod = ApiMethod.HttpMethod.GET)
   public CollectionResponse<PostEntity> list(@Nullable @Named("userId") String userId,
       @Nullable @Named("sort") PostSorter sorter, @Nullable @Named("groupId") String groupId,
-      @Nullable @Named("tags") String tags, @Nullable @Named("cursor") String cursor,
+      @Nullable @Named("tags") String tags, @Nullable @Named("tagMatch") TagMatch tagMatch,
+      @Nullable @Named("cursor") String cursor,
       @Nullable @Named("limit") Integer limit, User user) throws ServiceException {
 
     EndpointsValidator.create().on(AuthValidator.create(user));
 
     return postController.listPosts(Optional.fromNullable(userId), Optional.fromNullable(sorter),
-        Optional.fromNullable(groupId), Optional.fromNullable(tags), Optional.fromNullable(limit),
+        Optional.fromNullable(groupId), Optional.fromNullable(tags),
+        Optional.fromNullable(tagMatch), Optional.fromNullable(limit),
         Optional.fromNullable(cursor), Optional.absent(), user);
   }
 
+  /**
+   * Search posts by the words of their title, content and tags.
+   *
+   * @param query the query
+   * @param cursor the cursor
+   * @param limit the limit
+   * @param user the user
+   * @return the collection response
+   * @throws ServiceException the service exception
+   */
+  @ApiMethod(name = "posts.search", path = "search/posts", httpMethod = ApiMethod.HttpMethod.GET)
+  public CollectionResponse<PostEntity> search(@Named("q") String query,
+      @Nullable @Named("cursor") String cursor, @Nullable @Named("limit") Integer limit, User user)
+      throws ServiceException {
+
+    EndpointsValidator
+        .create()
+        .on(BadRequestValidator.create(query, "query is required."))
+        .on(AuthValidator.create(user));
+
+    return postController.searchPosts(query, Optional.fromNullable(cursor),
+        Optional.fromNullable(limit), user);
+  }
+
   /**
    * Report.
    *
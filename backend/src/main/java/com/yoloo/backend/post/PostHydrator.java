@@ -0,0 +1,74 @@
+package com.yoloo.backend.post;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.vote.Votable;
+import com.yoloo.backend.vote.Vote;
+import com.yoloo.backend.vote.VoteService;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+
+/**
+ * Prepares posts for responses. Counts and the vote direction of the viewer are resolved with one
+ * batch lookup each and set on every post in a single pass, on the request thread.
+ */
+@AllArgsConstructor(staticName = "create")
+public class PostHydrator {
+
+  private PostShardService postShardService;
+
+  private VoteService voteService;
+
+  /**
+   * Hydrates the given posts.
+   *
+   * @param posts the posts
+   * @param accountKey the key of the viewer
+   * @return the hydrated posts, in the given order
+   */
+  public List<PostEntity> hydrate(Collection<? extends PostEntity> posts,
+      Key<Account> accountKey) {
+    if (posts.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return assemble(posts, postShardService.getCounters(posts),
+        voteService.getDirections(posts, accountKey));
+  }
+
+  /**
+   * Hydrates the given post.
+   *
+   * @param post the post
+   * @param accountKey the key of the viewer
+   * @return the hydrated post
+   */
+  public PostEntity hydrate(PostEntity post, Key<Account> accountKey) {
+    return hydrate(Collections.singletonList(post), accountKey).get(0);
+  }
+
+  static List<PostEntity> assemble(Collection<? extends PostEntity> posts,
+      Map<Key<PostEntity>, PostCounter> counters, Map<Key<Votable>, Vote.Direction> directions) {
+    final PostEntity[] hydrated = new PostEntity[posts.size()];
+
+    int i = 0;
+    for (PostEntity post : posts) {
+      final Key<PostEntity> postKey = post.getKey();
+      final PostCounter counter = counters.get(postKey);
+      final Vote.Direction dir = directions.get(post.<Votable>getVotableKey());
+
+      hydrated[i++] = post.toBuilder()
+          .voteCount(counter.getVotes())
+          .commentCount(counter.getComments())
+          .reportCount(counter.getReports())
+          .dir(dir == null ? Vote.Direction.DEFAULT : dir)
+          .build();
+    }
+
+    return Arrays.asList(hydrated);
+  }
+}
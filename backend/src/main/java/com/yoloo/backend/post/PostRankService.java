@@ -0,0 +1,61 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.algorithm.RedditRankAlgorithm;
+import lombok.NoArgsConstructor;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Keeps {@link PostEntity#getRank()} up to date for the trending sort.
+ *
+ * <p>Writers that change the vote or comment count of a post mark it dirty on a pull queue.
+ * {@link UpdatePostRankServlet} periodically leases the marks and re-ranks only those posts, so
+ * the cost of a pass follows activity instead of the number of posts.
+ */
+@NoArgsConstructor(staticName = "create")
+public class PostRankService {
+
+  static final String RANK_DIRTY_QUEUE = "rank-dirty-queue";
+
+  /**
+   * Hot rank of a post. Comments count as up votes.
+   *
+   * @param votes the vote count
+   * @param comments the comment count
+   * @param created the creation time
+   * @return the rank
+   */
+  public static double computeRank(long votes, long comments, DateTime created) {
+    final long ups = Math.max(votes, 0L) + comments;
+    final long downs = Math.max(-votes, 0L);
+
+    return RedditRankAlgorithm.getHotRank(ups, downs, created.toDate());
+  }
+
+  /**
+   * Marks the given post for re-ranking. Must be called inside the transaction that changes its
+   * counts, so a mark is never lost and never precedes the change.
+   *
+   * @param postKey the post key
+   */
+  public void markDirty(Key<PostEntity> postKey) {
+    Queue queue = QueueFactory.getQueue(RANK_DIRTY_QUEUE);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .payload(postKey.toWebSafeString().getBytes(Charsets.UTF_8)));
+  }
+
+  /**
+   * Schedules a re-ranking pass at the end of the current window.
+   */
+  public void scheduleUpdate() {
+    UpdatePostRankServlet.addToQueue();
+  }
+}
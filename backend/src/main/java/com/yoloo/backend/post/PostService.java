@@ -35,6 +35,8 @@ public class PostService {
 
     Map<Ref<PostShard>, PostShard> shardMap = postShardService.createShardMapWithRef(postKey);
 
+    final DateTime created = DateTime.now();
+
     return PostEntity
         .builder()
         .id(postKey.getId())
@@ -55,7 +57,8 @@ public class PostService {
         .reportCount(0)
         .commented(false)
         .postType(type.getType())
-        .created(DateTime.now())
+        .rank(PostRankService.computeRank(0L, 0L, created))
+        .created(created)
         .shardMap(shardMap)
         .build();
   }
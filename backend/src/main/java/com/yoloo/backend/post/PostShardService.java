@@ -1,22 +1,35 @@
 package com.yoloo.backend.post;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Ref;
 import com.yoloo.backend.config.ShardConfig;
+import com.yoloo.backend.shard.ContentionTracker;
+import com.yoloo.backend.shard.ShardCount;
 import com.yoloo.backend.shard.ShardUtil;
 import com.yoloo.backend.shard.Shardable;
 import io.reactivex.Observable;
+import ix.Ix;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import javax.annotation.Nullable;
 import lombok.NoArgsConstructor;
 import lombok.extern.java.Log;
 
+import static com.yoloo.backend.OfyService.ofy;
+
 @Log
 @NoArgsConstructor(staticName = "create")
 public class PostShardService implements Shardable<PostShard, PostEntity> {
 
+  private final PostCounterService postCounterService = PostCounterService.create();
+
+  private final ContentionTracker contentionTracker = ContentionTracker.create();
+
   @Override
   public Map<Ref<PostShard>, PostShard> createShardMapWithRef(Iterable<Key<PostEntity>> keys) {
     return Observable.fromIterable(keys)
@@ -45,26 +58,171 @@ public class PostShardService implements Shardable<PostShard, PostEntity> {
         .blockingGet();
   }
 
+  /**
+   * Gets a random key among the shards every post is created with. Writers that know the shard
+   * count of the post should use {@link #getRandomShardKey(Key, int)} to spread over grown shards.
+   */
   @Override public Key<PostShard> getRandomShardKey(Key<PostEntity> entityKey) {
-    final int shardNum = new Random().nextInt(ShardConfig.POST_SHARD_COUNTER - 1 + 1) + 1;
+    return getRandomShardKey(entityKey, ShardConfig.POST_SHARD_COUNTER);
+  }
+
+  public Key<PostShard> getRandomShardKey(Key<PostEntity> entityKey, int shardCount) {
+    final int shardNum = new Random().nextInt(shardCount) + 1;
     return PostShard.createKey(entityKey, shardNum);
   }
 
+  /**
+   * Gets the current shard count of a post, the shards it was created with or the grown count.
+   *
+   * @param post the post
+   * @param shardCount the stored shard count of the post, null if it never grew
+   * @return the shard count
+   */
+  public int getShardCount(PostEntity post, @Nullable ShardCount shardCount) {
+    final int created = post.getShardRefs() == null ? 0 : post.getShardRefs().size();
+    return shardCount == null ? created : Math.max(created, shardCount.getCount());
+  }
+
+  /**
+   * Loads every shard of the given posts, grown ones included.
+   *
+   * @param posts the posts
+   * @return the shards by post key
+   */
+  public Map<Key<PostEntity>, List<PostShard>> loadShards(Collection<? extends PostEntity> posts) {
+    Map<Key<ShardCount>, ShardCount> shardCounts =
+        ofy().load().keys(Ix.from(posts).map(post -> ShardCount.createKey(post.getKey())).toList());
+
+    Map<Key<PostEntity>, List<Key<PostShard>>> shardKeys = Maps.newHashMap();
+    for (PostEntity post : posts) {
+      final int count =
+          getShardCount(post, shardCounts.get(ShardCount.createKey(post.getKey())));
+      shardKeys.put(post.getKey(), getShardKeys(post.getKey(), count));
+    }
+
+    Map<Key<PostShard>, PostShard> shards =
+        ofy().load().keys(Ix.from(shardKeys.values()).flatMap(Ix::from).toList());
+
+    Map<Key<PostEntity>, List<PostShard>> result = Maps.newHashMap();
+    for (Map.Entry<Key<PostEntity>, List<Key<PostShard>>> entry : shardKeys.entrySet()) {
+      result.put(entry.getKey(), Ix.from(entry.getValue())
+          .map(shards::get)
+          .filter(shard -> shard != null)
+          .toList());
+    }
+
+    return result;
+  }
+
+  public List<Key<PostShard>> getShardKeys(Key<PostEntity> postKey, int shardCount) {
+    return Ix.range(1, shardCount).map(shardNum -> PostShard.createKey(postKey, shardNum)).toList();
+  }
+
+  /**
+   * Records a contended shard transaction on the given post. The shards of the post are doubled,
+   * up to {@link ShardConfig#MAX_POST_SHARD_COUNTER}, once
+   * {@link ShardConfig#SHARD_GROWTH_CONTENTION_THRESHOLD} contended transactions are seen within
+   * a window.
+   *
+   * @param postKey the post key
+   * @param shardCount the shard count the writer used
+   */
+  public void recordContention(Key<PostEntity> postKey, int shardCount) {
+    if (shardCount < ShardConfig.MAX_POST_SHARD_COUNTER && contentionTracker.record(postKey)) {
+      final int grown = growShards(postKey, shardCount);
+      log.info("Grew shards of post " + postKey.toWebSafeString() + " to " + grown);
+    }
+  }
+
+  /**
+   * Doubles the shards of the given post. The new shards and the count are saved in one
+   * transaction, so a writer that sees the new count always finds its shard.
+   *
+   * @param postKey the post key
+   * @param shardCount the shard count known to the caller
+   * @return the shard count after growing
+   */
+  public int growShards(Key<PostEntity> postKey, int shardCount) {
+    return ofy().transact(() -> {
+      ShardCount stored = ofy().load().key(ShardCount.createKey(postKey)).now();
+      final int current = stored == null ? shardCount : Math.max(shardCount, stored.getCount());
+
+      if (current >= ShardConfig.MAX_POST_SHARD_COUNTER) {
+        return current;
+      }
+
+      final int grown = Math.min(current * 2, ShardConfig.MAX_POST_SHARD_COUNTER);
+
+      List<Object> entities = Lists.newArrayList();
+      for (int shardNum = current + 1; shardNum <= grown; shardNum++) {
+        entities.add(createShard(postKey, shardNum));
+      }
+      entities.add(ShardCount.builder().id(postKey.toWebSafeString()).count(grown).build());
+
+      ofy().save().entities(entities).now();
+
+      return grown;
+    });
+  }
+
+  /**
+   * Sets the vote, comment and report counts of the given posts. Pre-merged {@link PostCounter}s
+   * are used where fresh, shards are only loaded for the remaining posts and their totals are
+   * cached for the next read.
+   *
+   * @param entities the posts
+   * @return the posts with counts, in the given order
+   */
   @Override public Observable<List<PostEntity>> mergeShards(Collection<? extends PostEntity> entities) {
-    return Observable.fromIterable(entities)
-        .flatMap(this::mergeShards)
-        .toList(entities.size() == 0 ? 1 : entities.size())
-        .toObservable();
+    return Observable.fromCallable(() -> mergeCounters(entities));
   }
 
   @Override public Observable<PostEntity> mergeShards(PostEntity entity) {
-    return Observable.fromIterable(entity.getShards())
-        .cast(PostShard.class)
-        .reduce((s1, s2) -> s1.addValues(s2.getComments(), s2.getVotes(), s2.getReports()))
-        .map(s -> entity.withVoteCount(s.getVotes())
-            .withCommentCount(s.getComments())
-            .withReportCount(s.getReports()))
-        .toObservable();
+    return mergeShards(Collections.singletonList(entity)).map(posts -> posts.get(0));
+  }
+
+  private List<PostEntity> mergeCounters(Collection<? extends PostEntity> entities) {
+    Map<Key<PostEntity>, PostCounter> counters = getCounters(entities);
+
+    return Ix.from(entities)
+        .map(entity -> {
+          PostCounter counter = counters.get(entity.getKey());
+          return entity.withVoteCount(counter.getVotes())
+              .withCommentCount(counter.getComments())
+              .withReportCount(counter.getReports());
+        })
+        .toList();
+  }
+
+  /**
+   * Gets the counters of the given posts. Pre-merged {@link PostCounter}s are used where fresh,
+   * shards are only loaded for the remaining posts and their totals are cached for the next read.
+   *
+   * @param entities the posts
+   * @return a counter for every post, by post key
+   */
+  public Map<Key<PostEntity>, PostCounter> getCounters(Collection<? extends PostEntity> entities) {
+    Map<Key<PostEntity>, PostCounter> counters =
+        postCounterService.getCounters(Ix.from(entities).map(PostEntity::getKey).toList());
+
+    List<PostEntity> missing = Ix.from(entities)
+        .filter(entity -> !counters.containsKey(entity.getKey()))
+        .cast(PostEntity.class)
+        .toList();
+
+    if (!missing.isEmpty()) {
+      final long now = System.currentTimeMillis();
+      Map<Key<PostEntity>, PostCounter> folded = Maps.newHashMap();
+
+      for (Map.Entry<Key<PostEntity>, List<PostShard>> entry : loadShards(missing).entrySet()) {
+        folded.put(entry.getKey(), PostCounter.fold(entry.getValue(), now));
+      }
+
+      postCounterService.addCounters(folded);
+      counters.putAll(folded);
+    }
+
+    return counters;
   }
 
   private Observable<PostShard> createShardsFromPostKey(Key<PostEntity> postKey) {
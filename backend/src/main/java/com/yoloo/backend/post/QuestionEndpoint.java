@@ -16,6 +16,7 @@ import com.yoloo.backend.endpointsvalidator.validator.BadRequestValidator;
 import com.yoloo.backend.endpointsvalidator.validator.ForbiddenValidator;
 import com.yoloo.backend.endpointsvalidator.validator.NotFoundValidator;
 import com.yoloo.backend.post.sort_strategy.PostSorter;
+import com.yoloo.backend.tag.TagMatch;
 import javax.annotation.Nullable;
 import javax.inject.Named;
 
@@ -145,13 +146,15 @@ public class QuestionEndpoint {
   @ApiMethod(name = "questions.list", path = "questions", httpMethod = ApiMethod.HttpMethod.GET)
   public CollectionResponse<PostEntity> list(@Nullable @Named("userId") String userId,
       @Nullable @Named("sort") PostSorter sorter, @Nullable @Named("groupId") String groupId,
-      @Nullable @Named("tags") String tags, @Nullable @Named("cursor") String cursor,
+      @Nullable @Named("tags") String tags, @Nullable @Named("tagMatch") TagMatch tagMatch,
+      @Nullable @Named("cursor") String cursor,
       @Nullable @Named("limit") Integer limit, User user) throws ServiceException {
 
     EndpointsValidator.create().on(AuthValidator.create(user));
 
     return postController.listPosts(Optional.fromNullable(userId), Optional.fromNullable(sorter),
-        Optional.fromNullable(groupId), Optional.fromNullable(tags), Optional.fromNullable(limit),
+        Optional.fromNullable(groupId), Optional.fromNullable(tags),
+        Optional.fromNullable(tagMatch), Optional.fromNullable(limit),
         Optional.fromNullable(cursor), Optional.of(PostEntity.Type.TEXT_POST), user);
   }
 }
\ No newline at end of file
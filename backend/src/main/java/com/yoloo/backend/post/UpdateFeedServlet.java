@@ -1,27 +1,58 @@
 package com.yoloo.backend.post;
 
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
 import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Ref;
+import com.googlecode.objectify.Result;
+import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
+import com.yoloo.backend.account.AccountShardService;
+import com.yoloo.backend.config.FeedConfig;
 import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.feed.FeedCache;
+import com.yoloo.backend.feed.FeedService;
+import com.yoloo.backend.relationship.FollowGraphService;
 import com.yoloo.backend.relationship.Relationship;
+import ix.Ix;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import ix.Ix;
+import lombok.extern.java.Log;
+import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 
+/**
+ * Fans a new post out to the feeds of the author's followers.
+ *
+ * <p>Followers are read from the cached follow graph and paged by the last follower id written,
+ * {@link FeedConfig#FAN_OUT_CHUNK_SIZE} at a time. Lists too long to cache are paged with a query
+ * cursor instead, starting after the last follower id written when a list outgrew the cache
+ * between chunks. Each task writes its chunk and enqueues the next one, so an author with any
+ * number of followers never blows the request deadline. Feed ids are derived from the post key
+ * and task names from the post id and chunk number, which makes a retried or duplicated chunk a
+ * harmless overwrite.
+ *
+ * <p>Authors above {@link FeedConfig#PULL_FOLLOWER_THRESHOLD} followers are not fanned out at
+ * all; their posts are pulled into follower feeds at read time by the feed controller.
+ */
+@Log
 public class UpdateFeedServlet extends HttpServlet {
 
   public static final String UPDATE_FEED_QUEUE = "update-feed-queue";
@@ -29,13 +60,51 @@ public class UpdateFeedServlet extends HttpServlet {
 
   private static final String USER_ID = "userId";
   private static final String POST_ID = "postId";
+  private static final String CURSOR = "cursor";
+  private static final String AFTER = "after";
+  private static final String CHUNK = "chunk";
+  private static final String CREATED = "created";
+
+  private final FeedService feedService = FeedService.create(AccountShardService.create());
+
+  private final FeedCache feedCache = FeedCache.create();
+
+  private final FollowGraphService followGraphService = FollowGraphService.create();
 
-  public static void addToQueue(@Nonnull String userId, @Nonnull String postId) {
+  public static void addToQueue(@Nonnull String userId, @Nonnull String postId,
+      @Nonnull DateTime created) {
+    addChunkToQueue(userId, postId, created.getMillis(), null, null, 0);
+  }
+
+  private static void addChunkToQueue(@Nonnull String userId, @Nonnull String postId,
+      long created, @Nullable String cursor, @Nullable Long after, int chunk) {
     Queue queue = QueueFactory.getQueue(UPDATE_FEED_QUEUE);
-    queue.add(TaskOptions.Builder
+
+    TaskOptions options = TaskOptions.Builder
         .withUrl(URL)
+        .taskName(createTaskName(postId, chunk))
         .param(USER_ID, userId)
-        .param(POST_ID, postId));
+        .param(POST_ID, postId)
+        .param(CREATED, String.valueOf(created))
+        .param(CHUNK, String.valueOf(chunk));
+
+    if (cursor != null) {
+      options = options.param(CURSOR, cursor);
+    }
+    if (after != null) {
+      options = options.param(AFTER, String.valueOf(after));
+    }
+
+    try {
+      queue.add(options);
+    } catch (TaskAlreadyExistsException e) {
+      // A previous attempt of this chunk already scheduled the next one.
+      log.info("Fan-out chunk " + chunk + " of post " + postId + " is already enqueued.");
+    }
+  }
+
+  private static String createTaskName(String postId, int chunk) {
+    return "feed-" + postId.replaceAll("[^a-zA-Z0-9_-]", "") + "-" + chunk;
   }
 
   @Override
@@ -46,32 +115,137 @@ public class UpdateFeedServlet extends HttpServlet {
   }
 
   private void processRequest(HttpServletRequest req, HttpServletResponse resp) {
+    final long startedAt = System.currentTimeMillis();
+
     final String accountId = req.getParameter(USER_ID);
     final String postId = req.getParameter(POST_ID);
+    final String cursor = req.getParameter(CURSOR);
+    final String after = req.getParameter(AFTER);
+    final int chunk = Strings.isNullOrEmpty(req.getParameter(CHUNK))
+        ? 0
+        : Integer.parseInt(req.getParameter(CHUNK));
 
     final Key<Account> accountKey = Key.create(accountId);
     final Key<PostEntity> postKey = Key.create(postId);
+    final DateTime created = getCreated(req, postKey);
+
+    if (chunk == 0 && feedService.isPullAuthor(accountKey)) {
+      // Followers will pull this post, only the author's own feed is written.
+      ofy().save().entity(createFeed(accountKey, postKey, created)).now();
+      feedCache.invalidate(accountKey);
+      log.info("Skipped fan-out of post " + postId + ", author is in pull mode.");
+      return;
+    }
+
+    // Chunks enqueued with a query cursor keep paging with it.
+    final long[] followerIds = Strings.isNullOrEmpty(cursor)
+        ? followGraphService.getFollowerIds(accountKey)
+        : null;
+
+    List<Feed> feeds = Lists.newArrayListWithCapacity(FeedConfig.FAN_OUT_CHUNK_SIZE + 1);
+
+    String nextCursor = null;
+    Long nextAfter = null;
+
+    if (followerIds != null) {
+      final int start = findStart(followerIds, after);
+      final int end = Math.min(start + FeedConfig.FAN_OUT_CHUNK_SIZE, followerIds.length);
+
+      for (int i = start; i < end; i++) {
+        feeds.add(createFeed(Key.create(Account.class, followerIds[i]), postKey, created));
+      }
+
+      if (end < followerIds.length) {
+        nextAfter = followerIds[end - 1];
+      }
+    } else {
+      final QueryResultIterator<Key<Relationship>> qi =
+          findFollowersOfUser(accountKey, cursor, after).keys().iterator();
+
+      while (qi.hasNext()) {
+        feeds.add(createFeed(qi.next().getParent(), postKey, created));
+      }
+
+      // A full page means there may be more followers left, continue from where we stopped.
+      if (feeds.size() == FeedConfig.FAN_OUT_CHUNK_SIZE) {
+        nextCursor = qi.getCursor().toWebSafeString();
+      }
+    }
+
+    // Add to user's own feed once, on the first chunk.
+    if (chunk == 0) {
+      feeds.add(createFeed(accountKey, postKey, created));
+    }
+
+    saveInBatches(feeds);
+    feedCache.invalidate(Ix.from(feeds).map(Feed::getParent).toList());
+
+    if (nextCursor != null || nextAfter != null) {
+      addChunkToQueue(accountId, postId, created.getMillis(), nextCursor, nextAfter, chunk + 1);
+    }
+
+    final long elapsed = Math.max(System.currentTimeMillis() - startedAt, 1L);
+    log.info(String.format("Fan-out chunk %d of post %s: %d feeds written in %d ms (%.1f feeds/s)",
+        chunk, postId, feeds.size(), elapsed, feeds.size() * 1000.0D / elapsed));
+  }
+
+  private DateTime getCreated(HttpServletRequest req, Key<PostEntity> postKey) {
+    final String created = req.getParameter(CREATED);
 
-    List<Feed> feeds = Ix.from(findFollowersOfUser(accountKey))
-        .map(Key::<Account>getParent)
-        .map(followerKey -> createFeed(followerKey, postKey))
-        .toList();
+    // Tasks enqueued before the creation time was passed along.
+    return Strings.isNullOrEmpty(created)
+        ? ofy().load().key(postKey).now().getCreated()
+        : new DateTime(Long.parseLong(created));
+  }
 
-    // Add to user's own feed.
-    feeds.add(createFeed(accountKey, postKey));
+  /**
+   * Index of the first follower after the given id, followers may have changed since the
+   * previous chunk so the id is searched for rather than remembered as an index.
+   */
+  private static int findStart(long[] followerIds, @Nullable String after) {
+    if (Strings.isNullOrEmpty(after)) {
+      return 0;
+    }
+
+    final int index = Arrays.binarySearch(followerIds, Long.parseLong(after));
+    return index >= 0 ? index + 1 : -index - 1;
+  }
 
-    ofy().save().entities(feeds).now();
+  /**
+   * Pages the followers with a query, ordered by key and so by follower id like the cached
+   * lists. Without a cursor, the query starts after the follower id the previous chunk stopped at.
+   */
+  private Query<Relationship> findFollowersOfUser(Key<Account> accountKey,
+      @Nullable String cursor, @Nullable String after) {
+    Query<Relationship> query = ofy().load().type(Relationship.class)
+        .filter(Relationship.FIELD_FOLLOWING_KEY + " =", accountKey);
+
+    if (!Strings.isNullOrEmpty(cursor)) {
+      query = query.startAt(Cursor.fromWebSafeString(cursor));
+    } else if (!Strings.isNullOrEmpty(after)) {
+      // Relationships are children of the follower, the next follower's key precedes them all.
+      query = query.filterKey(">=", Key.create(Account.class, Long.parseLong(after) + 1));
+    }
+
+    return query.limit(FeedConfig.FAN_OUT_CHUNK_SIZE);
   }
 
-  private List<Key<Relationship>> findFollowersOfUser(Key<Account> accountKey) {
-    return ofy().load().type(Relationship.class)
-        .filter(Relationship.FIELD_FOLLOWING_KEY + " =", accountKey)
-        .keys().list();
+  private void saveInBatches(List<Feed> feeds) {
+    List<Result<?>> pending = Lists.newArrayList();
+
+    // Issue every batch asynchronously, then wait for all of them.
+    for (List<Feed> batch : Lists.partition(feeds, FeedConfig.FAN_OUT_SAVE_BATCH_SIZE)) {
+      pending.add(ofy().save().entities(batch));
+    }
+
+    for (Result<?> result : pending) {
+      result.now();
+    }
   }
 
-  private Feed createFeed(Key<Account> followerKey, Key<PostEntity> postKey) {
+  private Feed createFeed(Key<Account> followerKey, Key<PostEntity> postKey, DateTime created) {
     return Feed.builder()
-        .id(Feed.createId(postKey))
+        .id(Feed.createId(postKey, created))
         .parent(followerKey)
         .post(Ref.create(postKey))
         .build();
@@ -0,0 +1,130 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.RankConfig;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Re-ranks the posts marked dirty by {@link PostRankService}.
+ *
+ * <p>Tasks are named after the update window, so every mark of a window shares one pass. Marks
+ * are leased, de-duplicated and only deleted once the new ranks are saved; a pass that dies in
+ * between leaves them to be leased again once the lease expires. Ranks are computed from the
+ * shards, not from the cached counters, and only posts whose rank changed are written.
+ */
+@Log
+public class UpdatePostRankServlet extends HttpServlet {
+
+  private static final String UPDATE_RANK_QUEUE = "update-rank-queue";
+  private static final String URL = "/tasks/update/post/rank";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  private final PostShardService postShardService = PostShardService.create();
+
+  public static void addToQueue() {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(RankConfig.RANK_UPDATE_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(UPDATE_RANK_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("rank-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS));
+    } catch (TaskAlreadyExistsException e) {
+      // Another change in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    updateRanks();
+  }
+
+  private void updateRanks() {
+    Queue queue = QueueFactory.getQueue(PostRankService.RANK_DIRTY_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasks(RankConfig.RANK_UPDATE_LEASE_SECONDS,
+        TimeUnit.SECONDS, RankConfig.RANK_UPDATE_BATCH_SIZE);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    Set<Key<PostEntity>> postKeys = Sets.newLinkedHashSetWithExpectedSize(tasks.size());
+    for (TaskHandle task : tasks) {
+      postKeys.add(Key.create(new String(task.getPayload(), Charsets.UTF_8)));
+    }
+
+    final int updated = updateRanks(postKeys);
+
+    queue.deleteTask(tasks);
+
+    // More posts are waiting than a single lease returns.
+    if (tasks.size() == RankConfig.RANK_UPDATE_BATCH_SIZE) {
+      QueueFactory.getQueue(UPDATE_RANK_QUEUE).add(TaskOptions.Builder.withUrl(URL));
+    }
+
+    log.info("Re-ranked " + postKeys.size() + " posts from " + tasks.size() + " marks, "
+        + updated + " changed");
+  }
+
+  private int updateRanks(Set<Key<PostEntity>> postKeys) {
+    // Posts deleted since they were marked are missing.
+    Map<Key<PostEntity>, PostEntity> posts = ofy().load().keys(postKeys);
+
+    Map<Key<PostEntity>, Double> ranks = Maps.newHashMapWithExpectedSize(posts.size());
+
+    for (Map.Entry<Key<PostEntity>, List<PostShard>> entry
+        : postShardService.loadShards(posts.values()).entrySet()) {
+      final PostCounter counter = PostCounter.fold(entry.getValue(), System.currentTimeMillis());
+      final PostEntity post = posts.get(entry.getKey());
+      final double rank =
+          PostRankService.computeRank(counter.getVotes(), counter.getComments(), post.getCreated());
+
+      if (Double.compare(rank, post.getRank()) != 0) {
+        ranks.put(entry.getKey(), rank);
+      }
+    }
+
+    for (List<Key<PostEntity>> batch
+        : Lists.partition(Lists.newArrayList(ranks.keySet()), RankConfig.RANK_SAVE_BATCH_SIZE)) {
+      ofy().transact(() -> {
+        // Reload, so edits made since the first load are kept.
+        List<PostEntity> changed = Lists.newArrayListWithCapacity(batch.size());
+
+        for (PostEntity post : ofy().load().keys(batch).values()) {
+          changed.add(post.withRank(ranks.get(post.getKey())));
+        }
+
+        ofy().save().entities(changed).now();
+      });
+    }
+
+    return ranks.size();
+  }
+}
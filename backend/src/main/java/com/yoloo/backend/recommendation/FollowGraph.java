@@ -0,0 +1,233 @@
+package com.yoloo.backend.recommendation;
+
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A read only snapshot of who follows whom and who is in which group.
+ *
+ * <p>Accounts are numbered by their sorted ids and every adjacency is kept in offset and target
+ * arrays, so a graph of a million edges is a few megabytes of ints and walking it allocates
+ * nothing.
+ */
+final class FollowGraph {
+
+  private final long[] accountIds;
+
+  private final int[] followOffsets;
+  private final int[] follows;
+  private final int[] followerCounts;
+
+  private final int[] groupOffsets;
+  private final int[] groups;
+
+  private final int[] memberOffsets;
+  private final int[] members;
+
+  private FollowGraph(long[] accountIds, int[] followOffsets, int[] follows,
+      int[] followerCounts, int[] groupOffsets, int[] groups, int[] memberOffsets,
+      int[] members) {
+    this.accountIds = accountIds;
+    this.followOffsets = followOffsets;
+    this.follows = follows;
+    this.followerCounts = followerCounts;
+    this.groupOffsets = groupOffsets;
+    this.groups = groups;
+    this.memberOffsets = memberOffsets;
+    this.members = members;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  int accountCount() {
+    return accountIds.length;
+  }
+
+  int groupCount() {
+    return memberOffsets.length - 1;
+  }
+
+  int edgeCount() {
+    return follows.length;
+  }
+
+  long accountId(int account) {
+    return accountIds[account];
+  }
+
+  int followerCount(int account) {
+    return followerCounts[account];
+  }
+
+  int followStart(int account) {
+    return followOffsets[account];
+  }
+
+  int followEnd(int account) {
+    return followOffsets[account + 1];
+  }
+
+  int follow(int index) {
+    return follows[index];
+  }
+
+  int groupStart(int account) {
+    return groupOffsets[account];
+  }
+
+  int groupEnd(int account) {
+    return groupOffsets[account + 1];
+  }
+
+  int group(int index) {
+    return groups[index];
+  }
+
+  int memberStart(int group) {
+    return memberOffsets[group];
+  }
+
+  int memberEnd(int group) {
+    return memberOffsets[group + 1];
+  }
+
+  int member(int index) {
+    return members[index];
+  }
+
+  static final class Builder {
+    private LongArray accounts = new LongArray();
+    private LongArray edges = new LongArray();
+    private LongArray memberships = new LongArray();
+    private final Map<String, Integer> groupIndexes = Maps.newHashMap();
+
+    private Builder() {
+    }
+
+    Builder addAccount(long accountId) {
+      accounts.add(accountId);
+      return this;
+    }
+
+    Builder addFollow(long followerId, long followingId) {
+      edges.add(followerId);
+      edges.add(followingId);
+      return this;
+    }
+
+    Builder addMembership(long accountId, String groupId) {
+      memberships.add(accountId);
+      memberships.add(groupIndexes.computeIfAbsent(groupId, id -> groupIndexes.size()));
+      return this;
+    }
+
+    /**
+     * Builds the graph, dropping the edges and memberships of unknown accounts.
+     */
+    FollowGraph build() {
+      final long[] ids = accounts.toSortedDistinct();
+      final int n = ids.length;
+
+      int[] followSources = new int[edges.size() / 2];
+      int[] followTargets = new int[edges.size() / 2];
+      int followCount = 0;
+      int[] followerCounts = new int[n];
+      for (int i = 0; i < edges.size(); i += 2) {
+        final int follower = Arrays.binarySearch(ids, edges.get(i));
+        final int following = Arrays.binarySearch(ids, edges.get(i + 1));
+        if (follower >= 0 && following >= 0 && follower != following) {
+          followSources[followCount] = follower;
+          followTargets[followCount] = following;
+          followCount++;
+          followerCounts[following]++;
+        }
+      }
+      edges = null;
+
+      int[] memberAccounts = new int[memberships.size() / 2];
+      int[] memberGroups = new int[memberships.size() / 2];
+      int memberCount = 0;
+      for (int i = 0; i < memberships.size(); i += 2) {
+        final int account = Arrays.binarySearch(ids, memberships.get(i));
+        if (account >= 0) {
+          memberAccounts[memberCount] = account;
+          memberGroups[memberCount] = (int) memberships.get(i + 1);
+          memberCount++;
+        }
+      }
+      memberships = null;
+      accounts = null;
+
+      final int groupCount = groupIndexes.size();
+
+      int[] followOffsets = new int[n + 1];
+      int[] follows = new int[followCount];
+      group(followSources, followTargets, followCount, followOffsets, follows);
+
+      int[] groupOffsets = new int[n + 1];
+      int[] groups = new int[memberCount];
+      group(memberAccounts, memberGroups, memberCount, groupOffsets, groups);
+
+      int[] memberOffsets = new int[groupCount + 1];
+      int[] members = new int[memberCount];
+      group(memberGroups, memberAccounts, memberCount, memberOffsets, members);
+
+      return new FollowGraph(ids, followOffsets, follows, followerCounts, groupOffsets, groups,
+          memberOffsets, members);
+    }
+
+    /**
+     * Counting sort of the pairs by source into offsets and targets, linear in the pairs.
+     */
+    private static void group(int[] sources, int[] targets, int count, int[] offsets,
+        int[] grouped) {
+      for (int i = 0; i < count; i++) {
+        offsets[sources[i] + 1]++;
+      }
+      for (int i = 1; i < offsets.length; i++) {
+        offsets[i] += offsets[i - 1];
+      }
+
+      int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+      for (int i = 0; i < count; i++) {
+        grouped[next[sources[i]]++] = targets[i];
+      }
+    }
+  }
+
+  private static final class LongArray {
+    private long[] values = new long[1024];
+    private int size;
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    long get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    long[] toSortedDistinct() {
+      long[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+
+      int distinct = 0;
+      for (int i = 0; i < sorted.length; i++) {
+        if (i == 0 || sorted[i] != sorted[i - 1]) {
+          sorted[distinct++] = sorted[i];
+        }
+      }
+      return Arrays.copyOf(sorted, distinct);
+    }
+  }
+}
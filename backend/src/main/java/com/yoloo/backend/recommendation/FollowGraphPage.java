@@ -0,0 +1,82 @@
+package com.yoloo.backend.recommendation;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import java.nio.ByteBuffer;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * A page of the graph read by one {@link RecommendFollowsServlet} task, either accounts with
+ * their groups or follows. The pages of a pass are kept until its recommendations are saved, so
+ * every recommend task rebuilds the {@link FollowGraph} without scanning the datastore again.
+ */
+@Entity
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class FollowGraphPage {
+
+  static final int MEMBERSHIP_BYTES = 12;
+
+  /**
+   * pass:page
+   */
+  @Id private String id;
+
+  /**
+   * Account ids.
+   */
+  @NonFinal private byte[] accountIds;
+
+  /**
+   * Pairs of an account id and an index into {@link #groupIds}.
+   */
+  @NonFinal private byte[] memberships;
+
+  @NonFinal private List<String> groupIds;
+
+  /**
+   * Pairs of a follower and a following account id.
+   */
+  @NonFinal private byte[] follows;
+
+  public static Key<FollowGraphPage> createKey(long pass, int page) {
+    return Key.create(FollowGraphPage.class, pass + ":" + page);
+  }
+
+  /**
+   * Adds the accounts, memberships and follows of this page to a graph.
+   *
+   * @param builder the graph builder
+   */
+  void addTo(FollowGraph.Builder builder) {
+    if (accountIds != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(accountIds);
+      while (buffer.hasRemaining()) {
+        builder.addAccount(buffer.getLong());
+      }
+    }
+
+    if (memberships != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(memberships);
+      while (buffer.hasRemaining()) {
+        builder.addMembership(buffer.getLong(), groupIds.get(buffer.getInt()));
+      }
+    }
+
+    if (follows != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(follows);
+      while (buffer.hasRemaining()) {
+        builder.addFollow(buffer.getLong(), buffer.getLong());
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.yoloo.backend.recommendation;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.yoloo.backend.account.Account;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+import org.joda.time.DateTime;
+
+/**
+ * The accounts recommended to an account, best first, as of the last recommendation pass.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class FollowRecommendation {
+
+  /**
+   * The id of the account.
+   */
+  @Id private long id;
+
+  @NonFinal private List<Long> accountIds;
+
+  @NonFinal private DateTime computed;
+
+  public static Key<FollowRecommendation> createKey(Key<Account> accountKey) {
+    return Key.create(FollowRecommendation.class, accountKey.getId());
+  }
+}
@@ -0,0 +1,168 @@
+package com.yoloo.backend.recommendation;
+
+import com.yoloo.backend.config.RecommendationConfig;
+import java.util.Arrays;
+
+/**
+ * Scores the accounts an account may want to follow.
+ *
+ * <p>Every followee of a followee scores {@link RecommendationConfig#FRIEND_OF_FRIEND_WEIGHT}
+ * and every member of a shared group {@link RecommendationConfig#SHARED_GROUP_WEIGHT}; accounts
+ * already followed are skipped and ties go to the most followed. Each expansion is capped, so an
+ * account costs at most a fixed number of steps per followee and group and a whole pass is
+ * linear in the edges. Scores live in arrays sized to the graph and are reset by the accounts
+ * touched, one recommender is reused for every account of a pass.
+ */
+final class FollowRecommender {
+
+  private final FollowGraph graph;
+
+  private final int[] scores;
+  private final int[] touched;
+  private int touchedCount;
+
+  /**
+   * Holds the account plus one while it is followed by the account being recommended for.
+   */
+  private final int[] excluded;
+
+  private final int[] heap;
+
+  FollowRecommender(FollowGraph graph) {
+    this.graph = graph;
+    this.scores = new int[graph.accountCount()];
+    this.touched = new int[graph.accountCount()];
+    this.excluded = new int[graph.accountCount()];
+    this.heap = new int[RecommendationConfig.FOLLOW_RECOMMENDATION_SIZE];
+  }
+
+  /**
+   * Recommends accounts to follow.
+   *
+   * @param account the account, by its index in the graph
+   * @return the ids of the recommended accounts, best first
+   */
+  long[] recommend(int account) {
+    final int stamp = account + 1;
+    excluded[account] = stamp;
+
+    final int followStart = graph.followStart(account);
+    final int followEnd = graph.followEnd(account);
+    for (int i = followStart; i < followEnd; i++) {
+      excluded[graph.follow(i)] = stamp;
+    }
+
+    final int expandEnd =
+        Math.min(followEnd, followStart + RecommendationConfig.MAX_FOLLOWEES_EXPANDED);
+    for (int i = followStart; i < expandEnd; i++) {
+      final int followee = graph.follow(i);
+      final int start = graph.followStart(followee);
+      final int end = Math.min(graph.followEnd(followee),
+          start + RecommendationConfig.MAX_SECOND_DEGREE_SCANNED);
+      for (int j = start; j < end; j++) {
+        score(graph.follow(j), RecommendationConfig.FRIEND_OF_FRIEND_WEIGHT, stamp);
+      }
+    }
+
+    for (int i = graph.groupStart(account); i < graph.groupEnd(account); i++) {
+      final int group = graph.group(i);
+      final int start = graph.memberStart(group);
+      final int size = graph.memberEnd(group) - start;
+      final int scanned = Math.min(size, RecommendationConfig.MAX_GROUP_MEMBERS_SCANNED);
+
+      // Accounts see different members of large groups.
+      final int offset = size == 0 ? 0 : (int) ((account * 31L) % size);
+      for (int j = 0; j < scanned; j++) {
+        score(graph.member(start + (offset + j) % size), RecommendationConfig.SHARED_GROUP_WEIGHT,
+            stamp);
+      }
+    }
+
+    return collect();
+  }
+
+  private void score(int candidate, int weight, int stamp) {
+    if (excluded[candidate] == stamp) {
+      return;
+    }
+    if (scores[candidate] == 0) {
+      touched[touchedCount++] = candidate;
+    }
+    scores[candidate] += weight;
+  }
+
+  /**
+   * Keeps the best candidates in a min heap, then resets the touched scores.
+   */
+  private long[] collect() {
+    int size = 0;
+    for (int i = 0; i < touchedCount; i++) {
+      final int candidate = touched[i];
+      if (size < heap.length) {
+        heap[size] = candidate;
+        siftUp(size++);
+      } else if (isBetter(candidate, heap[0])) {
+        heap[0] = candidate;
+        siftDown(0, size);
+      }
+    }
+
+    long[] ids = new long[size];
+    for (int i = size - 1; i >= 0; i--) {
+      ids[i] = graph.accountId(heap[0]);
+      heap[0] = heap[i];
+      siftDown(0, i);
+    }
+
+    for (int i = 0; i < touchedCount; i++) {
+      scores[touched[i]] = 0;
+    }
+    touchedCount = 0;
+    Arrays.fill(heap, 0);
+
+    return ids;
+  }
+
+  private boolean isBetter(int a, int b) {
+    if (scores[a] != scores[b]) {
+      return scores[a] > scores[b];
+    }
+    if (graph.followerCount(a) != graph.followerCount(b)) {
+      return graph.followerCount(a) > graph.followerCount(b);
+    }
+    return a < b;
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      final int parent = (index - 1) / 2;
+      if (!isBetter(heap[parent], heap[index])) {
+        return;
+      }
+      swap(parent, index);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index, int size) {
+    while (true) {
+      final int left = 2 * index + 1;
+      if (left >= size) {
+        return;
+      }
+      final int right = left + 1;
+      final int worst = right < size && isBetter(heap[left], heap[right]) ? right : left;
+      if (!isBetter(heap[index], heap[worst])) {
+        return;
+      }
+      swap(index, worst);
+      index = worst;
+    }
+  }
+
+  private void swap(int a, int b) {
+    final int tmp = heap[a];
+    heap[a] = heap[b];
+    heap[b] = tmp;
+  }
+}
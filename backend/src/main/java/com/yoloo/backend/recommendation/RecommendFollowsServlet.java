@@ -0,0 +1,261 @@
+package com.yoloo.backend.recommendation;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.RecommendationConfig;
+import com.yoloo.backend.group.TravelerGroupEntity;
+import com.yoloo.backend.relationship.Relationship;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Recomputes the {@link FollowRecommendation} of every account.
+ *
+ * <p>Runs daily from cron as a chain of tasks, each bounded so a pass resumes where it stopped
+ * instead of hitting the request deadline. The accounts with their groups and then a projection
+ * of the follows are read {@link RecommendationConfig#GRAPH_PAGE_SIZE} at a time and saved as
+ * {@link FollowGraphPage}s, every task passing its query cursor to the next. Each recommend task
+ * then builds the {@link FollowGraph} from the pages, recommends and saves the next
+ * {@link RecommendationConfig#RECOMMENDATION_TASK_SIZE} accounts
+ * {@link RecommendationConfig#RECOMMENDATION_CHUNK_SIZE} at a time, and the last one deletes the
+ * pages. Tasks are named after the pass and their step, so a retried task does not fork the chain.
+ */
+@Log
+public class RecommendFollowsServlet extends HttpServlet {
+
+  private static final String RECOMMEND_FOLLOWS_QUEUE = "recommend-follows-queue";
+  private static final String URL = "/tasks/recommendation/follows";
+
+  private static final String STEP = "step";
+  private static final String PASS = "pass";
+  private static final String PAGE = "page";
+  private static final String CURSOR = "cursor";
+  private static final String FROM = "from";
+
+  private enum Step {
+    ACCOUNTS, FOLLOWS, RECOMMEND
+  }
+
+  private static void addToQueue(Step step, long pass, int page, @Nullable String cursor,
+      int from) {
+    TaskOptions options = TaskOptions.Builder
+        .withUrl(URL)
+        .taskName("recommend-" + pass + "-" + step.name().toLowerCase() + "-" + page + "-" + from)
+        .param(STEP, step.name())
+        .param(PASS, String.valueOf(pass))
+        .param(PAGE, String.valueOf(page))
+        .param(FROM, String.valueOf(from));
+
+    if (cursor != null) {
+      options = options.param(CURSOR, cursor);
+    }
+
+    try {
+      QueueFactory.getQueue(RECOMMEND_FOLLOWS_QUEUE).add(options);
+    } catch (TaskAlreadyExistsException e) {
+      // A retry of this task already scheduled the next one.
+    }
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    addToQueue(Step.ACCOUNTS, System.currentTimeMillis(), 0, null, 0);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    final long pass = Long.parseLong(req.getParameter(PASS));
+    final int page = Integer.parseInt(req.getParameter(PAGE));
+
+    switch (Step.valueOf(req.getParameter(STEP))) {
+      case ACCOUNTS:
+        readAccounts(pass, page, req.getParameter(CURSOR));
+        break;
+      case FOLLOWS:
+        readFollows(pass, page, req.getParameter(CURSOR));
+        break;
+      case RECOMMEND:
+        recommend(pass, page, Integer.parseInt(req.getParameter(FROM)));
+        break;
+    }
+  }
+
+  private void readAccounts(long pass, int page, @Nullable String cursor) {
+    QueryResultIterator<Account> qi = startAt(ofy().load().type(Account.class), cursor)
+        .limit(RecommendationConfig.GRAPH_PAGE_SIZE)
+        .chunk(RecommendationConfig.GRAPH_SCAN_BATCH_SIZE)
+        .iterator();
+
+    List<Long> accountIds = Lists.newArrayList();
+    List<Long> memberIds = Lists.newArrayList();
+    List<Integer> memberGroups = Lists.newArrayList();
+    Map<String, Integer> groupIndexes = Maps.newLinkedHashMap();
+
+    while (qi.hasNext()) {
+      Account account = qi.next();
+      accountIds.add(account.getId());
+      if (account.getSubscribedGroupKeys() != null) {
+        for (Key<TravelerGroupEntity> groupKey : account.getSubscribedGroupKeys()) {
+          memberIds.add(account.getId());
+          memberGroups.add(groupIndexes.computeIfAbsent(groupKey.getName(),
+              id -> groupIndexes.size()));
+        }
+      }
+
+      // Keeps the session from holding every account of the page.
+      if (accountIds.size() % RecommendationConfig.GRAPH_SCAN_BATCH_SIZE == 0) {
+        ofy().clear();
+      }
+    }
+    ofy().clear();
+
+    ByteBuffer memberships =
+        ByteBuffer.allocate(memberIds.size() * FollowGraphPage.MEMBERSHIP_BYTES);
+    for (int i = 0; i < memberIds.size(); i++) {
+      memberships.putLong(memberIds.get(i)).putInt(memberGroups.get(i));
+    }
+
+    ofy().save().entity(FollowGraphPage.builder()
+        .id(FollowGraphPage.createKey(pass, page).getName())
+        .accountIds(encode(Longs.toArray(accountIds)))
+        .memberships(memberships.array())
+        .groupIds(Lists.newArrayList(groupIndexes.keySet()))
+        .build()).now();
+
+    if (accountIds.size() == RecommendationConfig.GRAPH_PAGE_SIZE) {
+      addToQueue(Step.ACCOUNTS, pass, page + 1, qi.getCursor().toWebSafeString(), 0);
+    } else {
+      addToQueue(Step.FOLLOWS, pass, page + 1, null, 0);
+    }
+  }
+
+  private void readFollows(long pass, int page, @Nullable String cursor) {
+    QueryResultIterator<Relationship> qi = startAt(ofy().load().type(Relationship.class), cursor)
+        .project(Relationship.FIELD_FOLLOWING_KEY)
+        .limit(RecommendationConfig.GRAPH_PAGE_SIZE)
+        .chunk(RecommendationConfig.GRAPH_SCAN_BATCH_SIZE)
+        .iterator();
+
+    List<Long> ids = Lists.newArrayList();
+    while (qi.hasNext()) {
+      Relationship relationship = qi.next();
+      ids.add(relationship.getFollowerKey().getId());
+      ids.add(relationship.getFollowingKey().getId());
+    }
+    ofy().clear();
+
+    ofy().save().entity(FollowGraphPage.builder()
+        .id(FollowGraphPage.createKey(pass, page).getName())
+        .follows(encode(Longs.toArray(ids)))
+        .build()).now();
+
+    if (ids.size() / 2 == RecommendationConfig.GRAPH_PAGE_SIZE) {
+      addToQueue(Step.FOLLOWS, pass, page + 1, qi.getCursor().toWebSafeString(), 0);
+    } else {
+      addToQueue(Step.RECOMMEND, pass, page + 1, null, 0);
+    }
+  }
+
+  /**
+   * Recommends for the accounts of the next task from the saved pages of the pass.
+   *
+   * @param pass the pass
+   * @param pages the number of saved pages
+   * @param from the first account, by position in the graph
+   */
+  private void recommend(long pass, int pages, int from) {
+    final long start = System.currentTimeMillis();
+
+    List<Key<FollowGraphPage>> pageKeys = Lists.newArrayListWithCapacity(pages);
+    for (int page = 0; page < pages; page++) {
+      pageKeys.add(FollowGraphPage.createKey(pass, page));
+    }
+
+    FollowGraph.Builder builder = FollowGraph.builder();
+    for (FollowGraphPage page : ofy().load().keys(pageKeys).values()) {
+      page.addTo(builder);
+    }
+    ofy().clear();
+
+    FollowGraph graph = builder.build();
+    final long read = System.currentTimeMillis();
+
+    final DateTime computed = new DateTime(pass);
+    FollowRecommender recommender = new FollowRecommender(graph);
+
+    final int to = (int) Math.min(graph.accountCount(),
+        (long) from + RecommendationConfig.RECOMMENDATION_TASK_SIZE);
+
+    List<FollowRecommendation> chunk =
+        Lists.newArrayListWithCapacity(RecommendationConfig.RECOMMENDATION_CHUNK_SIZE);
+    for (int account = from; account < to; account++) {
+      chunk.add(FollowRecommendation.builder()
+          .id(graph.accountId(account))
+          .accountIds(Lists.newArrayList(Longs.asList(recommender.recommend(account))))
+          .computed(computed)
+          .build());
+
+      if (chunk.size() == RecommendationConfig.RECOMMENDATION_CHUNK_SIZE) {
+        save(chunk);
+      }
+    }
+    save(chunk);
+
+    if (to < graph.accountCount()) {
+      addToQueue(Step.RECOMMEND, pass, pages, null, to);
+    } else {
+      ofy().delete().keys(pageKeys).now();
+    }
+
+    final long end = System.currentTimeMillis();
+    log.info(String.format("Recommended follows for accounts %d to %d of %d, %d edges, "
+            + "%d groups: read in %d ms, recommended in %d ms",
+        from, to, graph.accountCount(), graph.edgeCount(), graph.groupCount(), read - start,
+        end - read));
+  }
+
+  private static <T> Query<T> startAt(Query<T> query, @Nullable String cursor) {
+    return Strings.isNullOrEmpty(cursor)
+        ? query
+        : query.startAt(Cursor.fromWebSafeString(cursor));
+  }
+
+  private static byte[] encode(long[] values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+    for (long value : values) {
+      buffer.putLong(value);
+    }
+    return buffer.array();
+  }
+
+  private static void save(List<FollowRecommendation> chunk) {
+    if (!chunk.isEmpty()) {
+      ofy().save().entities(chunk).now();
+      chunk.clear();
+      ofy().clear();
+    }
+  }
+}
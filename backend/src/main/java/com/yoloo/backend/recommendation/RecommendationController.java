@@ -0,0 +1,74 @@
+package com.yoloo.backend.recommendation;
+
+import com.google.api.server.spi.response.BadRequestException;
+import com.google.api.server.spi.response.CollectionResponse;
+import com.google.appengine.api.users.User;
+import com.google.common.base.Optional;
+import com.google.common.primitives.Ints;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.base.Controller;
+import com.yoloo.backend.config.RecommendationConfig;
+import ix.Ix;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+@NoArgsConstructor(staticName = "create")
+public class RecommendationController extends Controller {
+
+  /**
+   * Lists the accounts recommended to the user by the last {@link RecommendFollowsServlet} pass.
+   * The cursor is the position in the stored list.
+   *
+   * @param cursor the cursor
+   * @param limit the limit
+   * @param user the user
+   * @return the collection response
+   * @throws BadRequestException if the cursor is not a position or the limit is not positive
+   */
+  public CollectionResponse<Account> listRecommendedAccounts(Optional<String> cursor,
+      Optional<Integer> limit, User user) throws BadRequestException {
+    final Integer position = cursor.isPresent() ? Ints.tryParse(cursor.get()) : Integer.valueOf(0);
+
+    if (position == null || position < 0) {
+      throw new BadRequestException("Invalid cursor: " + cursor.get());
+    }
+
+    final int pageSize = limit.or(RecommendationConfig.DEFAULT_RECOMMENDATION_LIST_LIMIT);
+
+    if (pageSize <= 0) {
+      throw new BadRequestException("Invalid limit: " + pageSize);
+    }
+
+    final Key<Account> accountKey = Key.create(user.getUserId());
+
+    FollowRecommendation recommendation =
+        ofy().load().key(FollowRecommendation.createKey(accountKey)).now();
+
+    List<Long> accountIds = recommendation == null || recommendation.getAccountIds() == null
+        ? Collections.emptyList()
+        : recommendation.getAccountIds();
+
+    final int from = Math.min(accountIds.size(), position);
+    final int to = from + Math.min(pageSize, accountIds.size() - from);
+
+    List<Key<Account>> keys = Ix
+        .from(accountIds.subList(from, to))
+        .map(id -> Key.create(Account.class, id))
+        .toList();
+
+    Map<Key<Account>, Account> fetched = ofy().load().keys(keys);
+
+    // Accounts deleted since the pass are skipped.
+    List<Account> accounts = Ix.from(keys).map(fetched::get).filter(a -> a != null).toList();
+
+    return CollectionResponse.<Account>builder()
+        .setItems(accounts)
+        .setNextPageToken(to < accountIds.size() ? String.valueOf(to) : null)
+        .build();
+  }
+}
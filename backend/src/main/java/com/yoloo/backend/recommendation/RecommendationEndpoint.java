@@ -7,12 +7,12 @@ import com.google.api.server.spi.config.ApiMethod;
 import com.google.api.server.spi.config.ApiNamespace;
 import com.google.api.server.spi.response.CollectionResponse;
 import com.google.appengine.api.users.User;
+import com.google.common.base.Optional;
 import com.yoloo.backend.Constants;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.authentication.authenticators.FirebaseAuthenticator;
 import com.yoloo.backend.endpointsvalidator.EndpointsValidator;
 import com.yoloo.backend.endpointsvalidator.validator.AuthValidator;
-
 import javax.annotation.Nullable;
 import javax.inject.Named;
 
@@ -45,6 +45,11 @@ public class RecommendationEndpoint {
 
     EndpointsValidator.create().on(AuthValidator.create(user));
 
-    return null;
+    return getRecommendationController().listRecommendedAccounts(Optional.fromNullable(cursor),
+        Optional.fromNullable(limit), user);
+  }
+
+  private RecommendationController getRecommendationController() {
+    return RecommendationController.create();
   }
 }
@@ -0,0 +1,209 @@
+package com.yoloo.backend.relationship;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.common.primitives.Longs;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.RelationshipConfig;
+import ix.Ix;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Caches who every account follows and is followed by as sorted arrays of account ids.
+ *
+ * <p>Lists are loaded on a miss and kept in memcache, follows and unfollows update them with
+ * compare and set after their transaction commits. A membership check is then a binary search
+ * and iterating followers a walk over an array, neither queries the datastore. Lists longer than
+ * {@link RelationshipConfig#FOLLOW_GRAPH_MAX_CACHED_IDS} are not cached and come back as null,
+ * callers fall back to their queries.
+ */
+@NoArgsConstructor(staticName = "create")
+public class FollowGraphService {
+
+  private static final String NAMESPACE = "FollowGraph";
+
+  /**
+   * Cached in place of a list too long to cache.
+   */
+  private static final String OVERSIZED = "oversized";
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Whether one account follows another.
+   *
+   * @param followerKey the follower
+   * @param followingKey the account that may be followed
+   * @return true if followed
+   */
+  public boolean isFollowing(Key<Account> followerKey, Key<Account> followingKey) {
+    final long[] followingIds = getFollowingIds(followerKey);
+
+    if (followingIds == null) {
+      return ofy()
+          .load()
+          .type(Relationship.class)
+          .ancestor(followerKey)
+          .filter(Relationship.FIELD_FOLLOWING_KEY + " =", followingKey)
+          .keys()
+          .first()
+          .now() != null;
+    }
+
+    return Arrays.binarySearch(followingIds, followingKey.getId()) >= 0;
+  }
+
+  /**
+   * The ids of the accounts the given account follows, ascending.
+   *
+   * @param accountKey the account
+   * @return the ids, null if too many to cache
+   */
+  @Nullable
+  public long[] getFollowingIds(Key<Account> accountKey) {
+    return get(Direction.FOLLOWING, accountKey);
+  }
+
+  /**
+   * The ids of the accounts following the given account, ascending.
+   *
+   * @param accountKey the account
+   * @return the ids, null if too many to cache
+   */
+  @Nullable
+  public long[] getFollowerIds(Key<Account> accountKey) {
+    return get(Direction.FOLLOWER, accountKey);
+  }
+
+  /**
+   * Writes a committed follow through to the cached lists.
+   */
+  public void onFollow(Key<Account> followerKey, Key<Account> followingKey) {
+    update(Direction.FOLLOWING, followerKey, followingKey.getId(), true);
+    update(Direction.FOLLOWER, followingKey, followerKey.getId(), true);
+  }
+
+  /**
+   * Writes a committed unfollow through to the cached lists.
+   */
+  public void onUnfollow(Key<Account> followerKey, Key<Account> followingKey) {
+    update(Direction.FOLLOWING, followerKey, followingKey.getId(), false);
+    update(Direction.FOLLOWER, followingKey, followerKey.getId(), false);
+  }
+
+  @Nullable
+  private long[] get(Direction direction, Key<Account> accountKey) {
+    final String key = direction.createKey(accountKey);
+    final Object cached = memcache.get(key);
+
+    if (cached instanceof long[]) {
+      return (long[]) cached;
+    }
+    if (cached != null) {
+      return null;
+    }
+
+    final long[] ids = load(direction, accountKey);
+
+    // Lose against a concurrent write through, it saw a newer list.
+    memcache.put(key, ids == null ? OVERSIZED : ids,
+        Expiration.byDeltaSeconds(RelationshipConfig.FOLLOW_GRAPH_EXPIRATION_SECONDS),
+        MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+
+    return ids;
+  }
+
+  @Nullable
+  private static long[] load(Direction direction, Key<Account> accountKey) {
+    final int limit = RelationshipConfig.FOLLOW_GRAPH_MAX_CACHED_IDS + 1;
+
+    List<Long> ids = direction == Direction.FOLLOWING
+        ? Ix.from(ofy().load().type(Relationship.class).ancestor(accountKey).limit(limit))
+            .map(relationship -> relationship.getFollowingKey().getId())
+            .toList()
+        : Ix.from(ofy().load().type(Relationship.class)
+            .filter(Relationship.FIELD_FOLLOWING_KEY + " =", accountKey)
+            .limit(limit)
+            .keys())
+            .map(key -> key.getParent().getId())
+            .toList();
+
+    if (ids.size() == limit) {
+      return null;
+    }
+
+    long[] sorted = Longs.toArray(ids);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  private void update(Direction direction, Key<Account> accountKey, long id, boolean add) {
+    final String key = direction.createKey(accountKey);
+
+    for (int attempt = 0; attempt < RelationshipConfig.FOLLOW_GRAPH_CAS_ATTEMPTS; attempt++) {
+      MemcacheService.IdentifiableValue identifiable = memcache.getIdentifiable(key);
+
+      // Nothing cached, the next read loads the committed list.
+      if (identifiable == null || !(identifiable.getValue() instanceof long[])) {
+        return;
+      }
+
+      final long[] ids = (long[]) identifiable.getValue();
+      final long[] updated = add ? insert(ids, id) : remove(ids, id);
+
+      if (updated == ids || memcache.putIfUntouched(key, identifiable, updated,
+          Expiration.byDeltaSeconds(RelationshipConfig.FOLLOW_GRAPH_EXPIRATION_SECONDS))) {
+        return;
+      }
+    }
+
+    memcache.delete(key);
+  }
+
+  private static long[] insert(long[] ids, long id) {
+    final int index = Arrays.binarySearch(ids, id);
+    if (index >= 0) {
+      return ids;
+    }
+
+    final int at = -index - 1;
+    long[] updated = new long[ids.length + 1];
+    System.arraycopy(ids, 0, updated, 0, at);
+    updated[at] = id;
+    System.arraycopy(ids, at, updated, at + 1, ids.length - at);
+    return updated;
+  }
+
+  private static long[] remove(long[] ids, long id) {
+    final int index = Arrays.binarySearch(ids, id);
+    if (index < 0) {
+      return ids;
+    }
+
+    long[] updated = new long[ids.length - 1];
+    System.arraycopy(ids, 0, updated, 0, index);
+    System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+    return updated;
+  }
+
+  private enum Direction {
+    FOLLOWING("following:"), FOLLOWER("followers:");
+
+    private final String prefix;
+
+    Direction(String prefix) {
+      this.prefix = prefix;
+    }
+
+    String createKey(Key<Account> accountKey) {
+      return prefix + accountKey.getId();
+    }
+  }
+}
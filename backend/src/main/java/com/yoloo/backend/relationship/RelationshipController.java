@@ -8,6 +8,7 @@ import com.google.appengine.api.users.User;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
@@ -36,6 +37,8 @@ public class RelationshipController extends Controller {
 
   private NotificationService notificationService;
 
+  private FollowGraphService followGraphService;
+
   public void follow(String followingId, User user) {
     // Create user key from user id.
     final Key<Account> followerKey = Key.create(user.getUserId());
@@ -80,6 +83,8 @@ public class RelationshipController extends Controller {
 
     ofy().transact(() -> ofy().save().entities(saveList).now());
 
+    followGraphService.onFollow(followerKey, followingKey);
+
     notificationService.send(notification);
   }
 
@@ -124,6 +129,8 @@ public class RelationshipController extends Controller {
       ofy().defer().delete().key(followKey);
       ofy().defer().save().entities(saveList);
     });
+
+    followGraphService.onUnfollow(followerKey, followingKey);
   }
 
   public CollectionResponse<Account> list(String accountId, RelationshipType type,
@@ -131,6 +138,17 @@ public class RelationshipController extends Controller {
     // Create account key from websafe id.
     final Key<Account> followerKey = Key.create(accountId);
 
+    final long[] ids = type == RelationshipType.FOLLOWING
+        ? followGraphService.getFollowingIds(followerKey)
+        : followGraphService.getFollowerIds(followerKey);
+
+    // Cached lists page by offset, query cursors are served by the query.
+    final Integer offset = cursor.isPresent() ? Ints.tryParse(cursor.get()) : Integer.valueOf(0);
+
+    if (ids != null && offset != null) {
+      return listCached(ids, offset, limit.or(DEFAULT_LIST_LIMIT));
+    }
+
     // Init query fetch request.
     Query<Relationship> query = ofy().load().type(Relationship.class);
 
@@ -166,6 +184,23 @@ public class RelationshipController extends Controller {
         .build();
   }
 
+  private CollectionResponse<Account> listCached(long[] ids, int offset, int limit) {
+    final int start = Math.min(Math.max(offset, 0), ids.length);
+    final int end = Math.min(start + limit, ids.length);
+
+    ImmutableList.Builder<Key<Account>> builder = ImmutableList.builder();
+    for (int i = start; i < end; i++) {
+      builder.add(Key.create(Account.class, ids[i]));
+    }
+
+    final Collection<Account> accounts = ofy().load().keys(builder.build()).values();
+
+    return CollectionResponse.<Account>builder()
+        .setItems(accounts)
+        .setNextPageToken(end < ids.length ? String.valueOf(end) : null)
+        .build();
+  }
+
   private Relationship followAccount(Key<Account> followerKey, Key<Account> followingKey) {
     return Relationship.builder().followerKey(followerKey).followingKey(followingKey).build();
   }
@@ -1,6 +1,5 @@
 package com.yoloo.backend.relationship;
 
-import com.google.appengine.api.urlfetch.URLFetchServiceFactory;
 import com.yoloo.backend.account.AccountShardService;
 import com.yoloo.backend.base.ControllerFactory;
 import com.yoloo.backend.notification.NotificationService;
@@ -16,6 +15,6 @@ public class RelationshipControllerFactory implements ControllerFactory<Relation
 
   @Override public RelationshipController create() {
     return RelationshipController.create(AccountShardService.create(),
-        NotificationService.create(URLFetchServiceFactory.getURLFetchService()));
+        NotificationService.create(), FollowGraphService.create());
   }
 }
@@ -6,7 +6,6 @@ import com.google.api.server.spi.config.ApiClass;
 import com.google.api.server.spi.config.ApiMethod;
 import com.google.api.server.spi.config.ApiNamespace;
 import com.google.api.server.spi.response.CollectionResponse;
-import com.google.appengine.api.urlfetch.URLFetchServiceFactory;
 import com.google.appengine.api.users.User;
 import com.google.common.base.Optional;
 import com.yoloo.backend.Constants;
@@ -152,6 +151,7 @@ public class RelationshipEndpoint {
   private RelationshipController getRelationshipController() {
     return RelationshipController.create(
         AccountShardService.create(),
-        NotificationService.create(URLFetchServiceFactory.getURLFetchService()));
+        NotificationService.create(),
+        FollowGraphService.create());
   }
 }
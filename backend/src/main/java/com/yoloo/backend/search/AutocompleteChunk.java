@@ -0,0 +1,33 @@
+package com.yoloo.backend.search;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * A run of encoded entries of an {@link AutocompleteSnapshot}.
+ */
+@Entity
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class AutocompleteChunk {
+
+  /**
+   * index:built:chunk
+   */
+  @Id private String id;
+
+  @NonFinal private byte[] entries;
+
+  public static Key<AutocompleteChunk> createKey(String index, long built, int chunk) {
+    return Key.create(AutocompleteChunk.class, index + ":" + built + ":" + chunk);
+  }
+}
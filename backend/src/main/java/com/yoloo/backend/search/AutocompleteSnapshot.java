@@ -0,0 +1,45 @@
+package com.yoloo.backend.search;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * The latest built entries of an {@link com.yoloo.backend.util.AutocompleteIndex}, stored in
+ * {@link AutocompleteChunk}s named after the index and the build time.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class AutocompleteSnapshot {
+
+  /**
+   * The name of the index.
+   */
+  @Id private String id;
+
+  /**
+   * Millis the entries were read at.
+   */
+  @NonFinal private long built;
+
+  @NonFinal private int chunkCount;
+
+  public static Key<AutocompleteSnapshot> createKey(String index) {
+    return Key.create(AutocompleteSnapshot.class, index);
+  }
+
+  public Key<AutocompleteChunk> chunkKey(int chunk) {
+    return AutocompleteChunk.createKey(id, built, chunk);
+  }
+}
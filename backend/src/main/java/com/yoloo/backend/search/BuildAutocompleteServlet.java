@@ -0,0 +1,30 @@
+package com.yoloo.backend.search;
+
+import com.yoloo.backend.account.AccountAutocompleteIndex;
+import com.yoloo.backend.tag.TagAutocompleteIndex;
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Builds the {@link AutocompleteSnapshot}s of the tag and account autocomplete indexes, so
+ * instances load them instead of reading every tag and account on a user request. Runs from
+ * cron.
+ */
+public class BuildAutocompleteServlet extends HttpServlet {
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    doPost(req, resp);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    TagAutocompleteIndex.instance().build();
+    AccountAutocompleteIndex.instance().build();
+  }
+}
@@ -0,0 +1,378 @@
+package com.yoloo.backend.search;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.SearchConfig;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.Value;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Updates the post index for the posts marked dirty by {@link PostSearchService}.
+ *
+ * <p>Tasks are named after the index window and the queue runs one at a time, so this servlet is
+ * the only writer of the index. Each pass diffs the current terms of a post against the ones it
+ * was indexed under, applies the changes shard by shard and only then deletes the marks; a pass
+ * that dies in between is repeated. Putting and removing postings is idempotent, term statistics
+ * are set from the shard sizes rather than added to, and new and deleted documents are counted in
+ * the transaction that saves them, so a repeated pass changes nothing twice.
+ *
+ * <p>A term whose shard outgrows {@link SearchConfig#POSTING_SHARD_CAPACITY} is spread over twice
+ * as many shards. Its {@link SearchTerm} is saved as resharding before the new shards, so readers
+ * merge every shard meanwhile, and a pass finding a term still resharding finishes it from all of
+ * its shards before routing any posting.
+ */
+@Log
+public class IndexPostsServlet extends HttpServlet {
+
+  private static final String SEARCH_INDEX_QUEUE = "search-index-queue";
+  private static final String URL = "/tasks/search/index/posts";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  private static final long MAX_SAVE_BATCH_BYTES = 4L * 1024L * 1024L;
+
+  /**
+   * Documents saved per transaction with the document count, below the 25 entity groups a
+   * transaction may touch.
+   */
+  private static final int DOC_COUNT_BATCH_SIZE = 24;
+
+  public static void addToQueue() {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(SearchConfig.POST_INDEX_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(SEARCH_INDEX_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("index-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS));
+    } catch (TaskAlreadyExistsException e) {
+      // Another change in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    Queue queue = QueueFactory.getQueue(PostSearchService.SEARCH_DIRTY_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasks(SearchConfig.POST_INDEX_LEASE_SECONDS,
+        TimeUnit.SECONDS, SearchConfig.POST_INDEX_BATCH_SIZE);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    Set<Key<PostEntity>> postKeys = Sets.newLinkedHashSetWithExpectedSize(tasks.size());
+    for (TaskHandle task : tasks) {
+      postKeys.add(Key.create(new String(task.getPayload(), Charsets.UTF_8)));
+    }
+
+    final int changes = index(postKeys);
+
+    queue.deleteTask(tasks);
+
+    // More posts are waiting than a single lease returns.
+    if (tasks.size() == SearchConfig.POST_INDEX_BATCH_SIZE) {
+      QueueFactory.getQueue(SEARCH_INDEX_QUEUE).add(TaskOptions.Builder.withUrl(URL));
+    }
+
+    log.info("Indexed " + postKeys.size() + " posts, " + changes + " posting changes");
+  }
+
+  private int index(Set<Key<PostEntity>> postKeys) {
+    // Posts deleted since they were marked are missing, their postings are removed.
+    Map<Key<PostEntity>, PostEntity> posts = PostSearchService.load(postKeys);
+    Map<Key<SearchDocument>, SearchDocument> documents =
+        PostSearchService.load(Ix.from(postKeys).map(SearchDocument::createKey).toList());
+
+    Map<String, List<Change>> changesByTerm = Maps.newHashMap();
+    List<SearchDocument> savedDocuments = Lists.newArrayList();
+    List<SearchDocument> addedDocuments = Lists.newArrayList();
+    List<Key<SearchDocument>> deletedDocuments = Lists.newArrayList();
+
+    for (Key<PostEntity> postKey : postKeys) {
+      final PostEntity post = posts.get(postKey);
+      final Key<SearchDocument> documentKey = SearchDocument.createKey(postKey);
+      final SearchDocument document = documents.get(documentKey);
+
+      Map<String, Float> weights =
+          post == null ? Collections.emptyMap() : PostSearchService.analyze(post);
+
+      if (document != null && document.getTerms() != null) {
+        for (String term : document.getTerms()) {
+          if (!weights.containsKey(term)) {
+            changesByTerm.computeIfAbsent(term, t -> Lists.newArrayList())
+                .add(new Change(postKey, null));
+          }
+        }
+      }
+      for (Map.Entry<String, Float> entry : weights.entrySet()) {
+        changesByTerm.computeIfAbsent(entry.getKey(), t -> Lists.newArrayList())
+            .add(new Change(postKey, entry.getValue()));
+      }
+
+      if (post == null) {
+        if (document != null) {
+          deletedDocuments.add(documentKey);
+        }
+      } else {
+        SearchDocument saved = SearchDocument.builder()
+            .id(documentKey.getName())
+            .terms(Lists.newArrayList(weights.keySet()))
+            .build();
+        (document == null ? addedDocuments : savedDocuments).add(saved);
+      }
+    }
+
+    Map<Key<SearchTerm>, SearchTerm> terms = PostSearchService.load(
+        Ix.from(changesByTerm.keySet()).map(SearchTerm::createKey).toList());
+
+    Map<Key<PostingShard>, PostingList> shards = Maps.newHashMap();
+    Set<String> resharded = Sets.newHashSet();
+
+    Set<Key<PostingShard>> shardKeys = Sets.newHashSet();
+    for (Map.Entry<String, List<Change>> entry : changesByTerm.entrySet()) {
+      final SearchTerm term = terms.computeIfAbsent(SearchTerm.createKey(entry.getKey()),
+          key -> SearchTerm.create(entry.getKey()));
+
+      // A pass died while spreading the term, finish it before routing by the new count.
+      if (term.isResharding()) {
+        reshard(term, term.getShardCount(), shards);
+        resharded.add(term.getId());
+        continue;
+      }
+
+      if (term.hasShardSizes()) {
+        for (Change change : entry.getValue()) {
+          shardKeys.add(shardKey(term, change.getPostKey()));
+        }
+      } else {
+        shardKeys.addAll(allShardKeys(term.getId(), term.getShardCount()));
+      }
+    }
+
+    shards.putAll(decode(Ix.from(shardKeys).filter(key -> !shards.containsKey(key)).toList()));
+    Set<String> overflowed = Sets.newHashSet();
+    int changes = 0;
+
+    for (Map.Entry<String, List<Change>> entry : changesByTerm.entrySet()) {
+      final SearchTerm term = terms.get(SearchTerm.createKey(entry.getKey()));
+
+      for (Change change : entry.getValue()) {
+        final Key<PostingShard> shardKey = shardKey(term, change.getPostKey());
+        final PostingList postings = shards.get(shardKey);
+        final long accountId = change.getPostKey().getParent().getId();
+        final long postId = change.getPostKey().getId();
+
+        if (change.getWeight() == null) {
+          if (postings.remove(accountId, postId)) {
+            changes++;
+          }
+        } else {
+          postings.put(accountId, postId, change.getWeight());
+          changes++;
+        }
+
+        if (postings.size() > SearchConfig.POSTING_SHARD_CAPACITY) {
+          overflowed.add(term.getId());
+        }
+      }
+    }
+
+    for (String term : overflowed) {
+      final SearchTerm searchTerm = terms.get(SearchTerm.createKey(term));
+      reshard(searchTerm, searchTerm.getShardCount() * 2, shards);
+      resharded.add(term);
+    }
+
+    for (SearchTerm term : terms.values()) {
+      for (int shardNum = 0; shardNum < term.getShardCount(); shardNum++) {
+        final PostingList postings = shards.get(PostingShard.createKey(term.getId(), shardNum));
+        if (postings != null) {
+          term.setShardSize(shardNum, postings.size());
+        }
+      }
+    }
+
+    // Resharding terms first, a pass dying before the shards are saved leaves them merged.
+    saveTerms(Ix.from(resharded).map(term -> terms.get(SearchTerm.createKey(term))).toList());
+    save(shards);
+    for (String term : resharded) {
+      terms.get(SearchTerm.createKey(term)).finishReshard();
+    }
+    saveTerms(Lists.newArrayList(terms.values()));
+
+    for (List<SearchDocument> batch
+        : Lists.partition(savedDocuments, PostSearchService.LOAD_BATCH_SIZE)) {
+      ofy().save().entities(batch).now();
+    }
+
+    // New and deleted documents are counted in the transaction saving them.
+    for (List<SearchDocument> batch : Lists.partition(addedDocuments, DOC_COUNT_BATCH_SIZE)) {
+      ofy().transact(() -> {
+        ofy().save().entities(batch).now();
+        addDocs(batch.size());
+      });
+    }
+    for (List<Key<SearchDocument>> batch
+        : Lists.partition(deletedDocuments, DOC_COUNT_BATCH_SIZE)) {
+      ofy().transact(() -> {
+        ofy().delete().keys(batch).now();
+        addDocs(-batch.size());
+      });
+    }
+
+    return changes;
+  }
+
+  private static void addDocs(long delta) {
+    SearchIndex index = ofy().load().key(SearchIndex.createKey()).now();
+    if (index == null) {
+      index = SearchIndex.create();
+    }
+    index.addDocs(delta);
+    ofy().save().entity(index).now();
+  }
+
+  /**
+   * Spreads the postings of the given term over at least the given number of shards. Every shard
+   * below the current count is read, so a reshard left half done by a failed pass is completed
+   * from both layouts.
+   */
+  private void reshard(SearchTerm term, int minShardCount,
+      Map<Key<PostingShard>, PostingList> shards) {
+    List<Key<PostingShard>> oldKeys = allShardKeys(term.getId(), term.getShardCount());
+
+    shards.putAll(decode(Ix.from(oldKeys).filter(key -> !shards.containsKey(key)).toList()));
+
+    // Postings in both layouts are put once.
+    PostingList merged = PostingList.empty();
+    for (Key<PostingShard> key : oldKeys) {
+      PostingList postings = shards.get(key);
+      for (int i = 0; i < postings.size(); i++) {
+        merged.put(postings.accountId(i), postings.postId(i), postings.weight(i));
+      }
+    }
+
+    int shardCount = minShardCount;
+    while (merged.size() > shardCount * SearchConfig.POSTING_SHARD_CAPACITY / 2) {
+      shardCount *= 2;
+    }
+
+    List<PostingList> resharded = Lists.newArrayListWithCapacity(shardCount);
+    for (int shardNum = 0; shardNum < shardCount; shardNum++) {
+      resharded.add(PostingList.empty());
+    }
+
+    for (int i = 0; i < merged.size(); i++) {
+      resharded
+          .get(PostingShard.shardOf(merged.accountId(i), merged.postId(i), shardCount))
+          .put(merged.accountId(i), merged.postId(i), merged.weight(i));
+    }
+
+    for (int shardNum = 0; shardNum < shardCount; shardNum++) {
+      shards.put(PostingShard.createKey(term.getId(), shardNum), resharded.get(shardNum));
+    }
+
+    log.info("Spread term " + term.getId() + " over " + shardCount + " shards");
+    term.startReshard(shardCount);
+  }
+
+  private static List<Key<PostingShard>> allShardKeys(String term, int shardCount) {
+    List<Key<PostingShard>> keys = Lists.newArrayListWithCapacity(shardCount);
+    for (int shardNum = 0; shardNum < shardCount; shardNum++) {
+      keys.add(PostingShard.createKey(term, shardNum));
+    }
+    return keys;
+  }
+
+  private Map<Key<PostingShard>, PostingList> decode(List<Key<PostingShard>> keys) {
+    Map<Key<PostingShard>, PostingShard> loaded = PostSearchService.load(keys);
+
+    Map<Key<PostingShard>, PostingList> shards = Maps.newHashMapWithExpectedSize(keys.size());
+    for (Key<PostingShard> key : keys) {
+      PostingShard shard = loaded.get(key);
+      shards.put(key, PostingList.decode(shard == null ? null : shard.getPostings()));
+    }
+    return shards;
+  }
+
+  private static void saveTerms(List<SearchTerm> terms) {
+    for (List<SearchTerm> batch : Lists.partition(terms, PostSearchService.LOAD_BATCH_SIZE)) {
+      ofy().save().entities(batch).now();
+    }
+  }
+
+  private void save(Map<Key<PostingShard>, PostingList> shards) {
+    List<PostingShard> saved = Lists.newArrayList();
+    List<Key<PostingShard>> deleted = Lists.newArrayList();
+
+    for (Map.Entry<Key<PostingShard>, PostingList> entry : shards.entrySet()) {
+      if (entry.getValue().size() == 0) {
+        deleted.add(entry.getKey());
+      } else {
+        saved.add(PostingShard.builder()
+            .id(entry.getKey().getName())
+            .postings(entry.getValue().encode())
+            .build());
+      }
+    }
+
+    // Shards are large, keep each put well below the request size limit.
+    List<PostingShard> batch = Lists.newArrayList();
+    long batchBytes = 0L;
+    for (PostingShard shard : saved) {
+      if (!batch.isEmpty() && (batchBytes + shard.getPostings().length > MAX_SAVE_BATCH_BYTES
+          || batch.size() == PostSearchService.LOAD_BATCH_SIZE)) {
+        ofy().save().entities(batch).now();
+        batch.clear();
+        batchBytes = 0L;
+      }
+      batch.add(shard);
+      batchBytes += shard.getPostings().length;
+    }
+    ofy().save().entities(batch).now();
+    ofy().delete().keys(deleted).now();
+  }
+
+  private static Key<PostingShard> shardKey(SearchTerm term, Key<PostEntity> postKey) {
+    return PostingShard.createKey(term.getId(), PostingShard.shardOf(
+        postKey.getParent().getId(), postKey.getId(), term.getShardCount()));
+  }
+
+  @Value
+  private static class Change {
+    private Key<PostEntity> postKey;
+
+    /**
+     * Null to remove the posting.
+     */
+    private Float weight;
+  }
+}
@@ -0,0 +1,93 @@
+package com.yoloo.backend.search;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.post.PostEntity;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Indexes the posts created before the search index. The post keys are scanned in pages, each
+ * task marks the posts of one page dirty through {@link PostSearchService} and enqueues the next
+ * page. Indexing a post replaces its previous postings, so the migration can be re-run.
+ *
+ * <p>Started by an admin with a GET request, e.g. "/tasks/migrate/searchIndex".
+ */
+@Log
+public class MigrateSearchIndexServlet extends HttpServlet {
+
+  private static final String MIGRATE_SEARCH_INDEX_QUEUE = "migrate-search-index-queue";
+  private static final String URL = "/tasks/migrate/searchIndex";
+
+  private static final String CURSOR = "cursor";
+
+  private static final int PAGE_SIZE = 100;
+
+  private final PostSearchService postSearchService = PostSearchService.create();
+
+  public static void addToQueue(@Nullable String cursor) {
+    Queue queue = QueueFactory.getQueue(MIGRATE_SEARCH_INDEX_QUEUE);
+
+    TaskOptions options = TaskOptions.Builder.withUrl(URL);
+
+    if (cursor != null) {
+      options = options.param(CURSOR, cursor);
+    }
+
+    queue.add(options);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    addToQueue(null);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    migrate(req.getParameter(CURSOR));
+  }
+
+  private void migrate(@Nullable String cursor) {
+    Query<PostEntity> query = ofy().load().type(PostEntity.class);
+
+    query = Strings.isNullOrEmpty(cursor)
+        ? query
+        : query.startAt(Cursor.fromWebSafeString(cursor));
+
+    final QueryResultIterator<Key<PostEntity>> qi = query.limit(PAGE_SIZE).keys().iterator();
+
+    int scanned = 0;
+
+    while (qi.hasNext()) {
+      postSearchService.markDirty(qi.next());
+      scanned++;
+    }
+
+    if (scanned > 0) {
+      postSearchService.scheduleIndexing();
+    }
+
+    if (scanned == PAGE_SIZE) {
+      addToQueue(qi.getCursor().toWebSafeString());
+    } else {
+      log.info("Search index migration finished.");
+    }
+
+    log.info("Search index migration: " + scanned + " posts marked.");
+  }
+}
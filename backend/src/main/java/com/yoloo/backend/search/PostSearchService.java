@@ -0,0 +1,173 @@
+package com.yoloo.backend.search;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.SearchConfig;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Full text search over the title, content and tags of posts.
+ *
+ * <p>Every term has a posting list of the posts containing it, spread over
+ * {@link SearchTerm#getShardCount()} {@link PostingShard}s. Writers mark changed posts on a pull
+ * queue and {@link IndexPostsServlet} updates the postings in the background, so posting never
+ * waits for indexing. Queries load the shards of their terms and rank with {@link SearchScorer}.
+ */
+@NoArgsConstructor(staticName = "create")
+public class PostSearchService {
+
+  static final String SEARCH_DIRTY_QUEUE = "search-dirty-queue";
+
+  /**
+   * Largest batch of keys loaded in one call.
+   */
+  static final int LOAD_BATCH_SIZE = 500;
+
+  /**
+   * Weighted terms of a post, see {@link SearchScorer#weight(double, double)}.
+   *
+   * @param post the post
+   * @return the weights by term
+   */
+  public static Map<String, Float> analyze(PostEntity post) {
+    Map<String, Double> frequencies = Maps.newHashMap();
+
+    double length = 0.0D;
+    length += count(Tokenizer.tokenize(post.getTitle()), SearchConfig.TITLE_WEIGHT, frequencies);
+    length +=
+        count(Tokenizer.tokenize(post.getContent()), SearchConfig.CONTENT_WEIGHT, frequencies);
+    if (post.getTags() != null) {
+      for (String tag : post.getTags()) {
+        length += count(Tokenizer.tokenize(tag), SearchConfig.TAG_WEIGHT, frequencies);
+      }
+    }
+
+    Map<String, Float> weights = Maps.newHashMapWithExpectedSize(frequencies.size());
+    for (Map.Entry<String, Double> entry : frequencies.entrySet()) {
+      weights.put(entry.getKey(), SearchScorer.weight(entry.getValue(), length));
+    }
+    return weights;
+  }
+
+  private static double count(List<String> terms, double weight, Map<String, Double> frequencies) {
+    for (String term : terms) {
+      frequencies.merge(term, weight, Double::sum);
+    }
+    return terms.size() * weight;
+  }
+
+  /**
+   * Marks the given post for indexing. Must be called inside the transaction that saves or deletes
+   * it, so a mark is never lost and never precedes the change.
+   * {@link MigrateSearchIndexServlet} marks existing posts outside a transaction.
+   *
+   * @param postKey the post key
+   */
+  public void markDirty(Key<PostEntity> postKey) {
+    Queue queue = QueueFactory.getQueue(SEARCH_DIRTY_QUEUE);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .payload(postKey.toWebSafeString().getBytes(Charsets.UTF_8)));
+  }
+
+  /**
+   * Schedules an index pass at the end of the current window.
+   */
+  public void scheduleIndexing() {
+    IndexPostsServlet.addToQueue();
+  }
+
+  /**
+   * Ranks the posts matching any term of the given query.
+   *
+   * @param query the query
+   * @param after the last hit of the previous page, null for the first page
+   * @param limit the page size
+   * @return the hits, best first
+   */
+  public List<SearchScorer.Hit> search(String query, @Nullable SearchScorer.Hit after,
+      int limit) {
+    List<String> terms = Ix
+        .from(ImmutableSortedSet.copyOf(Tokenizer.tokenize(query)))
+        .take(SearchConfig.MAX_QUERY_TERMS)
+        .toList();
+
+    if (terms.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Map<Key<SearchTerm>, SearchTerm> searchTerms =
+        ofy().load().keys(Ix.from(terms).map(SearchTerm::createKey).toList());
+    SearchIndex index = ofy().load().key(SearchIndex.createKey()).now();
+
+    if (searchTerms.isEmpty() || index == null) {
+      return Collections.emptyList();
+    }
+
+    List<Key<PostingShard>> shardKeys = Lists.newArrayList();
+    for (SearchTerm term : searchTerms.values()) {
+      for (int shardNum = 0; shardNum < term.getShardCount(); shardNum++) {
+        shardKeys.add(PostingShard.createKey(term.getId(), shardNum));
+      }
+    }
+
+    Map<Key<PostingShard>, PostingShard> shards = load(shardKeys);
+
+    List<SearchScorer.QueryTerm> queryTerms = Lists.newArrayListWithCapacity(terms.size());
+    for (String term : terms) {
+      SearchTerm searchTerm = searchTerms.get(SearchTerm.createKey(term));
+
+      if (searchTerm == null) {
+        continue;
+      }
+
+      List<PostingList> postings = Lists.newArrayListWithCapacity(searchTerm.getShardCount());
+      for (int shardNum = 0; shardNum < searchTerm.getShardCount(); shardNum++) {
+        PostingShard shard = shards.get(PostingShard.createKey(term, shardNum));
+        if (shard != null) {
+          postings.add(PostingList.decode(shard.getPostings()));
+        }
+      }
+
+      // A posting may be in both layouts until the reshard is saved, count it once.
+      if (searchTerm.isResharding()) {
+        PostingList merged = PostingList.empty();
+        for (PostingList list : postings) {
+          for (int i = 0; i < list.size(); i++) {
+            merged.put(list.accountId(i), list.postId(i), list.weight(i));
+          }
+        }
+        postings = Collections.singletonList(merged);
+      }
+
+      queryTerms.add(new SearchScorer.QueryTerm(
+          SearchScorer.idf(searchTerm.getDocFreq(), index.getDocCount()), postings));
+    }
+
+    return SearchScorer.topHits(queryTerms, after, limit);
+  }
+
+  static <T> Map<Key<T>, T> load(Collection<Key<T>> keys) {
+    Map<Key<T>, T> entities = Maps.newHashMapWithExpectedSize(keys.size());
+    for (List<Key<T>> batch : Lists.partition(Lists.newArrayList(keys), LOAD_BATCH_SIZE)) {
+      entities.putAll(ofy().load().keys(batch));
+    }
+    return entities;
+  }
+}
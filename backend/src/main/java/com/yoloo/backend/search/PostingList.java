@@ -0,0 +1,154 @@
+package com.yoloo.backend.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * The postings of one term shard: (account id, post id, weight) triples packed into a byte array
+ * of {@value #POSTING_BYTES} bytes per posting, in no particular order.
+ *
+ * <p>Readers iterate the decoded arrays directly. Writers {@link #put} and {@link #remove}
+ * postings, which builds a position index on first use.
+ */
+public final class PostingList {
+
+  static final int POSTING_BYTES = 8 + 8 + 4;
+
+  private long[] accountIds;
+  private long[] postIds;
+  private float[] weights;
+  private int size;
+
+  private Map<Doc, Integer> positions;
+
+  private PostingList(long[] accountIds, long[] postIds, float[] weights, int size) {
+    this.accountIds = accountIds;
+    this.postIds = postIds;
+    this.weights = weights;
+    this.size = size;
+  }
+
+  public static PostingList empty() {
+    return new PostingList(new long[8], new long[8], new float[8], 0);
+  }
+
+  public static PostingList decode(@Nullable byte[] bytes) {
+    if (bytes == null) {
+      return empty();
+    }
+
+    final int n = bytes.length / POSTING_BYTES;
+
+    long[] accountIds = new long[n];
+    long[] postIds = new long[n];
+    float[] weights = new float[n];
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (int i = 0; i < n; i++) {
+      accountIds[i] = buffer.getLong();
+      postIds[i] = buffer.getLong();
+      weights[i] = buffer.getFloat();
+    }
+
+    return new PostingList(accountIds, postIds, weights, n);
+  }
+
+  public byte[] encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(size * POSTING_BYTES);
+    for (int i = 0; i < size; i++) {
+      buffer.putLong(accountIds[i]).putLong(postIds[i]).putFloat(weights[i]);
+    }
+    return buffer.array();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long accountId(int i) {
+    return accountIds[i];
+  }
+
+  public long postId(int i) {
+    return postIds[i];
+  }
+
+  public float weight(int i) {
+    return weights[i];
+  }
+
+  /**
+   * Adds a posting or replaces the weight of an existing one.
+   *
+   * @param accountId the account id of the post
+   * @param postId the post id
+   * @param weight the weight
+   * @return true if the posting is new
+   */
+  public boolean put(long accountId, long postId, float weight) {
+    final Doc doc = new Doc(accountId, postId);
+    final Integer pos = positions().get(doc);
+
+    if (pos != null) {
+      weights[pos] = weight;
+      return false;
+    }
+
+    if (size == postIds.length) {
+      final int capacity = Math.max(8, size * 2);
+      accountIds = Arrays.copyOf(accountIds, capacity);
+      postIds = Arrays.copyOf(postIds, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+    }
+
+    accountIds[size] = accountId;
+    postIds[size] = postId;
+    weights[size] = weight;
+    positions.put(doc, size++);
+    return true;
+  }
+
+  /**
+   * Removes a posting, the last posting takes its place.
+   *
+   * @param accountId the account id of the post
+   * @param postId the post id
+   * @return true if the posting was present
+   */
+  public boolean remove(long accountId, long postId) {
+    final Integer pos = positions().remove(new Doc(accountId, postId));
+
+    if (pos == null) {
+      return false;
+    }
+
+    final int last = --size;
+    if (pos != last) {
+      accountIds[pos] = accountIds[last];
+      postIds[pos] = postIds[last];
+      weights[pos] = weights[last];
+      positions.put(new Doc(accountIds[pos], postIds[pos]), pos);
+    }
+    return true;
+  }
+
+  private Map<Doc, Integer> positions() {
+    if (positions == null) {
+      positions = new HashMap<>(Math.max(16, size * 2));
+      for (int i = 0; i < size; i++) {
+        positions.put(new Doc(accountIds[i], postIds[i]), i);
+      }
+    }
+    return positions;
+  }
+
+  @Value
+  private static class Doc {
+    private long accountId;
+    private long postId;
+  }
+}
@@ -0,0 +1,41 @@
+package com.yoloo.backend.search;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * One shard of the postings of a term, an encoded {@link PostingList}. A post always lives in
+ * shard {@link #shardOf(long, long, int)} of the term's current shard count.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class PostingShard {
+
+  /**
+   * term:shardNum
+   */
+  @Id private String id;
+
+  @NonFinal private byte[] postings;
+
+  public static Key<PostingShard> createKey(String term, int shardNum) {
+    return Key.create(PostingShard.class, term + ":" + shardNum);
+  }
+
+  public static int shardOf(long accountId, long postId, int shardCount) {
+    final long h = (postId * 0x9E3779B97F4A7C15L) ^ accountId;
+    return (int) Math.floorMod(h ^ (h >>> 32), (long) shardCount);
+  }
+}
@@ -0,0 +1,35 @@
+package com.yoloo.backend.search;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.yoloo.backend.post.PostEntity;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * The terms a post is currently indexed under, so re-indexing knows which postings to drop.
+ */
+@Entity
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class SearchDocument {
+
+  /**
+   * Websafe post key.
+   */
+  @Id private String id;
+
+  @NonFinal private List<String> terms;
+
+  public static Key<SearchDocument> createKey(Key<PostEntity> postKey) {
+    return Key.create(SearchDocument.class, postKey.toWebSafeString());
+  }
+}
@@ -0,0 +1,45 @@
+package com.yoloo.backend.search;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Statistics of the whole post index.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class SearchIndex {
+
+  private static final String POSTS = "posts";
+
+  @Id private String id;
+
+  /**
+   * Number of indexed posts.
+   */
+  @NonFinal private long docCount;
+
+  public static Key<SearchIndex> createKey() {
+    return Key.create(SearchIndex.class, POSTS);
+  }
+
+  public static SearchIndex create() {
+    return SearchIndex.builder().id(POSTS).docCount(0L).build();
+  }
+
+  public void addDocs(long delta) {
+    docCount += delta;
+  }
+}
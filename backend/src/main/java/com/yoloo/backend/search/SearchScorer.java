@@ -0,0 +1,214 @@
+package com.yoloo.backend.search;
+
+import com.google.common.base.Splitter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * BM25 style ranking over {@link PostingList}s.
+ *
+ * <p>The term frequency part of the score only depends on the post, so it is computed once at
+ * index time and stored as the posting weight. Queries add up weight times idf for every term a
+ * post contains, then select one page with a bounded heap.
+ */
+public final class SearchScorer {
+
+  private static final double K1 = 1.2D;
+  private static final double B = 0.75D;
+
+  /**
+   * Typical length of a post in terms, weighted by field.
+   */
+  private static final double AVG_DOC_LENGTH = 60.0D;
+
+  private static final Comparator<Hit> ORDER = Comparator
+      .comparingDouble(Hit::getScore).reversed()
+      .thenComparingLong(Hit::getAccountId)
+      .thenComparingLong(Hit::getPostId);
+
+  private SearchScorer() {
+  }
+
+  /**
+   * Weight of a term in a post.
+   *
+   * @param termFrequency the field weighted frequency of the term in the post
+   * @param docLength the field weighted length of the post
+   * @return the weight
+   */
+  public static float weight(double termFrequency, double docLength) {
+    return (float) (termFrequency * (K1 + 1.0D)
+        / (termFrequency + K1 * (1.0D - B + B * docLength / AVG_DOC_LENGTH)));
+  }
+
+  public static double idf(long docFreq, long docCount) {
+    return Math.log(1.0D + (docCount - docFreq + 0.5D) / (docFreq + 0.5D));
+  }
+
+  /**
+   * Ranks the posts of the given terms and returns the page following the given hit.
+   *
+   * @param terms the postings of each query term, with the term's idf
+   * @param after the last hit of the previous page, null for the first page
+   * @param limit the page size
+   * @return the hits, best first
+   */
+  public static List<Hit> topHits(List<QueryTerm> terms, @Nullable Hit after, int limit) {
+    if (terms.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    int expected = 0;
+    for (QueryTerm term : terms) {
+      for (PostingList postings : term.getPostings()) {
+        expected += postings.size();
+      }
+    }
+
+    DocScores scores = new DocScores(expected);
+    for (QueryTerm term : terms) {
+      final double idf = term.getIdf();
+      for (PostingList postings : term.getPostings()) {
+        for (int i = 0, n = postings.size(); i < n; i++) {
+          scores.add(postings.accountId(i), postings.postId(i), idf * postings.weight(i));
+        }
+      }
+    }
+
+    // Worst hit of the page on top.
+    PriorityQueue<Hit> page = new PriorityQueue<>(limit + 1, ORDER.reversed());
+
+    for (int slot = 0; slot < scores.capacity(); slot++) {
+      if (!scores.isUsed(slot)) {
+        continue;
+      }
+
+      final long accountId = scores.accountId(slot);
+      final long postId = scores.postId(slot);
+      final double score = scores.score(slot);
+
+      if (after != null && compare(score, accountId, postId, after) <= 0) {
+        continue;
+      }
+      if (page.size() == limit && compare(score, accountId, postId, page.peek()) >= 0) {
+        continue;
+      }
+
+      page.add(new Hit(accountId, postId, score));
+      if (page.size() > limit) {
+        page.poll();
+      }
+    }
+
+    List<Hit> hits = new ArrayList<>(page);
+    hits.sort(ORDER);
+    return hits;
+  }
+
+  /**
+   * Compares a candidate to a hit in page order, negative if the candidate comes first.
+   */
+  private static int compare(double score, long accountId, long postId, Hit hit) {
+    int c = Double.compare(hit.getScore(), score);
+    if (c == 0) {
+      c = Long.compare(accountId, hit.getAccountId());
+    }
+    if (c == 0) {
+      c = Long.compare(postId, hit.getPostId());
+    }
+    return c;
+  }
+
+  @Value
+  public static class QueryTerm {
+    private double idf;
+    private List<PostingList> postings;
+  }
+
+  @Value
+  public static class Hit {
+    private long accountId;
+    private long postId;
+    private double score;
+
+    @Nullable
+    public static Hit fromCursor(@Nullable String cursor) {
+      if (cursor == null) {
+        return null;
+      }
+
+      try {
+        List<String> parts = Splitter.on('_').splitToList(cursor);
+        return new Hit(Long.parseLong(parts.get(1)), Long.parseLong(parts.get(2)),
+            Double.longBitsToDouble(Long.parseUnsignedLong(parts.get(0), 16)));
+      } catch (RuntimeException e) {
+        return null;
+      }
+    }
+
+    public String toCursor() {
+      return Long.toHexString(Double.doubleToLongBits(score)) + "_" + accountId + "_" + postId;
+    }
+  }
+
+  /**
+   * Score accumulator keyed by post, open addressing over primitive arrays.
+   */
+  private static final class DocScores {
+    private final long[] accountIds;
+    private final long[] postIds;
+    private final double[] scores;
+    private final boolean[] used;
+    private final int mask;
+
+    DocScores(int expected) {
+      final int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+      accountIds = new long[capacity];
+      postIds = new long[capacity];
+      scores = new double[capacity];
+      used = new boolean[capacity];
+      mask = capacity - 1;
+    }
+
+    void add(long accountId, long postId, double score) {
+      long h = (postId * 0x9E3779B97F4A7C15L) ^ (accountId * 0xC2B2AE3D27D4EB4FL);
+      int slot = (int) (h ^ (h >>> 32)) & mask;
+
+      while (used[slot] && (postIds[slot] != postId || accountIds[slot] != accountId)) {
+        slot = (slot + 1) & mask;
+      }
+
+      if (!used[slot]) {
+        used[slot] = true;
+        accountIds[slot] = accountId;
+        postIds[slot] = postId;
+      }
+      scores[slot] += score;
+    }
+
+    int capacity() {
+      return used.length;
+    }
+
+    boolean isUsed(int slot) {
+      return used[slot];
+    }
+
+    long accountId(int slot) {
+      return accountIds[slot];
+    }
+
+    long postId(int slot) {
+      return postIds[slot];
+    }
+
+    double score(int slot) {
+      return scores[slot];
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.yoloo.backend.search;
+
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import java.util.Collections;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Statistics of a term of the post index, and the number of {@link PostingShard}s its postings
+ * are spread over.
+ *
+ * <p>While the postings are being spread over more shards, {@link #isResharding()} is set and a
+ * posting may still be in its shard of the previous count; readers then merge every shard below
+ * the current count.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class SearchTerm {
+
+  @Id private String id;
+
+  /**
+   * Number of posts containing the term, the sum of {@link #shardSizes}.
+   */
+  @NonFinal private long docFreq;
+
+  @NonFinal private int shardCount;
+
+  /**
+   * Shard count before the running reshard, 0 if none is running.
+   */
+  @NonFinal private int previousShardCount;
+
+  /**
+   * Number of postings in each shard, null for terms indexed before they were kept.
+   */
+  @NonFinal private List<Integer> shardSizes;
+
+  public static Key<SearchTerm> createKey(String term) {
+    return Key.create(SearchTerm.class, term);
+  }
+
+  public static SearchTerm create(String term) {
+    return SearchTerm.builder()
+        .id(term)
+        .docFreq(0L)
+        .shardCount(1)
+        .shardSizes(Lists.newArrayList(0))
+        .build();
+  }
+
+  public boolean isResharding() {
+    return previousShardCount > 0;
+  }
+
+  /**
+   * Whether every shard size is known, otherwise all shards need to be counted once.
+   */
+  public boolean hasShardSizes() {
+    return shardSizes != null && shardSizes.size() == shardCount;
+  }
+
+  /**
+   * Starts spreading the postings over the given number of shards.
+   */
+  public void startReshard(int shardCount) {
+    if (!isResharding()) {
+      previousShardCount = this.shardCount;
+    }
+    this.shardCount = shardCount;
+    this.shardSizes = Lists.newArrayList(Collections.nCopies(shardCount, 0));
+    this.docFreq = 0L;
+  }
+
+  public void finishReshard() {
+    previousShardCount = 0;
+  }
+
+  /**
+   * Sets the number of postings in the given shard. Sizes are absolute, so setting them again
+   * after a failed pass keeps {@link #docFreq} right.
+   */
+  public void setShardSize(int shardNum, int size) {
+    if (!hasShardSizes()) {
+      shardSizes = Lists.newArrayList(Collections.nCopies(shardCount, 0));
+      docFreq = 0L;
+    }
+    docFreq += size - shardSizes.set(shardNum, size);
+  }
+}
@@ -0,0 +1,61 @@
+package com.yoloo.backend.search;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Splits text into search terms: letters and digits only, lower case, without diacritics, so
+ * "İstanbul'da" and "istanbul da" meet. Stop words are listed in their folded form.
+ */
+public final class Tokenizer {
+
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+  private static final int MIN_TERM_LENGTH = 2;
+
+  private static final int MAX_TERM_LENGTH = 40;
+
+  private static final Set<String> STOP_WORDS = ImmutableSet.of(
+      "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "how", "in", "is", "it",
+      "of", "on", "or", "the", "to", "was", "what", "when", "where", "which", "with",
+      "bir", "bu", "da", "de", "icin", "ile", "mi", "ne", "nasil", "ve", "veya");
+
+  private Tokenizer() {
+  }
+
+  /**
+   * Tokenizes the given text. Terms are returned in order, duplicates included.
+   *
+   * @param text the text, may be null
+   * @return the terms
+   */
+  public static List<String> tokenize(@Nullable String text) {
+    if (text == null || text.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    String folded = COMBINING_MARKS
+        .matcher(Normalizer.normalize(text.toLowerCase(Locale.ENGLISH), Normalizer.Form.NFD))
+        .replaceAll("")
+        .replace('ı', 'i');
+
+    List<String> terms = Lists.newArrayList();
+    for (String token : SEPARATORS.split(folded)) {
+      if (token.length() >= MIN_TERM_LENGTH
+          && token.length() <= MAX_TERM_LENGTH
+          && !STOP_WORDS.contains(token)) {
+        terms.add(token);
+      }
+    }
+    return terms;
+  }
+}
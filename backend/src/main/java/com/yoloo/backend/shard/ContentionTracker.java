@@ -0,0 +1,39 @@
+package com.yoloo.backend.shard;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.ShardConfig;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counts contended shard transactions per entity in memcache, over a fixed window.
+ */
+@NoArgsConstructor(staticName = "create")
+public class ContentionTracker {
+
+  private static final String NAMESPACE = "ShardContention";
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Records a contended transaction on the shards of the given entity.
+   *
+   * @param entityKey the sharded entity
+   * @return true for exactly one caller per window, the one reaching
+   * {@link ShardConfig#SHARD_GROWTH_CONTENTION_THRESHOLD}
+   */
+  public boolean record(Key<?> entityKey) {
+    final String key = entityKey.toWebSafeString();
+
+    // Starts the window, increments alone never expire.
+    memcache.put(key, 0L,
+        Expiration.byDeltaSeconds(ShardConfig.SHARD_CONTENTION_WINDOW_SECONDS),
+        MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+
+    Long count = memcache.increment(key, 1L);
+
+    return count != null && count == ShardConfig.SHARD_GROWTH_CONTENTION_THRESHOLD;
+  }
+}
@@ -0,0 +1,36 @@
+package com.yoloo.backend.shard;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Number of shards of an entity whose shards were grown past the ones created with it. Entities
+ * without a shard count keep the shards they were created with.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ShardCount {
+
+  /**
+   * Websafe key of the sharded entity.
+   */
+  @Id private String id;
+
+  @NonFinal private int count;
+
+  public static Key<ShardCount> createKey(Key<?> entityKey) {
+    return Key.create(ShardCount.class, entityKey.toWebSafeString());
+  }
+}
@@ -0,0 +1,76 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.ShardConfig;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Folds the shards of a tag into its post count.
+ *
+ * <p>Tasks are named after the tag and the aggregation window they were scheduled in and run once
+ * the window is over, so the tag entity is written at most once per window however many posts use
+ * it.
+ */
+@Log
+public class AggregateTagCounterServlet extends HttpServlet {
+
+  private static final String AGGREGATE_COUNTER_QUEUE = "aggregate-counter-queue";
+  private static final String URL = "/tasks/aggregate/tag/counter";
+
+  private static final String TAG_NAME = "tagName";
+
+  /**
+   * Extra delay after the window, so writes committed at its very end are included.
+   */
+  private static final long GRACE_MILLIS = 1000L;
+
+  private final TagShardService tagShardService = TagShardService.create();
+
+  public static void addToQueue(@Nonnull String tagName) {
+    final long windowMillis =
+        TimeUnit.SECONDS.toMillis(ShardConfig.COUNTER_AGGREGATION_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(AGGREGATE_COUNTER_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("tag-" + Integer.toHexString(tagName.hashCode())
+              + "-" + tagName.replaceAll("[^a-zA-Z0-9_-]", "") + "-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS)
+          .param(TAG_NAME, tagName));
+    } catch (TaskAlreadyExistsException e) {
+      // Another post in this window already scheduled the fold.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    final Key<Tag> tagKey = Tag.createKey(req.getParameter(TAG_NAME));
+    final long posts = tagShardService.countPosts(tagKey);
+
+    ofy().transact(() -> {
+      Tag tag = ofy().load().key(tagKey).now();
+
+      if (tag != null && tag.getPostCount() != posts) {
+        ofy().save().entity(tag.withPostCount(posts));
+      }
+    });
+  }
+}
@@ -0,0 +1,93 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Strings;
+import com.googlecode.objectify.cmd.Query;
+import com.yoloo.backend.post.PostEntity;
+import java.io.IOException;
+import java.util.Collections;
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Puts the posts created before the tag timelines into them. The whole post kind is scanned in
+ * pages, each task marks the posts of one page dirty through {@link TagPostingService} and
+ * enqueues the next page. Putting a post is idempotent, so the migration can be re-run.
+ *
+ * <p>Started by an admin with a GET request, e.g. "/tasks/migrate/tagPostings".
+ */
+@Log
+public class MigrateTagPostingsServlet extends HttpServlet {
+
+  private static final String MIGRATE_TAG_POSTING_QUEUE = "migrate-tag-posting-queue";
+  private static final String URL = "/tasks/migrate/tagPostings";
+
+  private static final String CURSOR = "cursor";
+
+  private static final int PAGE_SIZE = 100;
+
+  private final TagPostingService tagPostingService = TagPostingService.create();
+
+  public static void addToQueue(@Nullable String cursor) {
+    Queue queue = QueueFactory.getQueue(MIGRATE_TAG_POSTING_QUEUE);
+
+    TaskOptions options = TaskOptions.Builder.withUrl(URL);
+
+    if (cursor != null) {
+      options = options.param(CURSOR, cursor);
+    }
+
+    queue.add(options);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    addToQueue(null);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    migrate(req.getParameter(CURSOR));
+  }
+
+  private void migrate(@Nullable String cursor) {
+    Query<PostEntity> query = ofy().load().type(PostEntity.class);
+
+    query = Strings.isNullOrEmpty(cursor)
+        ? query
+        : query.startAt(Cursor.fromWebSafeString(cursor));
+
+    final QueryResultIterator<PostEntity> qi = query.limit(PAGE_SIZE).iterator();
+
+    int scanned = 0;
+
+    while (qi.hasNext()) {
+      tagPostingService.markDirty(qi.next(), Collections.emptySet());
+      scanned++;
+    }
+
+    if (scanned > 0) {
+      tagPostingService.scheduleUpdate();
+    }
+
+    if (scanned == PAGE_SIZE) {
+      addToQueue(qi.getCursor().toWebSafeString());
+    } else {
+      log.info("Tag posting migration finished.");
+    }
+
+    log.info("Tag posting migration: " + scanned + " posts marked.");
+  }
+}
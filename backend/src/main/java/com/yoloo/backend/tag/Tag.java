@@ -6,6 +6,7 @@ import com.googlecode.objectify.annotation.Cache;
 import com.googlecode.objectify.annotation.Entity;
 import com.googlecode.objectify.annotation.Id;
 import com.googlecode.objectify.annotation.Index;
+import com.googlecode.objectify.condition.IfNotNull;
 import com.yoloo.backend.tag.transformer.TagTransformer;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -14,6 +15,7 @@ import lombok.NoArgsConstructor;
 import lombok.Value;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.Wither;
+import org.joda.time.DateTime;
 
 @Entity
 @Cache
@@ -29,6 +31,7 @@ public class Tag {
   public static final String FIELD_NAME = "name";
   public static final String FIELD_POST_COUNT = "postCount";
   public static final String FIELD_RANK = "rank";
+  public static final String FIELD_CREATED = "created";
 
   // tag:name
   @Id private String id;
@@ -47,6 +50,8 @@ public class Tag {
 
   @Index private double rank;
 
+  @Index(IfNotNull.class) private DateTime created;
+
   public static String extractNameFromKey(Key<Tag> tagKey) {
     return tagKey.getName().split(":")[1]; // Extract identifier
   }
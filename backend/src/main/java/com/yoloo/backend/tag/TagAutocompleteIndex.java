@@ -0,0 +1,34 @@
+package com.yoloo.backend.tag;
+
+import com.yoloo.backend.util.AutocompleteIndex;
+import com.yoloo.backend.util.PrefixIndex;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Tag names of this instance, weighted by post count.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TagAutocompleteIndex extends AutocompleteIndex {
+
+  private static final TagAutocompleteIndex INSTANCE = new TagAutocompleteIndex();
+
+  public static TagAutocompleteIndex instance() {
+    return INSTANCE;
+  }
+
+  @Override protected void loadAll(PrefixIndex.Builder builder) {
+    for (Tag tag : ofy().load().type(Tag.class).iterable()) {
+      builder.add(tag.getName(), tag.getName(), tag.getPostCount());
+    }
+  }
+
+  @Override protected void loadSince(DateTime since, PrefixIndex.Builder builder) {
+    for (Tag tag : ofy().load().type(Tag.class).filter(Tag.FIELD_CREATED + " >=", since)) {
+      builder.add(tag.getName(), tag.getName(), tag.getPostCount());
+    }
+  }
+}
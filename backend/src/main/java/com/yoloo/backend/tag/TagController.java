@@ -9,6 +9,7 @@ import com.google.common.collect.ImmutableSet;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.base.Controller;
+import com.yoloo.backend.config.TagConfig;
 import com.yoloo.backend.post.PostEntity;
 import ix.Ix;
 import java.util.ArrayList;
@@ -16,6 +17,7 @@ import java.util.List;
 import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.extern.java.Log;
+import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 
@@ -30,6 +32,10 @@ public class TagController extends Controller {
 
   private final TagShardService tagShardService;
 
+  private final TagTrendService tagTrendService;
+
+  private final TagAutocompleteIndex tagIndex = TagAutocompleteIndex.instance();
+
   /**
    * Add tag.
    *
@@ -37,15 +43,20 @@ public class TagController extends Controller {
    * @return the hash tag
    */
   public Tag insertTag(String name) {
-    //Map<Ref<TagShard>, TagShard> shardMap = tagShardService.createShardMapWithRef(tagKey);
     Key<Tag> tagKey = Tag.createKey(name);
 
-    Tag tag = Tag.builder().id(tagKey.getName()).name(name).rank(0.0D)
-        //.shardRefs(Lists.newArrayList(shardMap.keySet()))
+    // Shards are created by the first post that uses the tag.
+    Tag tag = Tag.builder()
+        .id(tagKey.getName())
+        .name(name)
+        .rank(0.0D)
+        .created(DateTime.now())
         .build();
 
     ofy().transact(() -> ofy().save().entity(tag).now());
 
+    tagIndex.add(tag.getName(), tag.getName(), tag.getPostCount());
+
     return tag;
   }
 
@@ -81,7 +92,9 @@ public class TagController extends Controller {
   }
 
   /**
-   * List collection response.
+   * List the most used tags starting with the given name. The first page is served from the
+   * instance's {@link TagAutocompleteIndex} and carries no cursor, cursors of earlier responses
+   * still page through the datastore by name.
    *
    * @param name the name
    * @param cursor the cursor
@@ -92,16 +105,26 @@ public class TagController extends Controller {
       Optional<Integer> limit) {
     name = name.toLowerCase().trim();
 
+    if (!cursor.isPresent()) {
+      List<Tag> tags = Ix
+          .from(tagIndex.search(name, limit.or(DEFAULT_LIST_LIMIT)))
+          .map(entry -> Tag.builder()
+              .id(Tag.createKey(entry.getId()).getName())
+              .name(entry.getId())
+              .postCount(entry.getWeight())
+              .build())
+          .toList();
+
+      return CollectionResponse.<Tag>builder().setItems(tags).build();
+    }
+
     Query<Tag> tagQuery = ofy()
         .load()
         .type(Tag.class)
         .filter(Tag.FIELD_NAME + " >=", name)
-        .filter(Tag.FIELD_NAME + " <", name + "\ufffd");
-
-    tagQuery =
-        cursor.isPresent() ? tagQuery.startAt(Cursor.fromWebSafeString(cursor.get())) : tagQuery;
-
-    tagQuery = tagQuery.limit(limit.or(DEFAULT_LIST_LIMIT));
+        .filter(Tag.FIELD_NAME + " <", name + "\ufffd")
+        .startAt(Cursor.fromWebSafeString(cursor.get()))
+        .limit(limit.or(DEFAULT_LIST_LIMIT));
 
     final QueryResultIterator<Tag> qi = tagQuery.iterator();
 
@@ -153,4 +176,14 @@ public class TagController extends Controller {
   public List<Tag> getRecommendedTags() {
     return ofy().load().type(Tag.class).order("-" + Tag.FIELD_RANK).limit(12).list();
   }
+
+  /**
+   * Trending tags list, served from the latest trend snapshot.
+   *
+   * @param limit the limit
+   * @return the list
+   */
+  public List<Tag> getTrendingTags(Optional<Integer> limit) {
+    return tagTrendService.getTrendingTags(limit.or(TagConfig.TRENDING_TAG_LIMIT));
+  }
 }
\ No newline at end of file
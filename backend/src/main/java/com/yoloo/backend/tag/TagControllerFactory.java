@@ -8,6 +8,6 @@ public class TagControllerFactory implements ControllerFactory<TagController> {
 
   @Override
   public TagController create() {
-    return TagController.create(TagShardService.create());
+    return TagController.create(TagShardService.create(), TagTrendService.create());
   }
 }
@@ -149,4 +149,24 @@ public class TagEndpoint {
 
     return tagController.getRecommendedTags();
   }
+
+  /**
+   * Trending list.
+   *
+   * @param limit the maximum number of entries to return
+   * @param user the user
+   * @return the listFeed
+   * @throws ServiceException the service exception
+   */
+  @ApiMethod(name = "tags.trending",
+      path = "tags/trending",
+      httpMethod = ApiMethod.HttpMethod.GET,
+      authenticators = {AdminAuthenticator.class, FirebaseAuthenticator.class})
+  public List<Tag> trending(@Nullable @Named("limit") Integer limit, User user)
+      throws ServiceException {
+
+    EndpointsValidator.create().on(AuthValidator.create(user));
+
+    return tagController.getTrendingTags(Optional.fromNullable(limit));
+  }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.yoloo.backend.tag;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * How the posts of a multi tag query relate to the given tags.
+ */
+@AllArgsConstructor
+@Getter
+public enum TagMatch {
+  /**
+   * Posts having every tag.
+   */
+  ALL("all"),
+  /**
+   * Posts having at least one of the tags.
+   */
+  ANY("any");
+
+  private final String title;
+}
@@ -0,0 +1,58 @@
+package com.yoloo.backend.tag;
+
+import com.google.common.base.Splitter;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * A post in the timeline of a tag. Postings are ordered by creation time, then by key.
+ */
+@Value
+public class TagPosting implements Comparable<TagPosting> {
+
+  /**
+   * Orders after every posting, the start of a newest first walk.
+   */
+  public static final TagPosting LATEST =
+      new TagPosting(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+  private long created;
+  private long accountId;
+  private long postId;
+
+  public static TagPosting of(PostEntity post) {
+    return new TagPosting(post.getCreated().getMillis(), post.getParent().getId(), post.getId());
+  }
+
+  @Nullable
+  public static TagPosting fromCursor(@Nullable String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+
+    try {
+      List<String> parts = Splitter.on('_').splitToList(cursor);
+      return new TagPosting(Long.parseLong(parts.get(0)), Long.parseLong(parts.get(1)),
+          Long.parseLong(parts.get(2)));
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  public String toCursor() {
+    return created + "_" + accountId + "_" + postId;
+  }
+
+  public Key<PostEntity> getPostKey() {
+    return Key.create(Key.create(Account.class, accountId), PostEntity.class, postId);
+  }
+
+  @Override
+  public int compareTo(TagPosting o) {
+    return TagPostingList.compare(created, accountId, postId, o.created, o.accountId, o.postId);
+  }
+}
@@ -0,0 +1,36 @@
+package com.yoloo.backend.tag;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * A time range of the posts of a tag, an encoded {@link TagPostingList}. The range a chunk owns
+ * is kept by the {@link TagTimeline} of the tag.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class TagPostingChunk {
+
+  /**
+   * tag:chunkId
+   */
+  @Id private String id;
+
+  @NonFinal private byte[] postings;
+
+  public static Key<TagPostingChunk> createKey(String tag, long chunkId) {
+    return Key.create(TagPostingChunk.class, tag + ":" + chunkId);
+  }
+}
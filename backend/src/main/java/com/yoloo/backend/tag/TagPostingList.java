@@ -0,0 +1,210 @@
+package com.yoloo.backend.tag;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * The postings of one {@link TagPostingChunk}: (created, account id, post id) triples sorted
+ * oldest first and packed into a byte array of {@value #POSTING_BYTES} bytes per posting.
+ */
+public final class TagPostingList {
+
+  static final int POSTING_BYTES = 8 + 8 + 8;
+
+  private long[] created;
+  private long[] accountIds;
+  private long[] postIds;
+  private int size;
+
+  private TagPostingList(long[] created, long[] accountIds, long[] postIds, int size) {
+    this.created = created;
+    this.accountIds = accountIds;
+    this.postIds = postIds;
+    this.size = size;
+  }
+
+  public static TagPostingList empty() {
+    return new TagPostingList(new long[8], new long[8], new long[8], 0);
+  }
+
+  public static TagPostingList decode(@Nullable byte[] bytes) {
+    if (bytes == null) {
+      return empty();
+    }
+
+    final int n = bytes.length / POSTING_BYTES;
+
+    long[] created = new long[n];
+    long[] accountIds = new long[n];
+    long[] postIds = new long[n];
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (int i = 0; i < n; i++) {
+      created[i] = buffer.getLong();
+      accountIds[i] = buffer.getLong();
+      postIds[i] = buffer.getLong();
+    }
+
+    return new TagPostingList(created, accountIds, postIds, n);
+  }
+
+  public byte[] encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(size * POSTING_BYTES);
+    for (int i = 0; i < size; i++) {
+      buffer.putLong(created[i]).putLong(accountIds[i]).putLong(postIds[i]);
+    }
+    return buffer.array();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long created(int i) {
+    return created[i];
+  }
+
+  public TagPosting get(int i) {
+    return new TagPosting(created[i], accountIds[i], postIds[i]);
+  }
+
+  /**
+   * Adds a posting at its place in the order.
+   *
+   * @param posting the posting
+   * @return true if the posting is new
+   */
+  public boolean put(TagPosting posting) {
+    int pos = search(posting);
+
+    if (pos >= 0) {
+      return false;
+    }
+
+    pos = -pos - 1;
+
+    if (size == created.length) {
+      final int capacity = Math.max(8, size * 2);
+      created = Arrays.copyOf(created, capacity);
+      accountIds = Arrays.copyOf(accountIds, capacity);
+      postIds = Arrays.copyOf(postIds, capacity);
+    }
+
+    System.arraycopy(created, pos, created, pos + 1, size - pos);
+    System.arraycopy(accountIds, pos, accountIds, pos + 1, size - pos);
+    System.arraycopy(postIds, pos, postIds, pos + 1, size - pos);
+
+    created[pos] = posting.getCreated();
+    accountIds[pos] = posting.getAccountId();
+    postIds[pos] = posting.getPostId();
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes a posting.
+   *
+   * @param posting the posting
+   * @return true if the posting was present
+   */
+  public boolean remove(TagPosting posting) {
+    final int pos = search(posting);
+
+    if (pos < 0) {
+      return false;
+    }
+
+    System.arraycopy(created, pos + 1, created, pos, size - pos - 1);
+    System.arraycopy(accountIds, pos + 1, accountIds, pos, size - pos - 1);
+    System.arraycopy(postIds, pos + 1, postIds, pos, size - pos - 1);
+    size--;
+    return true;
+  }
+
+  /**
+   * Position of the newest posting that is not newer than the given one and was created before
+   * the given time.
+   *
+   * @param posting the posting
+   * @param createdBefore the exclusive upper bound of the creation time
+   * @return the position, -1 if there is none
+   */
+  public int floor(TagPosting posting, long createdBefore) {
+    int pos = search(posting);
+    pos = pos >= 0 ? pos : -pos - 2;
+
+    while (pos >= 0 && created[pos] >= createdBefore) {
+      pos--;
+    }
+    return pos;
+  }
+
+  /**
+   * Position at which the postings can be split into two chunks, so that no creation time is
+   * shared by both halves.
+   *
+   * @return the first position of the newer half, -1 if every posting has the same time
+   */
+  public int splitPoint() {
+    int pos = size / 2;
+    while (pos > 0 && created[pos - 1] == created[pos]) {
+      pos--;
+    }
+    if (pos == 0) {
+      pos = size / 2;
+      while (pos < size && created[pos - 1] == created[pos]) {
+        pos++;
+      }
+    }
+    return pos == size ? -1 : pos;
+  }
+
+  /**
+   * Moves the postings from the given position on into a new list.
+   *
+   * @param from the first position to move
+   * @return the moved postings
+   */
+  public TagPostingList split(int from) {
+    TagPostingList newer = new TagPostingList(
+        Arrays.copyOfRange(created, from, size),
+        Arrays.copyOfRange(accountIds, from, size),
+        Arrays.copyOfRange(postIds, from, size),
+        size - from);
+    size = from;
+    return newer;
+  }
+
+  private int search(TagPosting posting) {
+    int low = 0;
+    int high = size - 1;
+
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int c = compare(created[mid], accountIds[mid], postIds[mid],
+          posting.getCreated(), posting.getAccountId(), posting.getPostId());
+
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  static int compare(long created1, long accountId1, long postId1, long created2,
+      long accountId2, long postId2) {
+    int c = Long.compare(created1, created2);
+    if (c == 0) {
+      c = Long.compare(accountId1, accountId2);
+    }
+    if (c == 0) {
+      c = Long.compare(postId1, postId2);
+    }
+    return c;
+  }
+}
@@ -0,0 +1,272 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.TagConfig;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Keeps the posts of every tag in time order and answers multi tag queries, newest first, by
+ * merging the timelines of the tags instead of filtering on the exploding tags index.
+ *
+ * <p>A {@link TagTimeline} splits the posts of a tag into {@link TagPostingChunk}s by creation
+ * time. Writers mark changed posts on a pull queue and {@link UpdateTagPostingsServlet} applies
+ * the changes in the background. Queries walk the chunks of each tag from the newest, loading a
+ * chunk only when the walk reaches it, and either intersect or merge the walks.
+ */
+@NoArgsConstructor(staticName = "create")
+public class TagPostingService {
+
+  static final String TAG_POSTING_DIRTY_QUEUE = "tag-posting-dirty-queue";
+
+  static final int LOAD_BATCH_SIZE = 500;
+
+  public static String normalize(String tag) {
+    return tag.trim().toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Marks the given post for reindexing under its current tags. Must be called inside the
+   * transaction that saves or deletes it.
+   *
+   * @param post the post, as last saved
+   * @param droppedTags the tags the post no longer has, all of them if it is deleted
+   */
+  public void markDirty(PostEntity post, Collection<String> droppedTags) {
+    Queue queue = QueueFactory.getQueue(TAG_POSTING_DIRTY_QUEUE);
+
+    List<String> lines = Lists.newArrayList(post.getKey().toWebSafeString(),
+        String.valueOf(post.getCreated().getMillis()));
+    lines.addAll(droppedTags);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .payload(Joiner.on('\n').join(lines).getBytes(Charsets.UTF_8)));
+  }
+
+  /**
+   * Schedules an update pass at the end of the current window.
+   */
+  public void scheduleUpdate() {
+    UpdateTagPostingsServlet.addToQueue();
+  }
+
+  /**
+   * Lists the posts of the given tags, newest first.
+   *
+   * @param tags the tags
+   * @param match whether a post needs all or any of the tags
+   * @param after the last posting of the previous page, null for the first page
+   * @param limit the page size
+   * @return the postings
+   */
+  public List<TagPosting> list(Collection<String> tags, TagMatch match,
+      @Nullable TagPosting after, int limit) {
+    List<String> names = Ix
+        .from(ImmutableSortedSet.copyOf(Ix.from(tags).map(TagPostingService::normalize)))
+        .filter(name -> !name.isEmpty())
+        .take(TagConfig.MAX_QUERY_TAGS)
+        .toList();
+
+    if (names.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    Map<Key<TagTimeline>, TagTimeline> timelines =
+        ofy().load().keys(Ix.from(names).map(TagTimeline::createKey).toList());
+
+    if (match == TagMatch.ALL && timelines.size() < names.size()) {
+      return Collections.emptyList();
+    }
+
+    final TagPosting start = after == null ? TagPosting.LATEST : after;
+
+    ChunkLoader loader = new ChunkLoader();
+    loader.prefetch(Ix.from(timelines.values())
+        .map(timeline -> timeline.chunkKey(timeline.chunkAt(start.getCreated())))
+        .toList());
+
+    List<Walk> walks = Lists.newArrayListWithCapacity(timelines.size());
+    for (TagTimeline timeline : timelines.values()) {
+      Walk walk = new Walk(timeline, loader);
+      walk.seek(start);
+      if (after != null && after.equals(walk.current())) {
+        walk.next();
+      }
+      walks.add(walk);
+    }
+
+    return match == TagMatch.ALL ? intersect(walks, limit) : union(walks, limit);
+  }
+
+  private static List<TagPosting> intersect(List<Walk> walks, int limit) {
+    List<TagPosting> postings = Lists.newArrayListWithCapacity(limit);
+
+    while (postings.size() < limit) {
+      // No common posting is newer than the oldest head.
+      TagPosting target = null;
+      for (Walk walk : walks) {
+        if (walk.current() == null) {
+          return postings;
+        }
+        if (target == null || walk.current().compareTo(target) < 0) {
+          target = walk.current();
+        }
+      }
+
+      boolean matched = true;
+      for (Walk walk : walks) {
+        walk.seek(target);
+        matched &= target.equals(walk.current());
+      }
+
+      if (matched) {
+        postings.add(target);
+        for (Walk walk : walks) {
+          walk.next();
+        }
+      }
+    }
+    return postings;
+  }
+
+  private static List<TagPosting> union(List<Walk> walks, int limit) {
+    List<TagPosting> postings = Lists.newArrayListWithCapacity(limit);
+
+    while (postings.size() < limit) {
+      TagPosting newest = null;
+      for (Walk walk : walks) {
+        if (walk.current() != null
+            && (newest == null || walk.current().compareTo(newest) > 0)) {
+          newest = walk.current();
+        }
+      }
+
+      if (newest == null) {
+        break;
+      }
+
+      postings.add(newest);
+      for (Walk walk : walks) {
+        if (newest.equals(walk.current())) {
+          walk.next();
+        }
+      }
+    }
+    return postings;
+  }
+
+  static <T> Map<Key<T>, T> load(Collection<Key<T>> keys) {
+    Map<Key<T>, T> entities = Maps.newHashMapWithExpectedSize(keys.size());
+    for (List<Key<T>> batch : Lists.partition(Lists.newArrayList(keys), LOAD_BATCH_SIZE)) {
+      entities.putAll(ofy().load().keys(batch));
+    }
+    return entities;
+  }
+
+  /**
+   * Decodes each chunk once per query.
+   */
+  private static final class ChunkLoader {
+    private final Map<Key<TagPostingChunk>, TagPostingList> chunks = Maps.newHashMap();
+
+    void prefetch(List<Key<TagPostingChunk>> keys) {
+      Map<Key<TagPostingChunk>, TagPostingChunk> loaded = ofy().load().keys(keys);
+      for (Key<TagPostingChunk> key : keys) {
+        TagPostingChunk chunk = loaded.get(key);
+        chunks.put(key, TagPostingList.decode(chunk == null ? null : chunk.getPostings()));
+      }
+    }
+
+    TagPostingList get(Key<TagPostingChunk> key) {
+      TagPostingList postings = chunks.get(key);
+      if (postings == null) {
+        prefetch(Collections.singletonList(key));
+        postings = chunks.get(key);
+      }
+      return postings;
+    }
+  }
+
+  /**
+   * A newest first walk over the timeline of one tag.
+   *
+   * <p>Only the postings inside the range of a chunk are visited. While a chunk is split, its
+   * newer half may still be in the old chunk as well.
+   */
+  private static final class Walk {
+    private final TagTimeline timeline;
+    private final ChunkLoader loader;
+
+    private int chunk;
+    private TagPostingList postings;
+    private int pos;
+    private TagPosting current;
+
+    Walk(TagTimeline timeline, ChunkLoader loader) {
+      this.timeline = timeline;
+      this.loader = loader;
+      this.chunk = timeline.size();
+      this.current = TagPosting.LATEST;
+    }
+
+    @Nullable
+    TagPosting current() {
+      return current;
+    }
+
+    /**
+     * Moves to the newest posting that is not newer than the given one.
+     */
+    void seek(TagPosting target) {
+      if (current == null || (postings != null && current.compareTo(target) <= 0)) {
+        return;
+      }
+
+      final int c = Math.min(chunk, timeline.chunkAt(target.getCreated()));
+      if (c != chunk) {
+        chunk = c;
+        postings = loader.get(timeline.chunkKey(chunk));
+      }
+      pos = postings.floor(target, timeline.upperBound(chunk));
+      settle();
+    }
+
+    /**
+     * Moves to the next older posting.
+     */
+    void next() {
+      if (current == null) {
+        return;
+      }
+      pos--;
+      settle();
+    }
+
+    private void settle() {
+      while (pos < 0 && chunk > 0) {
+        chunk--;
+        postings = loader.get(timeline.chunkKey(chunk));
+        pos = postings.floor(TagPosting.LATEST, timeline.upperBound(chunk));
+      }
+      current = pos < 0 ? null : postings.get(pos);
+    }
+  }
+}
@@ -1,9 +1,81 @@
 package com.yoloo.backend.tag;
 
+import com.yoloo.backend.util.ZScore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import lombok.AllArgsConstructor;
 
+/**
+ * Scores tag usage against the decayed history of the tag. Each time bucket is one observation,
+ * so a tag is trending when it is used much more than it usually is, not when it is popular.
+ */
+@AllArgsConstructor(staticName = "create")
 public class TagRanker {
+
   // The rate at which the historic data's effect will diminish
-  private float decay;
-  private List<Tag> population;
+  private final double decay;
+
+  /**
+   * Scores the usage of a tag in a bucket, then folds the usage into its statistics. Buckets
+   * since the last observation count as zero usage. Usage of a bucket older than the last one is
+   * folded into the last one.
+   *
+   * @param trend the statistics of the tag, null if it was never used
+   * @param tagName the tag name
+   * @param bucket the bucket
+   * @param usage the usage of the tag in the bucket
+   * @return the new statistics of the tag
+   */
+  public TagTrend rank(@Nullable TagTrend trend, String tagName, long bucket, int usage) {
+    final ZScore zScore = trend == null
+        ? new ZScore(decay, 0.0D, 0.0D)
+        : new ZScore(decay, trend.getAvg(), trend.getSqrAvg());
+
+    final long last = trend == null ? bucket - 1 : trend.getBucket();
+
+    zScore.skip((int) Math.min(Math.max(bucket - last - 1, 0L), Integer.MAX_VALUE));
+
+    final double score = zScore.getScore(usage);
+    zScore.update(usage);
+
+    return TagTrend.builder()
+        .id(tagName)
+        .avg(zScore.getAvg())
+        .sqrAvg(zScore.getSqrAvg())
+        .bucket(Math.max(bucket, last))
+        .score(score)
+        .build();
+  }
+
+  /**
+   * Selects the highest scored trends with a positive score.
+   *
+   * @param trends the candidates
+   * @param limit the maximum number of trends
+   * @return the top trends, highest score first
+   */
+  public List<TagTrend> top(Collection<TagTrend> trends, int limit) {
+    final Comparator<TagTrend> byScore = Comparator.comparingDouble(TagTrend::getScore);
+
+    PriorityQueue<TagTrend> heap = new PriorityQueue<>(limit + 1, byScore);
+
+    for (TagTrend trend : trends) {
+      if (trend.getScore() > 0.0D) {
+        heap.add(trend);
+
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      }
+    }
+
+    List<TagTrend> top = new ArrayList<>(heap);
+    top.sort(Collections.reverseOrder(byScore));
+    return top;
+  }
 }
@@ -1,40 +1,82 @@
 package com.yoloo.backend.tag;
 
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
 import ix.Ix;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.extern.java.Log;
+import org.joda.time.DateTime;
 
 import static com.yoloo.backend.OfyService.ofy;
 
 @Log
 public class TagService {
 
+  private final TagTrendService tagTrendService = TagTrendService.create();
+
+  private final TagShardService tagShardService = TagShardService.create();
+
+  /**
+   * Creates the given tags that do not exist yet. Existing tags are not written, their post counts
+   * are kept in shards, see {@link #updateCounters(Collection)}.
+   *
+   * @param tagNames the tag names of the post
+   * @return the new tags to save, outside the post transaction as they are root entities
+   */
   public List<Tag> updateTags(Collection<String> tagNames) {
-    List<Tag> persistentTags = Ix
-        .from(tagNames)
-        .map(Tag::createKey)
-        .collectToList()
-        .flatMap(keys -> Ix.from(ofy().load().keys(keys).values()))
-        .map(tag -> tag.withPostCount(tag.getPostCount() + 1))
-        .toList();
-
-    List<String> persistentTagsAsNames = Ix.from(persistentTags).map(Tag::getName).toList();
-
-    return Ix
-        .from(tagNames)
-        .filter(s -> !persistentTagsAsNames.contains(s))
-        .collectToList()
-        .filter(strings -> !strings.isEmpty())
-        .flatMap(Ix::from)
-        .map(tagName -> Tag
+    Set<String> names = new LinkedHashSet<>(tagNames);
+
+    Map<Key<Tag>, Tag> persistentTags =
+        ofy().load().keys(Ix.from(names).map(Tag::createKey).toList());
+
+    List<Tag> newTags = Lists.newArrayListWithCapacity(names.size() - persistentTags.size());
+    for (String name : names) {
+      if (!persistentTags.containsKey(Tag.createKey(name))) {
+        newTags.add(Tag
             .builder()
-            .id(Tag.createKey(tagName).getName())
-            .name(tagName)
+            .id(Tag.createKey(name).getName())
+            .name(name)
             .rank(0.0D)
             .postCount(1L)
-            .build())
-        .mergeWith(persistentTags)
-        .toList();
+            .created(DateTime.now())
+            .build());
+      }
+    }
+
+    return newTags;
+  }
+
+  /**
+   * Records the use of the given tags for trending. Call it after the post is committed, a post
+   * that fails to save is not counted.
+   *
+   * @param tagNames the tag names of the post
+   */
+  public void recordUsage(Collection<String> tagNames) {
+    tagTrendService.recordUsage(tagNames);
+  }
+
+  /**
+   * Counts a new post for each of the given tags. Call it inside the transaction that saves the
+   * post, then {@link #scheduleAggregation(Collection)} after it commits.
+   *
+   * @param tagNames the tag names of the post
+   * @return the tag shards to save
+   */
+  public Collection<TagShard> updateCounters(Collection<String> tagNames) {
+    return tagShardService.updateShards(new LinkedHashSet<>(tagNames));
+  }
+
+  /**
+   * Folds the tag shards into the post counts of the given tags in the background.
+   *
+   * @param tagNames the tag names of the post
+   */
+  public void scheduleAggregation(Collection<String> tagNames) {
+    tagShardService.scheduleAggregation(new LinkedHashSet<>(tagNames));
   }
 }
@@ -1,14 +1,13 @@
 package com.yoloo.backend.tag;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Ref;
-import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.config.ShardConfig;
 import com.yoloo.backend.shard.ShardUtil;
 import com.yoloo.backend.shard.Shardable;
 import io.reactivex.Observable;
-import ix.Ix;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -76,35 +75,63 @@ public class TagShardService implements Shardable<TagShard, Tag> {
   }
 
   @Override public Observable<Tag> mergeShards(Tag entity) {
-    /*return Observable.fromIterable(entity.getShards())
-        .cast(TagShard.class)
-        .reduce((s1, s2) -> s1.addValues(s2.getPosts()))
-        .map(s -> entity.withPostCount(s.getPosts()))
-        .toObservable();*/
-    return null;
+    return Observable.fromCallable(() -> entity.withPostCount(countPosts(entity.getKey())));
   }
 
-  public Collection<TagShard> updateShards(Iterable<String> tagNames) {
-    Query<Tag> query = ofy().load().type(Tag.class);
+  /**
+   * Sums the post counts of all shards of the given tag. Shards are created on first use, so
+   * missing ones count as zero.
+   *
+   * @param tagKey the tag key
+   * @return the post count
+   */
+  public long countPosts(Key<Tag> tagKey) {
+    long posts = 0L;
+    for (TagShard shard : ofy().load().keys(createShardMapWithKey(tagKey).keySet()).values()) {
+      posts += shard.getPosts();
+    }
+    return posts;
+  }
 
+  /**
+   * Increases the post count of a random shard of each given tag. Call it inside the transaction
+   * that saves the returned shards, concurrent posts to a tag then contend on one of its
+   * {@link TagShard#SHARD_COUNT} shards instead of the tag itself.
+   *
+   * @param tagNames the distinct tag names
+   * @return the shards to save
+   */
+  public Collection<TagShard> updateShards(Collection<String> tagNames) {
+    Map<Key<TagShard>, Key<Tag>> shardKeys = Maps.newHashMapWithExpectedSize(tagNames.size());
     for (String name : tagNames) {
-      query = query.filter(Tag.FIELD_NAME + " =", name);
+      final Key<Tag> tagKey = Tag.createKey(name);
+      shardKeys.put(getRandomShardKey(tagKey), tagKey);
     }
 
-    List<Key<Tag>> tagKeys = query.keys().list();
-
-    List<Key<TagShard>> tagShardKeys = Lists.newArrayListWithCapacity(tagKeys.size());
-    tagShardKeys.addAll(Ix.from(tagKeys).map(this::getRandomShardKey).toList());
+    Map<Key<TagShard>, TagShard> shardMap = ofy().load().keys(shardKeys.keySet());
 
-    Map<Key<TagShard>, TagShard> tagShardMap = ofy().load().keys(tagShardKeys);
-
-    for (Map.Entry<Key<TagShard>, TagShard> entry : tagShardMap.entrySet()) {
-      TagShard shard = entry.getValue();
+    List<TagShard> shards = Lists.newArrayListWithCapacity(shardKeys.size());
+    for (Key<TagShard> shardKey : shardKeys.keySet()) {
+      TagShard shard = shardMap.get(shardKey);
+      if (shard == null) {
+        shard = TagShard.builder().id(shardKey.getName()).posts(0L).build();
+      }
       shard.increasePosts();
-
-      tagShardMap.put(entry.getKey(), shard);
+      shards.add(shard);
     }
 
-    return tagShardMap.values();
+    return shards;
+  }
+
+  /**
+   * Schedules a fold of the shards of the given tags into their post counts at the end of the
+   * current aggregation window.
+   *
+   * @param tagNames the tag names
+   */
+  public void scheduleAggregation(Collection<String> tagNames) {
+    for (String name : tagNames) {
+      AggregateTagCounterServlet.addToQueue(name);
+    }
   }
 }
@@ -0,0 +1,92 @@
+package com.yoloo.backend.tag;
+
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import java.util.Collections;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * The chunks holding the posts of a tag, oldest first. Chunk {@code i} owns the posts created
+ * from {@code lowerBounds[i]} up to, but not including, {@code lowerBounds[i + 1]}.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class TagTimeline {
+
+  @Id private String id;
+
+  @NonFinal private List<Long> chunkIds;
+
+  /**
+   * Creation time of the oldest post each chunk may hold.
+   */
+  @NonFinal private List<Long> lowerBounds;
+
+  public static Key<TagTimeline> createKey(String tag) {
+    return Key.create(TagTimeline.class, tag);
+  }
+
+  public static TagTimeline create(String tag) {
+    return TagTimeline.builder()
+        .id(tag)
+        .chunkIds(Lists.newArrayList(0L))
+        .lowerBounds(Lists.newArrayList(Long.MIN_VALUE))
+        .build();
+  }
+
+  public int size() {
+    return chunkIds.size();
+  }
+
+  public Key<TagPostingChunk> chunkKey(int index) {
+    return TagPostingChunk.createKey(id, chunkIds.get(index));
+  }
+
+  /**
+   * Index of the chunk owning the given time.
+   *
+   * @param created the creation time of a post
+   * @return the chunk index
+   */
+  public int chunkAt(long created) {
+    final int pos = Collections.binarySearch(lowerBounds, created);
+    return pos >= 0 ? pos : -pos - 2;
+  }
+
+  /**
+   * Exclusive upper bound of the creation times owned by the given chunk.
+   *
+   * @param index the chunk index
+   * @return the bound
+   */
+  public long upperBound(int index) {
+    return index + 1 < lowerBounds.size() ? lowerBounds.get(index + 1) : Long.MAX_VALUE;
+  }
+
+  /**
+   * Hands the newer part of a chunk over to a new chunk.
+   *
+   * @param index the chunk index
+   * @param bound the creation time of the oldest post of the new chunk
+   * @return the key of the new chunk
+   */
+  public Key<TagPostingChunk> split(int index, long bound) {
+    final long chunkId = chunkIds.size();
+    chunkIds.add(index + 1, chunkId);
+    lowerBounds.add(index + 1, bound);
+    return TagPostingChunk.createKey(id, chunkId);
+  }
+}
@@ -0,0 +1,47 @@
+package com.yoloo.backend.tag;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Decayed usage statistics of a tag, as kept by {@link TagRanker}.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class TagTrend {
+
+  /**
+   * Name of the tag.
+   */
+  @Id private String id;
+
+  @NonFinal private double avg;
+
+  @NonFinal private double sqrAvg;
+
+  /**
+   * The last bucket folded into the averages.
+   */
+  @NonFinal private long bucket;
+
+  /**
+   * Z-score of the usage in {@link #bucket}.
+   */
+  @NonFinal private double score;
+
+  public static Key<TagTrend> createKey(String tagName) {
+    return Key.create(TagTrend.class, tagName);
+  }
+}
@@ -0,0 +1,91 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.yoloo.backend.config.TagConfig;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Streaming trending tag engine.
+ *
+ * <p>Tag usage is appended to a pull queue, tagged with its time bucket. Once a bucket is over,
+ * {@link UpdateTagServlet} counts its usage and scores only the tags used in it, plus the ones in
+ * the current snapshot, with {@link TagRanker}. Readers get the {@link TrendingTags} snapshot, the
+ * Tag kind is never scanned.
+ */
+@NoArgsConstructor(staticName = "create")
+public class TagTrendService {
+
+  static final String TAG_USAGE_QUEUE = "tag-usage-queue";
+
+  static final String TAG_SEPARATOR = ",";
+
+  public static long getBucket(long millis) {
+    return millis / TimeUnit.MINUTES.toMillis(TagConfig.TREND_BUCKET_MINUTES);
+  }
+
+  public static long getBucketEnd(long bucket) {
+    return (bucket + 1) * TimeUnit.MINUTES.toMillis(TagConfig.TREND_BUCKET_MINUTES);
+  }
+
+  /**
+   * Records one use of each given tag in the current bucket.
+   *
+   * @param tagNames the tag names
+   */
+  public void recordUsage(Collection<String> tagNames) {
+    if (tagNames.isEmpty()) {
+      return;
+    }
+
+    final long bucket = getBucket(System.currentTimeMillis());
+
+    Queue queue = QueueFactory.getQueue(TAG_USAGE_QUEUE);
+
+    queue.add(TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .tag(String.valueOf(bucket))
+        .payload(Joiner.on(TAG_SEPARATOR).join(tagNames).getBytes(Charsets.UTF_8)));
+
+    UpdateTagServlet.addToQueue(bucket);
+  }
+
+  /**
+   * Gets the trending tags of the last scored bucket. Their rank is their trend score.
+   *
+   * @param limit the maximum number of tags
+   * @return the trending tags, highest score first
+   */
+  public List<Tag> getTrendingTags(int limit) {
+    TrendingTags snapshot = ofy().load().key(TrendingTags.createKey()).now();
+
+    if (snapshot == null || snapshot.getNames() == null) {
+      return Collections.emptyList();
+    }
+
+    final int size = Math.min(limit, snapshot.getNames().size());
+    List<Tag> tags = Lists.newArrayListWithCapacity(size);
+
+    for (int i = 0; i < size; i++) {
+      final String name = snapshot.getNames().get(i);
+
+      tags.add(Tag.builder()
+          .id(Tag.createKey(name).getName())
+          .name(name)
+          .rank(snapshot.getScores().get(i))
+          .build());
+    }
+
+    return tags;
+  }
+}
@@ -0,0 +1,46 @@
+package com.yoloo.backend.tag;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Cache;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Snapshot of the top trending tags, rewritten after every trend pass.
+ */
+@Entity
+@Cache
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class TrendingTags {
+
+  private static final String LATEST = "latest";
+
+  @Id private String id;
+
+  @NonFinal private long bucket;
+
+  /**
+   * Tag names, highest score first.
+   */
+  @NonFinal private List<String> names;
+
+  @NonFinal private List<Double> scores;
+
+  public static Key<TrendingTags> createKey() {
+    return Key.create(TrendingTags.class, LATEST);
+  }
+
+  public static TrendingTags.TrendingTagsBuilder latest() {
+    return builder().id(LATEST);
+  }
+}
@@ -0,0 +1,245 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.TagConfig;
+import com.yoloo.backend.post.PostEntity;
+import ix.Ix;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.Value;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Updates the tag timelines for the posts marked dirty by {@link TagPostingService}.
+ *
+ * <p>Tasks are named after the update window and the queue runs one at a time, so this servlet is
+ * the only writer of the timelines. A post is put under its current tags and removed from the
+ * tags it dropped, both idempotent, so a failed pass is simply repeated. A chunk holding more
+ * than {@link TagConfig#TAG_POSTING_CHUNK_CAPACITY} posts hands its newer half to a new chunk;
+ * the new chunk is saved before the timeline pointing to it, and the old chunk after, so readers
+ * always find every post.
+ */
+@Log
+public class UpdateTagPostingsServlet extends HttpServlet {
+
+  private static final String TAG_POSTING_QUEUE = "tag-posting-queue";
+  private static final String URL = "/tasks/tag/postings";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  private static final long MAX_SAVE_BATCH_BYTES = 4L * 1024L * 1024L;
+
+  public static void addToQueue() {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(TagConfig.TAG_POSTING_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(TAG_POSTING_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("postings-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS));
+    } catch (TaskAlreadyExistsException e) {
+      // Another change in this window already scheduled the pass.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    Queue queue = QueueFactory.getQueue(TagPostingService.TAG_POSTING_DIRTY_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasks(TagConfig.TAG_POSTING_LEASE_SECONDS,
+        TimeUnit.SECONDS, TagConfig.TAG_POSTING_BATCH_SIZE);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    Map<Key<PostEntity>, Long> created = Maps.newLinkedHashMap();
+    Map<Key<PostEntity>, Set<String>> dropped = Maps.newHashMap();
+    for (TaskHandle task : tasks) {
+      List<String> lines =
+          Splitter.on('\n').splitToList(new String(task.getPayload(), Charsets.UTF_8));
+      Key<PostEntity> postKey = Key.create(lines.get(0));
+
+      created.put(postKey, Long.parseLong(lines.get(1)));
+      Set<String> tags = dropped.computeIfAbsent(postKey, key -> Sets.newHashSet());
+      for (String tag : lines.subList(2, lines.size())) {
+        tags.add(TagPostingService.normalize(tag));
+      }
+    }
+
+    final int changes = update(created, dropped);
+
+    queue.deleteTask(tasks);
+
+    // More posts are waiting than a single lease returns.
+    if (tasks.size() == TagConfig.TAG_POSTING_BATCH_SIZE) {
+      QueueFactory.getQueue(TAG_POSTING_QUEUE).add(TaskOptions.Builder.withUrl(URL));
+    }
+
+    log.info("Updated " + created.size() + " posts, " + changes + " tag posting changes");
+  }
+
+  private int update(Map<Key<PostEntity>, Long> created,
+      Map<Key<PostEntity>, Set<String>> dropped) {
+    // Posts deleted since they were marked are missing, they are removed from every tag.
+    Map<Key<PostEntity>, PostEntity> posts = TagPostingService.load(created.keySet());
+
+    Map<String, List<Change>> changesByTag = Maps.newHashMap();
+    for (Map.Entry<Key<PostEntity>, Long> entry : created.entrySet()) {
+      final Key<PostEntity> postKey = entry.getKey();
+      final PostEntity post = posts.get(postKey);
+      final TagPosting posting =
+          new TagPosting(entry.getValue(), postKey.getParent().getId(), postKey.getId());
+
+      Set<String> tags = Sets.newHashSet();
+      if (post != null && post.getTags() != null) {
+        for (String tag : post.getTags()) {
+          tags.add(TagPostingService.normalize(tag));
+        }
+      }
+
+      for (String tag : tags) {
+        changesByTag.computeIfAbsent(tag, t -> Lists.newArrayList())
+            .add(new Change(posting, true));
+      }
+      for (String tag : Sets.difference(dropped.get(postKey), tags)) {
+        changesByTag.computeIfAbsent(tag, t -> Lists.newArrayList())
+            .add(new Change(posting, false));
+      }
+    }
+
+    Map<Key<TagTimeline>, TagTimeline> timelines = TagPostingService.load(
+        Ix.from(changesByTag.keySet()).map(TagTimeline::createKey).toList());
+
+    Set<Key<TagPostingChunk>> chunkKeys = Sets.newHashSet();
+    for (Map.Entry<String, List<Change>> entry : changesByTag.entrySet()) {
+      final TagTimeline timeline = timelines.computeIfAbsent(TagTimeline.createKey(entry.getKey()),
+          key -> TagTimeline.create(entry.getKey()));
+      for (Change change : entry.getValue()) {
+        chunkKeys.add(timeline.chunkKey(timeline.chunkAt(change.getPosting().getCreated())));
+      }
+    }
+
+    Map<Key<TagPostingChunk>, TagPostingList> chunks = decode(chunkKeys);
+    Map<Key<TagPostingChunk>, TagPostingList> splitChunks = Maps.newHashMap();
+    int changes = 0;
+
+    for (Map.Entry<String, List<Change>> entry : changesByTag.entrySet()) {
+      final TagTimeline timeline = timelines.get(TagTimeline.createKey(entry.getKey()));
+      final Set<Integer> touched = Sets.newHashSet();
+
+      for (Change change : entry.getValue()) {
+        final int index = timeline.chunkAt(change.getPosting().getCreated());
+        final TagPostingList postings = chunks.get(timeline.chunkKey(index));
+
+        if (change.isAdded() ? postings.put(change.getPosting())
+            : postings.remove(change.getPosting())) {
+          changes++;
+        }
+        touched.add(index);
+      }
+
+      // Newer chunks first, a split shifts the indexes after it.
+      List<Integer> indexes = Lists.newArrayList(touched);
+      indexes.sort(Collections.reverseOrder());
+      for (int index : indexes) {
+        split(timeline, index, chunks.get(timeline.chunkKey(index)), splitChunks);
+      }
+    }
+
+    save(splitChunks);
+    for (List<TagTimeline> batch : Lists.partition(
+        Lists.newArrayList(timelines.values()), TagPostingService.LOAD_BATCH_SIZE)) {
+      ofy().save().entities(batch).now();
+    }
+    save(chunks);
+
+    return changes;
+  }
+
+  /**
+   * Splits the given chunk until every part fits.
+   */
+  private void split(TagTimeline timeline, int index, TagPostingList postings,
+      Map<Key<TagPostingChunk>, TagPostingList> splitChunks) {
+    if (postings.size() <= TagConfig.TAG_POSTING_CHUNK_CAPACITY) {
+      return;
+    }
+
+    final int from = postings.splitPoint();
+    if (from < 0) {
+      return;
+    }
+
+    final long bound = postings.created(from);
+    final TagPostingList newer = postings.split(from);
+    final Key<TagPostingChunk> key = timeline.split(index, bound);
+    splitChunks.put(key, newer);
+
+    log.info("Split chunk " + index + " of tag " + timeline.getId() + " at " + bound);
+
+    split(timeline, index + 1, newer, splitChunks);
+    split(timeline, index, postings, splitChunks);
+  }
+
+  private Map<Key<TagPostingChunk>, TagPostingList> decode(Set<Key<TagPostingChunk>> keys) {
+    Map<Key<TagPostingChunk>, TagPostingChunk> loaded = TagPostingService.load(keys);
+
+    Map<Key<TagPostingChunk>, TagPostingList> chunks = Maps.newHashMapWithExpectedSize(keys.size());
+    for (Key<TagPostingChunk> key : keys) {
+      TagPostingChunk chunk = loaded.get(key);
+      chunks.put(key, TagPostingList.decode(chunk == null ? null : chunk.getPostings()));
+    }
+    return chunks;
+  }
+
+  private void save(Map<Key<TagPostingChunk>, TagPostingList> chunks) {
+    // Chunks are large, keep each put well below the request size limit.
+    List<TagPostingChunk> batch = Lists.newArrayList();
+    long batchBytes = 0L;
+    for (Map.Entry<Key<TagPostingChunk>, TagPostingList> entry : chunks.entrySet()) {
+      final byte[] postings = entry.getValue().encode();
+
+      if (!batch.isEmpty() && (batchBytes + postings.length > MAX_SAVE_BATCH_BYTES
+          || batch.size() == TagPostingService.LOAD_BATCH_SIZE)) {
+        ofy().save().entities(batch).now();
+        batch.clear();
+        batchBytes = 0L;
+      }
+      batch.add(TagPostingChunk.builder().id(entry.getKey().getName()).postings(postings).build());
+      batchBytes += postings.length;
+    }
+    ofy().save().entities(batch).now();
+  }
+
+  @Value
+  private static class Change {
+    private TagPosting posting;
+    private boolean added;
+  }
+}
@@ -2,38 +2,127 @@ package com.yoloo.backend.tag;
 
 import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
 import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.config.TagConfig;
+import ix.Ix;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
 
 import static com.yoloo.backend.OfyService.ofy;
 
+/**
+ * Scores the tag usage of a finished bucket and rewrites the {@link TrendingTags} snapshot.
+ *
+ * <p>Tasks are named after the bucket and run once it is over. Usage records are leased until
+ * none is left, counted, and only deleted once the trends are saved; a pass that dies in between
+ * counts them again on retry. While tags are trending, the pass of the next bucket is scheduled
+ * even if no tag is used in it, so a quiet bucket cools them down instead of freezing the
+ * snapshot.
+ */
+@Log
 public class UpdateTagServlet extends HttpServlet {
 
-  private static final String UPDATE_TAG_COUNTER_QUEUE = "update-tag-queue";
+  private static final String UPDATE_TAG_QUEUE = "update-tag-queue";
   private static final String URL = "/tasks/update/tag";
 
-  public static void create() {
-    Queue queue = QueueFactory.getQueue(UPDATE_TAG_COUNTER_QUEUE);
-    queue.addAsync(TaskOptions.Builder.withUrl(URL));
+  private static final String BUCKET = "bucket";
+
+  private static final long GRACE_MILLIS = 5000L;
+
+  private final TagRanker tagRanker = TagRanker.create(TagConfig.TREND_DECAY);
+
+  public static void addToQueue(long bucket) {
+    Queue queue = QueueFactory.getQueue(UPDATE_TAG_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("trend-" + bucket)
+          .etaMillis(TagTrendService.getBucketEnd(bucket) + GRACE_MILLIS)
+          .param(BUCKET, String.valueOf(bucket)));
+    } catch (TaskAlreadyExistsException e) {
+      // Another use in this bucket, or the previous pass, already scheduled it.
+    }
   }
 
   @Override protected void doPost(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException {
+    updateTrends(Long.parseLong(req.getParameter(BUCKET)));
+  }
+
+  private void updateTrends(long bucket) {
+    Queue queue = QueueFactory.getQueue(TagTrendService.TAG_USAGE_QUEUE);
+
+    List<TaskHandle> tasks = Lists.newArrayList();
+    Map<String, Integer> usage = Maps.newHashMap();
+
+    List<TaskHandle> leased;
+    do {
+      leased = queue.leaseTasksByTag(TagConfig.TREND_LEASE_SECONDS, TimeUnit.SECONDS,
+          TagConfig.TREND_LEASE_BATCH_SIZE, String.valueOf(bucket));
+
+      for (TaskHandle task : leased) {
+        for (String tagName : Splitter.on(TagTrendService.TAG_SEPARATOR)
+            .omitEmptyStrings()
+            .split(new String(task.getPayload(), Charsets.UTF_8))) {
+          usage.merge(tagName, 1, Integer::sum);
+        }
+      }
+
+      tasks.addAll(leased);
+    } while (leased.size() == TagConfig.TREND_LEASE_BATCH_SIZE);
+
+    TrendingTags snapshot = ofy().load().key(TrendingTags.createKey()).now();
+
+    // Tags trending so far are scored too, a bucket without their use cools them down.
+    Set<String> tagNames = Sets.newHashSet(usage.keySet());
+    if (snapshot != null && snapshot.getNames() != null) {
+      tagNames.addAll(snapshot.getNames());
+    }
+
+    Map<Key<TagTrend>, TagTrend> stored =
+        ofy().load().keys(Ix.from(tagNames).map(TagTrend::createKey).toList());
+
+    List<TagTrend> trends = Lists.newArrayListWithCapacity(tagNames.size());
+    for (String tagName : tagNames) {
+      trends.add(tagRanker.rank(stored.get(TagTrend.createKey(tagName)), tagName, bucket,
+          usage.getOrDefault(tagName, 0)));
+    }
+
+    List<TagTrend> top = tagRanker.top(trends, TagConfig.TRENDING_TAG_LIMIT);
+
+    ofy().save().entities(trends).now();
+    ofy().save().entity(TrendingTags.latest()
+        .bucket(bucket)
+        .names(Ix.from(top).map(TagTrend::getId).toList())
+        .scores(Ix.from(top).map(TagTrend::getScore).toList())
+        .build()).now();
 
-    List<Tag> tags = ofy().load().type(Tag.class).list();
+    for (List<TaskHandle> batch : Lists.partition(tasks, TagConfig.TREND_LEASE_BATCH_SIZE)) {
+      queue.deleteTask(batch);
+    }
 
-    /*List<Tag> modified = Ix.from(tags)
-        .map(tag -> Stream.of(tag.getShards())
-            .reduce((s1, s2) -> s1.withPosts(s1.getPosts() + s2.getPosts()))
-            .map(shard -> tag.withPostCount(shard.getPosts()))
-            .get())
-        .toList();*/
+    if (!top.isEmpty()) {
+      addToQueue(bucket + 1);
+    }
 
-    //ofy().save().entities(modified);
+    log.info("Scored " + trends.size() + " tags of bucket " + bucket + " from " + tasks.size()
+        + " uses, " + top.size() + " trending");
   }
 }
@@ -0,0 +1,335 @@
+package com.yoloo.backend.util;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Result;
+import com.yoloo.backend.config.SearchConfig;
+import com.yoloo.backend.search.AutocompleteChunk;
+import com.yoloo.backend.search.AutocompleteSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.AllArgsConstructor;
+import lombok.extern.java.Log;
+import org.joda.time.DateTime;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * A per instance {@link PrefixIndex} over one kind.
+ *
+ * <p>The entries of every entity are read off the request path by {@link #build()}, run from
+ * cron every {@link SearchConfig#AUTOCOMPLETE_REBUILD_SECONDS}, and stored as an
+ * {@link AutocompleteSnapshot}. Instances load the latest snapshot as their base index as often.
+ * In between, entities created since the snapshot was built are loaded every
+ * {@link SearchConfig#AUTOCOMPLETE_REFRESH_SECONDS} into a small delta index that is searched
+ * alongside it. Loads and refreshes run on the request that finds the index stale, while other
+ * requests keep searching the current one.
+ */
+@Log
+public abstract class AutocompleteIndex {
+
+  private final ReentrantLock refreshLock = new ReentrantLock();
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Adds an entry for every entity of the kind. Only called by {@link #build()}.
+   *
+   * @param builder the builder
+   */
+  protected abstract void loadAll(PrefixIndex.Builder builder);
+
+  /**
+   * Adds an entry for every entity of the kind created at or after the given time.
+   *
+   * @param since the time
+   * @param builder the builder
+   */
+  protected abstract void loadSince(DateTime since, PrefixIndex.Builder builder);
+
+  /**
+   * Finds the heaviest entries starting with the given prefix.
+   *
+   * @param prefix the prefix
+   * @param limit the maximum number of entries to return
+   * @return the entries, heaviest first
+   */
+  public List<PrefixIndex.Entry> search(String prefix, int limit) {
+    Snapshot current = refresh();
+
+    List<PrefixIndex.Entry> recent = current.delta.search(prefix, limit);
+
+    if (recent.isEmpty()) {
+      return current.base.search(prefix, limit, current.deltaEntries::containsKey);
+    }
+
+    List<PrefixIndex.Entry> entries = Lists.newArrayList(
+        current.base.search(prefix, limit, current.deltaEntries::containsKey));
+    entries.addAll(recent);
+    entries.sort((e1, e2) -> {
+      final int byWeight = Long.compare(e2.getWeight(), e1.getWeight());
+      return byWeight != 0 ? byWeight : e1.getTerm().compareTo(e2.getTerm());
+    });
+
+    return entries.size() > limit ? entries.subList(0, limit) : entries;
+  }
+
+  /**
+   * Makes an entity created on this instance searchable right away.
+   *
+   * @param term the term
+   * @param id the id
+   * @param weight the weight
+   */
+  public void add(String term, String id, long weight) {
+    refreshLock.lock();
+    try {
+      Snapshot current = snapshot;
+      if (current != null) {
+        snapshot = current.withDelta(
+            PrefixIndex.builder().addAll(current.deltaEntries.values()).add(term, id, weight),
+            current.refreshed);
+      }
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Reads the entries of every entity of the kind and stores them as the snapshot instances load,
+   * replacing the previous one.
+   */
+  public void build() {
+    final long built = System.currentTimeMillis();
+
+    PrefixIndex.Builder builder = PrefixIndex.builder();
+    loadAll(builder);
+    List<PrefixIndex.Entry> entries = builder.build().entries();
+
+    final String name = getClass().getSimpleName();
+    List<byte[]> encoded = encode(entries);
+
+    List<AutocompleteChunk> chunks = Lists.newArrayListWithCapacity(encoded.size());
+    for (int i = 0; i < encoded.size(); i++) {
+      chunks.add(AutocompleteChunk.builder()
+          .id(AutocompleteChunk.createKey(name, built, i).getName())
+          .entries(encoded.get(i))
+          .build());
+    }
+
+    // Chunks come close to the entity size limit, they are put one by one.
+    List<Result<Key<AutocompleteChunk>>> saved = Lists.newArrayListWithCapacity(chunks.size());
+    for (AutocompleteChunk chunk : chunks) {
+      saved.add(ofy().save().entity(chunk));
+    }
+    saved.forEach(Result::now);
+
+    AutocompleteSnapshot previous = ofy().load().key(AutocompleteSnapshot.createKey(name)).now();
+
+    ofy().save().entity(AutocompleteSnapshot.builder()
+        .id(name)
+        .built(built)
+        .chunkCount(chunks.size())
+        .build()).now();
+
+    // Instances still loading the previous snapshot find it gone and load the new one.
+    if (previous != null) {
+      List<Key<AutocompleteChunk>> previousKeys = Lists.newArrayList();
+      for (int i = 0; i < previous.getChunkCount(); i++) {
+        previousKeys.add(previous.chunkKey(i));
+      }
+      ofy().delete().keys(previousKeys).now();
+    }
+
+    log.info("Built " + name + " with " + entries.size() + " entries in " + chunks.size()
+        + " chunks");
+  }
+
+  /**
+   * Drops the index, the next search loads it.
+   */
+  public void clear() {
+    refreshLock.lock();
+    try {
+      snapshot = null;
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  private Snapshot refresh() {
+    Snapshot current = snapshot;
+    final long now = System.currentTimeMillis();
+
+    if (current != null && !current.isStale(now)) {
+      return current;
+    }
+
+    // Someone else is already refreshing, a slightly stale index is fine meanwhile.
+    if (current != null && !refreshLock.tryLock()) {
+      return current;
+    }
+    if (current == null) {
+      refreshLock.lock();
+    }
+
+    try {
+      current = snapshot;
+
+      if (current == null || current.isExpired(now)) {
+        current = load(now);
+      }
+
+      if (current.isStale(now)) {
+        PrefixIndex.Builder builder =
+            PrefixIndex.builder().addAll(current.deltaEntries.values());
+        loadSince(new DateTime(current.refreshed - TimeUnit.SECONDS.toMillis(
+            SearchConfig.AUTOCOMPLETE_REFRESH_OVERLAP_SECONDS)), builder);
+        current = current.withDelta(builder, now);
+      }
+
+      snapshot = current;
+      return current;
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Loads the latest stored snapshot as the base index. Without one, entities created during the
+   * last rebuild interval are left to the delta.
+   */
+  private Snapshot load(long now) {
+    final Key<AutocompleteSnapshot> snapshotKey =
+        AutocompleteSnapshot.createKey(getClass().getSimpleName());
+
+    AutocompleteSnapshot stored = ofy().load().key(snapshotKey).now();
+
+    if (stored == null) {
+      log.warning(getClass().getSimpleName() + " has not been built yet");
+      return new Snapshot(PrefixIndex.empty(), PrefixIndex.empty(), ImmutableMap.of(), now,
+          now - TimeUnit.SECONDS.toMillis(SearchConfig.AUTOCOMPLETE_REBUILD_SECONDS));
+    }
+
+    Collection<AutocompleteChunk> chunks = loadChunks(stored);
+
+    // A build replaced the snapshot and deleted its chunks meanwhile, load the new one.
+    if (chunks.size() < stored.getChunkCount()) {
+      ofy().clear();
+      stored = ofy().load().key(snapshotKey).now();
+      chunks = loadChunks(stored);
+    }
+
+    PrefixIndex.Builder builder = PrefixIndex.builder();
+    for (AutocompleteChunk chunk : chunks) {
+      builder.addAll(decode(chunk.getEntries()));
+    }
+
+    Snapshot loaded = new Snapshot(builder.build(), PrefixIndex.empty(), ImmutableMap.of(), now,
+        stored.getBuilt());
+    log.info("Loaded " + getClass().getSimpleName() + " with " + loaded.base.size() + " entries");
+    return loaded;
+  }
+
+  private static Collection<AutocompleteChunk> loadChunks(AutocompleteSnapshot stored) {
+    List<Key<AutocompleteChunk>> chunkKeys = Lists.newArrayList();
+    for (int i = 0; i < stored.getChunkCount(); i++) {
+      chunkKeys.add(stored.chunkKey(i));
+    }
+    return ofy().load().keys(chunkKeys).values();
+  }
+
+  /**
+   * Writes the entries as runs of terms, ids and weights, each run a little under
+   * {@link SearchConfig#AUTOCOMPLETE_CHUNK_BYTES}.
+   */
+  private static List<byte[]> encode(List<PrefixIndex.Entry> entries) {
+    List<byte[]> chunks = Lists.newArrayList();
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+
+      for (PrefixIndex.Entry entry : entries) {
+        out.writeUTF(entry.getTerm());
+        out.writeUTF(entry.getId());
+        out.writeLong(entry.getWeight());
+
+        if (bytes.size() >= SearchConfig.AUTOCOMPLETE_CHUNK_BYTES) {
+          chunks.add(bytes.toByteArray());
+          bytes.reset();
+        }
+      }
+
+      if (bytes.size() > 0) {
+        chunks.add(bytes.toByteArray());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return chunks;
+  }
+
+  private static List<PrefixIndex.Entry> decode(byte[] chunk) {
+    List<PrefixIndex.Entry> entries = Lists.newArrayList();
+
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk));
+      while (in.available() > 0) {
+        entries.add(new PrefixIndex.Entry(in.readUTF(), in.readUTF(), in.readLong()));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return entries;
+  }
+
+  @AllArgsConstructor
+  private static final class Snapshot {
+    private final PrefixIndex base;
+    private final PrefixIndex delta;
+    private final Map<String, PrefixIndex.Entry> deltaEntries;
+
+    /**
+     * When the base was loaded.
+     */
+    private final long loaded;
+
+    /**
+     * Entities created since this instant are not in the indexes yet.
+     */
+    private final long refreshed;
+
+    boolean isExpired(long now) {
+      return now - loaded >= TimeUnit.SECONDS.toMillis(SearchConfig.AUTOCOMPLETE_REBUILD_SECONDS);
+    }
+
+    boolean isStale(long now) {
+      return isExpired(now) || now - refreshed
+          >= TimeUnit.SECONDS.toMillis(SearchConfig.AUTOCOMPLETE_REFRESH_SECONDS);
+    }
+
+    Snapshot withDelta(PrefixIndex.Builder builder, long refreshed) {
+      PrefixIndex delta = builder.build();
+      Collection<PrefixIndex.Entry> entries = delta.entries();
+
+      ImmutableMap.Builder<String, PrefixIndex.Entry> deltaEntries = ImmutableMap.builder();
+      for (PrefixIndex.Entry entry : entries) {
+        deltaEntries.put(entry.getId(), entry);
+      }
+
+      return new Snapshot(base, delta, deltaEntries.build(), loaded, refreshed);
+    }
+  }
+}
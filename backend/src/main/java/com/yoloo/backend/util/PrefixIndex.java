@@ -0,0 +1,245 @@
+package com.yoloo.backend.util;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import javax.annotation.Nonnull;
+import lombok.Value;
+
+/**
+ * An immutable prefix index answering "the heaviest N entries whose term starts with q".
+ *
+ * <p>Entries are kept in sorted parallel arrays, the entries of a prefix form one contiguous range
+ * found by binary search. A segment tree over the weights gives the heaviest entry of any range in
+ * O(log n), so the top N of a range cost O(N log n) however many entries the prefix matches.
+ */
+public final class PrefixIndex {
+
+  private static final PrefixIndex EMPTY = new PrefixIndex(Collections.emptyList());
+
+  private final String[] terms;
+  private final String[] ids;
+  private final long[] weights;
+
+  /**
+   * Position of the heaviest entry under each node, leaves start at {@code terms.length}.
+   */
+  private final int[] tree;
+
+  private PrefixIndex(List<Entry> entries) {
+    final int n = entries.size();
+
+    terms = new String[n];
+    ids = new String[n];
+    weights = new long[n];
+
+    for (int i = 0; i < n; i++) {
+      Entry entry = entries.get(i);
+      terms[i] = entry.getTerm();
+      ids[i] = entry.getId();
+      weights[i] = entry.getWeight();
+    }
+
+    tree = new int[2 * n];
+    for (int i = 0; i < n; i++) {
+      tree[n + i] = i;
+    }
+    for (int i = n - 1; i > 0; i--) {
+      tree[i] = heavier(tree[2 * i], tree[2 * i + 1]);
+    }
+  }
+
+  public static PrefixIndex empty() {
+    return EMPTY;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Normalizes a term or a query, so both sides of a lookup are compared the same way.
+   *
+   * @param term the term
+   * @return the normalized term
+   */
+  public static String normalize(@Nonnull String term) {
+    return term.trim().toLowerCase(Locale.ENGLISH);
+  }
+
+  public int size() {
+    return terms.length;
+  }
+
+  public List<Entry> entries() {
+    List<Entry> entries = Lists.newArrayListWithCapacity(terms.length);
+    for (int i = 0; i < terms.length; i++) {
+      entries.add(new Entry(terms[i], ids[i], weights[i]));
+    }
+    return entries;
+  }
+
+  /**
+   * Finds the heaviest entries whose term starts with the given prefix. Ties are broken by term.
+   *
+   * @param prefix the prefix, normalized by the index
+   * @param limit the maximum number of entries to return
+   * @return the entries, heaviest first
+   */
+  public List<Entry> search(String prefix, int limit) {
+    return search(prefix, limit, null);
+  }
+
+  /**
+   * Finds the heaviest entries whose term starts with the given prefix, skipping the excluded ids.
+   * Skipped entries do not count towards the limit.
+   *
+   * @param prefix the prefix, normalized by the index
+   * @param limit the maximum number of entries to return
+   * @param excluded the ids to skip, may be null
+   * @return the entries, heaviest first
+   */
+  public List<Entry> search(String prefix, int limit, Predicate<String> excluded) {
+    prefix = normalize(prefix);
+
+    final int from = lowerBound(prefix);
+    final int to = prefixEnd(prefix, from);
+
+    if (from >= to || limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    // Each range is queued under its heaviest entry, popping one splits it around that entry.
+    PriorityQueue<int[]> ranges = new PriorityQueue<>(Math.min(2 * limit + 1, to - from),
+        (r1, r2) -> compare(r1[2], r2[2]));
+    ranges.add(new int[] {from, to, heaviest(from, to)});
+
+    List<Entry> entries = Lists.newArrayListWithCapacity(Math.min(limit, to - from));
+
+    while (!ranges.isEmpty() && entries.size() < limit) {
+      int[] range = ranges.poll();
+      final int pos = range[2];
+
+      if (excluded == null || !excluded.apply(ids[pos])) {
+        entries.add(new Entry(terms[pos], ids[pos], weights[pos]));
+      }
+
+      if (range[0] < pos) {
+        ranges.add(new int[] {range[0], pos, heaviest(range[0], pos)});
+      }
+      if (pos + 1 < range[1]) {
+        ranges.add(new int[] {pos + 1, range[1], heaviest(pos + 1, range[1])});
+      }
+    }
+
+    return entries;
+  }
+
+  private int lowerBound(String prefix) {
+    int lo = 0;
+    int hi = terms.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (terms[mid].compareTo(prefix) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private int prefixEnd(String prefix, int from) {
+    int lo = from;
+    int hi = terms.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (terms[mid].startsWith(prefix)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Heaviest position in [from, to).
+   */
+  private int heaviest(int from, int to) {
+    final int n = terms.length;
+    int best = from;
+    for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+      if ((l & 1) == 1) {
+        best = heavier(best, tree[l++]);
+      }
+      if ((r & 1) == 1) {
+        best = heavier(best, tree[--r]);
+      }
+    }
+    return best;
+  }
+
+  private int heavier(int i, int j) {
+    return compare(i, j) <= 0 ? i : j;
+  }
+
+  /**
+   * Orders positions heaviest first, then by term.
+   */
+  private int compare(int i, int j) {
+    final int byWeight = Long.compare(weights[j], weights[i]);
+    return byWeight != 0 ? byWeight : Integer.compare(i, j);
+  }
+
+  @Value
+  public static class Entry {
+    private String term;
+    private String id;
+    private long weight;
+  }
+
+  public static final class Builder {
+
+    private final Map<String, Entry> entries = Maps.newHashMap();
+
+    private Builder() {
+    }
+
+    /**
+     * Adds an entry, replacing an earlier one with the same id.
+     *
+     * @param term the term
+     * @param id the id
+     * @param weight the weight
+     * @return the builder
+     */
+    public Builder add(String term, String id, long weight) {
+      if (term != null) {
+        entries.put(id, new Entry(normalize(term), id, weight));
+      }
+      return this;
+    }
+
+    public Builder addAll(Collection<Entry> entries) {
+      for (Entry entry : entries) {
+        this.entries.put(entry.getId(), entry);
+      }
+      return this;
+    }
+
+    public PrefixIndex build() {
+      Entry[] sorted = entries.values().toArray(new Entry[entries.size()]);
+      Arrays.sort(sorted, Comparator.comparing(Entry::getTerm).thenComparing(Entry::getId));
+      return new PrefixIndex(Arrays.asList(sorted));
+    }
+  }
+}
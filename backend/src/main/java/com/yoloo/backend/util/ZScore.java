@@ -17,7 +17,16 @@ public final class ZScore {
     }
   }
 
-  private void update(int value) {
+  /**
+   * Resumes from averages kept by an earlier instance, so a series can be scored incrementally.
+   */
+  public ZScore(double decay, double avg, double sqrAvg) {
+    this.decay = decay;
+    this.avg = avg;
+    this.sqrAvg = sqrAvg;
+  }
+
+  public void update(int value) {
     if (avg == 0 && sqrAvg == 0) {
       // Set initial averages to the first value in the sequence.
       avg = (double) value;
@@ -29,9 +38,20 @@ public final class ZScore {
     }
   }
 
+  /**
+   * Same as updating with the given number of zero values, in constant time.
+   */
+  public void skip(int periods) {
+    if (periods > 0) {
+      final double factor = Math.pow(decay, periods);
+      avg *= factor;
+      sqrAvg *= factor;
+    }
+  }
+
   private double standard() {
     // Somewhat ad-hoc standard deviation calculation.
-    return Math.sqrt(sqrAvg - Math.pow(avg, 2));
+    return Math.sqrt(Math.max(sqrAvg - Math.pow(avg, 2), 0));
   }
 
   public double getScore(int obs) {
@@ -42,4 +62,12 @@ public final class ZScore {
       return (obs - avg) / standard;
     }
   }
+
+  public double getAvg() {
+    return avg;
+  }
+
+  public double getSqrAvg() {
+    return sqrAvg;
+  }
 }
@@ -0,0 +1,213 @@
+package com.yoloo.backend.vote;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.comment.CommentShardService;
+import com.yoloo.backend.config.ShardConfig;
+import com.yoloo.backend.post.PostCounterService;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.post.PostRankService;
+import com.yoloo.backend.post.PostShardService;
+import com.yoloo.backend.shard.ShardCount;
+import com.yoloo.backend.shard.Shardable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Applies the vote deltas buffered by {@link VoteBuffer} for one voted entity.
+ *
+ * <p>Tasks are named after the entity and the flush window, so all votes of a window share one
+ * flush. Deltas are leased, summed, written to a single shard and only then deleted. The names of
+ * the applied deltas are saved in a {@link VoteFlushLog} in the same transaction as the shard, so
+ * deltas leased again after a flush died before the delete are skipped, not counted twice.
+ */
+@Log
+public class FlushVotesServlet extends HttpServlet {
+
+  private static final String FLUSH_VOTES_QUEUE = "flush-votes-queue";
+  private static final String URL = "/tasks/flush/votes";
+
+  private static final String VOTABLE_ID = "votableId";
+
+  private static final long GRACE_MILLIS = 1000L;
+
+  private final PostShardService postShardService = PostShardService.create();
+
+  private final CommentShardService commentShardService = CommentShardService.create();
+
+  private final PostCounterService postCounterService = PostCounterService.create();
+
+  private final PostRankService postRankService = PostRankService.create();
+
+  public static void addToQueue(@Nonnull String votableId) {
+    final long windowMillis = TimeUnit.SECONDS.toMillis(ShardConfig.VOTE_FLUSH_WINDOW_SECONDS);
+    final long now = System.currentTimeMillis();
+    final long window = now / windowMillis;
+
+    Queue queue = QueueFactory.getQueue(FLUSH_VOTES_QUEUE);
+
+    try {
+      queue.add(TaskOptions.Builder
+          .withUrl(URL)
+          .taskName("votes-" + votableId.replaceAll("[^a-zA-Z0-9_-]", "") + "-" + window)
+          .countdownMillis((window + 1) * windowMillis - now + GRACE_MILLIS)
+          .param(VOTABLE_ID, votableId));
+    } catch (TaskAlreadyExistsException e) {
+      // Another vote in this window already scheduled the flush.
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    flush(req.getParameter(VOTABLE_ID));
+  }
+
+  private void flush(String votableId) {
+    final Key<Votable> votableKey = Key.create(votableId);
+
+    Queue queue = QueueFactory.getQueue(VoteBuffer.VOTE_DELTA_QUEUE);
+
+    List<TaskHandle> tasks = queue.leaseTasksByTag(ShardConfig.VOTE_FLUSH_LEASE_SECONDS,
+        TimeUnit.SECONDS, ShardConfig.VOTE_FLUSH_BATCH_SIZE, votableId);
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    final long delta = applyDeltas(votableKey, tasks);
+
+    queue.deleteTask(tasks);
+
+    // More deltas are waiting than a single lease returns.
+    if (tasks.size() == ShardConfig.VOTE_FLUSH_BATCH_SIZE) {
+      QueueFactory.getQueue(FLUSH_VOTES_QUEUE)
+          .add(TaskOptions.Builder.withUrl(URL).param(VOTABLE_ID, votableId));
+    }
+
+    log.info("Flushed " + tasks.size() + " votes of " + votableId + ", delta: " + delta);
+  }
+
+  /**
+   * Applies the deltas not applied by an earlier flush to a shard of the voted entity.
+   *
+   * @return the applied delta
+   */
+  private long applyDeltas(Key<Votable> votableKey, List<TaskHandle> tasks) {
+    final boolean post = votableKey.getKind().equals(Key.getKind(PostEntity.class));
+
+    final Key<?> shardKey;
+    final int shardCount;
+
+    if (post) {
+      final Key<PostEntity> postKey = Key.create(votableKey.getRaw());
+      final Key<ShardCount> shardCountKey = ShardCount.createKey(postKey);
+
+      List<Key<Object>> keys =
+          ImmutableList.of(Key.create(postKey.getRaw()), Key.create(shardCountKey.getRaw()));
+      Map<Key<Object>, Object> fetched = ofy().load().keys(keys);
+
+      //noinspection SuspiciousMethodCalls
+      PostEntity postEntity = (PostEntity) fetched.get(postKey);
+      //noinspection SuspiciousMethodCalls
+      ShardCount stored = (ShardCount) fetched.get(shardCountKey);
+
+      if (postEntity == null) {
+        return 0L;
+      }
+
+      shardCount = postShardService.getShardCount(postEntity, stored);
+      shardKey = postShardService.getRandomShardKey(postKey, shardCount);
+    } else {
+      shardCount = ShardConfig.COMMENT_SHARD_COUNTER;
+      shardKey = commentShardService.getRandomShardKey(Key.create(votableKey.getRaw()));
+    }
+
+    final Key<VoteFlushLog> logKey = VoteFlushLog.createKey(votableKey);
+    final AtomicInteger attempts = new AtomicInteger();
+
+    final long delta = ofy().transact(() -> {
+      attempts.incrementAndGet();
+
+      List<Key<Object>> keys =
+          ImmutableList.of(Key.create(shardKey.getRaw()), Key.create(logKey.getRaw()));
+      Map<Key<Object>, Object> fetched = ofy().load().keys(keys);
+
+      //noinspection SuspiciousMethodCalls
+      Shardable.Shard shard = (Shardable.Shard) fetched.get(shardKey);
+      //noinspection SuspiciousMethodCalls
+      VoteFlushLog flushLog = (VoteFlushLog) fetched.get(logKey);
+
+      if (flushLog == null) {
+        flushLog = VoteFlushLog.builder().id(logKey.getName()).build();
+      }
+
+      final Set<String> applied = flushLog.getAppliedTaskNames() == null
+          ? Collections.emptySet()
+          : ImmutableSet.copyOf(flushLog.getAppliedTaskNames());
+
+      List<String> names = new ArrayList<>(tasks.size());
+      long sum = 0L;
+      for (TaskHandle task : tasks) {
+        if (!applied.contains(task.getName())) {
+          names.add(task.getName());
+          sum += Long.parseLong(new String(task.getPayload(), Charsets.UTF_8));
+        }
+      }
+
+      // Votable deleted since the votes were cast or every delta applied by a dead flush.
+      if (shard == null || names.isEmpty()) {
+        return 0L;
+      }
+
+      flushLog.markApplied(names);
+
+      if (sum != 0L) {
+        shard.increaseVotesBy(sum);
+        ofy().save().entities(shard, flushLog).now();
+
+        if (post) {
+          postRankService.markDirty(Key.create(votableKey.getRaw()));
+        }
+      } else {
+        ofy().save().entity(flushLog).now();
+      }
+
+      return sum;
+    });
+
+    if (post) {
+      final Key<PostEntity> postKey = Key.create(votableKey.getRaw());
+
+      if (attempts.get() > 1) {
+        postShardService.recordContention(postKey, shardCount);
+      }
+
+      postCounterService.scheduleAggregation(postKey);
+      postRankService.scheduleUpdate();
+    }
+
+    return delta;
+  }
+}
@@ -0,0 +1,48 @@
+package com.yoloo.backend.vote;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.common.base.Charsets;
+import com.googlecode.objectify.Key;
+import lombok.NoArgsConstructor;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Write-behind buffer of vote count deltas.
+ *
+ * <p>Each vote adds its delta to a pull queue, tagged with the voted entity, in the same
+ * transaction that saves the {@link Vote}. {@link FlushVotesServlet} later leases every delta of
+ * an entity and applies their sum to a single shard, so a burst of votes costs one shard write.
+ */
+@NoArgsConstructor(staticName = "create")
+public class VoteBuffer {
+
+  static final String VOTE_DELTA_QUEUE = "vote-delta-queue";
+
+  /**
+   * Buffers a vote count delta. Must be called inside the transaction that saves the vote.
+   *
+   * @param votableKey the voted entity
+   * @param delta the vote count delta
+   */
+  public void add(Key<? extends Votable> votableKey, long delta) {
+    Queue queue = QueueFactory.getQueue(VOTE_DELTA_QUEUE);
+
+    queue.add(ofy().getTransaction(), TaskOptions.Builder
+        .withMethod(TaskOptions.Method.PULL)
+        .tag(votableKey.toWebSafeString())
+        .payload(String.valueOf(delta).getBytes(Charsets.UTF_8)));
+  }
+
+  /**
+   * Schedules a flush of the buffered deltas of the given entity at the end of the current flush
+   * window.
+   *
+   * @param votableKey the voted entity
+   */
+  public void scheduleFlush(Key<? extends Votable> votableKey) {
+    FlushVotesServlet.addToQueue(votableKey.toWebSafeString());
+  }
+}
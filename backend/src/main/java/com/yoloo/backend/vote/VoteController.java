@@ -9,10 +9,7 @@ import com.googlecode.objectify.Key;
 import com.googlecode.objectify.cmd.Query;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.base.Controller;
-import com.yoloo.backend.comment.CommentShardService;
-import com.yoloo.backend.post.PostEntity;
-import com.yoloo.backend.post.PostShardService;
-import com.yoloo.backend.shard.Shardable;
+import com.yoloo.backend.feed.FeedCache;
 import ix.Ix;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,65 +24,70 @@ import static com.yoloo.backend.OfyService.ofy;
 @AllArgsConstructor(staticName = "create")
 public final class VoteController extends Controller {
 
-  private PostShardService postShardService;
+  private VoteBuffer voteBuffer;
 
-  private CommentShardService commentShardService;
+  private FeedCache feedCache;
 
+  private VotedSetCache votedSetCache;
+
+  /**
+   * Records a vote. The direction is saved right away, the vote count change is buffered and
+   * applied to the shards by a background flush, so counts are eventually consistent. Repeating
+   * the stored direction changes nothing.
+   *
+   * @param votableId the websafe id of the voted entity
+   * @param dir the direction
+   * @param user the user
+   */
   public void vote(String votableId, int dir, User user) {
     Vote.Direction direction = Vote.parse(dir);
 
     final Key<Votable> votableKey = Key.create(votableId);
     final Key<Account> accountKey = Key.create(user.getUserId());
 
-    Shardable.Shard shard = getShard(votableKey);
-    Vote dbVote = getVote(votableKey, accountKey);
-
-    if (dbVote == null) {
-      Vote vote = Vote
-          .builder()
-          .id(votableKey.toWebSafeString())
-          .parent(accountKey)
-          .votableKey(votableKey)
-          .dir(dir)
-          .build();
-
-      switch (direction) {
-        case UP:
-          shard.increaseVotesBy(1L);
-          break;
-        case DOWN:
-          shard.decreaseVotesBy(1L);
-          break;
+    // Loaded in the transaction, concurrent identical votes would otherwise both count.
+    final long delta = ofy().transact(() -> {
+      Vote dbVote = ofy().load().key(Vote.createKey(votableKey, accountKey)).now();
+
+      if (dbVote != null && dbVote.getDir() == dir) {
+        return 0L;
       }
 
-      ofy().transact(() -> ofy().save().entities(vote, shard).now());
-    } else {
-      switch (Vote.parse(dbVote.getDir())) {
-        case DEFAULT:
-          if (direction == Vote.Direction.UP) {
-            shard.increaseVotesBy(1L);
-          } else if (direction == Vote.Direction.DOWN) {
-            shard.decreaseVotesBy(1L);
-          }
-          break;
-        case UP:
-          if (direction == Vote.Direction.DEFAULT) {
-            shard.decreaseVotesBy(1L);
-          } else if (direction == Vote.Direction.DOWN) {
-            shard.decreaseVotesBy(2L);
-          }
-          break;
-        case DOWN:
-          if (direction == Vote.Direction.DEFAULT) {
-            shard.increaseVotesBy(1L);
-          } else if (direction == Vote.Direction.UP) {
-            shard.increaseVotesBy(2L);
-          }
-          break;
+      final Vote vote;
+
+      if (dbVote == null) {
+        vote = Vote
+            .builder()
+            .id(votableKey.toWebSafeString())
+            .parent(accountKey)
+            .votableKey(votableKey)
+            .dir(dir)
+            .build();
+      } else {
+        vote = dbVote.withDir(dir);
       }
 
-      ofy().transact(() -> ofy().save().entities(dbVote.withDir(dir), shard).now());
+      // Moving between directions changes the total by the difference of their values.
+      final long change = direction.getValue()
+          - (dbVote == null ? Vote.Direction.DEFAULT : Vote.parse(dbVote.getDir())).getValue();
+
+      ofy().save().entity(vote).now();
+
+      if (change != 0L) {
+        voteBuffer.add(votableKey, change);
+      }
+
+      return change;
+    });
+
+    if (delta != 0L) {
+      voteBuffer.scheduleFlush(votableKey);
     }
+
+    votedSetCache.record(accountKey, votableKey, dir);
+
+    // Cached feed pages of the voter carry the old direction.
+    feedCache.invalidate(accountKey);
   }
 
   public CollectionResponse<Account> listVoters(@Nonnull String postId, Optional<Integer> limit,
@@ -111,17 +113,4 @@ public final class VoteController extends Controller {
         .build();
   }
 
-  private Vote getVote(Key<? extends Votable> votableKey, Key<Account> accountKey) {
-    return ofy().load().key(Vote.createKey(votableKey, accountKey)).now();
-  }
-
-  private Shardable.Shard getShard(Key<? extends Votable> votableKey) {
-    Key<?> shardKey;
-    if (votableKey.getKind().equals(Key.getKind(PostEntity.class))) {
-      shardKey = postShardService.getRandomShardKey(Key.create(votableKey.getRaw()));
-    } else {
-      shardKey = commentShardService.getRandomShardKey(Key.create(votableKey.getRaw()));
-    }
-    return (Shardable.Shard) ofy().load().key(shardKey).now();
-  }
 }
@@ -1,8 +1,7 @@
 package com.yoloo.backend.vote;
 
 import com.yoloo.backend.base.ControllerFactory;
-import com.yoloo.backend.comment.CommentShardService;
-import com.yoloo.backend.post.PostShardService;
+import com.yoloo.backend.feed.FeedCache;
 import lombok.NoArgsConstructor;
 
 @NoArgsConstructor(staticName = "of")
@@ -11,8 +10,9 @@ public class VoteControllerFactory implements ControllerFactory<VoteController>
   @Override
   public VoteController create() {
     return VoteController.create(
-        PostShardService.create(),
-        CommentShardService.create()
+        VoteBuffer.create(),
+        FeedCache.create(),
+        VotedSetCache.create()
     );
   }
 }
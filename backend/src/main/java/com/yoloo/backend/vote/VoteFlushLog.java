@@ -0,0 +1,55 @@
+package com.yoloo.backend.vote;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.yoloo.backend.config.ShardConfig;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.experimental.NonFinal;
+
+/**
+ * Names of the buffered vote deltas of an entity already applied to its shards.
+ *
+ * <p>Saved in the transaction that applies the deltas, so a flush that dies before deleting them
+ * skips the deltas when they are leased again instead of counting them twice.
+ */
+@Entity
+@Value
+@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class VoteFlushLog {
+
+  /**
+   * Websafe key of the voted entity.
+   */
+  @Id private String id;
+
+  /**
+   * Names of the most recently applied delta tasks, oldest first.
+   */
+  @NonFinal private List<String> appliedTaskNames;
+
+  public static Key<VoteFlushLog> createKey(Key<? extends Votable> votableKey) {
+    return Key.create(VoteFlushLog.class, votableKey.toWebSafeString());
+  }
+
+  public void markApplied(List<String> taskNames) {
+    if (appliedTaskNames == null) {
+      appliedTaskNames = new ArrayList<>();
+    }
+
+    appliedTaskNames.addAll(taskNames);
+
+    final int overflow = appliedTaskNames.size() - ShardConfig.APPLIED_VOTE_DELTA_HISTORY;
+    if (overflow > 0) {
+      appliedTaskNames.subList(0, overflow).clear();
+    }
+  }
+}
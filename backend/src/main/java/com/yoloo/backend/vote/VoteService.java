@@ -1,11 +1,13 @@
 package com.yoloo.backend.vote;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.googlecode.objectify.Key;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.comment.Comment;
 import com.yoloo.backend.post.PostEntity;
-import com.yoloo.backend.util.Group;
 import io.reactivex.Observable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -18,8 +20,11 @@ import static com.yoloo.backend.OfyService.ofy;
 @AllArgsConstructor(staticName = "create")
 public class VoteService {
 
+  private final VotedSetCache votedSetCache = VotedSetCache.create();
+
   /**
-   * Check post vote observable.
+   * Check post vote observable. Request paths hydrate through
+   * {@link com.yoloo.backend.post.PostHydrator} instead.
    *
    * @param postEntity the post
    * @param accountKey the account key
@@ -29,7 +34,7 @@ public class VoteService {
     List<PostEntity> postEntities = Collections.singletonList(postEntity);
 
     return getVotesObservable(postEntities, accountKey)
-        .flatMap(voteMap -> mergeVoteDirection(postEntities, accountKey, voteMap))
+        .flatMap(directions -> mergeVoteDirection(postEntities, directions))
         .cast(PostEntity.class);
   }
 
@@ -43,14 +48,15 @@ public class VoteService {
   public Observable<List<PostEntity>> checkPostVote(List<? extends PostEntity> posts,
       Key<Account> accountKey) {
     return getVotesObservable(posts, accountKey)
-        .flatMap(voteMap -> mergeVoteDirection(posts, accountKey, voteMap))
+        .flatMap(directions -> mergeVoteDirection(posts, directions))
         .cast(PostEntity.class)
         .toList()
         .toObservable();
   }
 
   /**
-   * Check comment vote observable.
+   * Check comment vote observable. Request paths hydrate through
+   * {@link com.yoloo.backend.comment.CommentHydrator} instead.
    *
    * @param comment the comment
    * @param accountKey the account key
@@ -60,7 +66,7 @@ public class VoteService {
     List<Comment> posts = Collections.singletonList(comment);
 
     return getVotesObservable(posts, accountKey)
-        .flatMap(voteMap -> mergeVoteDirection(posts, accountKey, voteMap))
+        .flatMap(directions -> mergeVoteDirection(posts, directions))
         .cast(Comment.class);
   }
 
@@ -74,29 +80,59 @@ public class VoteService {
   public Observable<List<Comment>> checkCommentVote(List<Comment> comments,
       Key<Account> accountKey) {
     return getVotesObservable(comments, accountKey)
-        .flatMap(voteMap -> mergeVoteDirection(comments, accountKey, voteMap))
+        .flatMap(directions -> mergeVoteDirection(comments, directions))
         .cast(Comment.class)
         .toList()
         .toObservable();
   }
 
-  private Observable<Map<Key<Vote>, Vote>> getVotesObservable(List<? extends Votable> votables,
+  private Observable<Map<Key<Votable>, Vote.Direction>> getVotesObservable(
+      List<? extends Votable> votables, Key<Account> accountKey) {
+    return Observable.fromCallable(() -> getDirections(votables, accountKey));
+  }
+
+  /**
+   * Resolves the vote directions of the given account. Entities the account provably never voted
+   * on, or voted on recently, are answered by its {@link VotedSet}; only the rest are loaded.
+   *
+   * @param votables the votables
+   * @param accountKey the account key
+   * @return the directions by votable key, entities without a vote may be missing
+   */
+  public Map<Key<Votable>, Vote.Direction> getDirections(Collection<? extends Votable> votables,
       Key<Account> accountKey) {
-    return Observable
-        .fromIterable(votables)
-        .map(post -> Vote.createKey(post.getVotableKey(), accountKey))
-        .toList()
-        .flatMapObservable(keys -> Observable.just(ofy().load().keys(keys)));
+    final VotedSet votedSet = votables.isEmpty() ? null : votedSetCache.get(accountKey);
+
+    Map<Key<Votable>, Vote.Direction> directions =
+        Maps.newHashMapWithExpectedSize(votables.size());
+    List<Key<Vote>> voteKeys = Lists.newArrayList();
+
+    for (Votable votable : votables) {
+      final Key<Votable> votableKey = votable.getVotableKey();
+      final Vote.Direction dir =
+          votedSet == null ? null : votedSet.lookup(votableKey.toWebSafeString());
+
+      if (dir == null) {
+        voteKeys.add(Vote.createKey(votableKey, accountKey));
+      } else {
+        directions.put(votableKey, dir);
+      }
+    }
+
+    if (!voteKeys.isEmpty()) {
+      for (Vote vote : ofy().load().keys(voteKeys).values()) {
+        directions.put(vote.getVotableKey(), Vote.parse(vote.getDir()));
+      }
+    }
+
+    return directions;
   }
 
   private Observable<Votable> mergeVoteDirection(List<? extends Votable> votables,
-      Key<Account> accountKey, Map<Key<Vote>, Vote> voteMap) {
+      Map<Key<Votable>, Vote.Direction> directions) {
     return Observable
         .fromIterable(votables)
-        .map(votable -> Group.OfTwo.create(Vote.createKey(votable.getVotableKey(), accountKey),
-            votable))
-        .map(group -> voteMap.containsKey(group.first)
-            ? group.second.setVoteDir(Vote.parse(voteMap.get(group.first).getDir()))
-            : group.second.setVoteDir(Vote.Direction.DEFAULT));
+        .map(votable -> votable.setVoteDir(
+            directions.getOrDefault(votable.<Votable>getVotableKey(), Vote.Direction.DEFAULT)));
   }
 }
@@ -0,0 +1,110 @@
+package com.yoloo.backend.vote;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.yoloo.backend.config.VoteConfig;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Summary of the votes of one account: a bloom filter of every voted entity and the directions
+ * of the most recent votes.
+ *
+ * <p>An entity missing from the bloom filter was never voted on, so its direction is known
+ * without a datastore read. Entities that may be in the filter are only answered when they are
+ * among the recent votes.
+ */
+public class VotedSet implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final BloomFilter<CharSequence> voted;
+
+  private final int capacity;
+
+  private int size;
+
+  private final RecentVotes recent = new RecentVotes();
+
+  private VotedSet(int capacity) {
+    this.capacity = capacity;
+    this.voted = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), capacity,
+        VoteConfig.VOTED_SET_FALSE_POSITIVE_RATE);
+  }
+
+  /**
+   * Creates an empty voted set with room for the given number of votes.
+   *
+   * @param voteCount the number of votes the account has
+   * @return the voted set
+   */
+  public static VotedSet create(int voteCount) {
+    return new VotedSet(Math.max(VoteConfig.VOTED_SET_MIN_CAPACITY, voteCount * 2));
+  }
+
+  /**
+   * Adds a vote.
+   *
+   * @param votableId the websafe id of the voted entity
+   * @param dir the direction
+   */
+  public void add(String votableId, int dir) {
+    if (dir != Vote.Direction.DEFAULT.getValue() && voted.put(votableId)) {
+      size++;
+    }
+    // Re-inserted so the entry moves to the most recent end.
+    recent.remove(votableId);
+    recent.put(votableId, dir);
+  }
+
+  /**
+   * Adds a vote whose direction is not known. Lookups of it are left to the datastore unless a
+   * later {@link #add(String, int)} tells the direction.
+   *
+   * @param votableId the websafe id of the voted entity
+   */
+  public void addUnknown(String votableId) {
+    if (voted.put(votableId)) {
+      size++;
+    }
+  }
+
+  /**
+   * Looks up the direction of a vote.
+   *
+   * @param votableId the websafe id of the voted entity
+   * @return the direction, or null when only the datastore can tell
+   */
+  @Nullable
+  public Vote.Direction lookup(String votableId) {
+    Integer dir = recent.get(votableId);
+
+    if (dir != null) {
+      return Vote.parse(dir);
+    }
+
+    return voted.mightContain(votableId) ? null : Vote.Direction.DEFAULT;
+  }
+
+  /**
+   * Whether the bloom filter holds more votes than it was sized for and should be rebuilt.
+   */
+  public boolean isFull() {
+    return size > capacity;
+  }
+
+  /**
+   * Directions by websafe id, evicting the oldest vote past the recent size.
+   */
+  private static class RecentVotes extends LinkedHashMap<String, Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+      return size() > VoteConfig.VOTED_SET_RECENT_SIZE;
+    }
+  }
+}
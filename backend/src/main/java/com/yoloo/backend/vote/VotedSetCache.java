@@ -0,0 +1,155 @@
+package com.yoloo.backend.vote;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.VoteConfig;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.NoArgsConstructor;
+import lombok.extern.java.Log;
+
+import static com.yoloo.backend.OfyService.ofy;
+
+/**
+ * Keeps a {@link VotedSet} per account in memcache.
+ *
+ * <p>A missing set is rebuilt from the keys of the account's votes, which name the voted entities,
+ * and the directions of a few of them. The rebuild first claims the slot with a
+ * marker and stores the set only if the slot is untouched, while {@link #record} touches the
+ * marker, so a vote committed during a rebuild never ends up missing from the stored set.
+ */
+@Log
+@NoArgsConstructor(staticName = "create")
+public class VotedSetCache {
+
+  private static final String NAMESPACE = "VotedSet";
+
+  /**
+   * Marks a set being rebuilt.
+   */
+  private static final String PENDING = "pending";
+
+  /**
+   * Marks an account with too many votes to summarize.
+   */
+  private static final String UNAVAILABLE = "unavailable";
+
+  private static final int PENDING_EXPIRATION_SECONDS = 30;
+
+  private static final int MAX_CAS_ATTEMPTS = 3;
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+
+  /**
+   * Gets the voted set of the given account, rebuilding it when missing.
+   *
+   * @param accountKey the account key
+   * @return the voted set, or null while it can not be used
+   */
+  @Nullable
+  public VotedSet get(Key<Account> accountKey) {
+    final String key = accountKey.toWebSafeString();
+
+    Object value = memcache.get(key);
+
+    if (value != null) {
+      return value instanceof VotedSet ? (VotedSet) value : null;
+    }
+
+    final boolean claimed = memcache.put(key, PENDING,
+        Expiration.byDeltaSeconds(PENDING_EXPIRATION_SECONDS),
+        MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+
+    MemcacheService.IdentifiableValue claim = claimed ? memcache.getIdentifiable(key) : null;
+
+    if (claim == null || !PENDING.equals(claim.getValue())) {
+      return null;
+    }
+
+    VotedSet votedSet = build(accountKey);
+
+    memcache.putIfUntouched(key, claim, votedSet == null ? UNAVAILABLE : votedSet,
+        Expiration.byDeltaSeconds(VoteConfig.VOTED_SET_EXPIRATION_SECONDS));
+
+    return votedSet;
+  }
+
+  /**
+   * Records a vote in the voted set of the given account. Must be called after the vote is saved.
+   *
+   * @param accountKey the voter
+   * @param votableKey the voted entity
+   * @param dir the direction
+   */
+  public void record(Key<Account> accountKey, Key<? extends Votable> votableKey, int dir) {
+    final String key = accountKey.toWebSafeString();
+
+    for (int i = 0; i < MAX_CAS_ATTEMPTS; i++) {
+      MemcacheService.IdentifiableValue current = memcache.getIdentifiable(key);
+
+      // Nothing cached, the next read rebuilds from the datastore, which has the vote.
+      if (current == null || UNAVAILABLE.equals(current.getValue())) {
+        return;
+      }
+
+      if (PENDING.equals(current.getValue())) {
+        // Touch the marker, so the rebuild that may have missed this vote is not stored.
+        if (memcache.putIfUntouched(key, current, PENDING,
+            Expiration.byDeltaSeconds(PENDING_EXPIRATION_SECONDS))) {
+          return;
+        }
+        continue;
+      }
+
+      VotedSet votedSet = (VotedSet) current.getValue();
+      votedSet.add(votableKey.toWebSafeString(), dir);
+
+      if (votedSet.isFull()) {
+        break;
+      }
+
+      if (memcache.putIfUntouched(key, current, votedSet,
+          Expiration.byDeltaSeconds(VoteConfig.VOTED_SET_EXPIRATION_SECONDS))) {
+        return;
+      }
+    }
+
+    // Rebuilt on the next read.
+    memcache.delete(key);
+  }
+
+  @Nullable
+  private VotedSet build(Key<Account> accountKey) {
+    List<Key<Vote>> voteKeys = ofy().load().type(Vote.class)
+        .ancestor(accountKey)
+        .limit(VoteConfig.VOTED_SET_MAX_VOTES + 1)
+        .keys()
+        .list();
+
+    if (voteKeys.size() > VoteConfig.VOTED_SET_MAX_VOTES) {
+      log.info("Account " + accountKey.toWebSafeString() + " has too many votes for a voted set.");
+      return null;
+    }
+
+    VotedSet votedSet = VotedSet.create(voteKeys.size());
+
+    // Vote ids are the websafe ids of the voted entities.
+    for (Key<Vote> voteKey : voteKeys) {
+      votedSet.addUnknown(voteKey.getName());
+    }
+
+    // Only a few votes are loaded, lookups of the others go to the datastore.
+    Map<Key<Vote>, Vote> votes = ofy().load()
+        .keys(voteKeys.subList(0, Math.min(voteKeys.size(), VoteConfig.VOTED_SET_RECENT_SIZE)));
+
+    for (Vote vote : votes.values()) {
+      votedSet.add(vote.getId(), vote.getDir());
+    }
+
+    return votedSet;
+  }
+}
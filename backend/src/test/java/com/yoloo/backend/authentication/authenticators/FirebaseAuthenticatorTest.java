@@ -0,0 +1,132 @@
+package com.yoloo.backend.authentication.authenticators;
+
+import com.google.api.server.spi.auth.common.User;
+import com.google.appengine.api.datastore.Email;
+import com.google.common.collect.ImmutableMap;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.authentication.oauth2.OAuth2;
+import com.yoloo.backend.config.AuthConfig;
+import com.yoloo.backend.util.TestBase;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FirebaseAuthenticatorTest extends TestBase {
+
+  private static final String EMAIL = "test@gmail.com";
+
+  private static final long EXPIRATION = TimeUnit.MILLISECONDS.toSeconds(
+      DateTime.now().plusMinutes(10).getMillis());
+
+  private StubAuthenticator authenticator;
+
+  @Override public void setUp() {
+    super.setUp();
+
+    authenticator = new StubAuthenticator();
+  }
+
+  @Test public void testAuthenticate_cachedTokenSkipsVerification() throws Exception {
+    final Key<Account> accountKey = saveAccount();
+    authenticator.claims = claims(EXPIRATION);
+
+    User first = authenticator.authenticate(request("token"));
+    User second = authenticator.authenticate(request("token"));
+
+    assertEquals(accountKey.toWebSafeString(), first.getId());
+    assertEquals(accountKey.toWebSafeString(), second.getId());
+    assertEquals(1, authenticator.verifications);
+  }
+
+  @Test public void testAuthenticate_verifiesAgainNearExpiry() throws Exception {
+    saveAccount();
+    authenticator.claims = claims(EXPIRATION);
+
+    final long cacheUntil =
+        TimeUnit.SECONDS.toMillis(EXPIRATION - AuthConfig.TOKEN_EXPIRY_SKEW_SECONDS);
+
+    authenticator.now = cacheUntil - 1L;
+    assertNotNull(authenticator.authenticate(request("token")));
+    assertNotNull(authenticator.authenticate(request("token")));
+    assertEquals(1, authenticator.verifications);
+
+    authenticator.now = cacheUntil;
+    assertNotNull(authenticator.authenticate(request("token")));
+    assertEquals(2, authenticator.verifications);
+  }
+
+  @Test public void testAuthenticate_failedVerificationNotCached() throws Exception {
+    saveAccount();
+
+    authenticator.claims = null;
+    assertNull(authenticator.authenticate(request("token")));
+
+    authenticator.claims = claims(EXPIRATION);
+    assertNotNull(authenticator.authenticate(request("token")));
+    assertEquals(2, authenticator.verifications);
+  }
+
+  @Test public void testAuthenticate_accountKeyMissNotCached() throws Exception {
+    authenticator.claims = claims(EXPIRATION);
+
+    assertNull(authenticator.authenticate(request("token")));
+
+    // The account is created after the first request.
+    final Key<Account> accountKey = saveAccount();
+
+    assertEquals(accountKey.toWebSafeString(),
+        authenticator.authenticate(request("token")).getId());
+    assertEquals(1, authenticator.verifications);
+  }
+
+  private static Key<Account> saveAccount() {
+    final Key<Account> accountKey = factory().allocateId(Account.class);
+
+    ofy().save().entity(Account.builder()
+        .id(accountKey.getId())
+        .email(new Email(EMAIL))
+        .username("Test user")
+        .created(DateTime.now())
+        .build()).now();
+
+    return accountKey;
+  }
+
+  private static Map<String, Object> claims(long expiration) {
+    return ImmutableMap.of("email", EMAIL, "exp", expiration);
+  }
+
+  private static HttpServletRequest request(String idToken) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getHeader(OAuth2.HeaderType.AUTHORIZATION))
+        .thenReturn(OAuth2.OAUTH_HEADER_NAME + " " + idToken);
+    return request;
+  }
+
+  /** Verifies every token as the stubbed claims, null claims fail the verification. */
+  private static final class StubAuthenticator extends FirebaseAuthenticator {
+    private Map<String, Object> claims;
+    private long now = System.currentTimeMillis();
+    private int verifications;
+
+    @Override Map<String, Object> verifyIdToken(String idToken) {
+      verifications++;
+      return claims;
+    }
+
+    @Override long currentTimeMillis() {
+      return now;
+    }
+  }
+}
@@ -16,6 +16,7 @@ import com.yoloo.backend.account.AccountBundle;
 import com.yoloo.backend.account.AccountShard;
 import com.yoloo.backend.account.AccountShardService;
 import com.yoloo.backend.device.DeviceRecord;
+import com.yoloo.backend.game.ApplyGameEventsServlet;
 import com.yoloo.backend.game.GameService;
 import com.yoloo.backend.game.Tracker;
 import com.yoloo.backend.group.TravelerGroupController;
@@ -36,6 +37,8 @@ import io.reactivex.Observable;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
@@ -43,6 +46,8 @@ import static com.yoloo.backend.util.TestObjectifyService.fact;
 import static com.yoloo.backend.util.TestObjectifyService.ofy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class CommentControllerTest extends TestBase {
 
@@ -135,6 +140,8 @@ public class CommentControllerTest extends TestBase {
     assertEquals(1, postEntity.getCommentCount());
     assertEquals(true, postEntity.isCommented());
 
+    applyGameEvents(Key.create(user.getUserId()));
+
     Tracker tracker = ofy().load().key(Tracker.createKey(Key.create(user.getUserId()))).now();
 
     assertNotNull(tracker);
@@ -152,6 +159,8 @@ public class CommentControllerTest extends TestBase {
     Comment comment =
         commentController.insertComment(this.postEntity.getWebsafeId(), "Test comment", user);
 
+    applyGameEvents(Key.create(user.getUserId()));
+
     Tracker tracker = ofy().load().key(trackerKey).now();
     PostEntity postEntity = ofy().load().key(comment.getPostKey()).now();
 
@@ -300,4 +309,13 @@ public class CommentControllerTest extends TestBase {
         .regId(UUID.randomUUID().toString())
         .build();
   }
-}
\ No newline at end of file
+
+  private static void applyGameEvents(Key<Account> accountKey) throws Exception {
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getMethod()).thenReturn("POST");
+    when(req.getParameter("accountId")).thenReturn(accountKey.toWebSafeString());
+
+    new ApplyGameEventsServlet().service(req, mock(HttpServletResponse.class));
+    ofy().clear();
+  }
+}
@@ -7,14 +7,23 @@ import com.google.appengine.api.taskqueue.dev.QueueStateInfo;
 import com.google.appengine.api.users.User;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.appengine.tools.development.testing.LocalTaskQueueTestConfig;
+import com.google.api.server.spi.response.CollectionResponse;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
+import com.yoloo.backend.account.Account;
 import com.yoloo.backend.account.AccountController;
 import com.yoloo.backend.account.AccountControllerProvider;
 import com.yoloo.backend.post.PostEntity;
 import com.yoloo.backend.post.PostController;
 import com.yoloo.backend.post.PostControllerFactory;
+import com.yoloo.backend.relationship.Relationship;
 import com.yoloo.backend.util.TestBase;
+import com.yoloo.backend.vote.Vote;
+import java.util.List;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 import static com.yoloo.backend.util.TestObjectifyService.ofy;
@@ -68,4 +77,92 @@ public class FeedControllerTest extends TestBase {
         ofy().load().type(Feed.class).keys().first().now();
     assertNotNull(feed);
   }
+
+  @Test public void testFeedList_mergePulledPosts() throws Exception {
+    final User user = UserServiceFactory.getUserService().getCurrentUser();
+    final Key<Account> accountKey = Key.create(user.getUserId());
+
+    final Key<Account> pullAuthorKey = Key.create(Account.class, 2L);
+    final Key<Account> pushAuthorKey = Key.create(Account.class, 3L);
+    final DateTime now = DateTime.now();
+
+    PostEntity pulled1 = createPost(pullAuthorKey, now.minusMinutes(10), 0L);
+    PostEntity pushed = createPost(pushAuthorKey, now.minusMinutes(20), 0L);
+    PostEntity pulled2 = createPost(pullAuthorKey, now.minusMinutes(30), 0L);
+
+    ofy().save().entities(ImmutableList.builder()
+        .add(Relationship.builder().followerKey(accountKey).followingKey(pullAuthorKey).build())
+        .add(PullAuthor.builder().id(pullAuthorKey.toWebSafeString()).since(now.minusHours(1))
+            .build())
+        .add(Feed.builder()
+            .id(Feed.createId(pushed.getKey(), pushed.getCreated()))
+            .parent(accountKey)
+            .post(Ref.create(pushed.getKey()))
+            .build())
+        .build()).now();
+
+    FeedController feedController = FeedControllerFactory.of().create();
+
+    CollectionResponse<PostEntity> page1 =
+        feedController.listFeed(Optional.of(2), Optional.absent(), user);
+    List<PostEntity> items1 = Lists.newArrayList(page1.getItems());
+
+    assertEquals(2, items1.size());
+    assertEquals(pulled1.getKey(), items1.get(0).getKey());
+    assertEquals(pushed.getKey(), items1.get(1).getKey());
+
+    CollectionResponse<PostEntity> page2 =
+        feedController.listFeed(Optional.of(2), Optional.of(page1.getNextPageToken()), user);
+    List<PostEntity> items2 = Lists.newArrayList(page2.getItems());
+
+    assertEquals(1, items2.size());
+    assertEquals(pulled2.getKey(), items2.get(0).getKey());
+  }
+
+  @Test public void testFeedList_cachedPage() throws Exception {
+    final User user = UserServiceFactory.getUserService().getCurrentUser();
+    final Key<Account> accountKey = Key.create(user.getUserId());
+    final Key<Account> authorKey = Key.create(Account.class, 3L);
+    final DateTime now = DateTime.now();
+
+    PostEntity older = createPost(authorKey, now.minusMinutes(20), 0L);
+    ofy().save().entity(createFeed(accountKey, older)).now();
+
+    FeedController feedController = FeedControllerFactory.of().create();
+
+    CollectionResponse<PostEntity> page1 =
+        feedController.listFeed(Optional.absent(), Optional.absent(), user);
+    assertEquals(1, page1.getItems().size());
+
+    // Written without invalidation, the cached page is still served.
+    PostEntity newer = createPost(authorKey, now.minusMinutes(10), 0L);
+    ofy().save().entity(createFeed(accountKey, newer)).now();
+
+    CollectionResponse<PostEntity> cached =
+        feedController.listFeed(Optional.absent(), Optional.absent(), user);
+    PostEntity cachedPost = Lists.newArrayList(cached.getItems()).get(0);
+
+    assertEquals(1, cached.getItems().size());
+    assertEquals(older.getKey(), cachedPost.getKey());
+    assertEquals(older.getCreated(), cachedPost.getCreated());
+    assertEquals(Vote.Direction.DEFAULT, cachedPost.getDir());
+    assertEquals(page1.getNextPageToken(), cached.getNextPageToken());
+
+    FeedCache.create().invalidate(accountKey);
+
+    CollectionResponse<PostEntity> fresh =
+        feedController.listFeed(Optional.absent(), Optional.absent(), user);
+    List<PostEntity> items = Lists.newArrayList(fresh.getItems());
+
+    assertEquals(2, items.size());
+    assertEquals(newer.getKey(), items.get(0).getKey());
+  }
+
+  private Feed createFeed(Key<Account> accountKey, PostEntity post) {
+    return Feed.builder()
+        .id(Feed.createId(post.getKey(), post.getCreated()))
+        .parent(accountKey)
+        .post(Ref.create(post.getKey()))
+        .build();
+  }
 }
@@ -0,0 +1,89 @@
+package com.yoloo.backend.feed;
+
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import ix.Ix;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.util.TestObjectifyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeedKeyOrderTest extends TestBase {
+
+  private static final int PAGE_SIZE = 20;
+
+  private Key<Account> ownerKey;
+
+  @Override public void setUp() {
+    super.setUp();
+
+    ownerKey = Key.create(Account.class, 1L);
+  }
+
+  @Test public void testFeedKeys_newestFirst() throws Exception {
+    List<PostEntity> posts = createPosts(50);
+    saveFeeds(ownerKey, posts);
+
+    List<Key<Feed>> keys =
+        ofy().load().type(Feed.class).ancestor(ownerKey).limit(PAGE_SIZE).keys().list();
+
+    List<Key<PostEntity>> newest = Ix.from(posts)
+        .orderBy((p1, p2) -> p2.getCreated().compareTo(p1.getCreated()))
+        .take(PAGE_SIZE)
+        .map(PostEntity::getKey)
+        .toList();
+
+    assertEquals(newest, Ix.from(keys).map(Feed::getPostKey).toList());
+    assertNewestFirst(ofy().load().keys(Ix.from(keys).map(Feed::getPostKey).toList()).values());
+  }
+
+  private void assertNewestFirst(Collection<PostEntity> posts) {
+    DateTime previous = null;
+    for (PostEntity post : posts) {
+      assertTrue(previous == null || !post.getCreated().isAfter(previous));
+      previous = post.getCreated();
+    }
+  }
+
+  private List<PostEntity> createPosts(int count) {
+    final Key<Account> authorKey = Key.create(Account.class, 3L);
+    final DateTime now = DateTime.now();
+
+    List<PostEntity> posts = Lists.newArrayListWithCapacity(count);
+
+    // Shuffle creation times so that allocated ids do not follow the time order.
+    List<Integer> offsets = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      offsets.add(i);
+    }
+    Collections.shuffle(offsets, new Random(42L));
+
+    for (int offset : offsets) {
+      posts.add(createPost(authorKey, now.minusMinutes(offset), 0L));
+    }
+
+    return posts;
+  }
+
+  private void saveFeeds(Key<Account> parentKey, List<PostEntity> posts) {
+    List<Feed> feeds = Ix.from(posts)
+        .map(post -> Feed.builder()
+            .id(Feed.createId(post.getKey(), post.getCreated()))
+            .parent(parentKey)
+            .post(Ref.create(post.getKey()))
+            .build())
+        .toList();
+
+    ofy().save().entities(feeds).now();
+  }
+}
@@ -0,0 +1,103 @@
+package com.yoloo.backend.game;
+
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.comment.Comment;
+import com.yoloo.backend.device.DeviceRecord;
+import com.yoloo.backend.notification.Action;
+import com.yoloo.backend.notification.Notification;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ApplyGameEventsServletTest extends TestBase {
+
+  private final GameService gameService = GameService.create();
+
+  @Test public void testApply_appliesEventsOnce() throws Exception {
+    final Key<Account> accountKey = save();
+    final Key<PostEntity> postKey = factory().allocateId(accountKey, PostEntity.class);
+
+    ofy().transact(() -> gameService.publish(accountKey,
+        GameEvent.of(GameEventCode.Point.FIRST_QUESTION, postKey),
+        GameEvent.of(GameEventCode.Point.DAILY_ASK_QUESTION, postKey)));
+    // Published twice, e.g. by a retried request.
+    ofy().transact(() -> gameService.publish(accountKey,
+        GameEvent.of(GameEventCode.Point.FIRST_QUESTION, postKey)));
+
+    apply(accountKey);
+
+    Tracker tracker = ofy().load().key(Tracker.createKey(accountKey)).now();
+
+    assertTrue(tracker.isFirstPost());
+    assertEquals(100, tracker.getPoints());
+    assertEquals(1, tracker.getBounties());
+    assertEquals(1, ofy().load().type(Notification.class)
+        .ancestor(accountKey)
+        .filter(Notification.FIELD_ACTION + " =", Action.GAME)
+        .count());
+    assertTrue(QueueFactory.getQueue(GameService.GAME_EVENT_QUEUE)
+        .leaseTasksByTag(1L, TimeUnit.SECONDS, 10L, accountKey.toWebSafeString())
+        .isEmpty());
+
+    // Delivered again after the pass, e.g. when its delete failed.
+    ofy().transact(() -> gameService.publish(accountKey,
+        GameEvent.of(GameEventCode.Point.FIRST_QUESTION, postKey)));
+
+    apply(accountKey);
+
+    assertEquals(100, ofy().load().key(Tracker.createKey(accountKey)).now().getPoints());
+  }
+
+  @Test public void testApply_acceptedCommentCarriesPostBounty() throws Exception {
+    final Key<Account> accountKey = save();
+    final Key<Comment> commentKey = factory().allocateId(accountKey, Comment.class);
+
+    Tracker tracker = ofy().load().key(Tracker.createKey(accountKey)).now();
+    tracker.setLevel(2);
+    ofy().save().entity(tracker).now();
+
+    ofy().transact(() -> gameService.publish(accountKey,
+        GameEvent.of(GameEventCode.Bounty.ACCEPTED_COMMENT, commentKey, 30)));
+
+    apply(accountKey);
+
+    tracker = ofy().load().key(Tracker.createKey(accountKey)).now();
+
+    assertEquals(32, tracker.getBounties());
+    assertEquals(50, tracker.getPoints());
+  }
+
+  private Key<Account> save() {
+    final Key<Account> accountKey = factory().allocateId(Account.class);
+
+    DeviceRecord record = DeviceRecord.builder()
+        .id(accountKey.toWebSafeString())
+        .parent(accountKey)
+        .regId("regId")
+        .build();
+
+    ofy().save().entities(record, gameService.createTracker(accountKey)).now();
+    return accountKey;
+  }
+
+  private void apply(Key<Account> accountKey) throws Exception {
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("accountId")).thenReturn(accountKey.toWebSafeString());
+
+    new ApplyGameEventsServlet().doPost(req, mock(HttpServletResponse.class));
+
+    ofy().clear();
+  }
+}
@@ -0,0 +1,208 @@
+package com.yoloo.backend.game.leaderboard;
+
+import com.google.appengine.api.datastore.Email;
+import com.google.appengine.api.users.User;
+import com.google.common.collect.ImmutableList;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.GameConfig;
+import com.yoloo.backend.game.GameService;
+import com.yoloo.backend.game.Tracker;
+import com.yoloo.backend.group.TravelerGroupController;
+import com.yoloo.backend.group.TravelerGroupControllerFactory;
+import com.yoloo.backend.group.TravelerGroupEntity;
+import com.yoloo.backend.util.TestBase;
+import ix.Ix;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeaderboardServiceTest extends TestBase {
+
+  private final LeaderboardService leaderboardService = LeaderboardService.create();
+
+  @Test public void testMerge_ranksGloballyAndPerGroup() throws Exception {
+    final Key<TravelerGroupEntity> groupKey =
+        Key.create(TravelerGroupEntity.class, "group:backpackers");
+
+    Account a = save(groupKey);
+    Account b = save();
+    Account c = save(groupKey);
+
+    score(a, 0, 100);
+    score(b, 0, 300);
+    score(c, 0, 200);
+    score(a, 100, 400);
+    ofy().save().entities(tracker(a, 400), tracker(b, 300), tracker(c, 200)).now();
+
+    merge();
+
+    assertEquals(ImmutableList.of(a.getWebsafeId(), b.getWebsafeId(), c.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(LeaderboardService.GLOBAL_BOARD, 10)));
+    assertEquals(ImmutableList.of(a.getWebsafeId(), c.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(LeaderboardService.createBoardId(groupKey), 10)));
+
+    LeaderboardRank rank = leaderboardService.getRank(LeaderboardService.GLOBAL_BOARD, c.getKey());
+    assertEquals(3, rank.getRank());
+    assertEquals(3, rank.getTotal());
+    assertTrue(rank.isExact());
+
+    rank = leaderboardService.getRank(LeaderboardService.createBoardId(groupKey), c.getKey());
+    assertEquals(2, rank.getRank());
+    assertEquals(2, rank.getTotal());
+  }
+
+  @Test public void testMerge_appliesChangesOutOfOrder() throws Exception {
+    Account a = save();
+    Account b = save();
+
+    // Recorded after the changes they follow, a lease does not keep the order.
+    score(a, 300, 700);
+    score(a, 0, 300);
+    score(b, 0, 500);
+    ofy().save().entities(tracker(a, 700), tracker(b, 500)).now();
+
+    merge();
+
+    assertEquals(ImmutableList.of(a.getWebsafeId(), b.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(LeaderboardService.GLOBAL_BOARD, 10)));
+    assertEquals(2, leaderboardService.getRank(LeaderboardService.GLOBAL_BOARD, b.getKey())
+        .getRank());
+  }
+
+  @Test public void testMerge_movesAccountsJoiningAndLeavingGroups() throws Exception {
+    TravelerGroupEntity group = TravelerGroupEntity.builder()
+        .id("group:backpackers")
+        .name("backpackers")
+        .build();
+    ofy().save().entity(group).now();
+
+    final String boardId = LeaderboardService.createBoardId(group.getKey());
+
+    Account a = save();
+    Account b = save(group.getKey());
+
+    score(a, 0, 400);
+    score(b, 0, 100);
+    ofy().save().entities(tracker(a, 400), tracker(b, 100)).now();
+    merge();
+
+    TravelerGroupController controller = TravelerGroupControllerFactory.of().create();
+    User user = new User(a.getEmail().getEmail(), "gmail.com", a.getWebsafeId());
+
+    // Joined after scoring, the group board starts from the points it has.
+    controller.subscribe(group.getWebsafeId(), user);
+    score(ofy().load().key(a.getKey()).now(), 400, 500);
+    ofy().save().entity(tracker(a, 500)).now();
+    merge();
+
+    assertEquals(ImmutableList.of(a.getWebsafeId(), b.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(boardId, 10)));
+    assertEquals(2, leaderboardService.getRank(boardId, b.getKey()).getTotal());
+
+    controller.unsubscribe(group.getWebsafeId(), user);
+    merge();
+
+    assertEquals(ImmutableList.of(b.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(boardId, 10)));
+
+    LeaderboardRank rank = leaderboardService.getRank(boardId, b.getKey());
+    assertEquals(1, rank.getRank());
+    assertEquals(1, rank.getTotal());
+  }
+
+  @Test public void testRebuild_seedsBoardsFromTrackers() throws Exception {
+    Account a = save();
+    Account b = save();
+    Account idle = save();
+
+    ofy().save().entities(tracker(a, 50), tracker(b, 70), tracker(idle, 0)).now();
+
+    new RebuildLeaderboardsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    ofy().clear();
+
+    assertEquals(ImmutableList.of(b.getWebsafeId(), a.getWebsafeId()),
+        accountIds(leaderboardService.listLeaders(LeaderboardService.GLOBAL_BOARD, 10)));
+    assertEquals(0, leaderboardService.getRank(LeaderboardService.GLOBAL_BOARD, idle.getKey())
+        .getRank());
+  }
+
+  @Test public void testShard_keepsLeadersAndCountsAboveByBucket() throws Exception {
+    LeaderboardShard shard = LeaderboardShard.create(LeaderboardService.GLOBAL_BOARD, 0);
+
+    final int accounts = GameConfig.LEADERBOARD_SIZE + 50;
+    for (int i = 1; i <= accounts; i++) {
+      shard.update(i, 0, i * GameConfig.LEADERBOARD_BUCKET_POINTS);
+    }
+
+    assertEquals(accounts, shard.getTotal());
+    assertEquals(GameConfig.LEADERBOARD_SIZE, shard.getAccountIds().size());
+    assertEquals(Long.valueOf(accounts), shard.getAccountIds().get(0));
+
+    // Every account scores its own bucket.
+    assertEquals(accounts - 1, shard.countAbove(GameConfig.LEADERBOARD_BUCKET_POINTS));
+    assertEquals(0, shard.countAbove(accounts * GameConfig.LEADERBOARD_BUCKET_POINTS));
+
+    // An account outside the leaders moves to the top.
+    shard.update(1, GameConfig.LEADERBOARD_BUCKET_POINTS, Integer.MAX_VALUE / 2);
+
+    assertEquals(Long.valueOf(1), shard.getAccountIds().get(0));
+    assertEquals(accounts, shard.getTotal());
+    assertEquals(accounts, shard.countAbove(0));
+    assertFalse(shard.getAccountIds().contains((long) accounts - GameConfig.LEADERBOARD_SIZE));
+  }
+
+  private void score(Account account, int oldPoints, int newPoints) {
+    ofy().transact(() -> leaderboardService.recordScore(account, oldPoints, newPoints));
+  }
+
+  private static void merge() throws Exception {
+    for (int shard = 0; shard < GameConfig.LEADERBOARD_SHARD_COUNT; shard++) {
+      HttpServletRequest req = mock(HttpServletRequest.class);
+      when(req.getParameter("shard")).thenReturn(String.valueOf(shard));
+
+      new MergeLeaderboardServlet().doPost(req, mock(HttpServletResponse.class));
+    }
+    ofy().clear();
+  }
+
+  @SafeVarargs
+  private static Account save(Key<TravelerGroupEntity>... groupKeys) {
+    final Key<Account> accountKey = factory().allocateId(Account.class);
+
+    Account account = Account.builder()
+        .id(accountKey.getId())
+        .username("user" + accountKey.getId())
+        .email(new Email(accountKey.getId() + "@gmail.com"))
+        .subscribedGroupKeys(groupKeys.length == 0
+            ? Collections.emptyList()
+            : ImmutableList.copyOf(groupKeys))
+        .created(DateTime.now())
+        .build();
+
+    ofy().save().entity(account).now();
+    return account;
+  }
+
+  private static Tracker tracker(Account account, int points) {
+    Tracker tracker = GameService.create().createTracker(account.getKey());
+    tracker.setPoints(points);
+    return tracker;
+  }
+
+  private static List<String> accountIds(List<LeaderboardEntry> entries) {
+    return Ix.from(entries).map(LeaderboardEntry::getAccountId).toList();
+  }
+}
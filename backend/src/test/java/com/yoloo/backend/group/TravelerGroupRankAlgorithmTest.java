@@ -1,23 +1,44 @@
 package com.yoloo.backend.group;
 
+import com.yoloo.backend.config.RankConfig;
 import com.yoloo.backend.group.rank.CategoryRankAlgorithm;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class TravelerGroupRankAlgorithmTest {
 
+    private static final long NOW = 1_500_000_000_000L;
+
     @Test
-    public void testRank() throws Exception {
-        for (int i = 0; i < 5; i++) {
-            double rank = CategoryRankAlgorithm.from(i + new Random().nextInt(10)).getRank();
+    public void testRank_recentActivityOutranksOlderActivity() throws Exception {
+        double old = rank(0.0D, 3, NOW - 2 * RankConfig.GROUP_RANK_LIFETIME_MILLIS);
+        double recent = rank(0.0D, 1, NOW);
+
+        // 3 / e^2 of the old activity is left against 1 of the recent one.
+        assertTrue(recent > old);
+        assertEquals(Math.log(3) - 2, old - recent, 1e-6);
+    }
+
+    @Test
+    public void testRank_addsToPreviousRank() throws Exception {
+        double once = rank(0.0D, 1, NOW);
+        double twice = rank(once, 1, NOW);
+
+        assertEquals(Math.log(2), twice - once, 1e-6);
+    }
 
-            Thread.sleep(1500);
-            System.out.println("Rank: " + rank);
+    private static double rank(double rank, int activities, long time) {
+        for (int i = 0; i < activities; i++) {
+            rank = CategoryRankAlgorithm
+                .from(rank, RankConfig.GROUP_RANK_POST_WEIGHT, time)
+                .getRank();
         }
+        return rank;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package com.yoloo.backend.media;
+
+import com.google.appengine.api.datastore.Email;
+import com.google.appengine.api.datastore.Link;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.cloud.storage.BlobId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.config.MediaConfig;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class FindOrphanMediaServletTest extends TestBase {
+
+  private static final String AVATAR_URL = "https://lh3.googleusercontent.com/avatar";
+
+  @Test
+  public void testFindOrphans_tombstonesUnreferencedMedias() throws Exception {
+    final Key<Account> accountKey = factory().allocateId(Account.class);
+    final DateTime old = DateTime.now().minusHours(MediaConfig.ORPHAN_MEDIA_AGE_HOURS + 1);
+
+    MediaEntity posted = media(accountKey, "posted.webp", MediaEntity.MediaOrigin.POST, old);
+    MediaEntity dropped = media(accountKey, "dropped.webp", MediaEntity.MediaOrigin.POST, old);
+    MediaEntity avatar = media(accountKey, "avatar.webp", MediaEntity.MediaOrigin.PROFILE, old)
+        .withUrl(AVATAR_URL);
+    MediaEntity oldAvatar =
+        media(accountKey, "old-avatar.webp", MediaEntity.MediaOrigin.PROFILE, old)
+            .withUrl("https://lh3.googleusercontent.com/old");
+    MediaEntity recent =
+        media(accountKey, "recent.webp", MediaEntity.MediaOrigin.POST, DateTime.now());
+
+    Account account = Account.builder()
+        .id(accountKey.getId())
+        .avatarUrl(new Link(AVATAR_URL + "=s150-c"))
+        .email(new Email("test@gmail.com"))
+        .username("Test user")
+        .created(DateTime.now())
+        .build();
+
+    PostEntity post = createPost(accountKey, DateTime.now(), 0L, "visa")
+        .withMedias(ImmutableList.of(posted));
+
+    ofy().save().entities(account, post, posted, dropped, avatar, oldAvatar, recent).now();
+
+    new FindOrphanMediaServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    ofy().clear();
+
+    assertNotNull(ofy().load().entity(posted).now());
+    assertNotNull(ofy().load().entity(avatar).now());
+    assertNotNull(ofy().load().entity(recent).now());
+    assertNull(ofy().load().entity(dropped).now());
+    assertNull(ofy().load().entity(oldAvatar).now());
+
+    List<TaskHandle> tombstones = QueueFactory.getQueue(MediaService.MEDIA_TOMBSTONE_QUEUE)
+        .leaseTasks(1L, TimeUnit.MINUTES, 10);
+    assertEquals(1, tombstones.size());
+
+    List<BlobId> blobIds = MediaService.decodeTombstone(tombstones.get(0).getPayload());
+    assertEquals(ImmutableSet.of(blobId(dropped), blobId(oldAvatar)),
+        ImmutableSet.copyOf(blobIds));
+  }
+
+  private static MediaEntity media(Key<Account> accountKey, String name,
+      MediaEntity.MediaOrigin origin, DateTime created) {
+    final String path = MediaConfig.USER_MEDIA_BUCKET + "/" + accountKey.toWebSafeString() + "/"
+        + name;
+
+    return MediaEntity.builder()
+        .id(MediaConfig.BASE_URL + "/" + path)
+        .parent(accountKey)
+        .mime("image/webp")
+        .url("")
+        .originalPath(path)
+        .mediaOrigin(origin)
+        .created(created)
+        .build();
+  }
+
+  private static BlobId blobId(MediaEntity media) {
+    return BlobId.of(MediaConfig.BASE_URL, media.getOriginalPath());
+  }
+}
@@ -0,0 +1,209 @@
+package com.yoloo.backend.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.appengine.api.urlfetch.HTTPHeader;
+import com.google.appengine.api.urlfetch.HTTPRequest;
+import com.google.appengine.api.urlfetch.HTTPResponse;
+import com.google.appengine.api.urlfetch.URLFetchService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import com.yoloo.backend.util.TestBase;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PushDispatcherTest extends TestBase {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+
+  private volatile int responseCode = 200;
+
+  private HttpServer fcm;
+
+  private PushDispatcher dispatcher;
+
+  @Before
+  public void setUpFcm() throws Exception {
+    // Answers like FCM: Unavailable for "retry" tokens, NotRegistered for "gone" tokens.
+    fcm = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    fcm.createContext("/fcm/send", exchange -> {
+      JsonNode message = MAPPER.readTree(ByteStreams.toByteArray(exchange.getRequestBody()));
+      requests.add(message);
+
+      ObjectNode body = MAPPER.createObjectNode();
+      ArrayNode results = body.putArray("results");
+      for (JsonNode token : recipients(message)) {
+        if (token.asText().startsWith("retry")) {
+          results.addObject().put("error", "Unavailable");
+        } else if (token.asText().startsWith("gone")) {
+          results.addObject().put("error", "NotRegistered");
+        } else {
+          results.addObject().put("message_id", "0:" + token.asText());
+        }
+      }
+
+      byte[] bytes = MAPPER.writeValueAsBytes(body);
+      exchange.sendResponseHeaders(responseCode, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+    fcm.start();
+
+    dispatcher = PushDispatcher.create(new HttpFetchService(),
+        new URL("http://localhost:" + fcm.getAddress().getPort() + "/fcm/send"), "test-key");
+  }
+
+  @After
+  public void tearDownFcm() {
+    fcm.stop(0);
+  }
+
+  @Test
+  public void testDispatch_coalescesIdenticalPayloads() throws Exception {
+    List<PushDispatcher.Push> pushes = Lists.newArrayList();
+    for (int i = 0; i < 1500; i++) {
+      pushes.add(push("token" + i, "follow"));
+    }
+    pushes.add(push("token0", "comment"));
+
+    PushDispatcher.Report report = dispatcher.dispatch(pushes);
+
+    assertEquals(3, requests.size());
+    assertEquals(3, report.getRequests());
+    assertEquals(1501, report.getDelivered());
+    assertTrue(report.getRetries().isEmpty());
+
+    int multicast = 0;
+    for (JsonNode request : requests) {
+      multicast += request.path(PushDispatcher.FIELD_REGISTRATION_IDS).size();
+    }
+    assertEquals(1500, multicast);
+  }
+
+  @Test
+  public void testDispatch_retriesTransientFailures() throws Exception {
+    PushDispatcher.Report report = dispatcher.dispatch(ImmutableList.of(
+        push("token1", "follow"), push("retry1", "follow"), push("gone1", "follow")));
+
+    assertEquals(1, report.getDelivered());
+    assertEquals(1, report.getFailed());
+    assertEquals(1, report.getRetries().size());
+
+    PushDispatcher.Push retry = PushDispatcher.Push.decode(report.getRetries().get(0).encode());
+    assertEquals(1, retry.getAttempt());
+    assertEquals("retry1", retry.getMessage().path(PushDispatcher.FIELD_TO).asText());
+    assertEquals("follow", retry.getMessage().path("data").path("act").asText());
+  }
+
+  @Test
+  public void testDispatch_retriesFailedRequestsUntilMaxAttempts() throws Exception {
+    responseCode = 503;
+
+    PushDispatcher.Report report = dispatcher.dispatch(ImmutableList.of(
+        push("token1", "follow"), push("token2", "follow"), push("token3", "follow")));
+
+    assertEquals(0, report.getDelivered());
+    assertEquals(3, report.getRetried());
+    assertEquals(3, recipients(report.getRetries().get(0).getMessage()).size());
+
+    PushDispatcher.Push last = report.getRetries().get(0);
+    for (int attempt = 2; attempt <= 4; attempt++) {
+      report = dispatcher.dispatch(ImmutableList.of(last));
+      last = report.getRetries().get(0);
+      assertEquals(attempt, last.getAttempt());
+    }
+
+    report = dispatcher.dispatch(ImmutableList.of(last));
+    assertTrue(report.getRetries().isEmpty());
+    assertEquals(3, report.getFailed());
+  }
+
+  private static PushDispatcher.Push push(String token, String action) throws Exception {
+    PushMessage.DataBody data = PushMessage.DataBody.builder()
+        .value(PushConstants.ACTION, action)
+        .build();
+
+    return PushDispatcher.Push.of(PushMessage.builder().to(token).data(data).build());
+  }
+
+  private static ArrayNode recipients(JsonNode message) {
+    ArrayNode recipients = MAPPER.createArrayNode();
+    if (message.has(PushDispatcher.FIELD_TO)) {
+      recipients.add(message.get(PushDispatcher.FIELD_TO));
+    }
+    if (message.has(PushDispatcher.FIELD_REGISTRATION_IDS)) {
+      recipients.addAll((ArrayNode) message.get(PushDispatcher.FIELD_REGISTRATION_IDS));
+    }
+    return recipients;
+  }
+
+  /**
+   * Fetches over plain HTTP, so requests reach the stub whatever the local URL fetch service
+   * supports.
+   */
+  private static class HttpFetchService implements URLFetchService {
+
+    @Override
+    public HTTPResponse fetch(URL url) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public HTTPResponse fetch(HTTPRequest request) throws IOException {
+      HttpURLConnection connection = (HttpURLConnection) request.getURL().openConnection();
+      connection.setRequestMethod(request.getMethod().name());
+      for (HTTPHeader header : request.getHeaders()) {
+        connection.setRequestProperty(header.getName(), header.getValue());
+      }
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(request.getPayload());
+      }
+
+      final int code = connection.getResponseCode();
+      try (InputStream in = code < 400 ? connection.getInputStream()
+          : connection.getErrorStream()) {
+        return new HTTPResponse(code, ByteStreams.toByteArray(in), request.getURL(),
+            Collections.emptyList());
+      }
+    }
+
+    @Override
+    public Future<HTTPResponse> fetchAsync(URL url) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<HTTPResponse> fetchAsync(HTTPRequest request) {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return fetch(request);
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    }
+  }
+}
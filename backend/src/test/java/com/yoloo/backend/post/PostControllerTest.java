@@ -17,6 +17,7 @@ import com.yoloo.backend.account.AccountShardService;
 import com.yoloo.backend.comment.CommentController;
 import com.yoloo.backend.comment.CommentControllerFactory;
 import com.yoloo.backend.device.DeviceRecord;
+import com.yoloo.backend.game.ApplyGameEventsServlet;
 import com.yoloo.backend.game.GameService;
 import com.yoloo.backend.game.Tracker;
 import com.yoloo.backend.group.TravelerGroupEntity;
@@ -32,10 +33,14 @@ import com.yoloo.backend.util.TestBase;
 import com.yoloo.backend.vote.Vote;
 import com.yoloo.backend.vote.VoteController;
 import com.yoloo.backend.vote.VoteControllerFactory;
+import ix.Ix;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
@@ -43,6 +48,8 @@ import static com.yoloo.backend.util.TestObjectifyService.fact;
 import static com.yoloo.backend.util.TestObjectifyService.ofy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class PostControllerTest extends TestBase {
 
@@ -209,6 +216,8 @@ public class PostControllerTest extends TestBase {
     categorySet.add(europe.getName());
     //assertEquals(categorySet, post.getCategories());
 
+    applyGameEvents(Key.create(user.getUserId()));
+
     Tracker tracker = ofy().load().key(Tracker.createKey(Key.create(user.getUserId()))).now();
 
     assertNotNull(tracker);
@@ -216,6 +225,26 @@ public class PostControllerTest extends TestBase {
     assertEquals(2, tracker.getBounties());
   }
 
+  @Test
+  public void testAddQuestion_manyNewTags() throws Exception {
+    final User user = UserServiceFactory.getUserService().getCurrentUser();
+
+    // Each new tag is a root entity, 12 of them with their shards exceed a transaction's groups.
+    List<String> tagNames = Lists.newArrayList();
+    for (int i = 0; i < 12; i++) {
+      tagNames.add("new tag " + i);
+    }
+
+    PostEntity postEntity = postController.insertQuestionPost("Test content",
+        String.join(",", tagNames), europe.getWebsafeId(), Optional.absent(), Optional.absent(),
+        user);
+
+    assertNotNull(postEntity.getKey());
+    assertEquals(12, ofy().load()
+        .keys(Ix.from(tagNames).map(Tag::createKey).toList())
+        .size());
+  }
+
   @Test
   public void testAddQuestion_withMedia() throws Exception {
     final User user = UserServiceFactory.getUserService().getCurrentUser();
@@ -275,7 +304,7 @@ public class PostControllerTest extends TestBase {
     CollectionResponse<PostEntity> response =
         postController.listPosts(Optional.absent(), Optional.absent(),
             Optional.fromNullable(budgetTravel.getName()), Optional.absent(), Optional.absent(),
-            Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
+            Optional.absent(), Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
 
     assertNotNull(response.getItems());
     assertEquals(2, response.getItems().size());
@@ -303,7 +332,7 @@ public class PostControllerTest extends TestBase {
     CollectionResponse<PostEntity> response =
         postController.listPosts(Optional.absent(), Optional.absent(),
             Optional.fromNullable(budgetTravel.getName()), Optional.absent(), Optional.absent(),
-            Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
+            Optional.absent(), Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
 
     assertNotNull(response.getItems());
     assertEquals(1, response.getItems().size());
@@ -341,7 +370,7 @@ public class PostControllerTest extends TestBase {
     CollectionResponse<PostEntity> response =
         postController.listPosts(Optional.absent(), Optional.absent(),
             Optional.fromNullable(budgetTravel.getName()), Optional.absent(), Optional.absent(),
-            Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
+            Optional.absent(), Optional.absent(), Optional.of(PostEntity.Type.TEXT_POST), user);
 
     assertNotNull(response.getItems());
     assertEquals(4, response.getItems().size());
@@ -394,4 +423,13 @@ public class PostControllerTest extends TestBase {
         .regId(UUID.randomUUID().toString())
         .build();
   }
-}
\ No newline at end of file
+
+  private static void applyGameEvents(Key<Account> accountKey) throws Exception {
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getMethod()).thenReturn("POST");
+    when(req.getParameter("accountId")).thenReturn(accountKey.toWebSafeString());
+
+    new ApplyGameEventsServlet().service(req, mock(HttpServletResponse.class));
+    ofy().clear();
+  }
+}
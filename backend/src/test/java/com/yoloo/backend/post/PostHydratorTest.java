@@ -0,0 +1,51 @@
+package com.yoloo.backend.post;
+
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.util.TestBase;
+import com.yoloo.backend.vote.Vote;
+import com.yoloo.backend.vote.VoteService;
+import java.util.List;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+
+public class PostHydratorTest extends TestBase {
+
+  @Test public void testHydrate_countsAndDirections() {
+    PostShardService shardService = PostShardService.create();
+    PostHydrator hydrator = PostHydrator.create(shardService, VoteService.create());
+
+    final Key<Account> viewerKey = factory().allocateId(Account.class);
+
+    PostEntity voted = createPost(factory().allocateId(Account.class), DateTime.now(), 3L);
+    PostEntity other = createPost(factory().allocateId(Account.class), DateTime.now(), 1L);
+
+    ofy().save().entity(Vote.builder()
+        .id(voted.getWebsafeId())
+        .parent(viewerKey)
+        .votableKey(Key.create(voted.getKey().getRaw()))
+        .dir(Vote.Direction.UP.getValue())
+        .build()).now();
+
+    List<PostEntity> posts = hydrator.hydrate(Lists.newArrayList(voted, other), viewerKey);
+
+    assertEquals(2, posts.size());
+
+    assertEquals(voted.getKey(), posts.get(0).getKey());
+    assertEquals(3L, posts.get(0).getVoteCount());
+    assertEquals(Vote.Direction.UP, posts.get(0).getDir());
+
+    assertEquals(other.getKey(), posts.get(1).getKey());
+    assertEquals(1L, posts.get(1).getVoteCount());
+    assertEquals(Vote.Direction.DEFAULT, posts.get(1).getDir());
+
+    // Persistent fields are carried over.
+    assertEquals(voted.getContent(), posts.get(0).getContent());
+    assertEquals(voted.getShardRefs(), posts.get(0).getShardRefs());
+  }
+}
@@ -1,17 +1,23 @@
 package com.yoloo.backend.post;
 
+import com.google.common.collect.ImmutableMap;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Ref;
 import com.yoloo.backend.account.Account;
 import com.yoloo.backend.config.ShardConfig;
+import com.yoloo.backend.shard.ShardCount;
 import com.yoloo.backend.shard.Shardable;
 import com.yoloo.backend.util.TestBase;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -58,4 +64,91 @@ public class PostShardServiceTest extends TestBase {
       }
     }
   }
+
+  @Test public void testMergeShards_usesFreshCounter() {
+    PostShardService service = PostShardService.create();
+
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 4L);
+
+    // Nothing aggregated yet, the shards are folded and the total is cached.
+    PostEntity merged = service.mergeShards(post).blockingSingle();
+    assertEquals(4L, merged.getVoteCount());
+
+    PostShard shard = ofy().load().key(PostShard.createKey(post.getKey(), 1)).now();
+    shard.increaseVotesBy(10L);
+    ofy().save().entity(shard).now();
+
+    // Served from the aggregate until it is folded again.
+    assertEquals(4L, service.mergeShards(post).blockingSingle().getVoteCount());
+
+    PostCounterService.create().putCounters(ImmutableMap.of(post.getKey(),
+        PostCounter.fold(ofy().load().refs(post.getShardRefs()).values(),
+            System.currentTimeMillis())));
+
+    assertEquals(14L, service.mergeShards(post).blockingSingle().getVoteCount());
+  }
+
+  @Test public void testMergeShards_staleCounter() {
+    PostShardService service = PostShardService.create();
+
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 2L);
+
+    final long maxAge = TimeUnit.SECONDS.toMillis(ShardConfig.COUNTER_AGGREGATE_MAX_AGE_SECONDS);
+    PostCounterService.create().putCounters(ImmutableMap.of(post.getKey(),
+        PostCounter.of(100L, 0L, 0, System.currentTimeMillis() - maxAge)));
+
+    assertEquals(2L, service.mergeShards(post).blockingSingle().getVoteCount());
+  }
+
+  @Test public void testMergeShards_keepsNewerAggregate() {
+    PostCounterService counterService = PostCounterService.create();
+
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 3L);
+
+    // Folded by the aggregation task while a read was loading the older shards.
+    counterService.putCounters(ImmutableMap.of(post.getKey(),
+        PostCounter.of(7L, 0L, 0, System.currentTimeMillis())));
+    counterService.addCounters(ImmutableMap.of(post.getKey(),
+        PostCounter.of(3L, 0L, 0, System.currentTimeMillis())));
+
+    assertEquals(7L, PostShardService.create().mergeShards(post).blockingSingle().getVoteCount());
+  }
+
+  @Test public void testRecordContention_growsShards() {
+    PostShardService service = PostShardService.create();
+
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 3L);
+    final int created = service.getShardCount(post, null);
+
+    for (int i = 0; i < ShardConfig.SHARD_GROWTH_CONTENTION_THRESHOLD; i++) {
+      service.recordContention(post.getKey(), created);
+    }
+
+    ShardCount shardCount = ofy().load().key(ShardCount.createKey(post.getKey())).now();
+    final int grown = service.getShardCount(post, shardCount);
+
+    assertEquals(created * 2, grown);
+
+    PostShard shard = ofy().load().key(PostShard.createKey(post.getKey(), grown)).now();
+    shard.increaseVotesBy(5L);
+    ofy().save().entity(shard).now();
+
+    // Totals include the grown shards.
+    assertEquals(8L, service.mergeShards(post).blockingSingle().getVoteCount());
+  }
+
+  @Test public void testGrowShards_boundedByMax() {
+    PostShardService service = PostShardService.create();
+
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 0L);
+
+    int count = service.getShardCount(post, null);
+    while (count < ShardConfig.MAX_POST_SHARD_COUNTER) {
+      count = service.growShards(post.getKey(), count);
+    }
+
+    assertEquals(ShardConfig.MAX_POST_SHARD_COUNTER, service.growShards(post.getKey(), count));
+    assertEquals(ShardConfig.MAX_POST_SHARD_COUNTER,
+        service.loadShards(Collections.singletonList(post)).get(post.getKey()).size());
+  }
 }
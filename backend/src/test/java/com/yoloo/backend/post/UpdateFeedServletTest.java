@@ -0,0 +1,63 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.relationship.Relationship;
+import com.yoloo.backend.util.TestBase;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UpdateFeedServletTest extends TestBase {
+
+  @Test public void testFanOut_resumesAfterLastFollowerWhenListOutgrewCache() throws Exception {
+    final Key<Account> authorKey = factory().allocateId(Account.class);
+    final Key<PostEntity> postKey = factory().allocateId(authorKey, PostEntity.class);
+
+    Key<Account> first = follow(authorKey);
+    Key<Account> second = follow(authorKey);
+    Key<Account> third = follow(authorKey);
+
+    // The previous chunk paged the cached list, which is now too long to cache.
+    MemcacheServiceFactory.getMemcacheService("FollowGraph")
+        .put("followers:" + authorKey.getId(), "oversized");
+
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("userId")).thenReturn(authorKey.toWebSafeString());
+    when(req.getParameter("postId")).thenReturn(postKey.toWebSafeString());
+    when(req.getParameter("created")).thenReturn(String.valueOf(DateTime.now().getMillis()));
+    when(req.getParameter("chunk")).thenReturn("1");
+    when(req.getParameter("after")).thenReturn(String.valueOf(first.getId()));
+
+    new UpdateFeedServlet().doPost(req, mock(HttpServletResponse.class));
+
+    assertEquals(0, countFeeds(first));
+    assertEquals(1, countFeeds(second));
+    assertEquals(1, countFeeds(third));
+    assertEquals(0, countFeeds(authorKey));
+  }
+
+  private static Key<Account> follow(Key<Account> followingKey) {
+    final Key<Account> followerKey = factory().allocateId(Account.class);
+
+    ofy().save().entity(Relationship.builder()
+        .followerKey(followerKey)
+        .followingKey(followingKey)
+        .build()).now();
+
+    return followerKey;
+  }
+
+  private static int countFeeds(Key<Account> accountKey) {
+    return ofy().load().type(Feed.class).ancestor(accountKey).count();
+  }
+}
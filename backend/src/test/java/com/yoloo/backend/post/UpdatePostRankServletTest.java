@@ -0,0 +1,46 @@
+package com.yoloo.backend.post;
+
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.util.TestBase;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class UpdatePostRankServletTest extends TestBase {
+
+  @Test public void testUpdateRanks_onlyDirtyPosts() throws Exception {
+    final DateTime created = DateTime.now().minusHours(2);
+
+    PostEntity dirty = createPost(factory().allocateId(Account.class), created, 5L);
+    PostEntity clean = createPost(factory().allocateId(Account.class), created, 7L);
+
+    PostRankService postRankService = PostRankService.create();
+
+    // Several changes of one post are re-ranked once.
+    for (int i = 0; i < 3; i++) {
+      ofy().transact(() -> postRankService.markDirty(dirty.getKey()));
+    }
+
+    new UpdatePostRankServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+
+    ofy().clear();
+
+    assertEquals(PostRankService.computeRank(5L, 0L, dirty.getCreated()),
+        ofy().load().key(dirty.getKey()).now().getRank(), 0.0D);
+    assertEquals(0.0D, ofy().load().key(clean.getKey()).now().getRank(), 0.0D);
+
+    assertTrue(QueueFactory.getQueue(PostRankService.RANK_DIRTY_QUEUE)
+        .leaseTasks(1L, TimeUnit.SECONDS, 10L)
+        .isEmpty());
+  }
+}
@@ -0,0 +1,158 @@
+package com.yoloo.backend.recommendation;
+
+import com.google.api.server.spi.response.BadRequestException;
+import com.google.api.server.spi.response.CollectionResponse;
+import com.google.appengine.api.datastore.Email;
+import com.google.appengine.api.taskqueue.dev.LocalTaskQueue;
+import com.google.appengine.api.taskqueue.dev.QueueStateInfo.TaskStateInfo;
+import com.google.appengine.api.users.User;
+import com.google.appengine.tools.development.testing.LocalTaskQueueTestConfig;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.group.TravelerGroupEntity;
+import com.yoloo.backend.relationship.Relationship;
+import com.yoloo.backend.util.TestBase;
+import ix.Ix;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecommendFollowsServletTest extends TestBase {
+
+  private static final String QUEUE = "recommend-follows-queue";
+
+  private final RecommendationController recommendationController =
+      RecommendationController.create();
+
+  @Test
+  public void testRecommend_friendsOfFriendsThenGroupMembers() throws Exception {
+    final Key<TravelerGroupEntity> groupKey =
+        Key.create(TravelerGroupEntity.class, "group:backpackers");
+
+    Account a = save("a", groupKey);
+    Account b = save("b");
+    Account c = save("c");
+    Account d = save("d");
+    Account e = save("e");
+    Account f = save("f", groupKey);
+
+    follow(a, b);
+    follow(a, d);
+    follow(b, c);
+    follow(b, d);
+    follow(b, e);
+    follow(d, c);
+
+    recommend();
+
+    // The last task drops the graph pages of the pass.
+    assertTrue(ofy().load().type(FollowGraphPage.class).list().isEmpty());
+
+    CollectionResponse<Account> first = list(a, null, 2);
+    assertEquals(ImmutableList.of(c.getId(), e.getId()), ids(first));
+
+    CollectionResponse<Account> second = list(a, first.getNextPageToken(), 2);
+    assertEquals(ImmutableList.of(f.getId()), ids(second));
+    assertNull(second.getNextPageToken());
+
+    // Everything b could be recommended it already follows.
+    assertTrue(list(b, null, 10).getItems().isEmpty());
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testList_rejectsMalformedCursor() throws Exception {
+    list(save("a"), "abc", 10);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testList_rejectsNegativeCursor() throws Exception {
+    list(save("a"), "-1", 10);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testList_rejectsNonPositiveLimit() throws Exception {
+    list(save("a"), null, 0);
+  }
+
+  @Test
+  public void testList_withoutRecommendations() throws Exception {
+    Account a = save("a");
+
+    CollectionResponse<Account> response = list(a, null, 10);
+
+    assertTrue(response.getItems().isEmpty());
+    assertNull(response.getNextPageToken());
+  }
+
+  /**
+   * Runs a pass, executing the chained tasks in order.
+   */
+  private static void recommend() throws Exception {
+    RecommendFollowsServlet servlet = new RecommendFollowsServlet();
+    servlet.doGet(mock(HttpServletRequest.class), mock(HttpServletResponse.class));
+
+    LocalTaskQueue ltq = LocalTaskQueueTestConfig.getLocalTaskQueue();
+    List<TaskStateInfo> tasks;
+    while (!(tasks = ltq.getQueueStateInfo().get(QUEUE).getTaskInfo()).isEmpty()) {
+      TaskStateInfo task = tasks.get(0);
+      ltq.deleteTask(QUEUE, task.getTaskName());
+
+      HttpServletRequest req = mock(HttpServletRequest.class);
+      for (String param : task.getBody().split("&")) {
+        String[] pair = param.split("=", 2);
+        when(req.getParameter(pair[0])).thenReturn(URLDecoder.decode(pair[1], "UTF-8"));
+      }
+
+      servlet.doPost(req, mock(HttpServletResponse.class));
+    }
+    ofy().clear();
+  }
+
+  private CollectionResponse<Account> list(Account account, String cursor, int limit)
+      throws BadRequestException {
+    User user = new User("test@gmail.com", "gmail.com", account.getWebsafeId());
+    return recommendationController.listRecommendedAccounts(Optional.fromNullable(cursor),
+        Optional.of(limit), user);
+  }
+
+  @SafeVarargs
+  private final Account save(String username, Key<TravelerGroupEntity>... groupKeys) {
+    Account account = Account.builder()
+        .id(factory().allocateId(Account.class).getId())
+        .username(username)
+        .email(new Email(username + "@gmail.com"))
+        .subscribedGroupKeys(groupKeys.length == 0
+            ? Collections.emptyList()
+            : ImmutableList.copyOf(groupKeys))
+        .created(DateTime.now())
+        .build();
+
+    ofy().save().entity(account).now();
+    return account;
+  }
+
+  private void follow(Account follower, Account following) {
+    ofy().save().entity(Relationship.builder()
+        .followerKey(follower.getKey())
+        .followingKey(following.getKey())
+        .build()).now();
+  }
+
+  private static List<Long> ids(CollectionResponse<Account> response) {
+    return Ix.from(response.getItems()).map(Account::getId).toList();
+  }
+}
@@ -0,0 +1,76 @@
+package com.yoloo.backend.relationship;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.util.TestBase;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FollowGraphServiceTest extends TestBase {
+
+  private final FollowGraphService followGraphService = FollowGraphService.create();
+
+  @Test
+  public void testGetIds_loadsSortedOnMiss() throws Exception {
+    final Key<Account> a = factory().allocateId(Account.class);
+    final Key<Account> b = factory().allocateId(Account.class);
+    final Key<Account> c = factory().allocateId(Account.class);
+
+    follow(a, c);
+    follow(a, b);
+    follow(b, c);
+
+    assertArrayEquals(ids(b, c), followGraphService.getFollowingIds(a));
+    assertArrayEquals(ids(a, b), followGraphService.getFollowerIds(c));
+    assertArrayEquals(new long[0], followGraphService.getFollowerIds(a));
+
+    assertTrue(followGraphService.isFollowing(a, b));
+    assertFalse(followGraphService.isFollowing(b, a));
+  }
+
+  @Test
+  public void testOnFollowAndUnfollow_writeThroughCachedLists() throws Exception {
+    final Key<Account> a = factory().allocateId(Account.class);
+    final Key<Account> b = factory().allocateId(Account.class);
+
+    // Cache both lists empty.
+    assertFalse(followGraphService.isFollowing(a, b));
+    assertArrayEquals(new long[0], followGraphService.getFollowerIds(b));
+
+    Relationship relationship = follow(a, b);
+    followGraphService.onFollow(a, b);
+
+    assertTrue(followGraphService.isFollowing(a, b));
+    assertArrayEquals(ids(a), followGraphService.getFollowerIds(b));
+
+    ofy().delete().entity(relationship).now();
+    followGraphService.onUnfollow(a, b);
+
+    assertFalse(followGraphService.isFollowing(a, b));
+    assertArrayEquals(new long[0], followGraphService.getFollowerIds(b));
+  }
+
+  private static Relationship follow(Key<Account> follower, Key<Account> following) {
+    Relationship relationship = Relationship.builder()
+        .followerKey(follower)
+        .followingKey(following)
+        .build();
+
+    ofy().save().entity(relationship).now();
+    return relationship;
+  }
+
+  @SafeVarargs
+  private static long[] ids(Key<Account>... keys) {
+    long[] ids = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      ids[i] = keys[i].getId();
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,158 @@
+package com.yoloo.backend.search;
+
+import com.google.common.collect.ImmutableSet;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import ix.Ix;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PostSearchServiceTest extends TestBase {
+
+  private final PostSearchService postSearchService = PostSearchService.create();
+
+  @Test public void testSearch_ranksByTermsAndFields() throws Exception {
+    PostEntity visa = save("Visa for Istanbul", "How long does the visa take?", "visa");
+    PostEntity hostel = save(null, "Cheap hostel in İstanbul'da near the old town", "hostel");
+    PostEntity food = save(null, "Best street food in Rome", "food");
+
+    index(visa, hostel, food);
+
+    assertEquals(keys(visa, hostel), keys(postSearchService.search("istanbul", null, 10)));
+    assertEquals(keys(visa), keys(postSearchService.search("istanbul visa", null, 1)));
+    assertEquals(keys(food), keys(postSearchService.search("ROME", null, 10)));
+    assertTrue(postSearchService.search("paris", null, 10).isEmpty());
+  }
+
+  @Test public void testSearch_pagesWithCursor() throws Exception {
+    PostEntity[] posts = new PostEntity[5];
+    for (int i = 0; i < posts.length; i++) {
+      posts[i] = save(null, "Backpacking trip number " + i, "travel");
+    }
+
+    index(posts);
+
+    List<SearchScorer.Hit> first = postSearchService.search("backpacking", null, 3);
+    SearchScorer.Hit after = SearchScorer.Hit.fromCursor(first.get(2).toCursor());
+    List<SearchScorer.Hit> second = postSearchService.search("backpacking", after, 3);
+
+    assertEquals(3, first.size());
+    assertEquals(2, second.size());
+    assertEquals(5, Ix.from(first).concatWith(second).map(SearchScorer.Hit::getPostId)
+        .distinct().count().first().intValue());
+  }
+
+  @Test public void testIndex_updateAndDeleteDropPostings() throws Exception {
+    PostEntity post = save(null, "Sunset in Cappadocia", "balloon");
+
+    index(post);
+    assertEquals(keys(post), keys(postSearchService.search("cappadocia", null, 10)));
+
+    PostEntity updated = post.withContent("Sunrise over the fairy chimneys");
+    ofy().save().entity(updated).now();
+    index(updated);
+
+    assertTrue(postSearchService.search("cappadocia", null, 10).isEmpty());
+    assertEquals(keys(post), keys(postSearchService.search("chimneys", null, 10)));
+
+    ofy().delete().entity(updated).now();
+    index(updated);
+
+    assertTrue(postSearchService.search("chimneys balloon", null, 10).isEmpty());
+    assertEquals(0L, ofy().load().key(SearchIndex.createKey()).now().getDocCount());
+  }
+
+  @Test public void testIndex_finishesReshardLeftByDeadPass() throws Exception {
+    PostEntity p1 = save(null, "Visa on arrival", "visa");
+    PostEntity p2 = save(null, "Visa extension", "visa");
+    PostEntity p3 = save(null, "Visa fees", "visa");
+
+    // A pass saved the term spread over two shards and died after saving only shard 1.
+    PostingList oldLayout = PostingList.empty();
+    PostingList moved = PostingList.empty();
+    for (PostEntity post : new PostEntity[] {p1, p2}) {
+      final long accountId = post.getKey().getParent().getId();
+      final float weight = PostSearchService.analyze(post).get("visa");
+      oldLayout.put(accountId, post.getId(), weight);
+      if (PostingShard.shardOf(accountId, post.getId(), 2) == 1) {
+        moved.put(accountId, post.getId(), weight);
+      }
+    }
+
+    SearchIndex index = SearchIndex.create();
+    index.addDocs(2L);
+
+    ofy().save().entities(index,
+        SearchTerm.builder().id("visa").docFreq(2L).shardCount(2).previousShardCount(1).build(),
+        PostingShard.builder().id("visa:0").postings(oldLayout.encode()).build(),
+        PostingShard.builder().id("visa:1").postings(moved.encode()).build()).now();
+    ofy().clear();
+
+    assertEquals(ImmutableSet.copyOf(keys(p1, p2)),
+        ImmutableSet.copyOf(keys(postSearchService.search("visa", null, 10))));
+    assertEquals(2, postSearchService.search("visa", null, 10).size());
+
+    index(p3);
+
+    SearchTerm term = ofy().load().key(SearchTerm.createKey("visa")).now();
+    assertFalse(term.isResharding());
+    assertEquals(2, term.getShardCount());
+    assertEquals(3L, term.getDocFreq());
+    assertEquals(3, postSearchService.search("visa", null, 10).size());
+  }
+
+  @Test public void testMigrate_indexesExistingPosts() throws Exception {
+    PostEntity p1 = save(null, "Visa on arrival", "visa");
+    PostEntity p2 = save(null, "Hostel near the station", "hostel");
+
+    new MigrateSearchIndexServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    new IndexPostsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    ofy().clear();
+
+    assertEquals(keys(p1), keys(postSearchService.search("visa", null, 10)));
+    assertEquals(keys(p2), keys(postSearchService.search("hostel", null, 10)));
+  }
+
+  private PostEntity save(String title, String content, String tag) {
+    PostEntity post = createPost(factory().allocateId(Account.class), DateTime.now(), 0L, tag)
+        .withTitle(title)
+        .withContent(content);
+
+    ofy().save().entity(post).now();
+    return post;
+  }
+
+  private void index(PostEntity... posts) throws Exception {
+    ofy().transact(() -> {
+      for (PostEntity post : posts) {
+        postSearchService.markDirty(post.getKey());
+      }
+    });
+
+    new IndexPostsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+
+    ofy().clear();
+  }
+
+  private static List<Long> keys(PostEntity... posts) {
+    return Ix.fromArray(posts).map(PostEntity::getId).toList();
+  }
+
+  private static List<Long> keys(List<SearchScorer.Hit> hits) {
+    return Ix.from(hits).map(SearchScorer.Hit::getPostId).toList();
+  }
+}
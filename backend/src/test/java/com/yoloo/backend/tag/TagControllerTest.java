@@ -2,10 +2,18 @@ package com.yoloo.backend.tag;
 
 import com.google.api.server.spi.response.CollectionResponse;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.yoloo.backend.util.TestBase;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.junit.Test;
 
+import static com.yoloo.backend.util.TestObjectifyService.ofy;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class TagControllerTest extends TestBase {
 
@@ -35,4 +43,34 @@ public class TagControllerTest extends TestBase {
 
     assertEquals(1, response.getItems().size());
   }
+
+  @Test
+  public void testList_mostUsedFirst() throws Exception {
+    TagController tagController = TagControllerFactory.of().create();
+
+    tagController.insertTag("istanbul");
+    tagController.insertTag("israel");
+    tagController.insertTag("izmir");
+
+    TagService tagService = new TagService();
+    List<String> names = Arrays.asList("israel", "israel");
+    ofy().transact(() -> ofy().save().entities(tagService.updateCounters(names)).now());
+    ofy().transact(() -> ofy().save().entities(tagService.updateCounters(names)).now());
+
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("tagName")).thenReturn("israel");
+    new AggregateTagCounterServlet().doPost(req, mock(HttpServletResponse.class));
+
+    TagAutocompleteIndex.instance().build();
+    TagAutocompleteIndex.instance().clear();
+
+    CollectionResponse<Tag> response =
+        tagController.list("IS", Optional.absent(), Optional.<Integer>absent());
+
+    List<Tag> tags = Lists.newArrayList(response.getItems());
+    assertEquals(2, tags.size());
+    assertEquals("israel", tags.get(0).getName());
+    assertEquals(2L, tags.get(0).getPostCount());
+    assertEquals("istanbul", tags.get(1).getName());
+  }
 }
@@ -0,0 +1,144 @@
+package com.yoloo.backend.tag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import ix.Ix;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TagPostingServiceTest extends TestBase {
+
+  private final TagPostingService tagPostingService = TagPostingService.create();
+
+  @Test public void testList_allAndAny() throws Exception {
+    PostEntity p1 = save(1000L, "visa", "europe");
+    PostEntity p2 = save(2000L, "visa");
+    PostEntity p3 = save(3000L, "europe", "hostel");
+    PostEntity p4 = save(4000L, "Visa", "europe", "hostel");
+
+    update(Collections.emptySet(), p1, p2, p3, p4);
+
+    assertEquals(keys(p4, p1), keys(list(TagMatch.ALL, null, 10, "visa", "EUROPE")));
+    assertEquals(keys(p4), keys(list(TagMatch.ALL, null, 10, "visa", "europe", "hostel")));
+    assertEquals(keys(p4, p3, p2, p1), keys(list(TagMatch.ANY, null, 10, "visa", "hostel")));
+    assertTrue(list(TagMatch.ALL, null, 10, "visa", "budget").isEmpty());
+    assertEquals(keys(p4, p3), keys(list(TagMatch.ANY, null, 10, "hostel", "budget")));
+  }
+
+  @Test public void testList_pagesNewestFirst() throws Exception {
+    PostEntity[] posts = new PostEntity[5];
+    for (int i = 0; i < posts.length; i++) {
+      posts[i] = save(1000L * (i + 1), "travel", "budget");
+    }
+
+    update(Collections.emptySet(), posts);
+
+    List<TagPosting> first = list(TagMatch.ALL, null, 3, "travel", "budget");
+    TagPosting after = TagPosting.fromCursor(first.get(2).toCursor());
+    List<TagPosting> second = list(TagMatch.ALL, after, 3, "travel", "budget");
+
+    assertEquals(keys(posts[4], posts[3], posts[2]), keys(first));
+    assertEquals(keys(posts[1], posts[0]), keys(second));
+  }
+
+  @Test public void testUpdate_dropsRemovedTags() throws Exception {
+    PostEntity post = save(1000L, "visa", "europe");
+    update(Collections.emptySet(), post);
+
+    PostEntity updated = post.withTags(ImmutableSet.of("visa", "asia"));
+    ofy().save().entity(updated).now();
+    update(ImmutableSet.of("europe"), updated);
+
+    assertTrue(list(TagMatch.ANY, null, 10, "europe").isEmpty());
+    assertEquals(keys(post), keys(list(TagMatch.ALL, null, 10, "visa", "asia")));
+
+    ofy().delete().entity(updated).now();
+    update(updated.getTags(), updated);
+
+    assertTrue(list(TagMatch.ANY, null, 10, "visa", "asia").isEmpty());
+  }
+
+  @Test public void testList_walksSplitChunks() throws Exception {
+    TagPostingList postings = TagPostingList.empty();
+    for (long i = 1; i <= 6; i++) {
+      postings.put(new TagPosting(i * 1000L, 1L, i));
+    }
+
+    // The old chunk still holds the newer half, as it does between the saves of a split.
+    TagTimeline timeline = TagTimeline.create("visa");
+    int from = postings.splitPoint();
+    Key<TagPostingChunk> newerKey = timeline.split(0, postings.created(from));
+    TagPostingList newer = TagPostingList.decode(postings.encode()).split(from);
+
+    ofy().save().entities(timeline,
+        TagPostingChunk.builder().id(timeline.chunkKey(0).getName())
+            .postings(postings.encode()).build(),
+        TagPostingChunk.builder().id(newerKey.getName()).postings(newer.encode()).build()).now();
+    ofy().clear();
+
+    List<TagPosting> first = list(TagMatch.ANY, null, 4, "visa");
+    List<TagPosting> second = list(TagMatch.ANY, first.get(3), 4, "visa");
+
+    assertEquals(ImmutableList.of(6L, 5L, 4L, 3L), Ix.from(first).map(TagPosting::getPostId)
+        .toList());
+    assertEquals(ImmutableList.of(2L, 1L), Ix.from(second).map(TagPosting::getPostId).toList());
+  }
+
+  @Test public void testMigrate_putsExistingPosts() throws Exception {
+    PostEntity p1 = save(1000L, "visa", "europe");
+    PostEntity p2 = save(2000L, "visa");
+
+    new MigrateTagPostingsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    new UpdateTagPostingsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+    ofy().clear();
+
+    assertEquals(keys(p2, p1), keys(list(TagMatch.ANY, null, 10, "visa")));
+    assertEquals(keys(p1), keys(list(TagMatch.ALL, null, 10, "visa", "europe")));
+  }
+
+  private List<TagPosting> list(TagMatch match, TagPosting after, int limit, String... tags) {
+    return tagPostingService.list(ImmutableList.copyOf(tags), match, after, limit);
+  }
+
+  private PostEntity save(long created, String... tags) {
+    return createPost(factory().allocateId(Account.class), new DateTime(created), 0L, tags);
+  }
+
+  private void update(Set<String> droppedTags, PostEntity... posts) throws Exception {
+    ofy().transact(() -> {
+      for (PostEntity post : posts) {
+        tagPostingService.markDirty(post, droppedTags);
+      }
+    });
+
+    new UpdateTagPostingsServlet().doPost(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class));
+
+    ofy().clear();
+  }
+
+  private static List<Long> keys(PostEntity... posts) {
+    return Ix.fromArray(posts).map(PostEntity::getId).toList();
+  }
+
+  private static List<Long> keys(List<TagPosting> postings) {
+    return Ix.from(postings).map(TagPosting::getPostId).toList();
+  }
+}
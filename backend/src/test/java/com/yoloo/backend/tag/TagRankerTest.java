@@ -0,0 +1,60 @@
+package com.yoloo.backend.tag;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TagRankerTest {
+
+  private final TagRanker ranker = TagRanker.create(0.8D);
+
+  @Test public void testRank_spikeScoresAboveSteadyUse() throws Exception {
+    TagTrend steady = null;
+    TagTrend spiking = null;
+
+    for (long bucket = 0; bucket < 12; bucket++) {
+      steady = ranker.rank(steady, "steady", bucket, 10);
+      spiking = ranker.rank(spiking, "spiking", bucket, bucket < 11 ? 2 : 20);
+    }
+
+    assertEquals(0.0D, steady.getScore(), 0.001D);
+    assertTrue(spiking.getScore() > 1.0D);
+  }
+
+  @Test public void testRank_skippedBucketsCountAsZeroUse() throws Exception {
+    TagTrend skipped = ranker.rank(null, "tag", 0, 5);
+    TagTrend zeros = skipped;
+
+    skipped = ranker.rank(skipped, "tag", 4, 5);
+
+    for (long bucket = 1; bucket <= 3; bucket++) {
+      zeros = ranker.rank(zeros, "tag", bucket, 0);
+    }
+    zeros = ranker.rank(zeros, "tag", 4, 5);
+
+    assertEquals(zeros.getAvg(), skipped.getAvg(), 0.000001D);
+    assertEquals(zeros.getSqrAvg(), skipped.getSqrAvg(), 0.000001D);
+    assertEquals(zeros.getScore(), skipped.getScore(), 0.000001D);
+    assertEquals(4L, skipped.getBucket());
+  }
+
+  @Test public void testTop_highestPositiveScores() throws Exception {
+    List<TagTrend> trends = Lists.newArrayList(
+        trend("a", 0.5D), trend("b", 3.0D), trend("c", -1.0D), trend("d", 2.0D),
+        trend("e", 1.0D));
+
+    List<TagTrend> top = ranker.top(trends, 3);
+
+    assertEquals(3, top.size());
+    assertEquals("b", top.get(0).getId());
+    assertEquals("d", top.get(1).getId());
+    assertEquals("e", top.get(2).getId());
+  }
+
+  private TagTrend trend(String name, double score) {
+    return TagTrend.builder().id(name).score(score).build();
+  }
+}
@@ -6,10 +6,15 @@ import com.yoloo.backend.util.TestBase;
 import ix.Ix;
 import java.util.Arrays;
 import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.junit.Test;
 
 import static com.yoloo.backend.util.TestObjectifyService.ofy;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class TagServiceTest extends TestBase {
 
@@ -35,21 +40,23 @@ public class TagServiceTest extends TestBase {
     Tag tag1 = tagEndpoint.insert("test1", user);
     Tag tag2 = tagEndpoint.insert("test2", user);
 
+    List<String> names = Arrays.asList(tag1.getName(), tag1.getName(), tag2.getName());
+
     TagService tagService = new TagService();
-    List<Tag> updated =
-        tagService.updateTags(Arrays.asList(tag1.getName(), tag1.getName(), tag2.getName()));
-    ofy().save().entities(updated).now();
+    assertTrue(tagService.updateTags(names).isEmpty());
+    ofy().transact(() -> ofy().save().entities(tagService.updateCounters(names)).now());
+    aggregate(tag1, tag2);
 
     Ix
-        .from(ofy().load().entities(updated).values())
+        .from(ofy().load().entities(tag1, tag2).values())
         .foreach(tag -> assertEquals(1, tag.getPostCount()));
 
-    List<Tag> updated2 =
-        tagService.updateTags(Arrays.asList(tag1.getName(), tag1.getName(), tag2.getName()));
-    ofy().save().entities(updated2).now();
+    assertTrue(tagService.updateTags(names).isEmpty());
+    ofy().transact(() -> ofy().save().entities(tagService.updateCounters(names)).now());
+    aggregate(tag1, tag2);
 
     Ix
-        .from(ofy().load().entities(updated).values())
+        .from(ofy().load().entities(tag1, tag2).values())
         .foreach(tag -> assertEquals(2, tag.getPostCount()));
   }
 
@@ -74,4 +81,14 @@ public class TagServiceTest extends TestBase {
 
     Ix.from(updated).foreach(tag -> assertEquals(1, tag.getPostCount()));
   }
+
+  private void aggregate(Tag... tags) throws Exception {
+    for (Tag tag : tags) {
+      HttpServletRequest req = mock(HttpServletRequest.class);
+      when(req.getParameter("tagName")).thenReturn(tag.getName());
+
+      new AggregateTagCounterServlet().doPost(req, mock(HttpServletResponse.class));
+    }
+    ofy().clear();
+  }
 }
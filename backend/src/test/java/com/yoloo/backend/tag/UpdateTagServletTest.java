@@ -0,0 +1,69 @@
+package com.yoloo.backend.tag;
+
+import com.google.appengine.api.taskqueue.dev.LocalTaskQueue;
+import com.google.appengine.api.taskqueue.dev.QueueStateInfo;
+import com.google.appengine.tools.development.testing.LocalTaskQueueTestConfig;
+import com.google.common.collect.ImmutableList;
+import ix.Ix;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.yoloo.backend.util.TestBase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UpdateTagServletTest extends TestBase {
+
+  @Test public void testUpdateTrends_snapshotFromUsage() throws Exception {
+    TagService tagService = new TagService();
+
+    for (int i = 0; i < 5; i++) {
+      tagService.recordUsage(ImmutableList.of("istanbul"));
+    }
+    tagService.recordUsage(ImmutableList.of("travel", "istanbul"));
+
+    updateTrends(TagTrendService.getBucket(System.currentTimeMillis()));
+
+    List<Tag> trending = TagTrendService.create().getTrendingTags(10);
+
+    assertEquals(2, trending.size());
+    assertEquals("istanbul", trending.get(0).getName());
+    assertEquals(6.0D, trending.get(0).getRank(), 0.0D);
+    assertEquals("travel", trending.get(1).getName());
+  }
+
+  @Test public void testUpdateTrends_quietBucketCoolsDown() throws Exception {
+    final long bucket = TagTrendService.getBucket(System.currentTimeMillis());
+
+    new TagService().recordUsage(ImmutableList.of("istanbul"));
+    updateTrends(bucket);
+
+    assertEquals(1, TagTrendService.create().getTrendingTags(10).size());
+    // No tag is used in the next bucket, its pass is scheduled anyway.
+    assertTrue(getTaskNames().contains("trend-" + (bucket + 1)));
+
+    updateTrends(bucket + 1);
+
+    assertTrue(TagTrendService.create().getTrendingTags(10).isEmpty());
+    assertFalse(getTaskNames().contains("trend-" + (bucket + 2)));
+  }
+
+  private static void updateTrends(long bucket) throws Exception {
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("bucket")).thenReturn(String.valueOf(bucket));
+
+    new UpdateTagServlet().doPost(req, mock(HttpServletResponse.class));
+  }
+
+  private static List<String> getTaskNames() {
+    LocalTaskQueue ltq = LocalTaskQueueTestConfig.getLocalTaskQueue();
+    QueueStateInfo qsi = ltq.getQueueStateInfo().get("update-tag-queue");
+
+    return Ix.from(qsi.getTaskInfo()).map(QueueStateInfo.TaskStateInfo::getTaskName).toList();
+  }
+}
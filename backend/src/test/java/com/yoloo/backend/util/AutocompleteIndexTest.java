@@ -0,0 +1,56 @@
+package com.yoloo.backend.util;
+
+import ix.Ix;
+import java.util.List;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AutocompleteIndexTest extends TestBase {
+
+  @Test public void testSearch_loadsBuiltSnapshot() throws Exception {
+    CityIndex index = new CityIndex();
+    index.build();
+
+    // Another instance, it loads the stored snapshot instead of reading every entity.
+    CityIndex other = new CityIndex();
+    List<String> ids =
+        Ix.from(other.search("is", 10)).map(PrefixIndex.Entry::getId).toList();
+
+    assertEquals(0, other.loadAllCalls);
+    assertEquals(2, ids.size());
+    assertEquals("istanbul", ids.get(0));
+    assertEquals("israel", ids.get(1));
+  }
+
+  @Test public void testBuild_replacesSnapshotAcrossChunks() throws Exception {
+    CityIndex index = new CityIndex();
+    index.cities = 50000;
+    index.build();
+
+    index.cities = 3;
+    index.build();
+
+    CityIndex other = new CityIndex();
+
+    assertEquals(3, other.search("c", 10).size());
+    assertEquals(0, other.search("city 40000", 10).size());
+  }
+
+  private static final class CityIndex extends AutocompleteIndex {
+    private int loadAllCalls;
+    private int cities;
+
+    @Override protected void loadAll(PrefixIndex.Builder builder) {
+      loadAllCalls++;
+      builder.add("Istanbul", "istanbul", 40L).add("Israel", "israel", 12L);
+      for (int i = 0; i < cities; i++) {
+        builder.add("City " + i, "city-" + i, i);
+      }
+    }
+
+    @Override protected void loadSince(DateTime since, PrefixIndex.Builder builder) {
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.yoloo.backend.util;
+
+import ix.Ix;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixIndexTest {
+
+  @Test public void testSearch_heaviestFirstWithinPrefix() throws Exception {
+    PrefixIndex index = PrefixIndex.builder()
+        .add("Istanbul", "istanbul", 40L)
+        .add("Istanbul Nightlife", "istanbul nightlife", 5L)
+        .add("Israel", "israel", 12L)
+        .add("izmir", "izmir", 30L)
+        .add("italy", "italy", 25L)
+        .build();
+
+    List<String> ids = Ix.from(index.search("IS", 10)).map(PrefixIndex.Entry::getId).toList();
+
+    assertEquals(3, ids.size());
+    assertEquals("istanbul", ids.get(0));
+    assertEquals("israel", ids.get(1));
+    assertEquals("istanbul nightlife", ids.get(2));
+  }
+
+  @Test public void testSearch_limitAndExclusion() throws Exception {
+    PrefixIndex index = PrefixIndex.builder()
+        .add("a1", "a1", 1L)
+        .add("a2", "a2", 2L)
+        .add("a3", "a3", 3L)
+        .add("b1", "b1", 100L)
+        .build();
+
+    List<String> ids =
+        Ix.from(index.search("a", 2, "a3"::equals)).map(PrefixIndex.Entry::getId).toList();
+
+    assertEquals(2, ids.size());
+    assertEquals("a2", ids.get(0));
+    assertEquals("a1", ids.get(1));
+    assertTrue(index.search("c", 5).isEmpty());
+  }
+
+  @Test public void testSearch_matchesBruteForce() throws Exception {
+    Random random = new Random(42L);
+    PrefixIndex.Builder builder = PrefixIndex.builder();
+
+    for (int i = 0; i < 2000; i++) {
+      String term = Long.toString(random.nextInt(1 << 20), 4);
+      builder.add(term, "id" + i, random.nextInt(50));
+    }
+
+    PrefixIndex index = builder.build();
+
+    for (String prefix : new String[] {"", "1", "12", "203", "3333"}) {
+      List<PrefixIndex.Entry> expected = Ix
+          .from(index.entries())
+          .filter(e -> e.getTerm().startsWith(prefix))
+          .orderBy((e1, e2) -> {
+            final int byWeight = Long.compare(e2.getWeight(), e1.getWeight());
+            return byWeight != 0 ? byWeight : e1.getTerm().compareTo(e2.getTerm());
+          })
+          .take(10)
+          .toList();
+
+      assertEquals(Ix.from(expected).map(PrefixIndex.Entry::getWeight).toList(),
+          Ix.from(index.search(prefix, 10)).map(PrefixIndex.Entry::getWeight).toList());
+    }
+  }
+}
@@ -1,15 +1,22 @@
 package com.yoloo.backend.util;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Ref;
 import com.googlecode.objectify.impl.translate.opt.joda.JodaTimeTranslators;
 import com.googlecode.objectify.util.Closeable;
 import com.yoloo.backend.account.Account;
+import com.yoloo.backend.account.AccountAutocompleteIndex;
 import com.yoloo.backend.account.AccountShard;
 import com.yoloo.backend.bookmark.Bookmark;
 import com.yoloo.backend.comment.Comment;
 import com.yoloo.backend.comment.CommentShard;
 import com.yoloo.backend.device.DeviceRecord;
 import com.yoloo.backend.feed.Feed;
+import com.yoloo.backend.feed.PullAuthor;
 import com.yoloo.backend.game.Tracker;
+import com.yoloo.backend.game.leaderboard.LeaderboardShard;
 import com.yoloo.backend.group.TravelerGroupEntity;
 import com.yoloo.backend.group.TravelerGroupShard;
 import com.yoloo.backend.travelertype.TravelerTypeEntity;
@@ -17,13 +24,33 @@ import com.yoloo.backend.media.MediaEntity;
 import com.yoloo.backend.notification.Notification;
 import com.yoloo.backend.post.PostEntity;
 import com.yoloo.backend.post.PostShard;
+import com.yoloo.backend.post.PostShardService;
+import com.yoloo.backend.shard.ShardCount;
+import com.yoloo.backend.recommendation.FollowGraphPage;
+import com.yoloo.backend.recommendation.FollowRecommendation;
 import com.yoloo.backend.relationship.Relationship;
+import com.yoloo.backend.search.AutocompleteChunk;
+import com.yoloo.backend.search.AutocompleteSnapshot;
+import com.yoloo.backend.search.PostingShard;
+import com.yoloo.backend.search.SearchDocument;
+import com.yoloo.backend.search.SearchIndex;
+import com.yoloo.backend.search.SearchTerm;
 import com.yoloo.backend.tag.Tag;
+import com.yoloo.backend.tag.TagAutocompleteIndex;
+import com.yoloo.backend.tag.TagPostingChunk;
 import com.yoloo.backend.tag.TagShard;
+import com.yoloo.backend.tag.TagTimeline;
+import com.yoloo.backend.tag.TagTrend;
+import com.yoloo.backend.tag.TrendingTags;
 import com.yoloo.backend.vote.Vote;
+import com.yoloo.backend.vote.VoteFlushLog;
+import java.util.Map;
+import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 
+import static com.yoloo.backend.OfyService.factory;
+import static com.yoloo.backend.OfyService.ofy;
 import static com.yoloo.backend.util.TestObjectifyService.fact;
 
 public class TestBase extends GAETestBase {
@@ -40,9 +67,21 @@ public class TestBase extends GAETestBase {
 
     fact().register(PostEntity.class);
     fact().register(PostShard.class);
+    fact().register(ShardCount.class);
 
     fact().register(Tag.class);
     fact().register(TagShard.class);
+    fact().register(TagTrend.class);
+    fact().register(TrendingTags.class);
+
+    fact().register(SearchIndex.class);
+    fact().register(SearchTerm.class);
+    fact().register(PostingShard.class);
+    fact().register(SearchDocument.class);
+    fact().register(AutocompleteSnapshot.class);
+    fact().register(AutocompleteChunk.class);
+    fact().register(TagTimeline.class);
+    fact().register(TagPostingChunk.class);
 
     fact().register(TravelerTypeEntity.class);
     fact().register(TravelerGroupEntity.class);
@@ -52,9 +91,14 @@ public class TestBase extends GAETestBase {
     fact().register(CommentShard.class);
 
     fact().register(Relationship.class);
+    fact().register(FollowRecommendation.class);
+    fact().register(FollowGraphPage.class);
     fact().register(Vote.class);
+    fact().register(VoteFlushLog.class);
     fact().register(Feed.class);
+    fact().register(PullAuthor.class);
     fact().register(Tracker.class);
+    fact().register(LeaderboardShard.class);
     fact().register(DeviceRecord.class);
     fact().register(Notification.class);
     fact().register(MediaEntity.class);
@@ -65,6 +109,38 @@ public class TestBase extends GAETestBase {
   public void tearDown() {
     rootService.close();
     rootService = null;
+
+    // Autocomplete indexes live as long as the instance, drop what this test indexed.
+    TagAutocompleteIndex.instance().clear();
+    AccountAutocompleteIndex.instance().clear();
+  }
+
+  /**
+   * Saves a text post of the given author together with its counter shards, the first shard
+   * holding the given votes. Also used by the JMH benchmarks to fill the local datastore.
+   */
+  public static PostEntity createPost(Key<Account> authorKey, DateTime created, long votes,
+      String... tags) {
+    final Key<PostEntity> postKey = factory().allocateId(authorKey, PostEntity.class);
+
+    Map<Ref<PostShard>, PostShard> shardMap =
+        PostShardService.create().createShardMapWithRef(postKey);
+    shardMap.values().iterator().next().increaseVotesBy(votes);
+
+    PostEntity post = PostEntity.builder()
+        .id(postKey.getId())
+        .parent(authorKey)
+        .content("Test content")
+        .shardRefs(Lists.newArrayList(shardMap.keySet()))
+        .tags(ImmutableSet.copyOf(tags))
+        .postType(PostEntity.Type.TEXT_POST.getType())
+        .created(created)
+        .build();
+
+    ofy().save().entity(post).now();
+    ofy().save().entities(shardMap.values()).now();
+
+    return post;
   }
 
   private void setUpObjectifyFactory(TestObjectifyFactory factory) {
@@ -0,0 +1,146 @@
+package com.yoloo.backend.vote;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.users.User;
+import com.google.apphosting.api.ApiProxy;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.util.Closeable;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.feed.FeedCache;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.post.PostShard;
+import com.yoloo.backend.post.PostShardService;
+import com.yoloo.backend.util.TestBase;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static com.yoloo.backend.OfyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class FlushVotesServletTest extends TestBase {
+
+  private final PostShardService postShardService = PostShardService.create();
+
+  @Test public void testFlush_appliesBufferedDeltas() throws Exception {
+    final PostEntity post = createPost(Key.create(Account.class, 1L), DateTime.now(), 0L);
+    final Key<PostEntity> postKey = post.getKey();
+
+    VoteBuffer voteBuffer = VoteBuffer.create();
+
+    for (long delta : new long[] {1L, 1L, 2L, -1L}) {
+      ofy().transact(() -> voteBuffer.add(postKey, delta));
+    }
+
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("votableId")).thenReturn(postKey.toWebSafeString());
+
+    new FlushVotesServlet().doPost(req, mock(HttpServletResponse.class));
+
+    ofy().clear();
+
+    assertEquals(3L, countVotes(post));
+    assertTrue(QueueFactory.getQueue(VoteBuffer.VOTE_DELTA_QUEUE)
+        .leaseTasksByTag(1L, TimeUnit.SECONDS, 10L, postKey.toWebSafeString())
+        .isEmpty());
+  }
+
+  @Test public void testFlush_concurrentIdenticalVotesCountOnce() throws Exception {
+    final PostEntity post = createPost(Key.create(Account.class, 1L), DateTime.now(), 0L);
+    final Key<PostEntity> postKey = post.getKey();
+    final User user = new User("test@gmail.com", "gmail.com",
+        Key.create(Account.class, 2L).toWebSafeString());
+
+    final VoteBuffer voteBuffer = spy(VoteBuffer.create());
+    final VoteController voteController =
+        VoteController.create(voteBuffer, FeedCache.create(), VotedSetCache.create());
+
+    // A double tap, the second vote commits while the first one is in its transaction.
+    final AtomicBoolean tapped = new AtomicBoolean();
+    final ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    doAnswer(invocation -> {
+      if (tapped.compareAndSet(false, true)) {
+        Thread tap = new Thread(() -> {
+          ApiProxy.setEnvironmentForCurrentThread(environment);
+          try (Closeable ignored = ObjectifyService.begin()) {
+            voteController.vote(postKey.toWebSafeString(), Vote.Direction.UP.getValue(), user);
+          }
+        });
+        tap.start();
+        tap.join();
+      }
+      return invocation.callRealMethod();
+    }).when(voteBuffer).add(any(), anyLong());
+
+    voteController.vote(postKey.toWebSafeString(), Vote.Direction.UP.getValue(), user);
+
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("votableId")).thenReturn(postKey.toWebSafeString());
+
+    new FlushVotesServlet().doPost(req, mock(HttpServletResponse.class));
+
+    ofy().clear();
+
+    assertEquals(1L, countVotes(post));
+  }
+
+  @Test public void testFlush_skipsDeltasAppliedByDeadFlush() throws Exception {
+    final PostEntity post = createPost(Key.create(Account.class, 1L), DateTime.now(), 0L);
+    final Key<PostEntity> postKey = post.getKey();
+
+    Queue queue = QueueFactory.getQueue(VoteBuffer.VOTE_DELTA_QUEUE);
+    for (int i = 1; i <= 2; i++) {
+      queue.add(TaskOptions.Builder
+          .withMethod(TaskOptions.Method.PULL)
+          .taskName("delta-" + i)
+          .tag(postKey.toWebSafeString())
+          .payload(String.valueOf(i).getBytes(Charsets.UTF_8)));
+    }
+
+    // A flush applied the first delta and died before deleting it.
+    VoteFlushLog flushLog = VoteFlushLog.builder()
+        .id(VoteFlushLog.createKey(postKey).getName())
+        .build();
+    flushLog.markApplied(ImmutableList.of("delta-1"));
+    ofy().save().entity(flushLog).now();
+
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("votableId")).thenReturn(postKey.toWebSafeString());
+
+    new FlushVotesServlet().doPost(req, mock(HttpServletResponse.class));
+
+    ofy().clear();
+
+    assertEquals(2L, countVotes(post));
+    assertEquals(ImmutableList.of("delta-1", "delta-2"),
+        ofy().load().key(VoteFlushLog.createKey(postKey)).now().getAppliedTaskNames());
+    assertTrue(queue
+        .leaseTasksByTag(1L, TimeUnit.SECONDS, 10L, postKey.toWebSafeString())
+        .isEmpty());
+  }
+
+  private long countVotes(PostEntity post) {
+    long votes = 0L;
+    for (PostShard shard : postShardService.loadShards(Lists.newArrayList(post))
+        .get(post.getKey())) {
+      votes += shard.getVotes();
+    }
+    return votes;
+  }
+}
@@ -32,12 +32,16 @@ import com.yoloo.backend.tag.TagControllerFactory;
 import com.yoloo.backend.util.TestBase;
 import java.util.Map;
 import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
 import static com.yoloo.backend.util.TestObjectifyService.fact;
 import static com.yoloo.backend.util.TestObjectifyService.ofy;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class VoteControllerTest extends TestBase {
 
@@ -109,6 +113,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.UP.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -131,6 +136,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DOWN.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -153,6 +159,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DEFAULT.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -178,6 +185,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.UP.getValue(), user);
+    flushVotes(comment);
 
     comment = shardService
         .mergeShards(comment)
@@ -188,6 +196,7 @@ public class VoteControllerTest extends TestBase {
     assertEquals(1L, comment.getVoteCount());
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DEFAULT.getValue(), user);
+    flushVotes(comment);
 
     comment = shardService
         .mergeShards(comment)
@@ -207,6 +216,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DEFAULT.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -220,6 +230,7 @@ public class VoteControllerTest extends TestBase {
     assertEquals(0L, comment.getVoteCount());
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.UP.getValue(), user);
+    flushVotes(comment);
 
     comment = shardService
         .mergeShards(comment)
@@ -239,6 +250,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DEFAULT.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -252,6 +264,7 @@ public class VoteControllerTest extends TestBase {
     assertEquals(0L, comment.getVoteCount());
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DOWN.getValue(), user);
+    flushVotes(comment);
 
     comment = shardService
         .mergeShards(comment)
@@ -271,6 +284,7 @@ public class VoteControllerTest extends TestBase {
         commentController.insertComment(postEntity.getWebsafeId(), "Test comment", user);
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DOWN.getValue(), user);
+    flushVotes(comment);
 
     CommentShardService shardService = CommentShardService.create();
     VoteService voteService = VoteService.create();
@@ -284,6 +298,7 @@ public class VoteControllerTest extends TestBase {
     assertEquals(-1L, comment.getVoteCount());
 
     voteController.vote(comment.getWebsafeId(), Vote.Direction.DEFAULT.getValue(), user);
+    flushVotes(comment);
 
     comment = shardService
         .mergeShards(comment)
@@ -294,6 +309,13 @@ public class VoteControllerTest extends TestBase {
     assertEquals(0L, comment.getVoteCount());
   }
 
+  private void flushVotes(Comment comment) throws Exception {
+    HttpServletRequest req = mock(HttpServletRequest.class);
+    when(req.getParameter("votableId")).thenReturn(comment.getWebsafeId());
+
+    new FlushVotesServlet().doPost(req, mock(HttpServletResponse.class));
+  }
+
   private AccountBundle createAccount() {
     final Key<Account> ownerKey = fact().allocateId(Account.class);
 
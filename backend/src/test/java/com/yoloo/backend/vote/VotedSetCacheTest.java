@@ -0,0 +1,77 @@
+package com.yoloo.backend.vote;
+
+import com.googlecode.objectify.Key;
+import com.yoloo.backend.account.Account;
+import com.yoloo.backend.post.PostEntity;
+import com.yoloo.backend.util.TestBase;
+import org.junit.Test;
+
+import static com.yoloo.backend.util.TestObjectifyService.fact;
+import static com.yoloo.backend.util.TestObjectifyService.ofy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class VotedSetCacheTest extends TestBase {
+
+  @Test public void testGet_buildsFromVotes() throws Exception {
+    final Key<Account> accountKey = fact().allocateId(Account.class);
+    final Key<Account> authorKey = fact().allocateId(Account.class);
+
+    final Key<PostEntity> upKey = fact().allocateId(authorKey, PostEntity.class);
+    final Key<PostEntity> downKey = fact().allocateId(authorKey, PostEntity.class);
+    final Key<PostEntity> otherKey = fact().allocateId(authorKey, PostEntity.class);
+
+    ofy().save().entities(createVote(accountKey, upKey, Vote.Direction.UP),
+        createVote(accountKey, downKey, Vote.Direction.DOWN)).now();
+
+    VotedSet votedSet = VotedSetCache.create().get(accountKey);
+
+    assertNotNull(votedSet);
+    assertEquals(Vote.Direction.UP, votedSet.lookup(upKey.toWebSafeString()));
+    assertEquals(Vote.Direction.DOWN, votedSet.lookup(downKey.toWebSafeString()));
+    assertEquals(Vote.Direction.DEFAULT, votedSet.lookup(otherKey.toWebSafeString()));
+  }
+
+  @Test public void testRecord_updatesCachedSet() throws Exception {
+    final Key<Account> accountKey = fact().allocateId(Account.class);
+    final Key<Account> authorKey = fact().allocateId(Account.class);
+    final Key<PostEntity> postKey = fact().allocateId(authorKey, PostEntity.class);
+
+    VotedSetCache cache = VotedSetCache.create();
+
+    assertEquals(Vote.Direction.DEFAULT, cache.get(accountKey).lookup(postKey.toWebSafeString()));
+
+    cache.record(accountKey, postKey, Vote.Direction.UP.getValue());
+    assertEquals(Vote.Direction.UP, cache.get(accountKey).lookup(postKey.toWebSafeString()));
+
+    cache.record(accountKey, postKey, Vote.Direction.DEFAULT.getValue());
+    assertEquals(Vote.Direction.DEFAULT, cache.get(accountKey).lookup(postKey.toWebSafeString()));
+  }
+
+  @Test public void testLookup_unknownWhenOnlyInFilter() throws Exception {
+    final Key<Account> authorKey = fact().allocateId(Account.class);
+
+    VotedSet votedSet = VotedSet.create(0);
+
+    // Push the first vote out of the recent directions, only the bloom filter still has it.
+    final Key<PostEntity> firstKey = fact().allocateId(authorKey, PostEntity.class);
+    votedSet.add(firstKey.toWebSafeString(), Vote.Direction.UP.getValue());
+
+    for (int i = 0; i < 500; i++) {
+      Key<PostEntity> key = fact().allocateId(authorKey, PostEntity.class);
+      votedSet.add(key.toWebSafeString(), Vote.Direction.UP.getValue());
+    }
+
+    assertNull(votedSet.lookup(firstKey.toWebSafeString()));
+  }
+
+  private Vote createVote(Key<Account> accountKey, Key<PostEntity> postKey, Vote.Direction dir) {
+    return Vote.builder()
+        .id(postKey.toWebSafeString())
+        .parent(accountKey)
+        .votableKey(Key.create(postKey.getRaw()))
+        .dir(dir.getValue())
+        .build();
+  }
+}